@@ -3,9 +3,11 @@ package org.agrimachinerymanager;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("org.agrimachinerymanager.mapper")
+@EnableScheduling
 public class AgriMachineryManagerApplication {
 
     public static void main(String[] args) {
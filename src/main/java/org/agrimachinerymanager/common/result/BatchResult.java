@@ -0,0 +1,59 @@
+package org.agrimachinerymanager.common.result;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量新增/更新结果
+ * 校验失败或写入失败的记录逐条列出，其余记录已写入
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 提交的记录数
+     */
+    private int total;
+
+    /**
+     * 写入成功的记录数
+     */
+    private int succeeded;
+
+    /**
+     * 失败的记录数
+     */
+    private int failed;
+
+    /**
+     * 失败记录的原因，按下标排序
+     */
+    private List<RowError> errors;
+
+    /**
+     * 单条记录的失败原因
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 记录在提交列表中的下标，从0开始
+         */
+        private int index;
+
+        /**
+         * 失败原因
+         */
+        private String message;
+    }
+}
@@ -0,0 +1,45 @@
+package org.agrimachinerymanager.common.result;
+
+import org.agrimachinerymanager.exception.BaseException;
+
+/**
+ * 分页查询的总数统计方式
+ */
+public enum CountMode {
+
+    /**
+     * 精确统计，每次查询都执行COUNT
+     */
+    EXACT,
+
+    /**
+     * 缓存统计结果，相同筛选条件在有效期内复用，数据变更时失效
+     */
+    CACHED,
+
+    /**
+     * 根据执行计划的行数估算，不扫描数据，结果为近似值
+     */
+    ESTIMATED,
+
+    /**
+     * 不统计总数，多查一条判断是否还有下一页
+     */
+    NONE;
+
+    /**
+     * 解析请求参数，为空时使用精确统计
+     * @param value 请求参数值，不区分大小写
+     * @return 统计方式
+     */
+    public static CountMode of(String value) {
+        if (value == null || value.isEmpty()) {
+            return EXACT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BaseException("不支持的总数统计方式: " + value);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.agrimachinerymanager.common.result;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * 带总数统计方式的分页结果
+ * 在Page基础上返回countMode和hasNext；countMode为none时不统计总数，total和pages均为-1，
+ * 为estimated时total为估算值，客户端应以hasNext判断是否还有下一页
+ * @param <T> 记录类型
+ */
+public class CountedPage<T> extends Page<T> {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 总数未知
+     */
+    public static final long UNKNOWN_TOTAL = -1L;
+
+    private final CountMode countMode;
+
+    private boolean hasNext;
+
+    public CountedPage(long current, long size, CountMode countMode) {
+        // 总数由统计方式单独处理，不使用分页插件的COUNT
+        super(current, size, countMode == CountMode.EXACT);
+        this.countMode = countMode;
+    }
+
+    @JsonProperty("countMode")
+    public String getCountMode() {
+        return countMode.name().toLowerCase();
+    }
+
+    @Override
+    @JsonProperty("hasNext")
+    public boolean hasNext() {
+        if (countMode == CountMode.NONE || countMode == CountMode.ESTIMATED) {
+            return hasNext;
+        }
+        return super.hasNext();
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    @Override
+    public long getPages() {
+        if (getTotal() == UNKNOWN_TOTAL) {
+            return UNKNOWN_TOTAL;
+        }
+        return super.getPages();
+    }
+}
@@ -0,0 +1,52 @@
+package org.agrimachinerymanager.common.result;
+
+import org.agrimachinerymanager.exception.BaseException;
+
+/**
+ * 流式导出格式
+ */
+public enum ExportFormat {
+
+    /**
+     * 每行一个JSON对象
+     */
+    NDJSON("application/x-ndjson", ".ndjson"),
+
+    /**
+     * 逗号分隔，首行为列名
+     */
+    CSV("text/csv", ".csv");
+
+    private final String contentType;
+
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * 解析请求参数，为空时使用NDJSON
+     * @param value 请求参数值，不区分大小写
+     * @return 导出格式
+     */
+    public static ExportFormat of(String value) {
+        if (value == null || value.isEmpty()) {
+            return NDJSON;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BaseException("不支持的导出格式: " + value);
+        }
+    }
+}
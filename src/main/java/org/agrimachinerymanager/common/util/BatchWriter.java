@@ -0,0 +1,143 @@
+package org.agrimachinerymanager.common.util;
+
+import com.baomidou.mybatisplus.extension.toolkit.Db;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.exception.BaseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * 批量写入
+ * 调用方先在内存中完成校验，把不合格的记录下标和原因放入错误表，其余记录按固定条数分批，
+ * 每批在一个事务中通过JDBC批处理写入（MySQL驱动开启rewriteBatchedStatements后合并为多行语句）
+ * 某一批写入失败时只回滚该批，再把该批一分为二分别重试，直到定位出导致失败的记录，
+ * 只有这些记录标记为失败并给出原因，同批其他记录照常写入；k条坏记录最多多出约 2k·log(批大小) 次事务
+ */
+@Component
+public class BatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchWriter.class);
+
+    // 每批写入的条数
+    @Value("${batch.chunk-size:500}")
+    private int chunkSize;
+
+    // 单次请求最多提交的条数
+    @Value("${batch.max-rows:5000}")
+    private int maxRows;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * 检查提交的记录数
+     * @param rows 提交的记录
+     * @throws BaseException 记录为空或超过单次上限
+     */
+    public void checkSize(List<?> rows) {
+        if (rows == null || rows.isEmpty()) {
+            throw new BaseException("批量数据不能为空");
+        }
+        if (rows.size() > maxRows) {
+            throw new BaseException("单次最多提交" + maxRows + "条数据");
+        }
+    }
+
+    /**
+     * 批量新增校验通过的记录，新增后记录的ID被回填
+     * @param rows 提交的全部记录
+     * @param errors 校验失败的记录下标 -> 原因，这些记录不写入
+     * @return 批量结果
+     */
+    public <T> BatchResult insert(List<T> rows, Map<Integer, String> errors) {
+        return write(rows, errors, chunk -> Db.saveBatch(chunk, chunk.size()));
+    }
+
+    /**
+     * 按ID批量更新校验通过的记录，只更新非空字段
+     * @param rows 提交的全部记录
+     * @param errors 校验失败的记录下标 -> 原因，这些记录不写入
+     * @return 批量结果
+     */
+    public <T> BatchResult updateById(List<T> rows, Map<Integer, String> errors) {
+        return write(rows, errors, chunk -> Db.updateBatchById(chunk, chunk.size()));
+    }
+
+    /**
+     * 跳过校验失败的记录，其余记录按批写入并汇总结果
+     */
+    <T> BatchResult write(List<T> rows, Map<Integer, String> errors, Consumer<List<T>> writer) {
+        Map<Integer, String> failed = new TreeMap<>(errors);
+        List<T> chunk = new ArrayList<>(Math.min(chunkSize, rows.size()));
+        List<Integer> chunkIndexes = new ArrayList<>(Math.min(chunkSize, rows.size()));
+        int succeeded = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            if (errors.containsKey(i)) {
+                continue;
+            }
+            chunk.add(rows.get(i));
+            chunkIndexes.add(i);
+            if (chunk.size() == chunkSize) {
+                succeeded += writeChunk(chunk, chunkIndexes, failed, writer);
+                chunk.clear();
+                chunkIndexes.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            succeeded += writeChunk(chunk, chunkIndexes, failed, writer);
+        }
+
+        List<BatchResult.RowError> rowErrors = new ArrayList<>(failed.size());
+        failed.forEach((index, message) -> rowErrors.add(new BatchResult.RowError(index, message)));
+        return new BatchResult(rows.size(), succeeded, failed.size(), rowErrors);
+    }
+
+    /**
+     * 在一个事务中写入一批记录，失败时回滚并二分重试
+     * @return 写入成功的条数
+     */
+    private <T> int writeChunk(List<T> chunk, List<Integer> chunkIndexes, Map<Integer, String> failed,
+                               Consumer<List<T>> writer) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> writer.accept(chunk));
+            return chunk.size();
+        } catch (RuntimeException e) {
+            if (chunk.size() == 1) {
+                log.warn("批量写入失败，下标{}的记录未写入: {}", chunkIndexes.get(0), e.getMessage());
+                failed.put(chunkIndexes.get(0), failureMessage(e));
+                return 0;
+            }
+            log.debug("批量写入失败，下标{}至{}的{}条记录已回滚，拆分重试: {}", chunkIndexes.get(0),
+                    chunkIndexes.get(chunkIndexes.size() - 1), chunk.size(), e.getMessage());
+            int half = chunk.size() / 2;
+            return writeChunk(chunk.subList(0, half), chunkIndexes.subList(0, half), failed, writer)
+                    + writeChunk(chunk.subList(half, chunk.size()), chunkIndexes.subList(half, chunk.size()),
+                    failed, writer);
+        }
+    }
+
+    /**
+     * 单条记录写入失败的原因，数据库的原始错误只写日志
+     */
+    private static String failureMessage(RuntimeException e) {
+        if (e instanceof DuplicateKeyException) {
+            return "与已有数据重复";
+        }
+        if (e instanceof DataIntegrityViolationException) {
+            return "数据不符合约束（必填字段为空、长度超限或关联数据不存在）";
+        }
+        return "写入失败";
+    }
+}
@@ -0,0 +1,115 @@
+package org.agrimachinerymanager.common.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.exception.BaseException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标（键集）分页工具类
+ * 按(时间列, id)倒序排列，下一页从上一页最后一条记录之后开始查找：
+ * WHERE 时间列 <= ? AND (时间列 < ? OR (时间列 = ? AND id < ?)) ORDER BY 时间列 DESC, id DESC LIMIT 每页条数+1
+ * 借助(时间列, id)索引直接定位起点，查询代价与页的深度无关，不像OFFSET那样需要扫描并丢弃前面所有的行
+ * 多查一条用于判断是否还有下一页，不执行COUNT
+ * 游标为最后一条记录的时间和id经Base64编码后的字符串，客户端不应解析其内容
+ * 时间列应为非空列，时间为空的记录不会出现在游标分页结果中
+ */
+public final class CursorPagination {
+
+    // 每页最大条数，与分页插件的单页限制一致
+    public static final int MAX_PAGE_SIZE = 500;
+
+    // 游标格式版本，格式变更时旧游标直接判定为无效
+    private static final String VERSION = "1";
+
+    private static final String ID_COLUMN = "id";
+
+    private CursorPagination() {
+    }
+
+    /**
+     * 为查询条件添加游标定位、排序和条数限制
+     * @param queryWrapper 已包含过滤条件的查询条件
+     * @param timeColumn 排序的时间列
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     */
+    public static <T> void seek(QueryWrapper<T> queryWrapper, String timeColumn, String cursor, int pageSize) {
+        queryWrapper.isNotNull(timeColumn);
+        if (cursor != null && !cursor.isEmpty()) {
+            Position position = decode(cursor);
+            // 冗余的范围条件，使优化器直接从游标位置开始做索引范围扫描，而不是从头扫描后逐行过滤OR条件
+            queryWrapper.le(timeColumn, position.time);
+            queryWrapper.and(w -> w.lt(timeColumn, position.time)
+                    .or(o -> o.eq(timeColumn, position.time).lt(ID_COLUMN, position.id)));
+        }
+        queryWrapper.orderByDesc(timeColumn, ID_COLUMN);
+        queryWrapper.last("LIMIT " + (normalizeSize(pageSize) + 1));
+    }
+
+    /**
+     * 将查询结果转换为游标分页结果
+     * @param rows 按seek条件查询出的记录（最多每页条数+1条）
+     * @param pageSize 每页条数
+     * @param timeOf 取记录的时间列值
+     * @param idOf 取记录的id
+     * @return 游标分页结果
+     */
+    public static <T> CursorPage<T> page(List<T> rows, int pageSize, Function<T, LocalDateTime> timeOf,
+                                         Function<T, Long> idOf) {
+        int size = normalizeSize(pageSize);
+        boolean hasMore = rows.size() > size;
+        List<T> records = hasMore ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            T last = records.get(records.size() - 1);
+            nextCursor = encode(timeOf.apply(last), idOf.apply(last));
+        }
+        return new CursorPage<>(records, size, nextCursor, hasMore);
+    }
+
+    /**
+     * 每页条数限制在1到MAX_PAGE_SIZE之间
+     */
+    public static int normalizeSize(int pageSize) {
+        return Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+    }
+
+    static String encode(LocalDateTime time, Long id) {
+        String raw = VERSION + "|" + time + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Position decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new BaseException("分页游标无效");
+            }
+            return new Position(LocalDateTime.parse(parts[1]), Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BaseException("分页游标无效");
+        }
+    }
+
+    /**
+     * 内部类：游标指向的位置
+     */
+    static class Position {
+        final LocalDateTime time;
+        final Long id;
+
+        Position(LocalDateTime time, Long id) {
+            this.time = time;
+            this.id = id;
+        }
+    }
+}
@@ -1,60 +1,213 @@
 package org.agrimachinerymanager.common.util;
 
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * JWT令牌黑名单管理类
  * 用于存储已登出的令牌，防止被重复使用
  * 使用Redis存储，支持分布式系统
+ * 黑名单按令牌标识（jti，旧令牌为令牌摘要）存储，避免把完整令牌作为Redis键
+ * 黑名单记录与用户的会话、令牌版本号使用相同的哈希标签，黑名单索引为全局键，单独写入
+ * 本地维护按令牌过期时间窗口轮转的布隆过滤器，绝大多数未拉黑的令牌无需访问Redis
+ * 布隆过滤器依赖订阅通知获知其他节点的登出，只有订阅可用、且订阅恢复后已从Redis重建过时才用于判定，
+ * 订阅是否可用通过本节点定期发送并接收自己的心跳确认，心跳中断或序号不连续即视为订阅断开过，改为访问Redis
+ * Redis不可用时黑名单记录暂存在本地降级存储中，恢复后自动写回Redis
+ * 请求认证时的黑名单查询由TokenStateChecker与会话、版本号合并为一次流水线，经熔断器访问Redis
  */
 @Component
-public class JwtTokenBlacklist {
+public class JwtTokenBlacklist implements MessageListener {
 
-    // Redis中的黑名单键前缀
-    private static final String BLACKLIST_PREFIX = "jwt:blacklist:";
+    private static final Logger log = LoggerFactory.getLogger(JwtTokenBlacklist.class);
+
+    // 黑名单新增通知频道，消息格式：过期时间:令牌标识
+    static final String BLACKLIST_CHANNEL = "jwt:blacklist:add";
+
+    // 订阅心跳频道，消息格式：节点标识:序号
+    static final String HEARTBEAT_CHANNEL = "jwt:blacklist:heartbeat";
+
+    // 超过几个心跳间隔未收到心跳视为订阅断开
+    private static final int HEARTBEAT_TIMEOUT_INTERVALS = 3;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private RedisFallbackStore redisFallbackStore;
+
+    // 是否兼容检查升级前的旧黑名单记录（以完整令牌或令牌标识为键、不带哈希标签），旧令牌全部过期后可关闭
+    @Value("${jwt.blacklist.legacy-key-check:true}")
+    private boolean legacyKeyCheck;
+
+    @Value("${jwt.blacklist.bloom.enabled:true}")
+    private boolean bloomEnabled;
+
+    // 每个时间窗口预期拉黑的令牌数量
+    @Value("${jwt.blacklist.bloom.expected-insertions:100000}")
+    private long expectedInsertions;
+
+    // 布隆过滤器误判率
+    @Value("${jwt.blacklist.bloom.false-positive-rate:0.001}")
+    private double falsePositiveRate;
+
+    // 布隆过滤器轮转窗口（秒），按令牌过期时间分桶，窗口结束后整个过滤器丢弃
+    @Value("${jwt.blacklist.bloom.window:86400}")
+    private long windowSeconds;
+
+    // 订阅心跳间隔（毫秒）
+    @Value("${jwt.blacklist.bloom.heartbeat-interval:2000}")
+    private long heartbeatInterval;
+
+    // 按过期时间窗口分桶的布隆过滤器，键为窗口序号
+    private final ConcurrentNavigableMap<Long, BloomFilter> bloomFilters = new ConcurrentSkipListMap<>();
+
+    // 本节点标识，用于识别自己发出的心跳
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // 已成功发出的心跳序号
+    private final AtomicLong publishedHeartbeat = new AtomicLong();
+
+    // 最近收到的心跳序号和接收时间
+    private volatile long receivedHeartbeat = 0;
+    private volatile long heartbeatReceivedAt = 0;
+
+    // 订阅周期，每次确认订阅（重新）可用时递增，断开期间的通知可能已丢失
+    private final AtomicLong subscriptionEpoch = new AtomicLong();
+
+    // 最近一次重建开始时的订阅周期，与当前订阅周期一致时布隆过滤器才包含全部已拉黑的令牌
+    private volatile long rebuiltEpoch = 0;
+
+    // 统计计数
+    private final AtomicLong redisLookupsAvoided = new AtomicLong();
+    private final AtomicLong redisLookups = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final AtomicLong subscriptionLosses = new AtomicLong();
+
+    /**
+     * 订阅其他节点的黑名单新增通知和本节点的心跳
+     */
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this,
+                List.of(new ChannelTopic(BLACKLIST_CHANNEL), new ChannelTopic(HEARTBEAT_CHANNEL)));
+    }
 
     /**
      * 将令牌加入黑名单
-     * @param token 要加入黑名单的令牌
+     * @param userId 令牌所属用户ID
+     * @param tokenId 要加入黑名单的令牌标识
      * @param expirationTime 令牌过期时间（毫秒）
      */
-    public void addToBlacklist(String token, long expirationTime) {
+    public void addToBlacklist(Long userId, String tokenId, long expirationTime) {
+        // 先写入本地过滤器，Redis不可用时暂存到降级存储，恢复后再写回
+        putToBloom(tokenId, expirationTime);
+        if (!redisCircuitBreaker.run(() -> writeToRedis(userId, tokenId, expirationTime))) {
+            redisFallbackStore.blacklist(userId, tokenId, expirationTime);
+            log.warn("令牌写入Redis黑名单失败，暂存到本地降级存储");
+        }
+    }
+
+    /**
+     * 将黑名单记录写入Redis，记录索引并通知其他节点
+     * 重复写入结果相同，登出脚本之后的索引写入失败时也通过降级存储重新执行
+     */
+    void writeToRedis(Long userId, String tokenId, long expirationTime) {
+        String key = RedisKeys.blacklist(userId, tokenId);
         // 计算令牌在Redis中需要存储的时间（秒）
         long ttlInSeconds = (expirationTime - System.currentTimeMillis()) / 1000;
-        
+
         // 确保TTL为正数
         if (ttlInSeconds > 0) {
-            // 将令牌存储到Redis中，并设置过期时间
-            redisTemplate.opsForValue().set(BLACKLIST_PREFIX + token, expirationTime, ttlInSeconds, TimeUnit.SECONDS);
+            // 将令牌存储到Redis中，并设置过期时间，值为过期时间的十进制字符串，与登出脚本写入的格式一致
+            stringRedisTemplate.opsForValue().set(key, String.valueOf(expirationTime),
+                    ttlInSeconds, TimeUnit.SECONDS);
         } else {
             // 如果令牌已经过期，不需要存储到黑名单
-            redisTemplate.opsForValue().set(BLACKLIST_PREFIX + token, expirationTime, 1, TimeUnit.MINUTES);
+            stringRedisTemplate.opsForValue().set(key, String.valueOf(expirationTime),
+                    1, TimeUnit.MINUTES);
         }
+
+        stringRedisTemplate.opsForZSet().add(RedisKeys.BLACKLIST_INDEX, tokenId, expirationTime);
+        stringRedisTemplate.convertAndSend(BLACKLIST_CHANNEL, expirationTime + ":" + tokenId);
     }
 
     /**
-     * 检查令牌是否在黑名单中
-     * @param token 要检查的令牌
-     * @return 如果令牌在黑名单中返回true，否则返回false
+     * 判断是否需要访问Redis确认令牌是否被拉黑，布隆过滤器判定不存在时返回false
+     * @param tokenId 令牌标识
+     * @return 需要访问Redis时返回true
      */
-    public boolean isBlacklisted(String token) {
-        // 检查令牌是否在Redis黑名单中
-        return redisTemplate.hasKey(BLACKLIST_PREFIX + token);
+    boolean needsLookup(String tokenId) {
+        if (bloomEnabled && isBloomReady() && !mightBeBlacklisted(tokenId)) {
+            redisLookupsAvoided.incrementAndGet();
+            return false;
+        }
+        redisLookups.incrementAndGet();
+        return true;
     }
 
     /**
-     * 从黑名单中移除令牌
-     * @param token 要移除的令牌
+     * 记录Redis确认结果，用于统计布隆过滤器误判次数
+     * @param blacklisted 令牌是否在Redis黑名单中
      */
-    public void removeFromBlacklist(String token) {
-        redisTemplate.delete(BLACKLIST_PREFIX + token);
+    void recordLookupResult(boolean blacklisted) {
+        if (!blacklisted && bloomEnabled && isBloomReady()) {
+            falsePositives.incrementAndGet();
+        }
+    }
+
+    /**
+     * 布隆过滤器是否可用于判定：订阅可用，且在当前订阅周期内已从Redis重建
+     * 订阅断开期间其他节点的登出通知会丢失，此时布隆过滤器可能漏掉这些令牌
+     */
+    boolean isBloomReady() {
+        long epoch = subscriptionEpoch.get();
+        return epoch > 0 && rebuiltEpoch == epoch && isSubscribed();
+    }
+
+    /**
+     * 订阅是否可用：监听容器已订阅，且最近的心跳间隔内收到过本节点的心跳
+     */
+    private boolean isSubscribed() {
+        return redisMessageListenerContainer.isListening()
+                && System.currentTimeMillis() - heartbeatReceivedAt <= heartbeatInterval * HEARTBEAT_TIMEOUT_INTERVALS;
+    }
+
+    /**
+     * 是否需要兼容检查升级前的旧黑名单记录
+     */
+    boolean isLegacyKeyCheck() {
+        return legacyKeyCheck;
     }
 
     /**
@@ -70,4 +223,176 @@ public class JwtTokenBlacklist {
         // 如果需要统计，建议使用Redis的INCR/DECR命令维护一个单独的计数器
         return 0;
     }
-}
\ No newline at end of file
+
+    /**
+     * 从Redis索引重建布隆过滤器，订阅恢复后由心跳任务立即执行，另外定期对齐
+     * 弥补订阅断开期间丢失的通知，并清理已过期的索引
+     * 重建在确认订阅可用之后开始，读取索引之后拉黑的令牌都能通过通知收到
+     */
+    @Scheduled(fixedDelayString = "${jwt.blacklist.bloom.resync-interval:60000}")
+    public synchronized void rebuildBloomFilter() {
+        if (!bloomEnabled || !redisCircuitBreaker.isClosed()) {
+            return;
+        }
+        long epoch = subscriptionEpoch.get();
+        try {
+            long now = System.currentTimeMillis();
+            stringRedisTemplate.opsForZSet().removeRangeByScore(RedisKeys.BLACKLIST_INDEX, Double.NEGATIVE_INFINITY, now);
+            Set<ZSetOperations.TypedTuple<String>> entries = stringRedisTemplate.opsForZSet()
+                    .rangeByScoreWithScores(RedisKeys.BLACKLIST_INDEX, now, Double.POSITIVE_INFINITY);
+            if (entries != null) {
+                for (ZSetOperations.TypedTuple<String> entry : entries) {
+                    if (entry.getValue() != null && entry.getScore() != null) {
+                        putToBloom(entry.getValue(), entry.getScore().longValue());
+                    }
+                }
+            }
+            rebuiltEpoch = epoch;
+            log.debug("黑名单布隆过滤器已与Redis对齐，当前窗口数: {}", bloomFilters.size());
+        } catch (Exception e) {
+            log.warn("重建黑名单布隆过滤器失败，暂时所有查询直接访问Redis: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 发送订阅心跳，订阅（重新）可用后尚未重建布隆过滤器时先重建，同时清理已过期窗口的布隆过滤器
+     * 心跳发送失败时序号不变，下一次重新发送相同序号
+     */
+    @Scheduled(fixedDelayString = "${jwt.blacklist.bloom.heartbeat-interval:2000}")
+    public void heartbeat() {
+        if (!bloomEnabled) {
+            return;
+        }
+        pruneExpiredWindows();
+        long epoch = subscriptionEpoch.get();
+        if (epoch > 0 && rebuiltEpoch != epoch && isSubscribed()) {
+            rebuildBloomFilter();
+        }
+        long sequence = publishedHeartbeat.get() + 1;
+        if (redisCircuitBreaker.run(() -> stringRedisTemplate.convertAndSend(HEARTBEAT_CHANNEL,
+                nodeId + ":" + sequence))) {
+            publishedHeartbeat.set(sequence);
+        }
+    }
+
+    /**
+     * Redis恢复后将降级存储中的黑名单记录写回Redis，遇到失败时停止，等待下次重试
+     */
+    @Scheduled(fixedDelayString = "${redis-guard.reconcile-interval:1000}")
+    public void reconcileFallback() {
+        Map<String, RedisFallbackStore.PendingBlacklist> pending = redisFallbackStore.pendingBlacklist();
+        if (pending.isEmpty() || !redisCircuitBreaker.isClosed()) {
+            return;
+        }
+        for (Map.Entry<String, RedisFallbackStore.PendingBlacklist> entry : pending.entrySet()) {
+            RedisFallbackStore.PendingBlacklist value = entry.getValue();
+            if (!redisCircuitBreaker.run(() -> writeToRedis(value.getUserId(), entry.getKey(),
+                    value.getExpirationTime()))) {
+                return;
+            }
+            redisFallbackStore.blacklistReconciled(entry.getKey());
+        }
+        log.info("已将{}条降级黑名单记录写回Redis", pending.size());
+    }
+
+    /**
+     * 接收其他节点发布的黑名单新增通知和本节点的心跳
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (HEARTBEAT_CHANNEL.equals(new String(message.getChannel(), StandardCharsets.UTF_8))) {
+            onHeartbeat(body);
+            return;
+        }
+        int separator = body.indexOf(':');
+        if (separator <= 0) {
+            return;
+        }
+        try {
+            long expirationTime = Long.parseLong(body.substring(0, separator));
+            putToBloom(body.substring(separator + 1), expirationTime);
+        } catch (NumberFormatException e) {
+            log.warn("无法解析黑名单通知: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 处理心跳，只关心本节点发出的心跳
+     * 首次收到、超时后再次收到或序号不连续时，说明订阅刚建立或中途断开过，开始新的订阅周期
+     */
+    private void onHeartbeat(String body) {
+        String prefix = nodeId + ":";
+        if (!body.startsWith(prefix)) {
+            return;
+        }
+        long sequence;
+        try {
+            sequence = Long.parseLong(body.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (sequence != receivedHeartbeat + 1
+                || now - heartbeatReceivedAt > heartbeatInterval * HEARTBEAT_TIMEOUT_INTERVALS) {
+            if (subscriptionEpoch.getAndIncrement() > 0) {
+                subscriptionLosses.incrementAndGet();
+                log.warn("黑名单订阅曾经断开，重建布隆过滤器前所有查询直接访问Redis");
+            }
+        }
+        receivedHeartbeat = sequence;
+        heartbeatReceivedAt = now;
+    }
+
+    /**
+     * 获取布隆过滤器统计信息
+     * @return 避免的Redis查询次数、实际Redis查询次数、误判次数等
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("bloomEnabled", bloomEnabled);
+        result.put("bloomReady", isBloomReady());
+        result.put("subscriptionLosses", subscriptionLosses.get());
+        result.put("windows", bloomFilters.size());
+        result.put("falsePositiveRate", falsePositiveRate);
+        result.put("redisLookupsAvoided", redisLookupsAvoided.get());
+        result.put("redisLookups", redisLookups.get());
+        result.put("falsePositives", falsePositives.get());
+        return result;
+    }
+
+    /**
+     * 将令牌标识写入其过期时间所属窗口的布隆过滤器，并移除已校验令牌缓存中的对应项
+     */
+    void putToBloom(String tokenId, long expirationTime) {
+        verifiedTokenCache.invalidate(tokenId);
+        if (!bloomEnabled) {
+            return;
+        }
+        long window = expirationTime / (windowSeconds * 1000);
+        bloomFilters.computeIfAbsent(window, w -> new BloomFilter(expectedInsertions, falsePositiveRate)).put(tokenId);
+    }
+
+    /**
+     * 查询所有未过期窗口的布隆过滤器，只读取不修改，已过期的窗口由心跳任务清理
+     */
+    private boolean mightBeBlacklisted(String tokenId) {
+        for (BloomFilter filter : bloomFilters.tailMap(currentWindow()).values()) {
+            if (filter.mightContain(tokenId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 丢弃窗口内令牌已全部过期的布隆过滤器
+     */
+    private void pruneExpiredWindows() {
+        bloomFilters.headMap(currentWindow()).clear();
+    }
+
+    private long currentWindow() {
+        return System.currentTimeMillis() / (windowSeconds * 1000);
+    }
+}
@@ -1,10 +1,18 @@
 package org.agrimachinerymanager.common.util;
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.UUID;
 
 /**
  * JWT 工具类：生成、解析、验证令牌
@@ -18,20 +26,63 @@ public class JwtUtil {
     @Value("${jwt.expiration}")
     private long expiration; // 单位：秒
 
+    // 签名密钥，启动时由secret派生一次，避免每次解析都重新计算
+    private SecretKey signingKey;
+
+    // 预构建的解析器，JwtParser是不可变且线程安全的，可在所有请求间复用
+    private JwtParser jwtParser;
+
+    /**
+     * 初始化签名密钥和解析器
+     */
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
+    /**
+     * 生成 JWT（登录时签发，令牌标识同时作为会话标识）
+     * @param epoch 用户当前的令牌版本号，版本号变更后此前签发的令牌全部失效
+     */
+    public String generateToken(Long userId, String username, Integer role, long epoch) {
+        return generateToken(userId, username, role, epoch, null);
+    }
+
     /**
      * 生成 JWT
+     * @param epoch 用户当前的令牌版本号，版本号变更后此前签发的令牌全部失效
+     * @param sessionId 所属会话标识，刷新令牌换发的访问令牌沿用登录时的会话；为null时以令牌标识作为会话标识
      */
-    public String generateToken(Long userId, String username, Integer role) {
-        return Jwts.builder()
+    public String generateToken(Long userId, String username, Integer role, long epoch, String sessionId) {
+        JwtBuilder builder = Jwts.builder()
+                .setId(UUID.randomUUID().toString()) // 令牌唯一标识，黑名单按此标识存储
                 .setSubject(username) // ✅ 用标准 Subject 存用户名
                 .claim("userId", userId)
                 .claim("role", role)
+                .claim("epoch", epoch);
+        if (sessionId != null) {
+            builder.claim("sid", sessionId);
+        }
+        return builder
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration * 1000))
-                .signWith(SignatureAlgorithm.HS512, secret.getBytes())
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
+    /**
+     * 解析并校验令牌，只做一次签名校验
+     * 签名错误、格式错误或已过期时抛出JwtException
+     * @param token JWT令牌
+     * @return 令牌中的声明信息
+     */
+    public TokenClaims parseToken(String token) {
+        return new TokenClaims(getClaimsFromToken(token), token);
+    }
+
     /**
      * 从令牌中解析用户名
      */
@@ -58,14 +109,20 @@ public class JwtUtil {
      */
     public boolean validateToken(String token, String username) {
         try {
-            final String tokenUsername = getUsernameFromToken(token);
-            return (tokenUsername.equals(username) && !isTokenExpired(token));
+            return validateClaims(parseToken(token), username);
         } catch (JwtException | IllegalArgumentException e) {
             // 捕获所有 JWT 异常：签名错误、过期、格式错误等
             return false;
         }
     }
 
+    /**
+     * 使用已解析的声明验证令牌，不再重复解析
+     */
+    public boolean validateClaims(TokenClaims claims, String username) {
+        return claims.getUsername() != null && claims.getUsername().equals(username) && !claims.isExpired();
+    }
+
     /**
      * 判断令牌是否过期
      */
@@ -85,18 +142,110 @@ public class JwtUtil {
      * 从令牌中解析 Claims
      */
     private Claims getClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secret.getBytes())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return jwtParser.parseClaimsJws(token).getBody();
     }
     
     /**
-     * 获取令牌过期时间配置
+     * 获取访问令牌过期时间配置
      * @return 过期时间（秒）
      */
     public long getExpiration() {
         return expiration;
     }
+
+    /**
+     * 计算令牌的固定长度摘要（SHA-256，Base64URL编码）
+     * 用于没有jti的旧令牌，代替完整令牌作为标识
+     * @param token JWT令牌
+     * @return 令牌摘要
+     */
+    public static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("当前JVM不支持SHA-256", e);
+        }
+    }
+
+    /**
+     * 内部类：已校验的令牌声明
+     */
+    public static class TokenClaims {
+        private final String tokenId;
+        private final String sessionId;
+        private final boolean legacy;
+        private final String username;
+        private final Long userId;
+        private final Integer role;
+        private final long epoch;
+        private final Date issuedAt;
+        private final Date expiration;
+
+        public TokenClaims(Claims claims, String token) {
+            // 旧令牌没有jti，使用令牌摘要作为标识
+            this.legacy = claims.getId() == null;
+            this.tokenId = legacy ? digest(token) : claims.getId();
+            // 登录时签发的令牌没有sid，令牌标识即会话标识
+            String sid = claims.get("sid", String.class);
+            this.sessionId = sid == null ? tokenId : sid;
+            this.username = claims.getSubject();
+            this.userId = claims.get("userId", Long.class);
+            this.role = claims.get("role", Integer.class);
+            // 引入版本号之前签发的令牌视为版本0
+            Long tokenEpoch = claims.get("epoch", Long.class);
+            this.epoch = tokenEpoch == null ? 0L : tokenEpoch;
+            this.issuedAt = claims.getIssuedAt();
+            this.expiration = claims.getExpiration();
+        }
+
+        /**
+         * 令牌标识：新令牌为jti，旧令牌为令牌摘要
+         */
+        public String getTokenId() {
+            return tokenId;
+        }
+
+        /**
+         * 所属会话标识：登录时签发的令牌为自身标识，刷新换发的令牌为登录时令牌的标识
+         */
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        /**
+         * 是否为引入jti之前签发的旧令牌
+         */
+        public boolean isLegacy() {
+            return legacy;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public Integer getRole() {
+            return role;
+        }
+
+        public long getEpoch() {
+            return epoch;
+        }
+
+        public Date getIssuedAt() {
+            return issuedAt;
+        }
+
+        public Date getExpiration() {
+            return expiration;
+        }
+
+        public boolean isExpired() {
+            return expiration != null && expiration.before(new Date());
+        }
+    }
 }
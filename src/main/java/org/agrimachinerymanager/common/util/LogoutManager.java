@@ -0,0 +1,191 @@
+package org.agrimachinerymanager.common.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 登出管理类
+ * 单个令牌登出通过Lua脚本原子完成拉黑令牌和删除会话，脚本只访问该用户哈希标签下的键，
+ * 黑名单索引、在线会话索引和通知在同一流水线中随后提交，失败时由降级存储重新写入
+ * 管理员批量强制下线通过流水线分批提交，每个用户只需令牌版本号加一并删除其全部会话
+ * Redis不可用时单个令牌登出仍然成功，拉黑记录和会话删除暂存在本地降级存储中，恢复后写回Redis
+ */
+@Component
+public class LogoutManager {
+
+    private static final Logger log = LoggerFactory.getLogger(LogoutManager.class);
+
+    // 登出脚本：KEYS[1]黑名单键 KEYS[2]会话哈希 KEYS[3]用户会话索引
+    // ARGV[1]令牌过期时间（毫秒） ARGV[2]黑名单保留时间（秒） ARGV[3]会话标识
+    // 删除会话同时使其刷新令牌失效；访问令牌有效期短，黑名单记录随之很快过期
+    private static final RedisScript<Long> LOGOUT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[2]) "
+                    + "redis.call('DEL', KEYS[2]) "
+                    + "redis.call('ZREM', KEYS[3], ARGV[3]) "
+                    + "return 1",
+            Long.class);
+
+    // 已过期令牌在黑名单中的保留时间（秒）
+    private static final long EXPIRED_TOKEN_TTL = 60;
+
+    // 批量强制下线时每批处理的用户数
+    @Value("${jwt.logout.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private JwtTokenBlacklist jwtTokenBlacklist;
+
+    @Autowired
+    private TokenEpochManager tokenEpochManager;
+
+    @Autowired
+    private RedisLoginManager redisLoginManager;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private RedisFallbackStore redisFallbackStore;
+
+    /**
+     * 登出单个令牌：拉黑令牌并删除令牌所属会话
+     * @param claims 已校验的令牌声明
+     */
+    public void logout(JwtUtil.TokenClaims claims) {
+        long expirationTime = claims.getExpiration().getTime();
+        long ttlInSeconds = (expirationTime - System.currentTimeMillis()) / 1000;
+        if (ttlInSeconds <= 0) {
+            ttlInSeconds = EXPIRED_TOKEN_TTL;
+        }
+        Long userId = claims.getUserId();
+        String tokenId = claims.getTokenId();
+        String sessionId = claims.getSessionId();
+        List<String> keys = Arrays.asList(
+                RedisKeys.blacklist(userId, tokenId),
+                RedisKeys.session(userId, sessionId),
+                RedisKeys.userSessions(userId));
+        String ttl = String.valueOf(ttlInSeconds);
+        boolean written = redisCircuitBreaker.run(() -> stringRedisTemplate.execute(LOGOUT_SCRIPT, keys,
+                String.valueOf(expirationTime), ttl, sessionId));
+        if (!written) {
+            redisFallbackStore.blacklist(userId, tokenId, expirationTime);
+            redisFallbackStore.removeSession(sessionId, userId);
+            log.warn("用户 [{}] 登出时Redis不可用，已暂存到本地降级存储", userId);
+        } else if (!redisCircuitBreaker.run(() -> stringRedisTemplate.executePipelined(
+                (RedisCallback<Object>) connection -> {
+                    connection.zSetCommands().zAdd(bytes(RedisKeys.BLACKLIST_INDEX), expirationTime, bytes(tokenId));
+                    connection.zSetCommands().zRem(bytes(RedisKeys.ONLINE_SESSIONS),
+                            bytes(RedisKeys.onlineMember(userId, sessionId)));
+                    connection.publish(bytes(JwtTokenBlacklist.BLACKLIST_CHANNEL),
+                            bytes(expirationTime + ":" + tokenId));
+                    return null;
+                }))) {
+            // 黑名单索引和通知未写入时其他节点的布隆过滤器无法感知，由降级存储重新写入
+            redisFallbackStore.blacklist(userId, tokenId, expirationTime);
+            log.warn("用户 [{}] 登出后写入黑名单索引失败，已暂存到本地降级存储", userId);
+        }
+
+        // 同步本地状态
+        jwtTokenBlacklist.putToBloom(tokenId, expirationTime);
+        redisLoginManager.forgetRenewal(sessionId);
+    }
+
+    /**
+     * 批量强制下线：令牌版本号加一并删除会话，按批次流水线提交
+     * @param userIds 用户ID列表
+     * @return 实际处理的用户数
+     */
+    public int logoutUsers(List<Long> userIds) {
+        int processed = 0;
+        for (int from = 0; from < userIds.size(); from += batchSize) {
+            List<Long> batch = userIds.subList(from, Math.min(from + batchSize, userIds.size()));
+            // 新版本号键不存在时以升级前的版本号为初始值
+            Map<Long, Long> legacyEpochs = tokenEpochManager.loadLegacyEpochs(batch);
+            // 删除会话脚本需要声明各会话的键，先批量读取用户会话索引
+            List<Object> indexes = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Long userId : batch) {
+                    connection.zSetCommands().zRange(bytes(RedisKeys.userSessions(userId)), 0, -1);
+                }
+                return null;
+            });
+            List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                byte[] bumpScript = bytes(TokenEpochManager.BUMP_SCRIPT);
+                byte[] removeScript = bytes(RedisLoginManager.REMOVE_USER_SCRIPT);
+                for (int i = 0; i < batch.size(); i++) {
+                    Long userId = batch.get(i);
+                    byte[] seed = bytes(String.valueOf(legacyEpochs.getOrDefault(userId, 0L)));
+                    connection.scriptingCommands().eval(bumpScript, ReturnType.INTEGER, 1,
+                            bytes(RedisKeys.epoch(userId)), seed);
+                    List<String> sessionIds = new ArrayList<>();
+                    if (indexes.get(i) instanceof Collection) {
+                        ((Collection<?>) indexes.get(i)).forEach(id -> sessionIds.add(String.valueOf(id)));
+                    }
+                    List<String> keys = RedisLoginManager.removeUserKeys(userId, sessionIds);
+                    List<byte[]> keysAndArgs = new ArrayList<>(keys.size() + sessionIds.size());
+                    keys.forEach(key -> keysAndArgs.add(bytes(key)));
+                    sessionIds.forEach(sessionId -> keysAndArgs.add(bytes(sessionId)));
+                    connection.scriptingCommands().eval(removeScript, ReturnType.MULTI, keys.size(),
+                            keysAndArgs.toArray(new byte[0][]));
+                }
+                return null;
+            });
+
+            // 结果按命令顺序返回：每个用户依次为版本号加一脚本、删除会话脚本
+            StringBuilder notification = new StringBuilder();
+            List<String> removedSessions = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                Object epoch = results.get(i * 2);
+                Object removed = results.get(i * 2 + 1);
+                Long userId = batch.get(i);
+                if (removed instanceof List) {
+                    List<?> sessionIds = RedisLoginManager.declared((List<?>) removed);
+                    if (sessionIds == null) {
+                        // 读取索引后用户又登录或登出，单独重新读取后删除
+                        redisLoginManager.removeLoginInfo(userId);
+                    } else {
+                        for (Object sessionId : sessionIds) {
+                            removedSessions.add(RedisKeys.onlineMember(userId, String.valueOf(sessionId)));
+                        }
+                    }
+                }
+                if (epoch instanceof Long) {
+                    tokenEpochManager.applyEpoch(userId, (Long) epoch);
+                    if (notification.length() > 0) {
+                        notification.append(',');
+                    }
+                    notification.append(userId).append(':').append(epoch);
+                }
+            }
+            // 每批只发布一条通知
+            if (notification.length() > 0) {
+                stringRedisTemplate.convertAndSend(TokenEpochManager.EPOCH_CHANNEL, notification.toString());
+            }
+            redisLoginManager.removeOnline(removedSessions);
+            processed += batch.size();
+            log.info("批量强制下线进度: {}/{}", processed, userIds.size());
+        }
+        return processed;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,337 @@
+package org.agrimachinerymanager.common.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CountedPage;
+import org.agrimachinerymanager.exception.BaseException;
+import org.agrimachinerymanager.mapper.PageCountMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分页查询总数管理
+ * 按请求的统计方式执行分页查询，避免每次分页都执行与数据查询代价相当的COUNT：
+ * exact：由分页插件执行COUNT；cached：COUNT结果按表名和规范化后的筛选条件缓存在本地；
+ * estimated：取执行计划中的预估行数；none：不统计总数，多查一条判断是否还有下一页
+ * 缓存的总数在所属服务写入数据后失效，并通过Redis发布订阅通知其他节点，通知丢失时由过期时间兜底
+ * 需要精确总数时可开启并行执行，COUNT与数据查询分别占用一个连接同时执行
+ */
+@Component
+public class PageCountManager implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PageCountManager.class);
+
+    // 缓存失效通知频道，消息内容为表名
+    private static final String INVALIDATE_CHANNEL = "page:count:invalidate";
+
+    // 每页最大条数，与分页插件的单页限制一致
+    private static final int MAX_PAGE_SIZE = 500;
+
+    @Autowired
+    private PageCountMapper pageCountMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    // 缓存总数的有效期（秒）
+    @Value("${page-count.cache-ttl:60}")
+    private long cacheTtl;
+
+    @Value("${page-count.max-size:10000}")
+    private long maxSize;
+
+    // 需要精确总数时是否在两个连接上并行执行COUNT和数据查询，默认关闭
+    @Value("${page-count.parallel.enabled:false}")
+    private boolean parallelEnabled;
+
+    // 同时占用两个数据库连接的最大请求数，超出时退回顺序执行，应明显小于连接池大小
+    @Value("${page-count.parallel.max-concurrent:3}")
+    private int parallelMaxConcurrent;
+
+    // 执行COUNT的线程池，线程数即并行上限，不排队
+    private ThreadPoolExecutor countExecutor;
+
+    private Cache<String, Long> countCache;
+
+    // 各表的数据版本，写入后递增，缓存键包含版本号，旧版本的总数不再被读取
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    // 统计计数
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong estimateFailures = new AtomicLong();
+    private final AtomicLong parallelQueries = new AtomicLong();
+    private final AtomicLong parallelRejected = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        this.countCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtl))
+                .build();
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+        if (parallelEnabled) {
+            AtomicInteger index = new AtomicInteger();
+            countExecutor = new ThreadPoolExecutor(parallelMaxConcurrent, parallelMaxConcurrent, 0L,
+                    TimeUnit.MILLISECONDS, new SynchronousQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "page-count-" + index.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (countExecutor != null) {
+            countExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 按统计方式执行分页查询
+     * @param mapper 数据访问接口
+     * @param table 表名，用于缓存键和估算，只能传入代码中的常量
+     * @param pageNum 页码
+     * @param pageSize 每页条数
+     * @param queryWrapper 包含筛选条件和排序的查询条件
+     * @param params 筛选条件，用于生成缓存键
+     * @param countMode 统计方式
+     * @return 分页结果
+     */
+    public <T> CountedPage<T> selectPage(BaseMapper<T> mapper, String table, int pageNum, int pageSize,
+                                         QueryWrapper<T> queryWrapper, Map<String, Object> params,
+                                         CountMode countMode) {
+        CountedPage<T> page = new CountedPage<>(pageNum, pageSize, countMode);
+        switch (countMode) {
+            case CACHED:
+                String key = cacheKey(table, params);
+                Long total = countCache.getIfPresent(key);
+                if (total == null) {
+                    cacheMisses.incrementAndGet();
+                    total = selectPageAndCount(mapper, table, page, queryWrapper);
+                    countCache.put(key, total);
+                } else {
+                    cacheHits.incrementAndGet();
+                    mapper.selectPage(page, queryWrapper);
+                }
+                page.setTotal(total);
+                return page;
+            case ESTIMATED:
+                // 先估算再追加排序和条数限制，执行计划只需要筛选条件
+                long estimate = estimate(table, queryWrapper);
+                selectWithLookahead(mapper, page, queryWrapper);
+                // 估算值小于已确认存在的行数时以实际行数为准
+                long seen = page.offset() + page.getRecords().size() + (page.hasNext() ? 1 : 0);
+                page.setTotal(Math.max(estimate, seen));
+                return page;
+            case NONE:
+                selectWithLookahead(mapper, page, queryWrapper);
+                page.setTotal(CountedPage.UNKNOWN_TOTAL);
+                return page;
+            default:
+                page.setTotal(selectPageAndCount(mapper, table, page, queryWrapper));
+                return page;
+        }
+    }
+
+    /**
+     * 失效指定表的缓存总数，并通知集群内其他节点
+     * 在事务中调用时推迟到事务提交后执行，避免提交前重新统计的旧总数被缓存
+     * @param table 表名
+     */
+    public void invalidate(String table) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(table);
+                }
+            });
+            return;
+        }
+        invalidateNow(table);
+    }
+
+    /**
+     * 接收其他节点发布的缓存失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        bumpVersion(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 获取总数缓存统计信息
+     * @return 缓存条数、命中与未命中次数、估算失败次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", countCache.estimatedSize());
+        result.put("hits", cacheHits.get());
+        result.put("misses", cacheMisses.get());
+        result.put("estimateFailures", estimateFailures.get());
+        result.put("parallelEnabled", parallelEnabled);
+        result.put("parallelQueries", parallelQueries.get());
+        result.put("parallelRejected", parallelRejected.get());
+        return result;
+    }
+
+    private void invalidateNow(String table) {
+        bumpVersion(table);
+        boolean published = redisCircuitBreaker.run(
+                () -> stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, table));
+        if (!published) {
+            log.warn("发布表 [{}] 的分页总数失效通知失败，其他节点的缓存将在过期后更新", table);
+        }
+    }
+
+    private void bumpVersion(String table) {
+        versions.computeIfAbsent(table, t -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * 生成缓存键：表名、数据版本和去除空值后按键排序的筛选条件
+     */
+    String cacheKey(String table, Map<String, Object> params) {
+        Map<String, Object> normalized = new TreeMap<>();
+        if (params != null) {
+            for (Map.Entry<String, Object> entry : params.entrySet()) {
+                Object value = entry.getValue();
+                if (value == null || (value instanceof String && ((String) value).isEmpty())) {
+                    continue;
+                }
+                normalized.put(entry.getKey(), value);
+            }
+        }
+        long version = versions.computeIfAbsent(table, t -> new AtomicLong()).get();
+        return table + "|" + version + "|" + normalized;
+    }
+
+    /**
+     * 根据执行计划估算总数：无筛选条件时取表统计信息的行数，否则取预估扫描行数乘以过滤比例
+     * 估算失败时退回精确统计
+     */
+    private <T> long estimate(String table, QueryWrapper<T> queryWrapper) {
+        try {
+            if (queryWrapper.isEmptyOfWhere()) {
+                Long rows = pageCountMapper.tableRows(table);
+                if (rows != null) {
+                    return rows;
+                }
+            } else {
+                List<Map<String, Object>> plan = pageCountMapper.explain(table, queryWrapper);
+                if (!plan.isEmpty() && plan.get(0).get("rows") != null) {
+                    Map<String, Object> row = plan.get(0);
+                    double filtered = row.get("filtered") == null
+                            ? 100D : ((Number) row.get("filtered")).doubleValue();
+                    return Math.round(((Number) row.get("rows")).doubleValue() * filtered / 100D);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("估算表 [{}] 的分页总数失败，改为精确统计: {}", table, e.getMessage());
+        }
+        estimateFailures.incrementAndGet();
+        return pageCountMapper.count(table, queryWrapper);
+    }
+
+    /**
+     * 执行分页查询并统计总数
+     * 开启并行时COUNT提交到线程池，在另一个连接上与当前线程的数据查询同时执行，耗时取两者中较长的一个；
+     * 线程池已满或处于事务中（另一个连接看不到本事务未提交的数据）时由分页插件顺序执行
+     * COUNT只使用筛选条件，查询条件中指定了返回字段时同样适用
+     * @return 总数
+     */
+    private <T> long selectPageAndCount(BaseMapper<T> mapper, String table, CountedPage<T> page,
+                                        QueryWrapper<T> queryWrapper) {
+        if (!parallelEnabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return selectPageSequentially(mapper, page, queryWrapper);
+        }
+        // 先生成SQL片段，之后两个线程对条件构造器只读
+        queryWrapper.getCustomSqlSegment();
+        Future<Long> count;
+        try {
+            count = countExecutor.submit(() -> pageCountMapper.count(table, queryWrapper));
+        } catch (RejectedExecutionException e) {
+            parallelRejected.incrementAndGet();
+            return selectPageSequentially(mapper, page, queryWrapper);
+        }
+        parallelQueries.incrementAndGet();
+        page.setSearchCount(false);
+        try {
+            mapper.selectPage(page, queryWrapper);
+        } catch (RuntimeException e) {
+            count.cancel(true);
+            throw e;
+        }
+        try {
+            return count.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BaseException("统计分页总数失败");
+        } catch (InterruptedException e) {
+            count.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BaseException("统计分页总数被中断");
+        }
+    }
+
+    private <T> long selectPageSequentially(BaseMapper<T> mapper, CountedPage<T> page, QueryWrapper<T> queryWrapper) {
+        page.setSearchCount(true);
+        mapper.selectPage(page, queryWrapper);
+        return page.getTotal();
+    }
+
+    /**
+     * 不执行COUNT的分页查询，多查一条判断是否还有下一页
+     */
+    private <T> void selectWithLookahead(BaseMapper<T> mapper, CountedPage<T> page, QueryWrapper<T> queryWrapper) {
+        int size = Math.max(1, Math.min((int) page.getSize(), MAX_PAGE_SIZE));
+        page.setSize(size);
+        queryWrapper.last("LIMIT " + page.offset() + ", " + (size + 1));
+        List<T> rows = mapper.selectList(queryWrapper);
+        boolean hasNext = rows.size() > size;
+        page.setRecords(hasNext ? new ArrayList<>(rows.subList(0, size)) : rows);
+        page.setHasNext(hasNext);
+    }
+}
@@ -1,17 +1,71 @@
 package org.agrimachinerymanager.common.util;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.agrimachinerymanager.exception.ServiceOverloadedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /**
  * 密码工具类
  * 提供密码加密和验证功能
+ * 登录时的BCrypt校验在独立的有界线程池中执行，线程和队列占满时快速拒绝，避免登录高峰占满Web容器线程
  */
 @Component
 public class PasswordUtil {
 
+    private static final Logger log = LoggerFactory.getLogger(PasswordUtil.class);
+
+    // BCrypt密文格式：$2a$10$...，第二段为成本因子
+    private static final Pattern BCRYPT_COST = Pattern.compile("^\\$2[abxy]?\\$(\\d{2})\\$");
+
     private final BCryptPasswordEncoder passwordEncoder;
 
+    // BCrypt成本因子，与SecurityConfig中的编码器一致，已有密码成本不同时在登录成功后重新加密
+    @Value("${password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    // 密码校验线程数，默认为CPU核数
+    @Value("${password.hash.threads:0}")
+    private int threads;
+
+    // 等待校验的最大请求数，超出时返回429
+    @Value("${password.hash.queue-capacity:64}")
+    private int queueCapacity;
+
+    // 请求线程等待校验结果的最长时间（毫秒），超时返回503
+    @Value("${password.hash.wait-timeout:3000}")
+    private long waitTimeout;
+
+    private ThreadPoolExecutor executor;
+
+    // 统计计数
+    private final AtomicLong verifications = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong rehashes = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+
     /**
      * 通过构造函数注入BCryptPasswordEncoder实例
      */
@@ -19,6 +73,23 @@ public class PasswordUtil {
         this.passwordEncoder = passwordEncoder;
     }
 
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger index = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
     /**
      * 对密码进行BCrypt加密
      * @param rawPassword 原始密码
@@ -37,4 +108,110 @@ public class PasswordUtil {
     public boolean matches(String rawPassword, String encodedPassword) {
         return passwordEncoder.matches(rawPassword, encodedPassword);
     }
-}
\ No newline at end of file
+
+    /**
+     * 在密码校验线程池中验证密码，供登录等高并发入口使用
+     * @param rawPassword 原始密码
+     * @param encodedPassword 加密后的密码
+     * @return 是否匹配
+     * @throws ServiceOverloadedException 线程池队列已满（429）或等待超时（503）
+     */
+    public boolean verify(String rawPassword, String encodedPassword) {
+        long submitNanos = System.nanoTime();
+        Future<Boolean> future;
+        try {
+            future = executor.submit(() -> {
+                long startNanos = System.nanoTime();
+                queueWaitNanos.addAndGet(startNanos - submitNanos);
+                try {
+                    return passwordEncoder.matches(rawPassword, encodedPassword);
+                } finally {
+                    recordHash(System.nanoTime() - startNanos);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new ServiceOverloadedException(429, "登录请求过多，请稍后重试", 1);
+        }
+        try {
+            return future.get(waitTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timeouts.incrementAndGet();
+            throw new ServiceOverloadedException(503, "登录服务繁忙，请稍后重试", 2);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ServiceOverloadedException(503, "登录服务繁忙，请稍后重试", 2);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 判断已有密文的成本因子是否与当前配置不同，需要在登录成功后重新加密
+     * @param encodedPassword 加密后的密码
+     * @return 需要重新加密返回true
+     */
+    public boolean needsRehash(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != bcryptStrength;
+    }
+
+    /**
+     * 在密码校验线程池中按当前成本因子重新加密，线程池繁忙时放弃，下次登录再尝试
+     * @param rawPassword 原始密码
+     * @return 新密文，线程池繁忙时返回已完成的空结果
+     */
+    public CompletableFuture<String> rehashAsync(String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long startNanos = System.nanoTime();
+                try {
+                    rehashes.incrementAndGet();
+                    return passwordEncoder.encode(rawPassword);
+                } finally {
+                    recordHash(System.nanoTime() - startNanos);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            log.debug("密码校验线程池繁忙，跳过重新加密");
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * 获取密码校验线程池统计
+     * @return 队列深度、活跃线程数、拒绝和超时次数、平均及最大哈希耗时等
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long count = verifications.get();
+        result.put("bcryptStrength", bcryptStrength);
+        result.put("poolSize", executor.getMaximumPoolSize());
+        result.put("activeThreads", executor.getActiveCount());
+        result.put("queueDepth", executor.getQueue().size());
+        result.put("queueCapacity", queueCapacity);
+        result.put("completed", executor.getCompletedTaskCount());
+        result.put("rejected", rejected.get());
+        result.put("timeouts", timeouts.get());
+        result.put("rehashes", rehashes.get());
+        result.put("avgHashMillis", count == 0 ? 0 : hashNanos.get() / count / 1_000_000.0);
+        result.put("maxHashMillis", maxHashNanos.get() / 1_000_000.0);
+        result.put("avgQueueWaitMillis", count == 0 ? 0 : queueWaitNanos.get() / count / 1_000_000.0);
+        return result;
+    }
+
+    private void recordHash(long nanos) {
+        verifications.incrementAndGet();
+        hashNanos.addAndGet(nanos);
+        maxHashNanos.accumulateAndGet(nanos, Math::max);
+    }
+}
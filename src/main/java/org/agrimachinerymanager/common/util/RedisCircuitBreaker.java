@@ -0,0 +1,222 @@
+package org.agrimachinerymanager.common.util;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Redis熔断器与舱壁
+ * 连续失败达到阈值后熔断，熔断期间所有Redis操作直接走降级逻辑，不再占用请求线程等待超时
+ * 熔断时间结束后只放行一次试探调用（或由后台任务PING），成功即恢复，失败则重新熔断
+ * 同时限制并发访问Redis的线程数，Redis变慢时多余的请求直接降级，避免所有请求线程堆积在连接池上
+ */
+@Component
+public class RedisCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        // 正常访问Redis
+        CLOSED,
+        // 熔断中，直接降级
+        OPEN,
+        // 熔断时间已过，正在试探
+        HALF_OPEN
+    }
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${redis-guard.enabled:true}")
+    private boolean enabled;
+
+    // 连续失败多少次后熔断
+    @Value("${redis-guard.failure-threshold:5}")
+    private int failureThreshold;
+
+    // 熔断持续时间（毫秒），之后进入试探
+    @Value("${redis-guard.open-duration:5000}")
+    private long openDuration;
+
+    // 同时访问Redis的最大线程数
+    @Value("${redis-guard.max-concurrent:32}")
+    private int maxConcurrent;
+
+    private Semaphore permits;
+
+    private int permitCount;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private volatile long openedAt;
+
+    // 统计计数
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+    private final AtomicLong bulkheadRejected = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        // 关闭时不限制并发
+        this.permitCount = enabled ? Math.max(1, maxConcurrent) : Integer.MAX_VALUE;
+        this.permits = new Semaphore(permitCount);
+    }
+
+    /**
+     * 在熔断器保护下执行Redis操作
+     * @param action Redis操作
+     * @param fallback 熔断、舱壁已满或操作失败时的降级逻辑
+     * @return 操作结果或降级结果
+     */
+    public <T> T execute(Supplier<T> action, Supplier<T> fallback) {
+        if (!tryAcquire()) {
+            return fallback.get();
+        }
+        try {
+            T result = action.get();
+            onSuccess();
+            return result;
+        } catch (Exception e) {
+            onFailure(e);
+            return fallback.get();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * 在熔断器保护下执行无返回值的Redis操作
+     * @param action Redis操作
+     * @return 操作成功返回true，被熔断、舱壁已满或操作失败返回false
+     */
+    public boolean run(Runnable action) {
+        return execute(() -> {
+            action.run();
+            return Boolean.TRUE;
+        }, () -> Boolean.FALSE);
+    }
+
+    /**
+     * 申请一次Redis访问许可，供无法包装为同步调用的场景使用
+     * 返回true后必须调用onSuccess或onFailure，并最终调用release
+     * @return 允许访问Redis时返回true
+     */
+    public boolean tryAcquire() {
+        if (!enabled) {
+            permits.tryAcquire();
+            return true;
+        }
+        State current = state.get();
+        if (current != State.CLOSED) {
+            // 熔断时间已过时只有一个线程能进入试探，其余继续降级
+            boolean trial = current == State.OPEN
+                    && System.currentTimeMillis() - openedAt >= openDuration
+                    && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+            if (!trial) {
+                shortCircuited.incrementAndGet();
+                return false;
+            }
+        }
+        if (!permits.tryAcquire()) {
+            bulkheadRejected.incrementAndGet();
+            // 试探调用未能执行，回到熔断状态等待下次试探
+            state.compareAndSet(State.HALF_OPEN, State.OPEN);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 记录一次成功的Redis访问
+     */
+    public void onSuccess() {
+        successes.incrementAndGet();
+        consecutiveFailures.set(0);
+        State previous = state.getAndSet(State.CLOSED);
+        if (previous != State.CLOSED) {
+            log.info("Redis已恢复，熔断器关闭");
+        }
+    }
+
+    /**
+     * 记录一次失败的Redis访问，连续失败达到阈值或试探失败时熔断
+     * @param e 失败原因
+     */
+    public void onFailure(Exception e) {
+        failures.incrementAndGet();
+        int count = consecutiveFailures.incrementAndGet();
+        State current = state.get();
+        if (current == State.HALF_OPEN || current == State.CLOSED && count >= failureThreshold) {
+            if (state.compareAndSet(current, State.OPEN)) {
+                openedAt = System.currentTimeMillis();
+                opened.incrementAndGet();
+                log.warn("Redis连续{}次访问失败，熔断{}毫秒: {}", count, openDuration, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 释放Redis访问许可
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * Redis当前是否可正常访问（熔断器关闭）
+     */
+    public boolean isClosed() {
+        return !enabled || state.get() == State.CLOSED;
+    }
+
+    /**
+     * 熔断期间定期试探Redis是否恢复，没有请求流量时也能及时恢复并触发降级数据的对齐
+     */
+    @Scheduled(fixedDelayString = "${redis-guard.probe-interval:1000}")
+    public void probe() {
+        if (!enabled || state.get() != State.OPEN) {
+            return;
+        }
+        run(() -> stringRedisTemplate.execute((RedisCallback<String>) connection -> connection.ping()));
+    }
+
+    /**
+     * 获取熔断器统计信息
+     * @return 当前状态、成功失败次数、熔断次数、被降级的调用次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("state", state.get().name());
+        result.put("consecutiveFailures", consecutiveFailures.get());
+        result.put("maxConcurrent", maxConcurrent);
+        result.put("inFlight", permitCount - permits.availablePermits());
+        result.put("successes", successes.get());
+        result.put("failures", failures.get());
+        result.put("opened", opened.get());
+        result.put("shortCircuited", shortCircuited.get());
+        result.put("bulkheadRejected", bulkheadRejected.get());
+        return result;
+    }
+}
@@ -0,0 +1,230 @@
+package org.agrimachinerymanager.common.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.lettuce.core.support.caching.CacheAccessor;
+import io.lettuce.core.support.caching.CacheFrontend;
+import io.lettuce.core.support.caching.ClientSideCaching;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis客户端缓存（RESP3服务端协助失效）
+ * 对令牌版本号等读多写少的键，通过独立的RESP3连接开启CLIENT TRACKING，读取过的值保存在本地，
+ * 任何客户端修改或删除这些键时Redis推送失效消息，本地副本随即移除，热点读取直接由本地内存返回
+ * 连接断开期间可能错过失效消息，断开时清空本地副本，下次读取时重新建立连接和跟踪
+ * 需要Redis 6及以上的单机部署；Cluster和哨兵模式下不启用，直接读取Redis
+ * 连接在首次读取时建立，Redis不可用时不影响应用启动
+ */
+@Component
+public class RedisClientSideCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisClientSideCache.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisProperties redisProperties;
+
+    @Value("${redis-cache.client-side.enabled:false}")
+    private boolean enabled;
+
+    // 本地最多缓存的键数
+    @Value("${redis-cache.client-side.max-size:100000}")
+    private long maxSize;
+
+    // 本地副本最长保留时间（秒），兜底失效消息与读取结果交错到达的极端情况
+    @Value("${redis-cache.client-side.ttl:300}")
+    private long ttl;
+
+    private Cache<String, String> local;
+
+    private RedisClient client;
+
+    private volatile StatefulRedisConnection<String, String> connection;
+
+    private volatile CacheFrontend<String, String> frontend;
+
+    // 统计计数
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (enabled && (redisProperties.getCluster() != null || redisProperties.getSentinel() != null)) {
+            log.warn("Redis客户端缓存仅支持单机部署，当前为Cluster或哨兵模式，已关闭");
+            enabled = false;
+        }
+        this.local = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttl))
+                .build();
+    }
+
+    /**
+     * 读取字符串键，开启时优先返回本地副本，未命中时从Redis读取并开始跟踪该键
+     * @param key 键
+     * @return 值，键不存在时返回null（不存在的键不缓存）
+     */
+    public String get(String key) {
+        if (!enabled) {
+            return stringRedisTemplate.opsForValue().get(key);
+        }
+        return frontend().get(key);
+    }
+
+    /**
+     * 获取客户端缓存统计信息
+     * @return 本地键数、命中与未命中次数、收到的失效消息数、连接重建次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", local.estimatedSize());
+        result.put("hits", hits.get());
+        result.put("misses", misses.get());
+        result.put("invalidations", invalidations.get());
+        result.put("resets", resets.get());
+        return result;
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        reset();
+        if (client != null) {
+            client.shutdown();
+        }
+    }
+
+    /**
+     * 获取开启了跟踪的连接，未建立或已断开时重新建立
+     */
+    private CacheFrontend<String, String> frontend() {
+        CacheFrontend<String, String> current = frontend;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (frontend == null) {
+                if (client == null) {
+                    client = RedisClient.create(redisUri());
+                    // 不自动重连，断开后由下次读取重新建立连接并开启跟踪
+                    client.setOptions(ClientOptions.builder()
+                            .protocolVersion(ProtocolVersion.RESP3)
+                            .autoReconnect(false)
+                            .build());
+                    client.addListener(new RedisConnectionStateListener() {
+                        @Override
+                        public void onRedisDisconnected(RedisChannelHandler<?, ?> handler) {
+                            if (handler == connection) {
+                                onDisconnected();
+                            }
+                        }
+                    });
+                }
+                StatefulRedisConnection<String, String> created = client.connect();
+                try {
+                    frontend = ClientSideCaching.enable(new LocalAccessor(), created, TrackingArgs.Builder.enabled());
+                    connection = created;
+                } catch (RuntimeException e) {
+                    created.closeAsync();
+                    throw e;
+                }
+                log.info("Redis客户端缓存已开启跟踪");
+            }
+            return frontend;
+        }
+    }
+
+    private synchronized void onDisconnected() {
+        log.warn("Redis客户端缓存连接已断开，清空本地副本");
+        resets.incrementAndGet();
+        reset();
+    }
+
+    /**
+     * 关闭当前连接并清空本地副本，断开期间的失效消息已丢失，本地副本不再可信
+     */
+    private void reset() {
+        CacheFrontend<String, String> current = frontend;
+        frontend = null;
+        connection = null;
+        local.invalidateAll();
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private RedisURI redisUri() {
+        RedisURI uri;
+        if (StringUtils.hasText(redisProperties.getUrl())) {
+            uri = RedisURI.create(redisProperties.getUrl());
+        } else {
+            RedisURI.Builder builder = RedisURI.builder()
+                    .withHost(redisProperties.getHost())
+                    .withPort(redisProperties.getPort())
+                    .withDatabase(redisProperties.getDatabase())
+                    .withSsl(redisProperties.getSsl().isEnabled());
+            if (StringUtils.hasText(redisProperties.getPassword())) {
+                if (StringUtils.hasText(redisProperties.getUsername())) {
+                    builder.withAuthentication(redisProperties.getUsername(), redisProperties.getPassword());
+                } else {
+                    builder.withPassword(redisProperties.getPassword().toCharArray());
+                }
+            }
+            uri = builder.build();
+        }
+        if (redisProperties.getTimeout() != null) {
+            uri.setTimeout(redisProperties.getTimeout());
+        }
+        return uri;
+    }
+
+    /**
+     * 本地副本存取，同时统计命中率和失效次数
+     */
+    private class LocalAccessor implements CacheAccessor<String, String> {
+
+        @Override
+        public String get(String key) {
+            String value = local.getIfPresent(key);
+            (value == null ? misses : hits).incrementAndGet();
+            return value;
+        }
+
+        @Override
+        public void put(String key, String value) {
+            local.put(key, value);
+        }
+
+        @Override
+        public void evict(String key) {
+            local.invalidate(key);
+            invalidations.incrementAndGet();
+        }
+    }
+}
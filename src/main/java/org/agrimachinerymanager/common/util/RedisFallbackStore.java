@@ -0,0 +1,372 @@
+package org.agrimachinerymanager.common.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis不可用期间的本地降级存储
+ * 保存写入Redis失败的黑名单记录、新登记的会话、被删除的会话和被删除全部会话的用户，Redis恢复后由各管理类对齐回Redis
+ * 容量有上限，超出时由Caffeine按W-TinyLFU策略淘汰（不保证淘汰最早的记录，新写入的记录也可能直接被淘汰）；
+ * 黑名单记录在令牌过期后自动移除
+ * 被淘汰的黑名单记录和会话删除记录无法再写回Redis，改为记录所属用户和淘汰时间（用户级吊销），
+ * 本节点拒绝该用户在此之前签发的令牌，Redis恢复后由TokenEpochManager将其版本号加一；
+ * Redis不可用时退出所有设备、禁用或删除用户同样记为用户级吊销
+ * 只在本节点有效，其他节点在对齐完成前无法感知这些变更
+ */
+@Component
+public class RedisFallbackStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisFallbackStore.class);
+
+    // 每类记录的最大条数
+    @Value("${redis-guard.fallback.max-size:10000}")
+    private long maxSize;
+
+    // 写入Redis失败的黑名单记录，键为令牌标识
+    private Cache<String, PendingBlacklist> blacklist;
+
+    // 尚未写入Redis的新会话，键为会话标识
+    private Cache<String, PendingSession> registeredSessions;
+
+    // 尚未从Redis删除的会话，键为会话标识，值为用户ID
+    private Cache<String, Long> removedSessions;
+
+    // 待吊销全部令牌的用户，值为吊销时间（毫秒），条数不超过用户数，版本号加一后移除
+    private final Map<Long, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    // 尚未从Redis删除全部会话的用户，值为删除时间（毫秒），条数不超过用户数
+    private final Map<Long, Long> removedUsers = new ConcurrentHashMap<>();
+
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong reconciled = new AtomicLong();
+    private final AtomicLong evictedBlacklist = new AtomicLong();
+    private final AtomicLong evictedRegisteredSessions = new AtomicLong();
+    private final AtomicLong evictedRemovedSessions = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        this.blacklist = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, PendingBlacklist>() {
+                    @Override
+                    public long expireAfterCreate(String tokenId, PendingBlacklist entry, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(
+                                Math.max(0, entry.getExpirationTime() - System.currentTimeMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String tokenId, PendingBlacklist entry, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(tokenId, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String tokenId, PendingBlacklist entry, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .evictionListener((String tokenId, PendingBlacklist entry, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE && entry != null) {
+                        evictedBlacklist.incrementAndGet();
+                        overflow(entry.getUserId(), "黑名单记录");
+                    }
+                })
+                .build();
+        this.registeredSessions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .evictionListener((String sessionId, PendingSession session, RemovalCause cause) -> {
+                    // 丢弃的新会话不会写入Redis，Redis恢复后其令牌因会话不存在被拒绝，无需额外处理
+                    if (cause == RemovalCause.SIZE) {
+                        evictedRegisteredSessions.incrementAndGet();
+                        log.warn("降级存储已满，丢弃尚未写入Redis的新会话：{}", sessionId);
+                    }
+                })
+                .build();
+        this.removedSessions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .evictionListener((String sessionId, Long userId, RemovalCause cause) -> {
+                    if (cause == RemovalCause.SIZE && userId != null) {
+                        evictedRemovedSessions.incrementAndGet();
+                        overflow(userId, "会话删除记录");
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 记录写入Redis失败的黑名单令牌
+     * @param userId 令牌所属用户ID
+     * @param tokenId 令牌标识
+     * @param expirationTime 令牌过期时间（毫秒）
+     */
+    public void blacklist(Long userId, String tokenId, long expirationTime) {
+        blacklist.put(tokenId, new PendingBlacklist(userId, expirationTime));
+        stored.incrementAndGet();
+    }
+
+    /**
+     * 令牌是否在本地降级黑名单中
+     */
+    public boolean isBlacklisted(String tokenId) {
+        return blacklist.getIfPresent(tokenId) != null;
+    }
+
+    /**
+     * 待对齐的黑名单记录快照
+     */
+    public Map<String, PendingBlacklist> pendingBlacklist() {
+        return new HashMap<>(blacklist.asMap());
+    }
+
+    /**
+     * 黑名单记录已写入Redis
+     */
+    public void blacklistReconciled(String tokenId) {
+        blacklist.invalidate(tokenId);
+        reconciled.incrementAndGet();
+    }
+
+    /**
+     * 记录写入Redis失败的新会话
+     */
+    public void registerSession(PendingSession session) {
+        registeredSessions.put(session.getSessionId(), session);
+        stored.incrementAndGet();
+    }
+
+    /**
+     * 记录从Redis删除失败的会话，同一会话尚未写入Redis时直接丢弃
+     * @param sessionId 会话标识
+     * @param userId 用户ID
+     */
+    public void removeSession(String sessionId, Long userId) {
+        if (registeredSessions.asMap().remove(sessionId) != null) {
+            return;
+        }
+        removedSessions.put(sessionId, userId);
+        stored.incrementAndGet();
+    }
+
+    /**
+     * 会话是否已在本地被删除、尚未同步到Redis
+     */
+    public boolean isSessionRemoved(String sessionId) {
+        return removedSessions.getIfPresent(sessionId) != null;
+    }
+
+    /**
+     * 待对齐的新会话快照
+     */
+    public Map<String, PendingSession> pendingRegisteredSessions() {
+        return new HashMap<>(registeredSessions.asMap());
+    }
+
+    /**
+     * 待对齐的已删除会话快照，值为用户ID
+     */
+    public Map<String, Long> pendingRemovedSessions() {
+        return new HashMap<>(removedSessions.asMap());
+    }
+
+    /**
+     * 新会话已写入Redis
+     */
+    public void sessionRegistered(String sessionId) {
+        registeredSessions.invalidate(sessionId);
+        reconciled.incrementAndGet();
+    }
+
+    /**
+     * 会话已从Redis删除
+     */
+    public void sessionRemoved(String sessionId) {
+        removedSessions.invalidate(sessionId);
+        reconciled.incrementAndGet();
+    }
+
+    /**
+     * 记录版本号加一失败的用户，本节点立即拒绝该用户此前签发的令牌，Redis恢复后再加一
+     * @param userId 用户ID
+     */
+    public void revokeUser(Long userId) {
+        revokedUsers.put(userId, System.currentTimeMillis());
+        stored.incrementAndGet();
+    }
+
+    /**
+     * 令牌是否因用户级吊销尚未写回Redis而失效
+     * 所属用户有拉黑或会话删除记录被淘汰，或吊销全部令牌时Redis不可用，在该用户版本号加一前
+     * 拒绝吊销时刻之前签发的令牌
+     * @param userId 用户ID
+     * @param issuedAt 令牌签发时间，为null时按已失效处理
+     */
+    public boolean isUserRevoked(Long userId, Date issuedAt) {
+        Long revokedAt = revokedUsers.get(userId);
+        return revokedAt != null && (issuedAt == null || issuedAt.getTime() <= revokedAt);
+    }
+
+    /**
+     * 用户是否有尚未写回的用户级吊销，写回前不允许刷新令牌
+     */
+    public boolean hasPendingRevocation(Long userId) {
+        return revokedUsers.containsKey(userId);
+    }
+
+    /**
+     * 待将版本号加一的用户快照，值为吊销时间
+     */
+    public Map<Long, Long> pendingRevokedUsers() {
+        return new HashMap<>(revokedUsers);
+    }
+
+    /**
+     * 用户的版本号已加一；期间又有新的吊销时保留，等待下次处理
+     * @param userId 用户ID
+     * @param revokedAt 快照中的吊销时间
+     */
+    public void userRevocationReconciled(Long userId, Long revokedAt) {
+        if (revokedUsers.remove(userId, revokedAt)) {
+            reconciled.incrementAndGet();
+        }
+    }
+
+    /**
+     * 记录从Redis删除全部会话失败的用户
+     * @param userId 用户ID
+     */
+    public void removeUserSessions(Long userId) {
+        removedUsers.put(userId, System.currentTimeMillis());
+        stored.incrementAndGet();
+    }
+
+    /**
+     * 待删除全部会话的用户快照，值为删除时间
+     */
+    public Map<Long, Long> pendingRemovedUsers() {
+        return new HashMap<>(removedUsers);
+    }
+
+    /**
+     * 用户的全部会话已从Redis删除；期间又有新的删除时保留，等待下次处理
+     * @param userId 用户ID
+     * @param removedAt 快照中的删除时间
+     */
+    public void userSessionsRemoved(Long userId, Long removedAt) {
+        if (removedUsers.remove(userId, removedAt)) {
+            reconciled.incrementAndGet();
+        }
+    }
+
+    /**
+     * 获取降级存储统计信息
+     * @return 各类待对齐记录数、因容量不足淘汰的记录数、累计写入和对齐次数
+     */
+    public Map<String, Object> getStats() {
+        // 先执行待处理的淘汰，使计数准确
+        blacklist.cleanUp();
+        registeredSessions.cleanUp();
+        removedSessions.cleanUp();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pendingBlacklist", blacklist.estimatedSize());
+        result.put("pendingRegisteredSessions", registeredSessions.estimatedSize());
+        result.put("pendingRemovedSessions", removedSessions.estimatedSize());
+        result.put("evictedBlacklist", evictedBlacklist.get());
+        result.put("evictedRegisteredSessions", evictedRegisteredSessions.get());
+        result.put("evictedRemovedSessions", evictedRemovedSessions.get());
+        result.put("pendingRevokedUsers", revokedUsers.size());
+        result.put("pendingRemovedUsers", removedUsers.size());
+        result.put("stored", stored.get());
+        result.put("reconciled", reconciled.get());
+        return result;
+    }
+
+    /**
+     * 记录因容量不足被淘汰的用户，该用户首次溢出时输出告警
+     */
+    private void overflow(Long userId, String kind) {
+        if (revokedUsers.put(userId, System.currentTimeMillis()) == null) {
+            log.warn("降级存储已满，用户{}的{}被淘汰，拒绝该用户此前签发的令牌直至版本号加一", userId, kind);
+        }
+    }
+
+    /**
+     * 内部类：尚未写入Redis的黑名单记录
+     */
+    public static class PendingBlacklist {
+        private final Long userId;
+        private final long expirationTime;
+
+        public PendingBlacklist(Long userId, long expirationTime) {
+            this.userId = userId;
+            this.expirationTime = expirationTime;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public long getExpirationTime() {
+            return expirationTime;
+        }
+    }
+
+    /**
+     * 内部类：尚未写入Redis的会话
+     */
+    public static class PendingSession {
+        private final JwtUtil.TokenClaims claims;
+        private final String ip;
+        private final String device;
+        private final String refreshDigest;
+        private final long loginTime;
+
+        public PendingSession(JwtUtil.TokenClaims claims, String ip, String device, String refreshDigest,
+                              long loginTime) {
+            this.claims = claims;
+            this.ip = ip;
+            this.device = device;
+            this.refreshDigest = refreshDigest;
+            this.loginTime = loginTime;
+        }
+
+        public String getSessionId() {
+            return claims.getSessionId();
+        }
+
+        public JwtUtil.TokenClaims getClaims() {
+            return claims;
+        }
+
+        public String getIp() {
+            return ip;
+        }
+
+        public String getDevice() {
+            return device;
+        }
+
+        public String getRefreshDigest() {
+            return refreshDigest;
+        }
+
+        public long getLoginTime() {
+            return loginTime;
+        }
+    }
+}
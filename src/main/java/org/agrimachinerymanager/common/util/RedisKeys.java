@@ -0,0 +1,67 @@
+package org.agrimachinerymanager.common.util;
+
+/**
+ * 认证相关的Redis键
+ * 同一用户的会话、会话索引、令牌版本号和黑名单记录使用相同的哈希标签{user:用户ID}，在Redis Cluster中落在同一个槽位，
+ * 涉及多个键的Lua脚本只访问同一用户的键，且全部通过KEYS声明，不在脚本中拼接键名，集群模式下也能原子执行
+ * 在线会话索引和黑名单索引是全局键，不与用户键放在同一脚本中修改
+ */
+public final class RedisKeys {
+
+    // 会话哈希：jwt:{user:用户ID}:session:会话标识
+    private static final String SESSION_SUFFIX = ":session:";
+
+    // 用户会话索引：jwt:{user:用户ID}:sessions
+    private static final String USER_SESSIONS_SUFFIX = ":sessions";
+
+    // 令牌版本号：jwt:{user:用户ID}:epoch
+    private static final String EPOCH_SUFFIX = ":epoch";
+
+    // 黑名单记录：jwt:{user:用户ID}:blacklist:令牌标识
+    private static final String BLACKLIST_SUFFIX = ":blacklist:";
+
+    // 在线会话索引（有序集合，成员为"用户ID:会话标识"，分数为最近活跃时间）
+    public static final String ONLINE_SESSIONS = "jwt:online:sessions";
+
+    // 黑名单索引（有序集合，成员为令牌标识，分数为令牌过期时间），用于节点启动时重建布隆过滤器
+    public static final String BLACKLIST_INDEX = "jwt:blacklist:index";
+
+    // 升级前的黑名单键前缀，键为jwt:blacklist:令牌标识（或旧令牌的完整令牌）
+    public static final String LEGACY_BLACKLIST_PREFIX = "jwt:blacklist:";
+
+    // 升级前的令牌版本号哈希，字段为用户ID
+    public static final String LEGACY_EPOCH_KEY = "jwt:user:epoch";
+
+    private RedisKeys() {
+    }
+
+    /**
+     * 用户键的公共前缀，包含哈希标签
+     */
+    public static String userPrefix(Long userId) {
+        return "jwt:{user:" + userId + "}";
+    }
+
+    public static String session(Long userId, String sessionId) {
+        return userPrefix(userId) + SESSION_SUFFIX + sessionId;
+    }
+
+    public static String userSessions(Long userId) {
+        return userPrefix(userId) + USER_SESSIONS_SUFFIX;
+    }
+
+    public static String epoch(Long userId) {
+        return userPrefix(userId) + EPOCH_SUFFIX;
+    }
+
+    public static String blacklist(Long userId, String tokenId) {
+        return userPrefix(userId) + BLACKLIST_SUFFIX + tokenId;
+    }
+
+    /**
+     * 在线会话索引成员，包含用户ID以便分页时定位会话哈希
+     */
+    public static String onlineMember(Long userId, String sessionId) {
+        return userId + ":" + sessionId;
+    }
+}
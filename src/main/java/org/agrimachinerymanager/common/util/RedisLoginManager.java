@@ -1,107 +1,904 @@
 package org.agrimachinerymanager.common.util;
 
-import org.agrimachinerymanager.entity.SysUser;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.agrimachinerymanager.exception.ServiceOverloadedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.TimeUnit;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Redis登录信息管理类
- * 用于在Redis中存储和管理用户的登录信息
+ * Redis登录会话管理类
+ * 以会话标识（登录时签发的访问令牌标识）为单位保存会话，同一用户可在多个设备同时登录，超出最大会话数时淘汰最早登录的会话
+ * 会话哈希：jwt:{user:用户ID}:session:会话标识，保存用户、登录时间、最近活跃时间、IP、设备、当前访问令牌及刷新令牌摘要等信息
+ * 用户会话索引：jwt:{user:用户ID}:sessions，有序集合，分数为登录时间，用于淘汰最早的会话
+ * 同一用户的键使用相同的哈希标签，脚本访问的键全部通过KEYS声明，登记、轮换、吊销脚本在Redis Cluster中也能原子执行；
+ * 登记会话和删除全部会话时先读取用户会话索引以声明其中各会话的键，脚本执行前索引被并发修改时重新读取后重试
+ * 在线会话索引：jwt:online:sessions，有序集合，成员为"用户ID:会话标识"，分数为最近活跃时间，在线列表按排名分页，无需KEYS/SCAN
+ * 在线会话索引是全局键，在脚本执行后单独更新，更新失败只影响在线列表：缺失的成员在下次续期时补齐，多余的成员由定期清理移除
+ * 刷新令牌格式为"用户ID:会话标识.随机串"，Redis中只保存摘要；每次刷新都换发新的刷新令牌，旧刷新令牌被再次使用时视为泄露并吊销整个会话
+ * 会话删除（登出、退出所有设备、被淘汰、过期）后刷新令牌随之失效
+ * Redis不可用时登录和登出仍然成功，会话变更暂存在本地降级存储中，恢复后写回Redis；刷新令牌需等待Redis恢复
  */
 @Component
 public class RedisLoginManager {
 
-    // Redis中的用户登录信息键前缀
-    private static final String USER_LOGIN_PREFIX = "jwt:user:login:";
-    
-    // 用户会话过期时间（秒），默认与JWT令牌过期时间一致
+    private static final Logger log = LoggerFactory.getLogger(RedisLoginManager.class);
+
+    // 登记会话脚本：KEYS[1]会话哈希 KEYS[2]用户会话索引 KEYS[3...]调用方读到的索引中各会话的哈希
+    // ARGV[1]会话标识 ARGV[2]用户ID ARGV[3]用户名 ARGV[4]当前时间（毫秒） ARGV[5]会话过期时间（秒）
+    // ARGV[6]访问令牌过期时间（毫秒） ARGV[7]IP ARGV[8]设备 ARGV[9]最大会话数 ARGV[10]令牌版本号
+    // ARGV[11]刷新令牌摘要 ARGV[12...]与KEYS[3...]对应的会话标识
+    // 脚本访问的键全部通过KEYS声明；索引中有未声明的会话时不做修改，返回{0}，由调用方重新读取索引后重试
+    // 成功时返回{1, 被淘汰的会话标识1, 令牌标识1, 令牌过期时间1, 会话标识2, ...}
+    private static final RedisScript<List<Object>> REGISTER_SCRIPT = listScript(
+            "local declared = {[ARGV[1]] = KEYS[1]} "
+                    + "for i = 3, #KEYS do declared[ARGV[i + 9]] = KEYS[i] end "
+                    + "local ids = redis.call('ZRANGE', KEYS[2], 0, -1) "
+                    + "for _, id in ipairs(ids) do if not declared[id] then return {0} end end "
+                    + "redis.call('HSET', KEYS[1], 'userId', ARGV[2], 'username', ARGV[3], 'loginTime', ARGV[4], "
+                    + "'lastActiveTime', ARGV[4], 'tokenId', ARGV[1], 'expiration', ARGV[6], 'ip', ARGV[7], "
+                    + "'device', ARGV[8], 'epoch', ARGV[10], 'refresh', ARGV[11]) "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[5]) "
+                    + "for _, id in ipairs(ids) do "
+                    + "  if redis.call('EXISTS', declared[id]) == 0 then redis.call('ZREM', KEYS[2], id) end "
+                    + "end "
+                    + "redis.call('ZADD', KEYS[2], ARGV[4], ARGV[1]) "
+                    + "redis.call('EXPIRE', KEYS[2], ARGV[5]) "
+                    + "local result = {1} "
+                    + "local max = tonumber(ARGV[9]) "
+                    + "local count = redis.call('ZCARD', KEYS[2]) "
+                    + "if max > 0 and count > max then "
+                    + "  for _, id in ipairs(redis.call('ZRANGE', KEYS[2], 0, count - max - 1)) do "
+                    + "    local current = redis.call('HMGET', declared[id], 'tokenId', 'expiration') "
+                    + "    redis.call('DEL', declared[id]) "
+                    + "    redis.call('ZREM', KEYS[2], id) "
+                    + "    table.insert(result, id) "
+                    + "    table.insert(result, current[1] or id) table.insert(result, current[2] or '0') "
+                    + "  end "
+                    + "end "
+                    + "return result");
+
+    // 会话续期脚本：KEYS[1]会话哈希 KEYS[2]用户会话索引
+    // ARGV[1]当前时间（毫秒） ARGV[2]会话过期时间（秒），会话已删除时不做任何操作
+    private static final String TOUCH_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end "
+                    + "redis.call('HSET', KEYS[1], 'lastActiveTime', ARGV[1]) "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[2]) "
+                    + "redis.call('EXPIRE', KEYS[2], ARGV[2]) "
+                    + "return 1";
+
+    // 删除用户全部会话脚本：KEYS[1]用户会话索引 KEYS[2...]调用方读到的索引中各会话的哈希 ARGV[1...]对应的会话标识
+    // 索引中有未声明的会话时不做修改，返回{0}，由调用方重新读取索引后重试；成功时返回{1, 被删除的会话标识...}
+    static final String REMOVE_USER_SCRIPT =
+            "local declared = {} "
+                    + "for i = 2, #KEYS do declared[ARGV[i - 1]] = true end "
+                    + "local ids = redis.call('ZRANGE', KEYS[1], 0, -1) "
+                    + "for _, id in ipairs(ids) do if not declared[id] then return {0} end end "
+                    + "for i = 2, #KEYS do redis.call('DEL', KEYS[i]) end "
+                    + "redis.call('DEL', KEYS[1]) "
+                    + "local result = {1} "
+                    + "for _, id in ipairs(ids) do table.insert(result, id) end "
+                    + "return result";
+
+    // 读取用户会话索引后到脚本执行前索引被并发修改时的最大重试次数
+    private static final int MAX_INDEX_ATTEMPTS = 5;
+
+    // 刷新令牌轮换脚本：KEYS[1]会话哈希 KEYS[2]用户会话索引
+    // ARGV[1]出示的刷新令牌摘要 ARGV[2]新刷新令牌摘要 ARGV[3]新访问令牌标识 ARGV[4]新访问令牌过期时间（毫秒）
+    // ARGV[5]当前时间（毫秒） ARGV[6]会话过期时间（秒）
+    // 返回1表示轮换成功，-1表示出示的是已轮换的旧刷新令牌（疑似泄露），0表示会话不存在或刷新令牌不匹配
+    private static final RedisScript<Long> ROTATE_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('HMGET', KEYS[1], 'refresh', 'previousRefresh') "
+                    + "if not current[1] then return 0 end "
+                    + "if current[1] == ARGV[1] then "
+                    + "  redis.call('HSET', KEYS[1], 'refresh', ARGV[2], 'previousRefresh', ARGV[1], "
+                    + "    'tokenId', ARGV[3], 'expiration', ARGV[4], 'lastActiveTime', ARGV[5]) "
+                    + "  redis.call('EXPIRE', KEYS[1], ARGV[6]) "
+                    + "  redis.call('EXPIRE', KEYS[2], ARGV[6]) "
+                    + "  return 1 "
+                    + "end "
+                    + "if current[2] == ARGV[1] then return -1 end "
+                    + "return 0",
+            Long.class);
+
+    // 吊销单个会话脚本：KEYS[1]会话哈希 KEYS[2]用户会话索引 ARGV[1]会话标识
+    // 返回会话当前的访问令牌 {令牌标识, 令牌过期时间}，会话不存在时返回空
+    private static final RedisScript<List<Object>> REVOKE_SCRIPT = listScript(
+            "local current = redis.call('HMGET', KEYS[1], 'tokenId', 'expiration') "
+                    + "redis.call('DEL', KEYS[1]) "
+                    + "redis.call('ZREM', KEYS[2], ARGV[1]) "
+                    + "if not current[1] then return {} end "
+                    + "return {current[1], current[2] or '0'}");
+
+    private static final RedisScript<Long> TOUCH = new DefaultRedisScript<>(TOUCH_SCRIPT, Long.class);
+
+    // 刷新令牌随机部分的字节数
+    private static final int REFRESH_SECRET_BYTES = 32;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    // Redis不可用时建议客户端重试刷新的等待时间（秒）
+    private static final long UNAVAILABLE_RETRY_AFTER_SECONDS = 5;
+
+    private static final RedisScript<List<Object>> REMOVE_USER = listScript(REMOVE_USER_SCRIPT);
+
+    // 用户会话过期时间（秒），与刷新令牌有效期一致，会话活跃时滑动续期
     private final long sessionExpiration; // 单位：秒
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
-    
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private JwtTokenBlacklist jwtTokenBlacklist;
+
     @Autowired
-    private JwtUtil jwtUtil;
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private RedisFallbackStore redisFallbackStore;
+
+    // 是否异步批量续期，关闭时每次续期直接执行脚本
+    private final boolean renewAsync;
+
+    // 每批续期的最大会话数
+    private final int renewBatchSize;
+
+    // 每个用户允许同时登录的最大会话数，0表示不限制
+    @Value("${jwt.session.max-sessions:5}")
+    private int maxSessions;
+
+    // 最近活跃时间在此窗口（秒）内的会话视为在线
+    @Value("${jwt.session.online-window:900}")
+    private long onlineWindow;
+
+    // 最近续期过的会话，在续期间隔内不再重复续期
+    private final Cache<String, Boolean> lastRenewals;
+
+    // 等待后台任务批量续期的会话，值为用户ID
+    private final Map<String, Long> pendingRenewals = new ConcurrentHashMap<>();
 
     /**
-     * 构造函数，初始化会话过期时间
-     * 从JwtUtil中获取过期时间配置
+     * 构造函数，初始化会话过期时间和续期参数
+     * 会话过期时间取刷新令牌有效期
      */
-    public RedisLoginManager(@Autowired JwtUtil jwtUtil) {
-        this.sessionExpiration = jwtUtil.getExpiration();
+    public RedisLoginManager(@Value("${jwt.refresh.expiration:604800}") long refreshExpiration,
+                             @Value("${jwt.session.renew-interval:60}") long renewInterval,
+                             @Value("${jwt.session.renew-async:true}") boolean renewAsync,
+                             @Value("${jwt.session.renew-batch-size:500}") int renewBatchSize) {
+        this.sessionExpiration = refreshExpiration;
+        this.renewAsync = renewAsync;
+        this.renewBatchSize = renewBatchSize;
+        this.lastRenewals = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(renewInterval))
+                .build();
     }
 
     /**
-     * 保存用户登录信息到Redis
-     * @param userId 用户ID
-     * @param username 用户名
-     * @param token JWT令牌
+     * 登记新会话并签发刷新令牌，超出最大会话数时淘汰最早登录的会话并将其访问令牌加入黑名单
+     * @param claims 登录时签发的访问令牌声明
+     * @param ip 客户端IP
+     * @param device 客户端设备（User-Agent）
+     * @return 刷新令牌
      */
-    public void saveLoginInfo(Long userId, String username, String token) {
-        // 构建Redis键
-        String userKey = USER_LOGIN_PREFIX + userId;
-        
-        // 创建用户登录信息对象
-        UserLoginInfo loginInfo = new UserLoginInfo(userId, username, token, System.currentTimeMillis());
-        
-        // 保存到Redis，并设置过期时间
-        redisTemplate.opsForValue().set(userKey, loginInfo, sessionExpiration, TimeUnit.SECONDS);
+    public String saveLoginInfo(JwtUtil.TokenClaims claims, String ip, String device) {
+        String sessionId = claims.getSessionId();
+        Long userId = claims.getUserId();
+        long now = System.currentTimeMillis();
+        String refreshToken = newRefreshToken(userId, sessionId);
+        RedisFallbackStore.PendingSession session = new RedisFallbackStore.PendingSession(
+                claims, ip, device, JwtUtil.digest(refreshToken), now);
+        List<?> evicted = redisCircuitBreaker.execute(() -> register(session), () -> {
+            // Redis不可用时登录仍然成功，会话在恢复后写入
+            redisFallbackStore.registerSession(session);
+            log.warn("用户 [{}] 登录时Redis不可用，会话暂存到本地降级存储", userId);
+            return null;
+        });
+        // 刚写入的会话无需立即续期
+        lastRenewals.put(sessionId, Boolean.TRUE);
+        if (evicted != null) {
+            registered(userId, sessionId, now, evicted);
+        }
+        return refreshToken;
     }
 
     /**
-     * 从Redis获取用户登录信息
-     * @param userId 用户ID
-     * @return 用户登录信息，如果不存在则返回null
+     * 查找刷新令牌所属的会话
+     * 只做预检查，刷新令牌是否仍为当前令牌由轮换脚本原子判定
+     * @param refreshToken 刷新令牌
+     * @return 会话信息，格式错误、会话不存在或摘要不匹配时返回null
+     */
+    public RefreshSession findRefreshSession(String refreshToken) {
+        String[] owner = ownerOf(refreshToken);
+        if (owner == null) {
+            return null;
+        }
+        Long userId = Long.valueOf(owner[0]);
+        String sessionId = owner[1];
+        // 有未写回的用户级吊销（记录被淘汰或Redis不可用时吊销全部令牌），版本号加一前不允许刷新
+        if (redisFallbackStore.hasPendingRevocation(userId)) {
+            return null;
+        }
+        List<Object> values = redisCircuitBreaker.execute(
+                () -> stringRedisTemplate.<String, Object>opsForHash().multiGet(RedisKeys.session(userId, sessionId),
+                        Arrays.asList("userId", "epoch", "refresh", "previousRefresh")),
+                RedisLoginManager::unavailable);
+        if (values == null || !owner[0].equals(values.get(0))) {
+            return null;
+        }
+        String digest = JwtUtil.digest(refreshToken);
+        if (!digest.equals(values.get(2)) && !digest.equals(values.get(3))) {
+            return null;
+        }
+        long epoch = values.get(1) == null ? 0L : Long.parseLong(values.get(1).toString());
+        return new RefreshSession(sessionId, userId, epoch);
+    }
+
+    /**
+     * 轮换刷新令牌：记录新访问令牌并换发新的刷新令牌
+     * 出示已轮换的旧刷新令牌时吊销整个会话
+     * @param refreshToken 出示的刷新令牌
+     * @param session 刷新令牌所属会话
+     * @param claims 新签发的访问令牌声明
+     * @return 新的刷新令牌，刷新令牌无效时返回null
      */
-    public UserLoginInfo getLoginInfo(Long userId) {
-        String userKey = USER_LOGIN_PREFIX + userId;
-        Object value = redisTemplate.opsForValue().get(userKey);
-        if (value instanceof UserLoginInfo) {
-            // 重置过期时间，实现会话活跃续期
-            redisTemplate.expire(userKey, sessionExpiration, TimeUnit.SECONDS);
-            return (UserLoginInfo) value;
+    public String rotateRefreshToken(String refreshToken, RefreshSession session, JwtUtil.TokenClaims claims) {
+        String sessionId = session.getSessionId();
+        Long userId = session.getUserId();
+        String newRefreshToken = newRefreshToken(userId, sessionId);
+        long now = System.currentTimeMillis();
+        Long result = redisCircuitBreaker.execute(() -> stringRedisTemplate.execute(ROTATE_SCRIPT,
+                sessionKeys(sessionId, userId),
+                JwtUtil.digest(refreshToken), JwtUtil.digest(newRefreshToken), claims.getTokenId(),
+                String.valueOf(claims.getExpiration().getTime()), String.valueOf(now),
+                String.valueOf(sessionExpiration)), RedisLoginManager::unavailable);
+        if (result != null && result == 1) {
+            lastRenewals.put(sessionId, Boolean.TRUE);
+            markActive(Collections.singletonMap(sessionId, userId), now);
+            return newRefreshToken;
+        }
+        if (result != null && result == -1) {
+            log.warn("用户 [{}] 的会话出示了已轮换的刷新令牌，疑似泄露，已吊销该会话", session.getUserId());
+            revokeSession(sessionId, session.getUserId());
         }
         return null;
     }
 
     /**
-     * 删除用户登录信息
+     * 吊销单个会话：删除会话并将其当前访问令牌加入黑名单
+     * Redis不可用时暂存到本地降级存储，恢复后再删除
+     * @param sessionId 会话标识
+     * @param userId 用户ID
+     */
+    public void revokeSession(String sessionId, Long userId) {
+        if (!redisCircuitBreaker.run(() -> revoke(sessionId, userId))) {
+            redisFallbackStore.removeSession(sessionId, userId);
+        }
+        forgetRenewal(sessionId);
+    }
+
+    /**
+     * Redis恢复后将降级存储中的会话变更写回Redis，遇到失败时停止，等待下次重试
+     * 会话登记时按当时的最大会话数淘汰，被淘汰会话的访问令牌在此时加入黑名单
+     */
+    @Scheduled(fixedDelayString = "${redis-guard.reconcile-interval:1000}")
+    public void reconcileFallback() {
+        Map<String, RedisFallbackStore.PendingSession> registered = redisFallbackStore.pendingRegisteredSessions();
+        Map<String, Long> removed = redisFallbackStore.pendingRemovedSessions();
+        Map<Long, Long> removedUsers = redisFallbackStore.pendingRemovedUsers();
+        if (registered.isEmpty() && removed.isEmpty() && removedUsers.isEmpty() || !redisCircuitBreaker.isClosed()) {
+            return;
+        }
+        for (RedisFallbackStore.PendingSession session : registered.values()) {
+            List<?> evicted = redisCircuitBreaker.execute(() -> register(session), () -> null);
+            if (evicted == null) {
+                return;
+            }
+            redisFallbackStore.sessionRegistered(session.getSessionId());
+            registered(session.getClaims().getUserId(), session.getSessionId(), session.getLoginTime(), evicted);
+        }
+        for (Map.Entry<String, Long> entry : removed.entrySet()) {
+            if (!redisCircuitBreaker.run(() -> revoke(entry.getKey(), entry.getValue()))) {
+                return;
+            }
+            redisFallbackStore.sessionRemoved(entry.getKey());
+        }
+        for (Map.Entry<Long, Long> entry : removedUsers.entrySet()) {
+            List<?> sessions = redisCircuitBreaker.execute(() -> removeAll(entry.getKey()), () -> null);
+            if (sessions == null) {
+                return;
+            }
+            redisFallbackStore.userSessionsRemoved(entry.getKey(), entry.getValue());
+            removed(entry.getKey(), sessions);
+        }
+        log.info("已将降级存储中的{}个新会话、{}个已删除会话、{}个用户的全部会话删除写回Redis",
+                registered.size(), removed.size(), removedUsers.size());
+    }
+
+    /**
+     * 记录会话活跃并续期
+     * 同一会话在续期间隔内最多续期一次；异步模式下进入队列，由后台任务批量流水线提交
+     * @param claims 已通过认证的令牌声明
+     */
+    public void touch(JwtUtil.TokenClaims claims) {
+        String sessionId = claims.getSessionId();
+        if (lastRenewals.asMap().putIfAbsent(sessionId, Boolean.TRUE) != null) {
+            return;
+        }
+        if (renewAsync) {
+            pendingRenewals.put(sessionId, claims.getUserId());
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Long renewed = redisCircuitBreaker.execute(() -> stringRedisTemplate.execute(TOUCH,
+                sessionKeys(sessionId, claims.getUserId()), String.valueOf(now), String.valueOf(sessionExpiration)),
+                () -> null);
+        if (renewed == null) {
+            lastRenewals.invalidate(sessionId);
+        } else if (renewed == 1) {
+            markActive(Collections.singletonMap(sessionId, claims.getUserId()), now);
+        }
+    }
+
+    /**
+     * 批量提交待续期的会话
+     * 通过流水线一次发送多个续期脚本，避免每个请求单独访问Redis
+     */
+    @Scheduled(fixedDelayString = "${jwt.session.renew-flush-interval:1000}")
+    public void flushRenewals() {
+        // 熔断期间保留待续期会话，Redis恢复后再提交
+        if (pendingRenewals.isEmpty() || !redisCircuitBreaker.isClosed()) {
+            return;
+        }
+        Map<String, Long> batch = new HashMap<>();
+        Iterator<Map.Entry<String, Long>> iterator = pendingRenewals.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            batch.put(entry.getKey(), entry.getValue());
+            iterator.remove();
+            if (batch.size() >= renewBatchSize) {
+                touchBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            touchBatch(batch);
+        }
+    }
+
+    /**
+     * 定期清理在线会话索引中已过期的会话
+     * 会话哈希在最近活跃时间之后sessionExpiration秒过期，分数早于该时间的成员一定已失效
+     */
+    @Scheduled(fixedDelayString = "${jwt.session.prune-interval:300000}")
+    public void pruneOnlineSessions() {
+        long threshold = System.currentTimeMillis() - sessionExpiration * 1000;
+        if (!redisCircuitBreaker.run(() -> stringRedisTemplate.opsForZSet()
+                .removeRangeByScore(RedisKeys.ONLINE_SESSIONS, Double.NEGATIVE_INFINITY, threshold))) {
+            log.warn("清理在线会话索引失败，等待下次执行");
+        }
+    }
+
+    /**
+     * 删除用户的全部会话
+     * Redis不可用时记入降级存储，恢复后再删除；调用方应同时吊销该用户的全部令牌
      * @param userId 用户ID
      */
     public void removeLoginInfo(Long userId) {
-        String userKey = USER_LOGIN_PREFIX + userId;
-        redisTemplate.delete(userKey);
+        List<?> removed = redisCircuitBreaker.execute(() -> removeAll(userId), () -> null);
+        if (removed == null) {
+            redisFallbackStore.removeUserSessions(userId);
+            log.warn("Redis不可用，用户{}的会话删除已记入降级存储", userId);
+            return;
+        }
+        removed(userId, removed);
+    }
+
+    /**
+     * 执行删除用户全部会话的脚本
+     * @return 被删除的会话标识，没有会话时为空列表
+     */
+    private List<?> removeAll(Long userId) {
+        for (int attempt = 1; ; attempt++) {
+            List<String> sessionIds = indexedSessions(userId);
+            List<?> removed = declared(stringRedisTemplate.execute(REMOVE_USER, removeUserKeys(userId, sessionIds),
+                    sessionIds.toArray()));
+            if (removed != null) {
+                return removed;
+            }
+            if (attempt >= MAX_INDEX_ATTEMPTS) {
+                throw new IllegalStateException("用户" + userId + "的会话索引持续变化，删除会话失败");
+            }
+        }
+    }
+
+    /**
+     * 用户的全部会话已从Redis删除后，从在线会话索引移除并清除本地续期状态
+     * @param userId 用户ID
+     * @param removed 被删除的会话标识
+     */
+    private void removed(Long userId, List<?> removed) {
+        if (removed.isEmpty()) {
+            return;
+        }
+        List<String> members = new ArrayList<>(removed.size());
+        for (Object sessionId : removed) {
+            members.add(RedisKeys.onlineMember(userId, String.valueOf(sessionId)));
+            forgetRenewal(String.valueOf(sessionId));
+        }
+        removeOnline(members);
+    }
+
+    /**
+     * 从在线会话索引中移除已删除的会话
+     * @param members 在线会话索引成员（用户ID:会话标识）
+     */
+    void removeOnline(List<String> members) {
+        if (members.isEmpty()) {
+            return;
+        }
+        String[] values = members.toArray(new String[0]);
+        if (!redisCircuitBreaker.run(() -> stringRedisTemplate.opsForZSet()
+                .remove(RedisKeys.ONLINE_SESSIONS, (Object[]) values))) {
+            log.warn("从在线会话索引移除{}个会话失败，由定期清理对齐", members.size());
+        }
+    }
+
+    /**
+     * 清除会话的本地续期状态，会话在Redis中被删除后调用
+     * @param sessionId 会话标识
+     */
+    void forgetRenewal(String sessionId) {
+        pendingRenewals.remove(sessionId);
+        lastRenewals.invalidate(sessionId);
     }
 
     /**
      * 检查用户是否已登录
      * @param userId 用户ID
-     * @return 如果用户已登录返回true，否则返回false
+     * @return 如果用户至少有一个会话返回true，否则返回false
+     * @throws ServiceOverloadedException Redis不可用时
      */
     public boolean isLoggedIn(Long userId) {
-        return redisTemplate.hasKey(USER_LOGIN_PREFIX + userId);
+        return !getUserSessions(userId).isEmpty();
+    }
+
+    /**
+     * 获取用户的全部会话，按登录时间从早到晚排序
+     * @param userId 用户ID
+     * @return 会话列表
+     * @throws ServiceOverloadedException Redis不可用时
+     */
+    public List<UserLoginInfo> getUserSessions(Long userId) {
+        return redisCircuitBreaker.execute(() -> loadUserSessions(userId), RedisLoginManager::unavailable);
+    }
+
+    private List<UserLoginInfo> loadUserSessions(Long userId) {
+        Set<String> sessionIds = stringRedisTemplate.opsForZSet().range(RedisKeys.userSessions(userId), 0, -1);
+        if (sessionIds == null || sessionIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> members = new ArrayList<>(sessionIds.size());
+        for (String sessionId : sessionIds) {
+            members.add(RedisKeys.onlineMember(userId, sessionId));
+        }
+        return loadSessions(members);
+    }
+
+    /**
+     * 分页查询在线会话，按最近活跃时间从近到远排序
+     * 在线窗口内的会话分数最大，倒序排在索引最前面，按排名取页：有序集合按排名定位为O(log n)，
+     * 查询代价为O(log n + 每页条数)，与页码无关；按分数范围带偏移量查询需要逐个跳过偏移量之前的成员，不用于分页
+     * @param pageNum 页码
+     * @param pageSize 每页条数
+     * @return 分页结果
+     * @throws ServiceOverloadedException Redis不可用时
+     */
+    public Page<UserLoginInfo> getOnlineSessionPage(int pageNum, int pageSize) {
+        return redisCircuitBreaker.execute(() -> loadOnlineSessionPage(pageNum, pageSize),
+                RedisLoginManager::unavailable);
+    }
+
+    private Page<UserLoginInfo> loadOnlineSessionPage(int pageNum, int pageSize) {
+        long minScore = System.currentTimeMillis() - onlineWindow * 1000;
+        Long count = stringRedisTemplate.opsForZSet().count(RedisKeys.ONLINE_SESSIONS, minScore,
+                Double.POSITIVE_INFINITY);
+        long total = count == null ? 0 : count;
+        Page<UserLoginInfo> page = new Page<>(pageNum, pageSize, total);
+        long start = (long) (pageNum - 1) * pageSize;
+        long end = Math.min(start + pageSize, total) - 1;
+        if (start > end) {
+            page.setRecords(Collections.emptyList());
+            return page;
+        }
+        Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+                .reverseRangeWithScores(RedisKeys.ONLINE_SESSIONS, start, end);
+        // 统计总数后有会话移出在线窗口时，排名靠后的成员可能已不在窗口内
+        List<String> members = new ArrayList<>();
+        if (tuples != null) {
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                if (tuple.getScore() != null && tuple.getScore() >= minScore) {
+                    members.add(tuple.getValue());
+                }
+            }
+        }
+        page.setRecords(members.isEmpty() ? Collections.emptyList() : loadSessions(members));
+        return page;
     }
 
     /**
-     * 内部类：用户登录信息
+     * 统计在线会话数
+     * @return 最近活跃时间在在线窗口内的会话数
+     * @throws ServiceOverloadedException Redis不可用时
+     */
+    public long countOnlineSessions() {
+        long minScore = System.currentTimeMillis() - onlineWindow * 1000;
+        Long count = redisCircuitBreaker.execute(() -> stringRedisTemplate.opsForZSet().count(
+                RedisKeys.ONLINE_SESSIONS, minScore, Double.POSITIVE_INFINITY), RedisLoginManager::unavailable);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 通过流水线批量读取会话哈希，已过期的会话和无法识别的索引成员直接跳过
+     * 只在熔断器保护的调用内使用
+     * @param members 在线会话索引成员（用户ID:会话标识）
+     */
+    private List<UserLoginInfo> loadSessions(List<String> members) {
+        List<String[]> owners = new ArrayList<>(members.size());
+        for (String member : members) {
+            int separator = member.indexOf(':');
+            if (separator > 0 && separator < member.length() - 1) {
+                owners.add(new String[]{member.substring(0, separator), member.substring(separator + 1)});
+            }
+        }
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String[] owner : owners) {
+                connection.hashCommands().hGetAll(bytes(RedisKeys.session(Long.valueOf(owner[0]), owner[1])));
+            }
+            return null;
+        });
+        List<UserLoginInfo> sessions = new ArrayList<>(owners.size());
+        for (int i = 0; i < owners.size(); i++) {
+            Object value = results.get(i);
+            if (value instanceof Map && !((Map<?, ?>) value).isEmpty()) {
+                sessions.add(UserLoginInfo.fromHash(owners.get(i)[1], (Map<?, ?>) value));
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * 通过流水线批量执行续期脚本
+     */
+    private void touchBatch(Map<String, Long> batch) {
+        byte[] script = TOUCH_SCRIPT.getBytes(StandardCharsets.UTF_8);
+        long now = System.currentTimeMillis();
+        byte[] nowBytes = bytes(String.valueOf(now));
+        byte[] expiration = bytes(String.valueOf(sessionExpiration));
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(batch.entrySet());
+        List<Object> results = redisCircuitBreaker.execute(() -> stringRedisTemplate.executePipelined(
+                (RedisCallback<Object>) connection -> {
+                    for (Map.Entry<String, Long> entry : entries) {
+                        connection.scriptingCommands().eval(script, ReturnType.INTEGER, 2,
+                                bytes(RedisKeys.session(entry.getValue(), entry.getKey())),
+                                bytes(RedisKeys.userSessions(entry.getValue())), nowBytes, expiration);
+                    }
+                    return null;
+                }), () -> null);
+        if (results != null) {
+            // 只有续期脚本确认会话仍存在的才更新在线状态
+            Map<String, Long> renewed = new HashMap<>();
+            for (int i = 0; i < entries.size() && i < results.size(); i++) {
+                if (Long.valueOf(1).equals(results.get(i))) {
+                    renewed.put(entries.get(i).getKey(), entries.get(i).getValue());
+                }
+            }
+            markActive(renewed, now);
+        } else {
+            // 续期失败时放回队列，下次批量提交时重试
+            pendingRenewals.putAll(batch);
+            log.warn("批量续期会话失败，{}个会话将在下次重试", batch.size());
+        }
+    }
+
+    /**
+     * 执行登记会话脚本
+     * @return 被淘汰的会话
+     */
+    private List<?> register(RedisFallbackStore.PendingSession session) {
+        JwtUtil.TokenClaims claims = session.getClaims();
+        Long userId = claims.getUserId();
+        String ip = session.getIp();
+        String device = session.getDevice();
+        for (int attempt = 1; ; attempt++) {
+            List<String> sessionIds = indexedSessions(userId);
+            List<String> keys = new ArrayList<>(sessionKeys(session.getSessionId(), userId));
+            List<String> args = new ArrayList<>(Arrays.asList(
+                    session.getSessionId(), String.valueOf(userId), claims.getUsername(),
+                    String.valueOf(session.getLoginTime()), String.valueOf(sessionExpiration),
+                    String.valueOf(claims.getExpiration().getTime()), ip == null ? "" : ip,
+                    device == null ? "" : device, String.valueOf(maxSessions), String.valueOf(claims.getEpoch()),
+                    session.getRefreshDigest()));
+            for (String sessionId : sessionIds) {
+                keys.add(RedisKeys.session(userId, sessionId));
+                args.add(sessionId);
+            }
+            List<?> evicted = declared(stringRedisTemplate.execute(REGISTER_SCRIPT, keys, args.toArray()));
+            if (evicted != null) {
+                return evicted;
+            }
+            if (attempt >= MAX_INDEX_ATTEMPTS) {
+                throw new IllegalStateException("用户" + userId + "的会话索引持续变化，登记会话失败");
+            }
+        }
+    }
+
+    /**
+     * 读取用户会话索引中的会话标识，作为脚本需要声明的键
+     */
+    private List<String> indexedSessions(Long userId) {
+        Set<String> sessionIds = stringRedisTemplate.opsForZSet().range(RedisKeys.userSessions(userId), 0, -1);
+        return sessionIds == null ? Collections.emptyList() : new ArrayList<>(sessionIds);
+    }
+
+    /**
+     * 删除用户全部会话脚本的KEYS：用户会话索引和索引中各会话的哈希
+     * @param userId 用户ID
+     * @param sessionIds 读到的用户会话索引中的会话标识，与脚本的ARGV一一对应
+     */
+    static List<String> removeUserKeys(Long userId, List<String> sessionIds) {
+        List<String> keys = new ArrayList<>(sessionIds.size() + 1);
+        keys.add(RedisKeys.userSessions(userId));
+        for (String sessionId : sessionIds) {
+            keys.add(RedisKeys.session(userId, sessionId));
+        }
+        return keys;
+    }
+
+    /**
+     * 解析声明了会话键的脚本结果
+     * @return 首个元素为1时返回其余元素；索引中有未声明的会话（首个元素为0）时返回null，需要重新读取索引
+     */
+    static List<?> declared(List<?> result) {
+        if (result == null || result.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Long.valueOf(1).equals(result.get(0)) ? result.subList(1, result.size()) : null;
+    }
+
+    /**
+     * 执行吊销会话脚本，将会话当前的访问令牌加入黑名单，并从在线会话索引中移除
+     */
+    private void revoke(String sessionId, Long userId) {
+        List<?> current = stringRedisTemplate.execute(REVOKE_SCRIPT, sessionKeys(sessionId, userId), sessionId);
+        if (current != null && current.size() == 2) {
+            long expirationTime = Long.parseLong(String.valueOf(current.get(1)));
+            jwtTokenBlacklist.addToBlacklist(userId, String.valueOf(current.get(0)),
+                    expirationTime > 0 ? expirationTime : System.currentTimeMillis());
+        }
+        removeOnline(Collections.singletonList(RedisKeys.onlineMember(userId, sessionId)));
+    }
+
+    /**
+     * 会话登记到Redis后：加入在线会话索引，将被淘汰会话的访问令牌加入黑名单并移出在线会话索引
+     * @param evicted 登记会话脚本返回的被淘汰会话
+     */
+    private void registered(Long userId, String sessionId, long loginTime, List<?> evicted) {
+        String member = RedisKeys.onlineMember(userId, sessionId);
+        if (!redisCircuitBreaker.run(() -> stringRedisTemplate.opsForZSet()
+                .add(RedisKeys.ONLINE_SESSIONS, member, loginTime))) {
+            log.warn("用户 [{}] 的会话加入在线会话索引失败，下次续期时补齐", userId);
+        }
+        List<String> evictedMembers = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i + 2 < evicted.size(); i += 3) {
+            String evictedSessionId = String.valueOf(evicted.get(i));
+            String evictedTokenId = String.valueOf(evicted.get(i + 1));
+            long expirationTime = Long.parseLong(String.valueOf(evicted.get(i + 2)));
+            jwtTokenBlacklist.addToBlacklist(userId, evictedTokenId, expirationTime > 0 ? expirationTime : now);
+            forgetRenewal(evictedSessionId);
+            evictedMembers.add(RedisKeys.onlineMember(userId, evictedSessionId));
+        }
+        if (!evictedMembers.isEmpty()) {
+            removeOnline(evictedMembers);
+            log.info("用户 [{}] 超出最大会话数，已淘汰 {} 个最早登录的会话", userId, evictedMembers.size());
+        }
+    }
+
+    /**
+     * 更新已续期会话在在线会话索引中的最近活跃时间
+     * 在线会话索引是全局键，不能与用户的键在同一脚本中修改；调用方只传入续期或轮换脚本确认仍存在的会话，
+     * 这里直接ZADD，登录时加入索引失败的成员在下次续期时补齐
+     * 脚本执行后到ZADD之间会话恰好被删除时，成员会短暂留在索引中：查询时跳过已不存在的会话，由定期清理移除
+     * @param sessions 会话标识到用户ID的映射
+     */
+    private void markActive(Map<String, Long> sessions, long now) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        byte[] online = bytes(RedisKeys.ONLINE_SESSIONS);
+        RedisCallback<Object> commands = connection -> {
+            for (Map.Entry<String, Long> entry : sessions.entrySet()) {
+                connection.zSetCommands().zAdd(online, now,
+                        bytes(RedisKeys.onlineMember(entry.getValue(), entry.getKey())));
+            }
+            return null;
+        };
+        if (!redisCircuitBreaker.run(() -> stringRedisTemplate.executePipelined(commands))) {
+            log.warn("更新{}个会话的在线状态失败，由定期清理对齐", sessions.size());
+        }
+    }
+
+    /**
+     * Redis不可用时拒绝需要Redis确认的操作
+     */
+    private static <T> T unavailable() {
+        throw new ServiceOverloadedException(503, "认证服务暂时不可用，请稍后重试", UNAVAILABLE_RETRY_AFTER_SECONDS);
+    }
+
+    /**
+     * 返回数组的Lua脚本，结果解析为列表
+     */
+    @SuppressWarnings("unchecked")
+    private static RedisScript<List<Object>> listScript(String script) {
+        return (RedisScript<List<Object>>) (RedisScript<?>) RedisScript.of(script, List.class);
+    }
+
+    private static List<String> sessionKeys(String sessionId, Long userId) {
+        return Arrays.asList(RedisKeys.session(userId, sessionId), RedisKeys.userSessions(userId));
+    }
+
+    /**
+     * 生成刷新令牌：用户ID:会话标识.随机串
+     * 包含用户ID以便直接定位带哈希标签的会话键
+     */
+    private static String newRefreshToken(Long userId, String sessionId) {
+        byte[] secret = new byte[REFRESH_SECRET_BYTES];
+        SECURE_RANDOM.nextBytes(secret);
+        return RedisKeys.onlineMember(userId, sessionId) + "."
+                + Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+    }
+
+    /**
+     * 从刷新令牌中取出用户ID和会话标识，格式错误时返回null
+     * @return {用户ID, 会话标识}
+     */
+    private static String[] ownerOf(String refreshToken) {
+        if (refreshToken == null) {
+            return null;
+        }
+        int separator = refreshToken.lastIndexOf('.');
+        int userSeparator = refreshToken.indexOf(':');
+        if (separator <= 0 || separator == refreshToken.length() - 1
+                || userSeparator <= 0 || userSeparator >= separator - 1) {
+            return null;
+        }
+        String userId = refreshToken.substring(0, userSeparator);
+        if (userId.length() > 18) {
+            return null;
+        }
+        for (int i = 0; i < userId.length(); i++) {
+            if (!Character.isDigit(userId.charAt(i))) {
+                return null;
+            }
+        }
+        return new String[]{userId, refreshToken.substring(userSeparator + 1, separator)};
+    }
+
+    /**
+     * 内部类：刷新令牌所属的会话
+     */
+    public static class RefreshSession {
+        private final String sessionId;
+        private final Long userId;
+        private final long epoch;
+
+        public RefreshSession(String sessionId, Long userId, long epoch) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.epoch = epoch;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        /**
+         * 登录时的令牌版本号，用户版本号变更后刷新令牌失效
+         */
+        public long getEpoch() {
+            return epoch;
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 内部类：用户登录会话信息，tokenId为会话标识（登录时签发的访问令牌标识）
      */
     public static class UserLoginInfo {
+        private String tokenId;
         private Long userId;
         private String username;
-        private String token;
         private long loginTime; // 登录时间戳
+        private long lastActiveTime; // 最近活跃时间戳
+        private String ip;
+        private String device;
 
-        public UserLoginInfo(Long userId, String username, String token, long loginTime) {
-            this.userId = userId;
-            this.username = username;
-            this.token = token;
-            this.loginTime = loginTime;
+        /**
+         * 无参构造函数，供序列化使用
+         */
+        public UserLoginInfo() {
+        }
+
+        /**
+         * 从会话哈希构建会话信息
+         */
+        static UserLoginInfo fromHash(String tokenId, Map<?, ?> hash) {
+            UserLoginInfo info = new UserLoginInfo();
+            info.tokenId = tokenId;
+            info.userId = parseLong(hash.get("userId"));
+            info.username = string(hash.get("username"));
+            Long loginTime = parseLong(hash.get("loginTime"));
+            info.loginTime = loginTime == null ? 0 : loginTime;
+            Long lastActiveTime = parseLong(hash.get("lastActiveTime"));
+            info.lastActiveTime = lastActiveTime == null ? info.loginTime : lastActiveTime;
+            info.ip = string(hash.get("ip"));
+            info.device = string(hash.get("device"));
+            return info;
+        }
+
+        private static String string(Object value) {
+            if (value == null) {
+                return null;
+            }
+            return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : value.toString();
+        }
+
+        private static Long parseLong(Object value) {
+            String text = string(value);
+            return text == null || text.isEmpty() ? null : Long.valueOf(text);
         }
 
         // Getters and Setters
+        public String getTokenId() {
+            return tokenId;
+        }
+
+        public void setTokenId(String tokenId) {
+            this.tokenId = tokenId;
+        }
+
         public Long getUserId() {
             return userId;
         }
@@ -118,14 +915,6 @@ public class RedisLoginManager {
             this.username = username;
         }
 
-        public String getToken() {
-            return token;
-        }
-
-        public void setToken(String token) {
-            this.token = token;
-        }
-
         public long getLoginTime() {
             return loginTime;
         }
@@ -133,5 +922,29 @@ public class RedisLoginManager {
         public void setLoginTime(long loginTime) {
             this.loginTime = loginTime;
         }
+
+        public long getLastActiveTime() {
+            return lastActiveTime;
+        }
+
+        public void setLastActiveTime(long lastActiveTime) {
+            this.lastActiveTime = lastActiveTime;
+        }
+
+        public String getIp() {
+            return ip;
+        }
+
+        public void setIp(String ip) {
+            this.ip = ip;
+        }
+
+        public String getDevice() {
+            return device;
+        }
+
+        public void setDevice(String device) {
+            this.device = device;
+        }
     }
-}
\ No newline at end of file
+}
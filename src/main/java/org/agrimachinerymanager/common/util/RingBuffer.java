@@ -0,0 +1,93 @@
+package org.agrimachinerymanager.common.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形缓冲区（多生产者、单消费者）
+ * 每个槽位带序号，生产者通过CAS抢占写入位置，缓冲区满时直接丢弃，不阻塞调用线程
+ * @param <T> 元素类型
+ */
+public class RingBuffer<T> {
+
+    private final int mask;
+
+    private final AtomicReferenceArray<T> elements;
+
+    // 槽位序号：等于写入位置时可写，等于写入位置+1时可读
+    private final AtomicLongArray sequences;
+
+    // 下一个写入位置
+    private final AtomicLong tail = new AtomicLong();
+
+    // 下一个读取位置，只由消费线程访问
+    private long head;
+
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 写入元素，可由任意线程调用
+     * @return 缓冲区已满时返回false
+     */
+    public boolean offer(T element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 取出元素，只能由单个消费线程调用
+     * @return 缓冲区为空时返回null
+     */
+    public T poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        T element = elements.get(index);
+        elements.set(index, null);
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+        return element;
+    }
+
+    /**
+     * 当前元素数量（近似值）
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(tail.get() - head, mask + 1));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
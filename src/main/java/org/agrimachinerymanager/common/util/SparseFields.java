@@ -0,0 +1,172 @@
+package org.agrimachinerymanager.common.util;
+
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import org.agrimachinerymanager.exception.BaseException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 稀疏字段集
+ * 列表和分页接口通过fields参数指定需要返回的字段（逗号分隔的实体属性名），
+ * 查询时只选择对应的列，响应序列化时只输出这些字段，未指定时返回全部字段
+ * 可选字段限定为实体中映射到数据库列的属性，ID总是返回
+ */
+public final class SparseFields {
+
+    /**
+     * 实体类序列化时使用的过滤器ID
+     */
+    public static final String FILTER_ID = "sparseFields";
+
+    /**
+     * 绑定到当前请求的属性名，响应序列化时读取
+     */
+    public static final String REQUEST_ATTRIBUTE = SparseFields.class.getName();
+
+    // 一次最多指定的字段数
+    private static final int MAX_FIELDS = 50;
+
+    // 实体类 -> (属性名 -> 列名)，按属性声明顺序
+    private static final Map<Class<?>, Map<String, String>> COLUMNS = new ConcurrentHashMap<>();
+
+    private final Set<String> properties;
+
+    private final List<String> columns;
+
+    private SparseFields(Set<String> properties, List<String> columns) {
+        this.properties = Collections.unmodifiableSet(properties);
+        this.columns = Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * 解析fields参数并绑定到当前请求，响应中的实体只输出这些字段
+     * @param entityClass 实体类
+     * @param fields 逗号分隔的属性名，为空时表示全部字段
+     * @param hiddenProperties 不允许选择的属性，如密码
+     * @return 字段集，未指定字段时返回null
+     * @throws BaseException 字段不存在或不允许选择
+     */
+    public static SparseFields bind(Class<?> entityClass, String fields, String... hiddenProperties) {
+        SparseFields sparseFields = parse(entityClass, fields, hiddenProperties);
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (sparseFields != null && attributes != null) {
+            attributes.setAttribute(REQUEST_ATTRIBUTE, sparseFields, RequestAttributes.SCOPE_REQUEST);
+        }
+        return sparseFields;
+    }
+
+    /**
+     * 解析fields参数，不绑定到请求
+     * @param entityClass 实体类
+     * @param fields 逗号分隔的属性名，为空时表示全部字段
+     * @param hiddenProperties 不允许选择的属性
+     * @return 字段集，未指定字段时返回null
+     */
+    static SparseFields parse(Class<?> entityClass, String fields, String... hiddenProperties) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return null;
+        }
+        Map<String, String> mapping = columnsOf(entityClass);
+        Set<String> hidden = Set.of(hiddenProperties);
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!mapping.containsKey(name) || hidden.contains(name)) {
+                throw new BaseException("不支持的字段: " + name);
+            }
+            requested.add(name);
+        }
+        if (requested.size() > MAX_FIELDS) {
+            throw new BaseException("字段数不能超过" + MAX_FIELDS);
+        }
+
+        // 按实体中的声明顺序选择列，ID总是返回
+        Set<String> properties = new LinkedHashSet<>();
+        List<String> columns = new ArrayList<>();
+        for (Map.Entry<String, String> entry : mapping.entrySet()) {
+            if ("id".equals(entry.getKey()) || requested.contains(entry.getKey())) {
+                properties.add(entry.getKey());
+                columns.add(entry.getValue());
+            }
+        }
+        return new SparseFields(properties, columns);
+    }
+
+    /**
+     * 按字段集设置查询的列，字段集为null时不做处理（查询全部列）
+     * @param queryWrapper 查询条件
+     * @param sparseFields 字段集
+     * @param requiredColumns 查询本身需要的列（如游标分页的排序列），不在响应中输出
+     */
+    public static void apply(QueryWrapper<?> queryWrapper, SparseFields sparseFields, String... requiredColumns) {
+        if (sparseFields == null) {
+            return;
+        }
+        Set<String> columns = new LinkedHashSet<>(sparseFields.columns);
+        Collections.addAll(columns, requiredColumns);
+        queryWrapper.select(columns.toArray(new String[0]));
+    }
+
+    /**
+     * 获取实体中映射到数据库列的属性，排除静态字段和exist=false的字段
+     * 列名取注解中指定的值，未指定时按驼峰转下划线
+     * @param entityClass 实体类
+     * @return 属性名 -> 列名
+     */
+    static Map<String, String> columnsOf(Class<?> entityClass) {
+        return COLUMNS.computeIfAbsent(entityClass, type -> {
+            Map<String, String> mapping = new LinkedHashMap<>();
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+                    continue;
+                }
+                String column = StringUtils.camelToUnderline(field.getName());
+                TableId tableId = field.getAnnotation(TableId.class);
+                TableField tableField = field.getAnnotation(TableField.class);
+                if (tableField != null && !tableField.exist()) {
+                    continue;
+                }
+                if (tableId != null && !tableId.value().isEmpty()) {
+                    column = tableId.value();
+                } else if (tableField != null && !tableField.value().isEmpty()) {
+                    column = tableField.value();
+                }
+                mapping.put(field.getName(), column);
+            }
+            return Collections.unmodifiableMap(mapping);
+        });
+    }
+
+    /**
+     * 获取响应中输出的属性名，包含ID
+     * @return 属性名集合
+     */
+    public Set<String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * 获取查询的列名，包含ID列
+     * @return 列名列表
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+}
@@ -0,0 +1,292 @@
+package org.agrimachinerymanager.common.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletResponse;
+import org.agrimachinerymanager.common.result.ExportFormat;
+import org.agrimachinerymanager.exception.ServiceOverloadedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 流式导出
+ * 数据源逐条回调记录，每条记录序列化后立即写入响应输出流，每写入固定条数刷新一次，
+ * 内存占用与导出的总行数无关
+ * 导出期间一直占用一个数据库连接，限制同时进行的导出数，超出时返回429
+ */
+@Component
+public class StreamingExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingExporter.class);
+
+    // 输出缓冲区大小（字节）
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 同时进行的最大导出数，应明显小于连接池大小
+    @Value("${export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    // 每写入多少条记录刷新一次输出流
+    @Value("${export.flush-rows:1000}")
+    private int flushRows;
+
+    private Semaphore permits;
+
+    // 统计计数
+    private final AtomicLong exports = new AtomicLong();
+    private final AtomicLong exportedRows = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * 将数据源的记录流式写入HTTP响应
+     * @param response HTTP响应
+     * @param fileName 下载文件名（不含扩展名）
+     * @param format 导出格式
+     * @param source 数据源，调用时传入每条记录的处理函数，由数据源逐条回调
+     * @throws ServiceOverloadedException 同时进行的导出数已达上限（429）
+     */
+    public <T> void export(HttpServletResponse response, String fileName, ExportFormat format,
+                           Consumer<Consumer<T>> source) {
+        if (!permits.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new ServiceOverloadedException(429, "导出任务过多，请稍后重试", 5);
+        }
+        long startNanos = System.nanoTime();
+        try {
+            response.setContentType(format.getContentType());
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setHeader("Content-Disposition", "attachment; filename=" + fileName + format.getExtension());
+            long rows = write(response.getOutputStream(), format, source);
+            exports.incrementAndGet();
+            log.info("导出 [{}] 完成，格式：{}，行数：{}，耗时：{}ms", fileName, format, rows,
+                    (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            // 响应已开始发送时无法再返回错误信息，客户端收到的是不完整的文件
+            failures.incrementAndGet();
+            log.warn("导出 [{}] 中断: {}", fileName, e.getMessage());
+            throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 将数据源的记录按指定格式写入输出流
+     * @param out 输出流，写入完成后刷新但不关闭
+     * @param format 导出格式
+     * @param source 数据源
+     * @return 写入的记录数
+     */
+    <T> long write(OutputStream out, ExportFormat format, Consumer<Consumer<T>> source) throws IOException {
+        RowWriter writer = format == ExportFormat.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+        long[] count = new long[1];
+        try {
+            source.accept(row -> {
+                try {
+                    writer.write(row);
+                    if (++count[0] % flushRows == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            exportedRows.addAndGet(count[0]);
+        }
+        writer.finish();
+        return count[0];
+    }
+
+    /**
+     * 获取导出统计信息
+     * @return 进行中的导出数、完成数、导出行数、拒绝次数和失败次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("active", maxConcurrent - permits.availablePermits());
+        result.put("maxConcurrent", maxConcurrent);
+        result.put("exports", exports.get());
+        result.put("rows", exportedRows.get());
+        result.put("rejected", rejected.get());
+        result.put("failures", failures.get());
+        return result;
+    }
+
+    /**
+     * 记录写入器
+     */
+    private interface RowWriter {
+
+        void write(Object row) throws IOException;
+
+        void flush() throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    /**
+     * NDJSON写入器，序列化方式与接口返回的JSON一致
+     */
+    private class NdjsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        private final SequenceWriter sequence;
+
+        private boolean empty = true;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // 逐条写入时不立即刷新，由调用方按固定条数刷新
+            this.sequence = objectMapper.writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .withRootValueSeparator("\n")
+                    .writeValues(generator);
+        }
+
+        @Override
+        public void write(Object row) throws IOException {
+            sequence.write(row);
+            empty = false;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (!empty) {
+                generator.writeRaw('\n');
+            }
+            sequence.close();
+            generator.flush();
+        }
+    }
+
+    /**
+     * CSV写入器，列与接口返回的JSON字段一致，首行为列名
+     * 以UTF-8 BOM开头，便于Excel识别中文；以公式符号开头的值前加单引号，防止在表格软件中被当作公式执行
+     */
+    private class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        private List<String> columns;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writer.write('\uFEFF');
+        }
+
+        @Override
+        public void write(Object row) throws IOException {
+            JsonNode node = objectMapper.valueToTree(row);
+            if (columns == null) {
+                columns = new ArrayList<>();
+                Iterator<String> names = node.fieldNames();
+                while (names.hasNext()) {
+                    columns.add(names.next());
+                }
+                List<String> header = new ArrayList<>(columns.size());
+                for (String column : columns) {
+                    header.add(escape(column));
+                }
+                writeLine(header);
+            }
+            List<String> values = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                JsonNode value = node.get(column);
+                if (value == null || value.isNull()) {
+                    values.add("");
+                } else if (value.isTextual()) {
+                    values.add(escapeText(value.asText()));
+                } else {
+                    values.add(escape(value.isValueNode() ? value.asText() : value.toString()));
+                }
+            }
+            writeLine(values);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private void writeLine(List<String> values) throws IOException {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(values.get(i));
+            }
+            writer.write("\r\n");
+        }
+    }
+
+    /**
+     * 转义文本字段，以公式符号开头时前加单引号
+     */
+    static String escapeText(String value) {
+        if (!value.isEmpty()) {
+            char first = value.charAt(0);
+            if (first == '=' || first == '+' || first == '-' || first == '@') {
+                value = "'" + value;
+            }
+        }
+        return escape(value);
+    }
+
+    /**
+     * 字段包含逗号、引号或换行时用双引号包围，内部的双引号写两次
+     */
+    static String escape(String value) {
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
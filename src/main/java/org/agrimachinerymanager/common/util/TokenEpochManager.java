@@ -0,0 +1,272 @@
+package org.agrimachinerymanager.common.util;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 用户令牌版本（epoch）管理类
+ * 登录时将用户当前版本号写入令牌，校验时与本地缓存的版本号比较，令牌版本号小于当前版本即视为失效
+ * "退出所有设备"、修改密码、禁用或删除用户时只需将版本号加一，即可使该用户所有已签发令牌失效，无需逐个拉黑
+ * 每个用户的版本号保存在带哈希标签的独立键中，与该用户的会话、黑名单记录位于同一槽位
+ * 本地缓存定期刷新（可由Redis客户端缓存直接返回），并通过发布订阅立即同步到所有节点
+ * 升级前的版本号保存在全局哈希中，兼容期内读取时取两者较大值，登录或加一时迁移到新键
+ */
+@Component
+public class TokenEpochManager implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenEpochManager.class);
+
+    // 版本号加一脚本：KEYS[1]用户版本号键 ARGV[1]新键不存在时的初始值（升级前的版本号）
+    static final String BUMP_SCRIPT =
+            "if redis.call('EXISTS', KEYS[1]) == 0 then redis.call('SET', KEYS[1], ARGV[1]) end "
+                    + "return redis.call('INCR', KEYS[1])";
+
+    private static final RedisScript<Long> BUMP = new DefaultRedisScript<>(BUMP_SCRIPT, Long.class);
+
+    // 版本号变更通知频道，消息格式：用户ID:版本号，批量变更以逗号分隔
+    static final String EPOCH_CHANNEL = "jwt:user:epoch:bump";
+
+    // 本地缓存刷新间隔（秒）
+    @Value("${jwt.epoch.refresh-interval:30}")
+    private long refreshInterval;
+
+    // 本地缓存最大条数
+    @Value("${jwt.epoch.max-size:100000}")
+    private long maxSize;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private RedisClientSideCache redisClientSideCache;
+
+    @Autowired
+    private RedisFallbackStore redisFallbackStore;
+
+    // 是否兼容读取升级前保存在全局哈希中的版本号，所有用户的版本号迁移到新键或旧令牌全部过期后可关闭
+    @Value("${jwt.epoch.legacy-key-check:true}")
+    private boolean legacyKeyCheck;
+
+    private LoadingCache<Long, Long> localEpochs;
+
+    /**
+     * 初始化本地版本号缓存并订阅变更通知
+     */
+    @PostConstruct
+    public void init() {
+        this.localEpochs = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(Duration.ofSeconds(refreshInterval))
+                .build(this::loadEpoch);
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(EPOCH_CHANNEL));
+    }
+
+    /**
+     * 获取用户当前的令牌版本号（优先使用本地缓存）
+     * @param userId 用户ID
+     * @return 版本号，从未变更过的用户为0
+     */
+    public long getCurrentEpoch(Long userId) {
+        return localEpochs.get(userId);
+    }
+
+    /**
+     * 登录时读取用户最新的令牌版本号，直接查询Redis保证签发的令牌使用最新版本
+     * Redis不可用时使用本地缓存的版本号（未缓存时为0），版本号偏旧的令牌只会在Redis恢复后被判定失效，不会放宽校验
+     * @param userId 用户ID
+     * @return 版本号
+     */
+    public long getEpochForLogin(Long userId) {
+        return redisCircuitBreaker.execute(() -> {
+            String key = RedisKeys.epoch(userId);
+            String value = redisClientSideCache.get(key);
+            long epoch;
+            if (value != null) {
+                epoch = Long.parseLong(value);
+            } else {
+                // 新键不存在时以旧版本号创建，之后该用户的读取不再需要兼容旧哈希，也能被客户端缓存命中
+                epoch = loadLegacyEpoch(userId);
+                if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(key, String.valueOf(epoch)))) {
+                    String current = stringRedisTemplate.opsForValue().get(key);
+                    epoch = current == null ? epoch : Long.parseLong(current);
+                }
+            }
+            localEpochs.put(userId, epoch);
+            return epoch;
+        }, () -> {
+            Long cached = localEpochs.getIfPresent(userId);
+            return cached == null ? 0L : cached;
+        });
+    }
+
+    /**
+     * 将用户的令牌版本号加一，使该用户此前签发的所有令牌失效
+     * @param userId 用户ID
+     * @return 新的版本号
+     */
+    public long bumpEpoch(Long userId) {
+        Long epoch = stringRedisTemplate.execute(BUMP, Collections.singletonList(RedisKeys.epoch(userId)),
+                String.valueOf(loadLegacyEpoch(userId)));
+        localEpochs.put(userId, epoch);
+        stringRedisTemplate.convertAndSend(EPOCH_CHANNEL, userId + ":" + epoch);
+        return epoch;
+    }
+
+    /**
+     * 使用户此前签发的令牌全部失效，Redis不可用时记入降级存储，本节点立即生效，恢复后再将版本号加一
+     * @param userId 用户ID
+     */
+    public void revokeAll(Long userId) {
+        if (!redisCircuitBreaker.run(() -> bumpEpoch(userId))) {
+            redisFallbackStore.revokeUser(userId);
+            log.warn("Redis不可用，用户{}的令牌吊销已记入降级存储", userId);
+        }
+    }
+
+    /**
+     * Redis恢复后将降级存储中待吊销用户的版本号加一，遇到失败时停止，等待下次重试
+     * 包括拉黑和会话删除记录被淘汰的用户，以及Redis不可用期间吊销全部令牌的用户
+     */
+    @Scheduled(fixedDelayString = "${redis-guard.reconcile-interval:1000}")
+    public void reconcileFallback() {
+        Map<Long, Long> revoked = redisFallbackStore.pendingRevokedUsers();
+        if (revoked.isEmpty() || !redisCircuitBreaker.isClosed()) {
+            return;
+        }
+        for (Map.Entry<Long, Long> entry : revoked.entrySet()) {
+            if (!redisCircuitBreaker.run(() -> bumpEpoch(entry.getKey()))) {
+                return;
+            }
+            redisFallbackStore.userRevocationReconciled(entry.getKey(), entry.getValue());
+        }
+        log.warn("已将降级存储中{}个用户的令牌版本号加一", revoked.size());
+    }
+
+    /**
+     * 批量读取升级前的版本号，供批量加一时作为新键的初始值
+     * @param userIds 用户ID列表
+     * @return 用户ID到旧版本号的映射，不兼容旧哈希时为空
+     */
+    Map<Long, Long> loadLegacyEpochs(List<Long> userIds) {
+        Map<Long, Long> result = new HashMap<>();
+        if (!legacyKeyCheck || userIds.isEmpty()) {
+            return result;
+        }
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(RedisKeys.LEGACY_EPOCH_KEY,
+                userIds.stream().map(String::valueOf).collect(Collectors.toList()));
+        for (int i = 0; i < userIds.size(); i++) {
+            Object value = values == null ? null : values.get(i);
+            if (value != null) {
+                result.put(userIds.get(i), Long.parseLong(value.toString()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 是否需要兼容读取升级前的版本号
+     */
+    boolean isLegacyKeyCheck() {
+        return legacyKeyCheck;
+    }
+
+    /**
+     * 记录已在Redis中完成加一的版本号，供批量操作更新本地缓存
+     * @param userId 用户ID
+     * @param epoch 新的版本号
+     */
+    void applyEpoch(Long userId, long epoch) {
+        localEpochs.asMap().merge(userId, epoch, Math::max);
+    }
+
+    /**
+     * 获取本地缓存的版本号，未缓存时返回null，不访问Redis
+     * @param userId 用户ID
+     * @return 本地缓存的版本号
+     */
+    Long getCachedEpoch(Long userId) {
+        return localEpochs.getIfPresent(userId);
+    }
+
+    /**
+     * 检查令牌是否因版本号过旧而失效
+     * @param userId 用户ID
+     * @param tokenEpoch 令牌中的版本号
+     * @return 如果令牌已失效返回true，否则返回false
+     */
+    public boolean isRevoked(Long userId, long tokenEpoch) {
+        if (userId == null) {
+            return true;
+        }
+        return tokenEpoch < getCurrentEpoch(userId);
+    }
+
+    /**
+     * 接收其他节点发布的版本号变更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        // 批量操作时一条消息包含多个以逗号分隔的变更
+        for (String entry : body.split(",")) {
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                continue;
+            }
+            try {
+                Long userId = Long.parseLong(entry.substring(0, separator));
+                long epoch = Long.parseLong(entry.substring(separator + 1));
+                applyEpoch(userId, epoch);
+            } catch (NumberFormatException e) {
+                log.warn("无法解析令牌版本号通知: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 从Redis读取用户的令牌版本号，新键不存在时读取升级前的版本号
+     */
+    private long loadEpoch(Long userId) {
+        String value = redisClientSideCache.get(RedisKeys.epoch(userId));
+        return value == null ? loadLegacyEpoch(userId) : Long.parseLong(value);
+    }
+
+    /**
+     * 读取升级前保存在全局哈希中的版本号，不兼容旧哈希或不存在时为0
+     */
+    private long loadLegacyEpoch(Long userId) {
+        if (!legacyKeyCheck) {
+            return 0L;
+        }
+        Object value = stringRedisTemplate.opsForHash().get(RedisKeys.LEGACY_EPOCH_KEY, userId.toString());
+        return value == null ? 0L : Long.parseLong(value.toString());
+    }
+}
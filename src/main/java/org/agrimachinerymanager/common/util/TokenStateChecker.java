@@ -0,0 +1,285 @@
+package org.agrimachinerymanager.common.util;
+
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌状态检查
+ * 认证过滤器需要的黑名单、旧令牌黑名单、令牌版本号、会话存在性检查互不依赖
+ * 先用布隆过滤器和本地缓存排除不需要访问Redis的检查，剩余的检查通过Lettuce异步接口同时发出，只需一次往返
+ * 等待结果有独立的超时时间，Redis超时或不可用时按配置的策略放行或拒绝
+ * 访问Redis受熔断器保护，熔断期间不再等待超时，本地降级存储中已知被拉黑的令牌和已删除的会话仍能识别
+ */
+@Component
+public class TokenStateChecker {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenStateChecker.class);
+
+    /**
+     * 检查结果
+     */
+    public enum Result {
+        // 令牌有效
+        VALID,
+        // 令牌已被拉黑
+        BLACKLISTED,
+        // 令牌版本已失效
+        REVOKED,
+        // 会话已不存在
+        SESSION_MISSING,
+        // Redis超时或不可用，且策略为拒绝
+        UNAVAILABLE
+    }
+
+    private static final byte[] LEGACY_EPOCH_KEY = RedisKeys.LEGACY_EPOCH_KEY.getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private JwtTokenBlacklist jwtTokenBlacklist;
+
+    @Autowired
+    private TokenEpochManager tokenEpochManager;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private RedisFallbackStore redisFallbackStore;
+
+    // 等待Redis检查结果的最长时间（毫秒）
+    @Value("${jwt.redis-check.timeout:100}")
+    private long timeout;
+
+    // Redis超时或不可用时的处理策略：closed-拒绝请求，open-放行
+    @Value("${jwt.redis-check.failure-policy:closed}")
+    private String failurePolicy;
+
+    // 是否校验令牌对应的会话仍然存在（会话被管理员删除后令牌立即失效）
+    @Value("${jwt.session.validate:false}")
+    private boolean validateSession;
+
+    // 统计计数
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong localOnly = new AtomicLong();
+    private final AtomicLong redisRoundTrips = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong failOpen = new AtomicLong();
+    private final AtomicLong shortCircuited = new AtomicLong();
+
+    /**
+     * 检查令牌是否仍然有效
+     * @param claims 已通过签名校验的令牌声明
+     * @param token 完整令牌，仅用于旧令牌的黑名单兼容检查
+     * @return 检查结果
+     */
+    public Result check(JwtUtil.TokenClaims claims, String token) {
+        checks.incrementAndGet();
+        Long userId = claims.getUserId();
+        if (userId == null) {
+            return Result.REVOKED;
+        }
+
+        boolean blacklistLookup = jwtTokenBlacklist.needsLookup(claims.getTokenId());
+        boolean legacyLookup = claims.isLegacy() && jwtTokenBlacklist.isLegacyKeyCheck();
+        Long cachedEpoch = tokenEpochManager.getCachedEpoch(userId);
+        boolean sessionLookup = validateSession && !claims.isLegacy();
+
+        // Redis不可用期间在本节点吊销的用户、拉黑的令牌和删除的会话，尚未写回Redis，先查本地降级存储
+        if (redisFallbackStore.isUserRevoked(userId, claims.getIssuedAt())) {
+            return Result.REVOKED;
+        }
+        if (blacklistLookup && redisFallbackStore.isBlacklisted(claims.getTokenId())) {
+            return Result.BLACKLISTED;
+        }
+        if (sessionLookup && redisFallbackStore.isSessionRemoved(claims.getSessionId())) {
+            return Result.SESSION_MISSING;
+        }
+
+        // 本地即可判定版本号失效时无需访问Redis
+        if (cachedEpoch != null && claims.getEpoch() < cachedEpoch) {
+            return Result.REVOKED;
+        }
+        if (!blacklistLookup && !legacyLookup && cachedEpoch != null && !sessionLookup) {
+            localOnly.incrementAndGet();
+            return Result.VALID;
+        }
+
+        // 熔断期间直接按策略处理，不占用请求线程等待超时
+        if (!redisCircuitBreaker.tryAcquire()) {
+            shortCircuited.incrementAndGet();
+            return onFailure("Redis熔断中");
+        }
+        redisRoundTrips.incrementAndGet();
+        try {
+            Result result = stringRedisTemplate.execute((RedisCallback<Result>) connection -> checkRemote(
+                    connection.getNativeConnection(), claims, token,
+                    blacklistLookup, legacyLookup, cachedEpoch == null, sessionLookup));
+            redisCircuitBreaker.onSuccess();
+            if (result == null) {
+                errors.incrementAndGet();
+                return onFailure("Redis未返回结果");
+            }
+            return result;
+        } catch (CheckTimeoutException e) {
+            timeouts.incrementAndGet();
+            redisCircuitBreaker.onFailure(e);
+            return onFailure(e.getMessage());
+        } catch (Exception e) {
+            errors.incrementAndGet();
+            redisCircuitBreaker.onFailure(e);
+            return onFailure(e.getMessage());
+        } finally {
+            redisCircuitBreaker.release();
+        }
+    }
+
+    /**
+     * 获取令牌状态检查统计
+     * @return 检查次数、仅本地判定次数、Redis往返次数、超时和错误次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timeoutMillis", timeout);
+        result.put("failurePolicy", failurePolicy);
+        result.put("validateSession", validateSession);
+        result.put("checks", checks.get());
+        result.put("localOnly", localOnly.get());
+        result.put("redisRoundTrips", redisRoundTrips.get());
+        result.put("timeouts", timeouts.get());
+        result.put("errors", errors.get());
+        result.put("failOpen", failOpen.get());
+        result.put("shortCircuited", shortCircuited.get());
+        return result;
+    }
+
+    /**
+     * 通过Lettuce异步接口同时发出所有需要的检查，在超时时间内等待全部完成
+     */
+    @SuppressWarnings("unchecked")
+    private Result checkRemote(Object nativeConnection, JwtUtil.TokenClaims claims, String token,
+                               boolean blacklistLookup, boolean legacyLookup, boolean epochLookup,
+                               boolean sessionLookup) {
+        if (!(nativeConnection instanceof RedisClusterAsyncCommands)) {
+            throw new IllegalStateException("不支持的Redis连接类型");
+        }
+        RedisClusterAsyncCommands<byte[], byte[]> async = (RedisClusterAsyncCommands<byte[], byte[]>) nativeConnection;
+
+        Long userId = claims.getUserId();
+        List<RedisFuture<?>> futures = new ArrayList<>(6);
+        RedisFuture<Long> blacklisted = null;
+        RedisFuture<Long> legacyBlacklisted = null;
+        RedisFuture<byte[]> epoch = null;
+        RedisFuture<byte[]> legacyEpoch = null;
+        RedisFuture<Long> session = null;
+        if (blacklistLookup) {
+            // 兼容期内同时检查升级前不带哈希标签的黑名单键，一条EXISTS命令统计两个键
+            blacklisted = jwtTokenBlacklist.isLegacyKeyCheck()
+                    ? async.exists(bytes(RedisKeys.blacklist(userId, claims.getTokenId())),
+                            bytes(RedisKeys.LEGACY_BLACKLIST_PREFIX + claims.getTokenId()))
+                    : async.exists(bytes(RedisKeys.blacklist(userId, claims.getTokenId())));
+            futures.add(blacklisted);
+        }
+        if (legacyLookup) {
+            legacyBlacklisted = async.exists(bytes(RedisKeys.LEGACY_BLACKLIST_PREFIX + token));
+            futures.add(legacyBlacklisted);
+        }
+        if (epochLookup) {
+            epoch = async.get(bytes(RedisKeys.epoch(userId)));
+            futures.add(epoch);
+            if (tokenEpochManager.isLegacyKeyCheck()) {
+                legacyEpoch = async.hget(LEGACY_EPOCH_KEY, bytes(userId.toString()));
+                futures.add(legacyEpoch);
+            }
+        }
+        if (sessionLookup) {
+            session = async.exists(bytes(RedisKeys.session(userId, claims.getSessionId())));
+            futures.add(session);
+        }
+
+        if (!LettuceFutures.awaitAll(timeout, TimeUnit.MILLISECONDS, futures.toArray(new RedisFuture<?>[0]))) {
+            throw new CheckTimeoutException("等待超过" + timeout + "毫秒");
+        }
+
+        try {
+            if (blacklisted != null) {
+                boolean hit = blacklisted.get() > 0;
+                jwtTokenBlacklist.recordLookupResult(hit);
+                if (hit) {
+                    return Result.BLACKLISTED;
+                }
+            }
+            if (legacyBlacklisted != null && legacyBlacklisted.get() > 0) {
+                return Result.BLACKLISTED;
+            }
+            if (epoch != null) {
+                long currentEpoch = parseEpoch(epoch.get());
+                if (legacyEpoch != null) {
+                    currentEpoch = Math.max(currentEpoch, parseEpoch(legacyEpoch.get()));
+                }
+                tokenEpochManager.applyEpoch(userId, currentEpoch);
+                if (claims.getEpoch() < currentEpoch) {
+                    return Result.REVOKED;
+                }
+            }
+            if (session != null && session.get() == 0) {
+                return Result.SESSION_MISSING;
+            }
+            return Result.VALID;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("线程被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause() == null ? e.getMessage() : e.getCause().getMessage(), e);
+        }
+    }
+
+    /**
+     * Redis超时或不可用时按策略处理
+     * 故障期间每个请求都会走到这里，不逐条输出告警：次数见统计，熔断器打开和恢复时各输出一次日志
+     */
+    private Result onFailure(String reason) {
+        log.debug("令牌状态检查失败，按{}策略处理: {}", failurePolicy, reason);
+        if ("open".equalsIgnoreCase(failurePolicy)) {
+            failOpen.incrementAndGet();
+            return Result.VALID;
+        }
+        return Result.UNAVAILABLE;
+    }
+
+    private static long parseEpoch(byte[] value) {
+        return value == null ? 0L : Long.parseLong(new String(value, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 等待Redis检查结果超时
+     */
+    private static class CheckTimeoutException extends RuntimeException {
+        CheckTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
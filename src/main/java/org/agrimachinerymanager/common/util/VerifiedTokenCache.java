@@ -0,0 +1,134 @@
+package org.agrimachinerymanager.common.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 已校验令牌声明的本地缓存
+ * 同一令牌在有效期内会被反复携带，缓存以完整令牌（含签名）的SHA-256摘要为键，命中时跳过签名校验和声明解析
+ * 缓存项在令牌过期时同时过期；令牌被拉黑时（本节点登出或收到其他节点的拉黑通知）立即移除
+ * 黑名单和令牌版本号检查仍在每次请求时执行，缓存只省去签名校验
+ */
+@Component
+public class VerifiedTokenCache {
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Value("${jwt.claims-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${jwt.claims-cache.max-size:50000}")
+    private long maxSize;
+
+    // 缓存项的最长保留时间（秒），令牌剩余有效期更短时以令牌过期时间为准
+    @Value("${jwt.claims-cache.max-ttl:3600}")
+    private long maxTtl;
+
+    private Cache<String, JwtUtil.TokenClaims> cache;
+
+    // 令牌标识到缓存键的索引，用于按令牌标识移除被拉黑的令牌
+    private final Map<String, String> digestsByTokenId = new ConcurrentHashMap<>();
+
+    private final AtomicLong blacklistRemovals = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtl);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, JwtUtil.TokenClaims>() {
+                    @Override
+                    public long expireAfterCreate(String key, JwtUtil.TokenClaims claims, long currentTime) {
+                        long remaining = TimeUnit.MILLISECONDS.toNanos(
+                                claims.getExpiration().getTime() - System.currentTimeMillis());
+                        return Math.max(0, Math.min(remaining, maxTtlNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, JwtUtil.TokenClaims claims, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, JwtUtil.TokenClaims claims, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .removalListener((String digest, JwtUtil.TokenClaims claims, RemovalCause cause) -> {
+                    if (claims != null) {
+                        digestsByTokenId.remove(claims.getTokenId(), digest);
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 解析并校验令牌，已校验过且未过期的令牌直接返回缓存的声明
+     * @param token JWT令牌
+     * @return 令牌声明
+     * @throws io.jsonwebtoken.JwtException 签名无效或令牌已过期
+     */
+    public JwtUtil.TokenClaims parse(String token) {
+        if (!enabled) {
+            return jwtUtil.parseToken(token);
+        }
+        String digest = JwtUtil.digest(token);
+        JwtUtil.TokenClaims claims = cache.getIfPresent(digest);
+        if (claims != null && !claims.isExpired()) {
+            return claims;
+        }
+        claims = jwtUtil.parseToken(token);
+        digestsByTokenId.put(claims.getTokenId(), digest);
+        cache.put(digest, claims);
+        return claims;
+    }
+
+    /**
+     * 移除被拉黑的令牌
+     * @param tokenId 令牌标识
+     */
+    public void invalidate(String tokenId) {
+        if (cache == null || tokenId == null) {
+            return;
+        }
+        String digest = digestsByTokenId.remove(tokenId);
+        if (digest != null) {
+            cache.invalidate(digest);
+            blacklistRemovals.incrementAndGet();
+        }
+    }
+
+    /**
+     * 获取缓存统计信息
+     * @return 命中、未命中、淘汰次数及因拉黑移除的次数
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", cache.estimatedSize());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("blacklistRemovals", blacklistRemovals.get());
+        return result;
+    }
+}
@@ -0,0 +1,208 @@
+package org.agrimachinerymanager.common.util;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 带版本号的紧凑二进制Redis序列化器
+ * 格式：魔数(1字节) + 格式版本(1字节) + 字段数据，整数使用变长编码，字符串使用长度前缀的UTF-8
+ * 不写入类名等类型信息，读取时不需要反射；新增字段时提升版本号，并保留旧版本的读取逻辑，滚动发布期间新旧节点写入的数据都能读取
+ * @param <T> 值类型
+ */
+public abstract class VersionedBinarySerializer<T> implements RedisSerializer<T> {
+
+    // 魔数，0xB1不可能是JSON等文本格式的首字节，误读其他格式的数据时可以识别
+    static final byte MAGIC = (byte) 0xB1;
+
+    private final Class<T> type;
+
+    private final int currentVersion;
+
+    protected VersionedBinarySerializer(Class<T> type, int currentVersion) {
+        this.type = type;
+        this.currentVersion = currentVersion;
+    }
+
+    /**
+     * 按当前版本写入字段
+     */
+    protected abstract void write(T value, Writer out);
+
+    /**
+     * 按数据中的版本读取字段
+     * @param version 数据写入时的格式版本
+     */
+    protected abstract T read(int version, Reader in);
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        Writer out = new Writer();
+        out.buffer[0] = MAGIC;
+        out.buffer[1] = (byte) currentVersion;
+        out.position = 2;
+        write(value, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            throw new SerializationException("无法识别的数据格式");
+        }
+        if (bytes.length < 2) {
+            throw new SerializationException("数据不完整");
+        }
+        int version = bytes[1] & 0xFF;
+        if (version > currentVersion) {
+            throw new SerializationException("不支持的数据格式版本: " + version);
+        }
+        try {
+            return read(version, new Reader(bytes, 2));
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new SerializationException("数据不完整", e);
+        }
+    }
+
+    @Override
+    public Class<?> getTargetType() {
+        return type;
+    }
+
+    /**
+     * 二进制写入器
+     */
+    public static final class Writer {
+
+        private byte[] buffer = new byte[64];
+
+        private int position;
+
+        /**
+         * 写入有符号整数（ZigZag变长编码）
+         */
+        public void writeLong(long value) {
+            writeUnsigned((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * 写入可为null的整数，null占1字节
+         */
+        public void writeNullableLong(Long value) {
+            if (value == null) {
+                writeByte(0);
+            } else {
+                writeByte(1);
+                writeLong(value);
+            }
+        }
+
+        /**
+         * 写入可为null的字符串：长度+1（0表示null）+ UTF-8字节
+         */
+        public void writeString(String value) {
+            if (value == null) {
+                writeUnsigned(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(bytes.length + 1L);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        public void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeUnsigned(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void ensure(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    /**
+     * 二进制读取器
+     */
+    public static final class Reader {
+
+        private final byte[] buffer;
+
+        private int position;
+
+        private Reader(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        public long readLong() {
+            long value = readUnsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        public Long readNullableLong() {
+            return readByte() == 0 ? null : readLong();
+        }
+
+        public String readString() {
+            long length = readUnsigned();
+            if (length == 0) {
+                return null;
+            }
+            int size = (int) (length - 1);
+            if (size > buffer.length - position) {
+                throw new SerializationException("数据不完整");
+            }
+            String value = new String(buffer, position, size, StandardCharsets.UTF_8);
+            position += size;
+            return value;
+        }
+
+        public int readByte() {
+            return buffer[position++] & 0xFF;
+        }
+
+        /**
+         * 是否还有未读取的数据，新版本追加的字段可据此判断
+         */
+        public boolean hasRemaining() {
+            return position < buffer.length;
+        }
+
+        private long readUnsigned() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("变长整数格式错误");
+        }
+    }
+}
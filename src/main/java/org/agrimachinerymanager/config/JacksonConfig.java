@@ -0,0 +1,55 @@
+package org.agrimachinerymanager.config;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.agrimachinerymanager.common.util.SparseFields;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Jackson配置类
+ * 为实体类（带@TableName注解）启用稀疏字段过滤器，默认输出全部字段，
+ * 请求指定了fields参数时由SparseFieldsResponseBodyAdvice替换为只输出指定字段的过滤器
+ * 只作用于Spring MVC使用的ObjectMapper，Redis等其他序列化器不受影响
+ */
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * 配置实体类的过滤器ID和默认过滤器
+     * @return ObjectMapper构建器定制
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer sparseFieldsCustomizer() {
+        return builder -> builder
+                .filters(new SimpleFilterProvider().setDefaultFilter(SimpleBeanPropertyFilter.serializeAll()))
+                .postConfigurer(objectMapper -> objectMapper.registerModule(new SimpleModule("SparseFieldsModule") {
+                    @Override
+                    public void setupModule(SetupContext context) {
+                        super.setupModule(context);
+                        // 插入到已有注解解析器之前，其余注解仍由原解析器处理
+                        context.insertAnnotationIntrospector(new EntityFilterIntrospector());
+                    }
+                }));
+    }
+
+    /**
+     * 为带@TableName注解的实体类指定过滤器ID，其余方法均返回空结果
+     */
+    static class EntityFilterIntrospector extends NopAnnotationIntrospector {
+
+        @Override
+        public Object findFilterId(Annotated annotated) {
+            if (annotated instanceof AnnotatedClass && annotated.hasAnnotation(TableName.class)) {
+                return SparseFields.FILTER_ID;
+            }
+            return null;
+        }
+    }
+}
@@ -1,15 +1,27 @@
 package org.agrimachinerymanager.config;
 
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.cluster.ClusterClientOptions;
+import io.lettuce.core.cluster.ClusterTopologyRefreshOptions;
+import org.agrimachinerymanager.security.CachedUserSerializer;
+import org.agrimachinerymanager.security.UserDetailsCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+
 /**
  * Redis配置类
  * 配置RedisTemplate用于操作Redis
+ * 支持单机和Redis Cluster部署，配置spring.data.redis.cluster.nodes即切换为集群模式
  */
 @Configuration
 public class RedisConfig {
@@ -36,4 +48,69 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * 配置用户认证缓存专用的RedisTemplate
+     * 值使用带版本号的紧凑二进制格式，不写入类型信息，可兼容读取旧的JSON数据
+     * @param redisConnectionFactory Redis连接工厂
+     * @return 配置好的RedisTemplate
+     */
+    @Bean
+    public RedisTemplate<String, UserDetailsCache.CachedUser> userDetailsRedisTemplate(
+            RedisConnectionFactory redisConnectionFactory) {
+        RedisTemplate<String, UserDetailsCache.CachedUser> template = new RedisTemplate<>();
+        template.setConnectionFactory(redisConnectionFactory);
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(new CachedUserSerializer());
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    /**
+     * Redis Cluster模式下的Lettuce客户端选项
+     * 开启周期性和自适应拓扑刷新，主从切换、槽位迁移后无需重启即可路由到新节点；
+     * 与节点断开时直接拒绝命令而不是缓冲等待重连，由熔断器快速降级
+     * 单机模式下不做修改
+     * @param redisProperties Redis连接配置
+     * @param refreshPeriod 周期性拓扑刷新间隔（秒）
+     * @return Lettuce客户端配置定制器
+     */
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer redisClusterClientCustomizer(
+            RedisProperties redisProperties,
+            @Value("${redis-cluster.topology-refresh-period:30}") long refreshPeriod) {
+        return builder -> {
+            if (redisProperties.getCluster() == null) {
+                return;
+            }
+            // 在自动配置已生成的选项（超时、连接参数等）基础上修改
+            ClientOptions current = builder.build().getClientOptions().orElse(null);
+            ClusterClientOptions.Builder options = current instanceof ClusterClientOptions
+                    ? ((ClusterClientOptions) current).mutate() : ClusterClientOptions.builder();
+            options.topologyRefreshOptions(ClusterTopologyRefreshOptions.builder()
+                            .enablePeriodicRefresh(Duration.ofSeconds(refreshPeriod))
+                            .enableAllAdaptiveRefreshTriggers()
+                            .build())
+                    .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS);
+            builder.clientOptions(options.build());
+        };
+    }
+
+    /**
+     * 配置Redis消息监听容器，用于集群内各节点之间的缓存失效通知
+     * 不随上下文自动启动，由RedisSubscriptionStarter在应用就绪后启动，避免Redis不可用时应用无法启动
+     * @param redisConnectionFactory Redis连接工厂
+     * @return Redis消息监听容器
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public boolean isAutoStartup() {
+                return false;
+            }
+        };
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package org.agrimachinerymanager.config;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis订阅启动器
+ * 应用就绪后启动消息监听容器，Redis暂不可用时定期重试，直到订阅成功
+ */
+@Component
+public class RedisSubscriptionStarter {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisSubscriptionStarter.class);
+
+    // 订阅失败后的重试间隔（秒）
+    private static final long RETRY_INTERVAL_SECONDS = 30;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "redis-subscription-starter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 应用就绪后尝试启动监听容器
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduler.execute(this::tryStart);
+    }
+
+    private void tryStart() {
+        try {
+            redisMessageListenerContainer.start();
+            log.info("Redis消息订阅已启动");
+        } catch (Exception e) {
+            log.warn("Redis消息订阅启动失败，{}秒后重试: {}", RETRY_INTERVAL_SECONDS, e.getMessage());
+            redisMessageListenerContainer.stop();
+            scheduler.schedule(this::tryStart, RETRY_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -2,7 +2,10 @@ package org.agrimachinerymanager.config;
 
 import org.agrimachinerymanager.common.util.JwtUtil;
 import org.agrimachinerymanager.security.JwtAuthenticationFilter;
+import org.agrimachinerymanager.security.PermitAllPathMatcher;
+import org.agrimachinerymanager.security.RateLimitFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -30,12 +33,22 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private PermitAllPathMatcher permitAllPathMatcher;
+
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
+    // BCrypt成本因子，修改后已有用户在下次登录时自动按新成本重新加密
+    @Value("${password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
     /**
      * 配置BCrypt密码编码器
      */
     @Bean
     public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
@@ -55,10 +68,8 @@ public class SecurityConfig {
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             // 配置请求授权规则
             .authorizeHttpRequests(auth -> auth
-                // 允许访问登录和登出接口
-                .requestMatchers("/auth/login", "/auth/logout").permitAll()
-                // 允许访问Knife4j/Swagger相关接口
-                .requestMatchers("/doc.html", "/swagger-ui.html", "/swagger-ui/**", "/v3/api-docs/**", "/webjars/**").permitAll()
+                // 允许访问登录、登出及Knife4j/Swagger相关接口，与JWT过滤器共用同一份免认证路径
+                .requestMatchers(permitAllPathMatcher).permitAll()
                 // 其他所有请求都需要认证
                 .anyRequest().authenticated()
             )
@@ -67,7 +78,9 @@ public class SecurityConfig {
             // 禁用HTTP基本认证
             .httpBasic(httpBasic -> httpBasic.disable())
             // 添加JWT认证过滤器
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            // 添加限流过滤器，放在JWT过滤器之后以便按用户限流
+            .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
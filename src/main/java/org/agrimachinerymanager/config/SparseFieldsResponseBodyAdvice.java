@@ -0,0 +1,37 @@
+package org.agrimachinerymanager.config;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import jakarta.servlet.http.HttpServletRequest;
+import org.agrimachinerymanager.common.util.SparseFields;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+/**
+ * 稀疏字段响应处理
+ * 控制器通过SparseFields.bind绑定了字段集时，响应中的实体只输出字段集中的属性
+ */
+@RestControllerAdvice
+public class SparseFieldsResponseBodyAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        if (!(request instanceof ServletServerHttpRequest servletRequest)) {
+            return;
+        }
+        HttpServletRequest httpRequest = servletRequest.getServletRequest();
+        if (httpRequest.getAttribute(SparseFields.REQUEST_ATTRIBUTE) instanceof SparseFields sparseFields) {
+            bodyContainer.setFilters(new SimpleFilterProvider()
+                    .addFilter(SparseFields.FILTER_ID,
+                            SimpleBeanPropertyFilter.filterOutAllExcept(sparseFields.getProperties())));
+        }
+    }
+}
@@ -5,6 +5,10 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.agrimachinerymanager.common.result.ApiResponse;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.Farmland;
 import org.agrimachinerymanager.service.FarmlandService;
 import org.slf4j.Logger;
@@ -30,13 +34,16 @@ public class FarmlandController {
     
     /**
      * 获取所有地块信息
+     * @param fields 返回的字段
      * @return 地块信息列表
      */
     @GetMapping("/getAllFarmlands")
     @Operation(summary = "获取所有地块信息", description = "查询系统中所有的地块信息")
-    public ApiResponse<List<Farmland>> getAllFarmlands(){
+    public ApiResponse<List<Farmland>> getAllFarmlands(
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         // 调用service层方法获取所有地块信息
-        List<Farmland> farmlandList = farmlandService.getAllFarmlands();
+        List<Farmland> farmlandList = farmlandService.getAllFarmlands(SparseFields.bind(Farmland.class, fields));
         return ApiResponse.success(farmlandList);
     }
     
@@ -84,6 +91,34 @@ public class FarmlandController {
         farmlandService.updateFarmland(farmland);
         return ApiResponse.success(farmland);
     }
+
+    /**
+     * 批量新增地块信息
+     * @param farmlandList 地块信息列表
+     * @return 批量结果
+     */
+    @PostMapping("/addFarmlandBatch")
+    @Operation(summary = "批量新增地块信息", description = "批量添加地块信息，返回成功条数和每条失败记录的原因")
+    public ApiResponse<BatchResult> addFarmlandBatch(
+            @Parameter(description = "地块信息列表", required = true)
+            @RequestBody List<Farmland> farmlandList) {
+        log.info("批量新增地块信息：{}条", farmlandList == null ? 0 : farmlandList.size());
+        return ApiResponse.success(farmlandService.addFarmlandBatch(farmlandList));
+    }
+
+    /**
+     * 批量更新地块信息
+     * @param farmlandList 地块信息列表
+     * @return 批量结果
+     */
+    @PutMapping("/updateFarmlandBatch")
+    @Operation(summary = "批量更新地块信息", description = "批量更新已有的地块信息，返回成功条数和每条失败记录的原因")
+    public ApiResponse<BatchResult> updateFarmlandBatch(
+            @Parameter(description = "地块信息列表，每条需包含ID", required = true)
+            @RequestBody List<Farmland> farmlandList) {
+        log.info("批量更新地块信息：{}条", farmlandList == null ? 0 : farmlandList.size());
+        return ApiResponse.success(farmlandService.updateFarmlandBatch(farmlandList));
+    }
     
     /**
      * 删除地块信息
@@ -107,6 +142,8 @@ public class FarmlandController {
      * @param landCode 地块编码
      * @param name 地块名称
      * @param location 位置
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段
      * @return 分页结果
      */
     @GetMapping("/getFarmlandPage")
@@ -125,17 +162,70 @@ public class FarmlandController {
             @RequestParam(value = "name", required = false) String name,
             
             @Parameter(description = "位置")
-            @RequestParam(value = "location", required = false) String location) {
+            @RequestParam(value = "location", required = false) String location,
+            
+            @Parameter(description = "总数统计方式：exact-精确，cached-缓存，estimated-估算，none-不统计，默认exact")
+            @RequestParam(value = "countMode", required = false) String countMode,
+            
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("分页查询地块信息，页码：{}，每页条数：{}", pageNum, pageSize);
         // 构建查询参数
-        Map<String, Object> params = new HashMap<>();
-        params.put("landCode", landCode);
-        params.put("name", name);
-        params.put("location", location);
+        Map<String, Object> params = buildPageParams(landCode, name, location);
         
         // 调用分页查询方法
-        Page<Farmland> pageResult = farmlandService.getFarmlandPage(pageNum, pageSize, params);
+        Page<Farmland> pageResult = farmlandService.getFarmlandPage(pageNum, pageSize, params,
+                CountMode.of(countMode), SparseFields.bind(Farmland.class, fields));
         
         return ApiResponse.success(pageResult);
     }
+
+    /**
+     * 游标分页查询地块信息
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param landCode 地块编码
+     * @param name 地块名称
+     * @param location 位置
+     * @param fields 返回的字段
+     * @return 游标分页结果
+     */
+    @GetMapping("/getFarmlandCursorPage")
+    @Operation(summary = "游标分页查询地块信息", description = "按游标分页查询，翻页深度不影响查询耗时，筛选条件与分页查询相同")
+    public ApiResponse<CursorPage<Farmland>> getFarmlandCursorPage(
+            @Parameter(description = "上一页返回的游标，查询第一页时不传")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            
+            @Parameter(description = "每页条数", required = true, example = "10")
+            @RequestParam("pageSize") int pageSize,
+            
+            @Parameter(description = "地块编码")
+            @RequestParam(value = "landCode", required = false) String landCode,
+            
+            @Parameter(description = "地块名称")
+            @RequestParam(value = "name", required = false) String name,
+            
+            @Parameter(description = "位置")
+            @RequestParam(value = "location", required = false) String location,
+            
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
+        log.info("游标分页查询地块信息，游标：{}，每页条数：{}", cursor, pageSize);
+        // 构建查询参数
+        Map<String, Object> params = buildPageParams(landCode, name, location);
+        return ApiResponse.success(farmlandService.getFarmlandCursorPage(cursor, pageSize, params,
+                SparseFields.bind(Farmland.class, fields)));
+    }
+
+    /**
+     * 构建分页查询参数，分页查询和游标分页查询共用
+     * @return 查询参数
+     */
+    private Map<String, Object> buildPageParams(String landCode, String name, String location) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("landCode", landCode);
+        params.put("name", name);
+        params.put("location", location);
+        return params;
+    }
 }
\ No newline at end of file
@@ -1,11 +1,11 @@
 package org.agrimachinerymanager.controller;
 
 import lombok.extern.slf4j.Slf4j;
-import org.agrimachinerymanager.common.util.JwtTokenBlacklist;
 import org.agrimachinerymanager.common.util.JwtUtil;
-import org.agrimachinerymanager.common.util.RedisLoginManager;
+import org.agrimachinerymanager.common.util.LogoutManager;
 import org.agrimachinerymanager.common.result.ApiResponse;
 import org.agrimachinerymanager.dto.LoginDTO;
+import org.agrimachinerymanager.dto.RefreshTokenDTO;
 import org.agrimachinerymanager.entity.SysUser;
 import org.agrimachinerymanager.exception.BaseException;
 import org.agrimachinerymanager.vo.LoginVo;
@@ -17,8 +17,6 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
-import java.util.Date;
-
 /**
  * 登录控制器
  */
@@ -34,10 +32,7 @@ public class LoginController {
     private JwtUtil jwtUtil;
     
     @Autowired
-    private JwtTokenBlacklist jwtTokenBlacklist;
-    
-    @Autowired
-    private RedisLoginManager redisLoginManager;
+    private LogoutManager logoutManager;
     
     /**
      * 用户登录接口
@@ -45,15 +40,27 @@ public class LoginController {
      * @return 登录结果
      */
     @PostMapping("/login")
-    public ApiResponse<LoginVo> login(@Valid @RequestBody LoginDTO loginDTO) {
-        LoginVo loginVo = sysUserService.login(loginDTO);
-        log.info("当前登录信息：{}",loginVo);
+    public ApiResponse<LoginVo> login(@Valid @RequestBody LoginDTO loginDTO, HttpServletRequest request) {
+        LoginVo loginVo = sysUserService.login(loginDTO, request.getRemoteAddr(), request.getHeader("User-Agent"));
+        // 登录结果包含令牌，只记录用户名
+        log.debug("用户 [{}] 登录成功", loginVo.getUsername());
         return ApiResponse.success(loginVo);
     }
     
+    /**
+     * 刷新令牌接口
+     * 使用刷新令牌换发新的访问令牌，同时换发新的刷新令牌，旧刷新令牌立即失效
+     * @param refreshTokenDTO 刷新令牌
+     * @return 新的令牌对
+     */
+    @PostMapping("/refresh")
+    public ApiResponse<LoginVo> refresh(@Valid @RequestBody RefreshTokenDTO refreshTokenDTO) {
+        return ApiResponse.success(sysUserService.refreshToken(refreshTokenDTO.getRefreshToken()));
+    }
+    
     /**
      * 用户登出接口
-     * 将令牌加入黑名单，确保无法再被使用
+     * 将令牌加入黑名单并删除登录会话，会话的刷新令牌随之失效
      * @return 登出结果
      */
     @PostMapping("/logout")
@@ -62,26 +69,24 @@ public class LoginController {
         String header = request.getHeader("Authorization");
         if (header != null && header.startsWith("Bearer ")) {
             String token = header.substring(7);
+            JwtUtil.TokenClaims claims = null;
             try {
-                // 获取令牌的过期时间
-                Date expirationDate = jwtUtil.getExpirationDateFromToken(token);
-                // 将令牌加入黑名单，设置黑名单保留时间为令牌的过期时间
-                jwtTokenBlacklist.addToBlacklist(token, expirationDate.getTime());
-                log.info("用户登出成功，令牌已加入黑名单");
+                // 只解析一次令牌，获取过期时间和用户ID
+                claims = jwtUtil.parseToken(token);
             } catch (Exception e) {
-                log.error("处理令牌黑名单时发生错误: {}", e.getMessage());
-                // 即使处理令牌失败，也清除上下文，不影响用户登出
+                log.error("解析令牌时发生错误: {}", e.getMessage());
+                // 即使解析失败，也清除上下文，不影响用户登出
             }
-            
-            try {
-                // 从令牌中获取用户ID
-                Long userId = jwtUtil.getUserIdFromToken(token);
-                // 从Redis中删除用户登录信息
-                redisLoginManager.removeLoginInfo(userId);
-                log.info("用户 [{}] 的登录信息已从Redis中删除", userId);
-            } catch (Exception e) {
-                log.error("从Redis中删除用户登录信息时发生错误: {}", e.getMessage());
-                // 即使处理失败，也不影响用户登出
+
+            if (claims != null) {
+                try {
+                    // 一次Redis往返完成拉黑令牌和删除登录信息
+                    logoutManager.logout(claims);
+                    log.info("用户 [{}] 登出成功，令牌已加入黑名单，登录信息已删除", claims.getUserId());
+                } catch (Exception e) {
+                    log.error("处理用户登出时发生错误: {}", e.getMessage());
+                    // 即使处理失败，也清除上下文，不影响用户登出
+                }
             }
         }
         
@@ -90,6 +95,23 @@ public class LoginController {
         return ApiResponse.success("退出登录成功");
     }
     
+    /**
+     * 退出所有设备接口
+     * 使当前用户已签发的所有令牌失效
+     * @return 操作结果
+     */
+    @PostMapping("/logoutAll")
+    public ApiResponse<String> logoutAll(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return ApiResponse.fail(401, "用户未登录");
+        }
+        JwtUtil.TokenClaims claims = jwtUtil.parseToken(header.substring(7));
+        sysUserService.logoutAllDevices(claims.getUserId());
+        SecurityContextHolder.clearContext();
+        return ApiResponse.success("已退出所有设备");
+    }
+    
     /**
      * 获取当前登录用户信息
      * @return 当前登录用户信息
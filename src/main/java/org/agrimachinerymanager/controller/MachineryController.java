@@ -5,6 +5,10 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.agrimachinerymanager.common.result.ApiResponse;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.Machinery;
 import org.agrimachinerymanager.service.MachineryService;
 import org.slf4j.Logger;
@@ -30,13 +34,16 @@ public class MachineryController {
 
     /**
      * 获取所有农机档案
+     * @param fields 返回的字段
      * @return 农机档案列表
      */
     @GetMapping("/getAllMachinery")
     @Operation(summary = "获取所有农机档案", description = "查询系统中所有的农机档案信息")
-    public ApiResponse<List<Machinery>> getAllMachinery(){
+    public ApiResponse<List<Machinery>> getAllMachinery(
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         // 调用service层方法获取所有农机档案
-        List<Machinery> machineryList = machineryService.getAllMachinery();
+        List<Machinery> machineryList = machineryService.getAllMachinery(SparseFields.bind(Machinery.class, fields));
         log.info("获取所有农机档案");
         return ApiResponse.success(machineryList);
     }
@@ -85,6 +92,34 @@ public class MachineryController {
         machineryService.updateMachinery(machinery);
         return ApiResponse.success(machinery);
     }
+
+    /**
+     * 批量新增农机档案
+     * @param machineryList 农机档案列表
+     * @return 批量结果
+     */
+    @PostMapping("/addMachineryBatch")
+    @Operation(summary = "批量新增农机档案", description = "批量添加农机档案，返回成功条数和每条失败记录的原因")
+    public ApiResponse<BatchResult> addMachineryBatch(
+            @Parameter(description = "农机档案列表", required = true)
+            @RequestBody List<Machinery> machineryList) {
+        log.info("批量新增农机档案：{}条", machineryList == null ? 0 : machineryList.size());
+        return ApiResponse.success(machineryService.addMachineryBatch(machineryList));
+    }
+
+    /**
+     * 批量更新农机档案
+     * @param machineryList 农机档案列表
+     * @return 批量结果
+     */
+    @PutMapping("/updateMachineryBatch")
+    @Operation(summary = "批量更新农机档案", description = "批量更新已有的农机档案，返回成功条数和每条失败记录的原因")
+    public ApiResponse<BatchResult> updateMachineryBatch(
+            @Parameter(description = "农机档案列表，每条需包含ID", required = true)
+            @RequestBody List<Machinery> machineryList) {
+        log.info("批量更新农机档案：{}条", machineryList == null ? 0 : machineryList.size());
+        return ApiResponse.success(machineryService.updateMachineryBatch(machineryList));
+    }
     
     /**
      * 删除农机档案
@@ -110,6 +145,8 @@ public class MachineryController {
      * @param model 型号
      * @param status 状态
      * @param department 部门
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段
      * @return 分页结果
      */
     @GetMapping("/getMachineryPage")
@@ -134,19 +171,81 @@ public class MachineryController {
             @RequestParam(value = "status", required = false) String status,
             
             @Parameter(description = "归属部门")
-            @RequestParam(value = "department", required = false) String department) {
+            @RequestParam(value = "department", required = false) String department,
+            
+            @Parameter(description = "总数统计方式：exact-精确，cached-缓存，estimated-估算，none-不统计，默认exact")
+            @RequestParam(value = "countMode", required = false) String countMode,
+            
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("分页查询农机档案，页码：{}，每页条数：{}", pageNum, pageSize);
         // 构建查询参数
+        Map<String, Object> params = buildPageParams(machineryCode, brand, model, status, department);
+        
+        // 调用分页查询方法
+        Page<Machinery> pageResult = machineryService.getMachineryPage(pageNum, pageSize, params,
+                CountMode.of(countMode), SparseFields.bind(Machinery.class, fields));
+        
+        return ApiResponse.success(pageResult);
+    }
+
+    /**
+     * 游标分页查询农机档案
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param machineryCode 农机编号
+     * @param brand 品牌
+     * @param model 型号
+     * @param status 状态
+     * @param department 部门
+     * @param fields 返回的字段
+     * @return 游标分页结果
+     */
+    @GetMapping("/getMachineryCursorPage")
+    @Operation(summary = "游标分页查询农机档案", description = "按游标分页查询，翻页深度不影响查询耗时，筛选条件与分页查询相同")
+    public ApiResponse<CursorPage<Machinery>> getMachineryCursorPage(
+            @Parameter(description = "上一页返回的游标，查询第一页时不传")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            
+            @Parameter(description = "每页条数", required = true, example = "10")
+            @RequestParam("pageSize") int pageSize,
+            
+            @Parameter(description = "农机编号")
+            @RequestParam(value = "machineryCode", required = false) String machineryCode,
+            
+            @Parameter(description = "品牌")
+            @RequestParam(value = "brand", required = false) String brand,
+            
+            @Parameter(description = "型号")
+            @RequestParam(value = "model", required = false) String model,
+            
+            @Parameter(description = "状态")
+            @RequestParam(value = "status", required = false) String status,
+            
+            @Parameter(description = "归属部门")
+            @RequestParam(value = "department", required = false) String department,
+            
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
+        log.info("游标分页查询农机档案，游标：{}，每页条数：{}", cursor, pageSize);
+        // 构建查询参数
+        Map<String, Object> params = buildPageParams(machineryCode, brand, model, status, department);
+        return ApiResponse.success(machineryService.getMachineryCursorPage(cursor, pageSize, params,
+                SparseFields.bind(Machinery.class, fields)));
+    }
+
+    /**
+     * 构建分页查询参数，分页查询和游标分页查询共用
+     * @return 查询参数
+     */
+    private Map<String, Object> buildPageParams(String machineryCode, String brand, String model,
+            String status, String department) {
         Map<String, Object> params = new HashMap<>();
         params.put("machineryCode", machineryCode);
         params.put("brand", brand);
         params.put("model", model);
         params.put("status", status);
         params.put("department", department);
-        
-        // 调用分页查询方法
-        Page<Machinery> pageResult = machineryService.getMachineryPage(pageNum, pageSize, params);
-        
-        return ApiResponse.success(pageResult);
+        return params;
     }
 }
\ No newline at end of file
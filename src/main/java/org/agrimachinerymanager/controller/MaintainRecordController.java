@@ -4,7 +4,14 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.agrimachinerymanager.common.result.ApiResponse;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.result.ExportFormat;
+import org.agrimachinerymanager.common.util.SparseFields;
+import org.agrimachinerymanager.common.util.StreamingExporter;
 import org.agrimachinerymanager.entity.MaintainRecord;
 import org.agrimachinerymanager.service.MaintainRecordService;
 import org.slf4j.Logger;
@@ -30,15 +37,22 @@ public class MaintainRecordController {
     @Autowired
     private MaintainRecordService maintainRecordService;
 
+    @Autowired
+    private StreamingExporter streamingExporter;
+
     /**
      * 获取所有农机维护记录
+     * @param fields 返回的字段
      * @return 农机维护记录列表
      */
     @GetMapping("/getAllMaintainRecords")
     @Operation(summary = "获取所有农机维护记录", description = "查询系统中所有的农机维护记录信息")
-    public ApiResponse<List<MaintainRecord>> getAllMaintainRecords() {
+    public ApiResponse<List<MaintainRecord>> getAllMaintainRecords(
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("获取所有农机维护记录");
-        List<MaintainRecord> maintainRecords = maintainRecordService.getAllMaintainRecords();
+        List<MaintainRecord> maintainRecords = maintainRecordService.getAllMaintainRecords(
+                SparseFields.bind(MaintainRecord.class, fields));
         return ApiResponse.success(maintainRecords);
     }
 
@@ -87,6 +101,34 @@ public class MaintainRecordController {
         return ApiResponse.success(result);
     }
 
+    /**
+     * 批量新增农机维护记录
+     * @param maintainRecordList 农机维护记录列表
+     * @return 批量结果
+     */
+    @PostMapping("/addMaintainRecordBatch")
+    @Operation(summary = "批量新增农机维护记录", description = "批量添加农机维护记录，返回成功条数和每条失败记录的原因")
+    public ApiResponse<BatchResult> addMaintainRecordBatch(
+            @Parameter(description = "农机维护记录列表", required = true)
+            @RequestBody List<MaintainRecord> maintainRecordList) {
+        log.info("批量新增农机维护记录: {}条", maintainRecordList == null ? 0 : maintainRecordList.size());
+        return ApiResponse.success(maintainRecordService.addMaintainRecordBatch(maintainRecordList));
+    }
+
+    /**
+     * 批量更新农机维护记录
+     * @param maintainRecordList 农机维护记录列表
+     * @return 批量结果
+     */
+    @PutMapping("/updateMaintainRecordBatch")
+    @Operation(summary = "批量更新农机维护记录", description = "批量更新已有的农机维护记录，返回成功条数和每条失败记录的原因")
+    public ApiResponse<BatchResult> updateMaintainRecordBatch(
+            @Parameter(description = "农机维护记录列表，每条需包含ID", required = true)
+            @RequestBody List<MaintainRecord> maintainRecordList) {
+        log.info("批量更新农机维护记录: {}条", maintainRecordList == null ? 0 : maintainRecordList.size());
+        return ApiResponse.success(maintainRecordService.updateMaintainRecordBatch(maintainRecordList));
+    }
+
     /**
      * 删除农机维护记录
      * @param id 记录ID
@@ -115,6 +157,8 @@ public class MaintainRecordController {
      * @param description 维护描述
      * @param minCost 最小费用
      * @param maxCost 最大费用
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段
      * @return 分页结果
      */
     @GetMapping("/getMaintainRecordPage")
@@ -141,43 +185,121 @@ public class MaintainRecordController {
             @Parameter(description = "最小费用")
             @RequestParam(required = false) BigDecimal minCost,
             @Parameter(description = "最大费用")
-            @RequestParam(required = false) BigDecimal maxCost) {
+            @RequestParam(required = false) BigDecimal maxCost,
+            @Parameter(description = "总数统计方式：exact-精确，cached-缓存，estimated-估算，none-不统计，默认exact")
+            @RequestParam(value = "countMode", required = false) String countMode,
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("分页查询农机维护记录，页码：{}，每页条数：{}", pageNum, pageSize);
         
         // 构建查询参数
-        Map<String, Object> params = new HashMap<>();
-        if (machineryId != null) {
-            params.put("machineryId", machineryId);
-        }
-        if (maintainType != null && !maintainType.isEmpty()) {
-            params.put("maintainType", maintainType);
-        }
-        if (maintainer != null && !maintainer.isEmpty()) {
-            params.put("maintainer", maintainer);
-        }
-        if (createUserId != null) {
-            params.put("createUserId", createUserId);
-        }
-        if (startTime != null && !startTime.isEmpty()) {
-            params.put("startTime", startTime);
-        }
-        if (endTime != null && !endTime.isEmpty()) {
-            params.put("endTime", endTime);
-        }
-        if (description != null && !description.isEmpty()) {
-            params.put("description", description);
-        }
-        if (minCost != null) {
-            params.put("minCost", minCost);
-        }
-        if (maxCost != null) {
-            params.put("maxCost", maxCost);
-        }
+        Map<String, Object> params = buildPageParams(machineryId, maintainType, maintainer, createUserId,
+                startTime, endTime, description, minCost, maxCost);
         
-        Page<MaintainRecord> page = maintainRecordService.getMaintainRecordPage(pageNum, pageSize, params);
+        Page<MaintainRecord> page = maintainRecordService.getMaintainRecordPage(pageNum, pageSize, params,
+                CountMode.of(countMode), SparseFields.bind(MaintainRecord.class, fields));
         return ApiResponse.success(page);
     }
 
+    /**
+     * 游标分页查询农机维护记录
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param machineryId 农机ID
+     * @param maintainType 维护类型
+     * @param maintainer 维护人员
+     * @param createUserId 创建人ID
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @param description 维护描述
+     * @param minCost 最小费用
+     * @param maxCost 最大费用
+     * @param fields 返回的字段
+     * @return 游标分页结果
+     */
+    @GetMapping("/getMaintainRecordCursorPage")
+    @Operation(summary = "游标分页查询农机维护记录", description = "按游标分页查询，翻页深度不影响查询耗时，筛选条件与分页查询相同")
+    public ApiResponse<CursorPage<MaintainRecord>> getMaintainRecordCursorPage(
+            @Parameter(description = "上一页返回的游标，查询第一页时不传")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "每页条数", required = true, example = "10")
+            @RequestParam(defaultValue = "10") int pageSize,
+            @Parameter(description = "农机ID")
+            @RequestParam(required = false) Long machineryId,
+            @Parameter(description = "维护类型")
+            @RequestParam(required = false) String maintainType,
+            @Parameter(description = "维护人员")
+            @RequestParam(required = false) String maintainer,
+            @Parameter(description = "创建人ID")
+            @RequestParam(required = false) Long createUserId,
+            @Parameter(description = "开始时间")
+            @RequestParam(required = false) String startTime,
+            @Parameter(description = "结束时间")
+            @RequestParam(required = false) String endTime,
+            @Parameter(description = "维护描述")
+            @RequestParam(required = false) String description,
+            @Parameter(description = "最小费用")
+            @RequestParam(required = false) BigDecimal minCost,
+            @Parameter(description = "最大费用")
+            @RequestParam(required = false) BigDecimal maxCost,
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
+        log.info("游标分页查询农机维护记录，游标：{}，每页条数：{}", cursor, pageSize);
+        
+        // 构建查询参数
+        Map<String, Object> params = buildPageParams(machineryId, maintainType, maintainer, createUserId,
+                startTime, endTime, description, minCost, maxCost);
+        return ApiResponse.success(maintainRecordService.getMaintainRecordCursorPage(cursor, pageSize, params,
+                SparseFields.bind(MaintainRecord.class, fields)));
+    }
+
+    /**
+     * 流式导出农机维护记录
+     * @param machineryId 农机ID
+     * @param maintainType 维护类型
+     * @param maintainer 维护人员
+     * @param createUserId 创建人ID
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @param description 维护描述
+     * @param minCost 最小费用
+     * @param maxCost 最大费用
+     * @param format 导出格式：ndjson（默认）或csv
+     * @param response HTTP响应
+     */
+    @GetMapping("/exportMaintainRecords")
+    @Operation(summary = "流式导出农机维护记录", description = "按NDJSON或CSV格式逐条写出查询结果，筛选条件与分页查询相同")
+    public void exportMaintainRecords(
+            @Parameter(description = "导出格式：ndjson或csv", example = "ndjson")
+            @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "农机ID")
+            @RequestParam(required = false) Long machineryId,
+            @Parameter(description = "维护类型")
+            @RequestParam(required = false) String maintainType,
+            @Parameter(description = "维护人员")
+            @RequestParam(required = false) String maintainer,
+            @Parameter(description = "创建人ID")
+            @RequestParam(required = false) Long createUserId,
+            @Parameter(description = "开始时间")
+            @RequestParam(required = false) String startTime,
+            @Parameter(description = "结束时间")
+            @RequestParam(required = false) String endTime,
+            @Parameter(description = "维护描述")
+            @RequestParam(required = false) String description,
+            @Parameter(description = "最小费用")
+            @RequestParam(required = false) BigDecimal minCost,
+            @Parameter(description = "最大费用")
+            @RequestParam(required = false) BigDecimal maxCost,
+            HttpServletResponse response) {
+        log.info("流式导出农机维护记录，格式：{}", format);
+
+        // 构建查询参数
+        Map<String, Object> params = buildPageParams(machineryId, maintainType, maintainer, createUserId,
+                startTime, endTime, description, minCost, maxCost);
+        streamingExporter.<MaintainRecord>export(response, "maintain-record", ExportFormat.of(format),
+                consumer -> maintainRecordService.streamMaintainRecords(params, consumer));
+    }
+
     /**
      * 根据农机ID查询维护记录
      * @param machineryId 农机ID
@@ -240,4 +362,42 @@ public class MaintainRecordController {
         List<MaintainRecord> maintainRecords = maintainRecordService.getMaintainRecordsByTimeRange(startTime, endTime);
         return ApiResponse.success(maintainRecords);
     }
+
+    /**
+     * 构建分页查询参数，分页查询和游标分页查询共用
+     * @return 查询参数
+     */
+    private Map<String, Object> buildPageParams(Long machineryId, String maintainType, String maintainer,
+            Long createUserId, String startTime, String endTime, String description, BigDecimal minCost,
+            BigDecimal maxCost) {
+        Map<String, Object> params = new HashMap<>();
+        if (machineryId != null) {
+            params.put("machineryId", machineryId);
+        }
+        if (maintainType != null && !maintainType.isEmpty()) {
+            params.put("maintainType", maintainType);
+        }
+        if (maintainer != null && !maintainer.isEmpty()) {
+            params.put("maintainer", maintainer);
+        }
+        if (createUserId != null) {
+            params.put("createUserId", createUserId);
+        }
+        if (startTime != null && !startTime.isEmpty()) {
+            params.put("startTime", startTime);
+        }
+        if (endTime != null && !endTime.isEmpty()) {
+            params.put("endTime", endTime);
+        }
+        if (description != null && !description.isEmpty()) {
+            params.put("description", description);
+        }
+        if (minCost != null) {
+            params.put("minCost", minCost);
+        }
+        if (maxCost != null) {
+            params.put("maxCost", maxCost);
+        }
+        return params;
+    }
 }
\ No newline at end of file
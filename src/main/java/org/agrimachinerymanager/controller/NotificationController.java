@@ -4,7 +4,14 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.agrimachinerymanager.common.result.ApiResponse;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.result.ExportFormat;
+import org.agrimachinerymanager.common.util.SparseFields;
+import org.agrimachinerymanager.common.util.StreamingExporter;
 import org.agrimachinerymanager.entity.Notification;
 import org.agrimachinerymanager.service.NotificationService;
 import org.slf4j.Logger;
@@ -27,16 +34,23 @@ public class NotificationController {
     
     @Autowired
     private NotificationService notificationService;
+
+    @Autowired
+    private StreamingExporter streamingExporter;
     
     /**
      * 获取所有通知提醒
+     * @param fields 返回的字段
      * @return 通知提醒列表
      */
     @GetMapping("/getAllNotifications")
     @Operation(summary = "获取所有通知提醒", description = "查询系统中所有的通知提醒信息")
-    public ApiResponse<List<Notification>> getAllNotifications() {
+    public ApiResponse<List<Notification>> getAllNotifications(
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         // 调用service层方法获取所有通知提醒
-        List<Notification> notificationList = notificationService.getAllNotifications();
+        List<Notification> notificationList = notificationService.getAllNotifications(
+                SparseFields.bind(Notification.class, fields));
         return ApiResponse.success(notificationList);
     }
     
@@ -84,6 +98,34 @@ public class NotificationController {
         notificationService.updateNotification(notification);
         return ApiResponse.success(notification);
     }
+
+    /**
+     * 批量新增通知提醒
+     * @param notificationList 通知提醒列表
+     * @return 批量结果
+     */
+    @PostMapping("/addNotificationBatch")
+    @Operation(summary = "批量新增通知提醒", description = "批量添加通知提醒，返回成功条数和每条失败记录的原因")
+    public ApiResponse<BatchResult> addNotificationBatch(
+            @Parameter(description = "通知提醒列表", required = true)
+            @RequestBody List<Notification> notificationList) {
+        log.info("批量新增通知提醒：{}条", notificationList == null ? 0 : notificationList.size());
+        return ApiResponse.success(notificationService.addNotificationBatch(notificationList));
+    }
+
+    /**
+     * 批量更新通知提醒
+     * @param notificationList 通知提醒列表
+     * @return 批量结果
+     */
+    @PutMapping("/updateNotificationBatch")
+    @Operation(summary = "批量更新通知提醒", description = "批量更新已有的通知提醒，返回成功条数和每条失败记录的原因")
+    public ApiResponse<BatchResult> updateNotificationBatch(
+            @Parameter(description = "通知提醒列表，每条需包含ID", required = true)
+            @RequestBody List<Notification> notificationList) {
+        log.info("批量更新通知提醒：{}条", notificationList == null ? 0 : notificationList.size());
+        return ApiResponse.success(notificationService.updateNotificationBatch(notificationList));
+    }
     
     /**
      * 删除通知提醒
@@ -108,6 +150,8 @@ public class NotificationController {
      * @param isRead 是否已读
      * @param relatedModule 关联模块
      * @param relatedId 关联ID
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段
      * @return 分页结果
      */
     @GetMapping("/getNotificationPage")
@@ -129,20 +173,99 @@ public class NotificationController {
             @RequestParam(value = "relatedModule", required = false) String relatedModule,
             
             @Parameter(description = "关联ID")
-            @RequestParam(value = "relatedId", required = false) Long relatedId) {
+            @RequestParam(value = "relatedId", required = false) Long relatedId,
+            
+            @Parameter(description = "总数统计方式：exact-精确，cached-缓存，estimated-估算，none-不统计，默认exact")
+            @RequestParam(value = "countMode", required = false) String countMode,
+            
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("分页查询通知提醒，页码：{}，每页条数：{}", pageNum, pageSize);
         // 构建查询参数
-        Map<String, Object> params = new HashMap<>();
-        params.put("userId", userId);
-        params.put("isRead", isRead);
-        params.put("relatedModule", relatedModule);
-        params.put("relatedId", relatedId);
+        Map<String, Object> params = buildPageParams(userId, isRead, relatedModule, relatedId);
         
         // 调用分页查询方法
-        Page<Notification> pageResult = notificationService.getNotificationPage(pageNum, pageSize, params);
+        Page<Notification> pageResult = notificationService.getNotificationPage(pageNum, pageSize, params,
+                CountMode.of(countMode), SparseFields.bind(Notification.class, fields));
         
         return ApiResponse.success(pageResult);
     }
+
+    /**
+     * 游标分页查询通知提醒
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param userId 用户ID
+     * @param isRead 是否已读
+     * @param relatedModule 关联模块
+     * @param relatedId 关联ID
+     * @param fields 返回的字段
+     * @return 游标分页结果
+     */
+    @GetMapping("/getNotificationCursorPage")
+    @Operation(summary = "游标分页查询通知提醒", description = "按游标分页查询，翻页深度不影响查询耗时，筛选条件与分页查询相同")
+    public ApiResponse<CursorPage<Notification>> getNotificationCursorPage(
+            @Parameter(description = "上一页返回的游标，查询第一页时不传")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            
+            @Parameter(description = "每页条数", required = true, example = "10")
+            @RequestParam("pageSize") int pageSize,
+            
+            @Parameter(description = "用户ID")
+            @RequestParam(value = "userId", required = false) Long userId,
+            
+            @Parameter(description = "是否已读：0-未读，1-已读")
+            @RequestParam(value = "isRead", required = false) Integer isRead,
+            
+            @Parameter(description = "关联模块")
+            @RequestParam(value = "relatedModule", required = false) String relatedModule,
+            
+            @Parameter(description = "关联ID")
+            @RequestParam(value = "relatedId", required = false) Long relatedId,
+            
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
+        log.info("游标分页查询通知提醒，游标：{}，每页条数：{}", cursor, pageSize);
+        // 构建查询参数
+        Map<String, Object> params = buildPageParams(userId, isRead, relatedModule, relatedId);
+        return ApiResponse.success(notificationService.getNotificationCursorPage(cursor, pageSize, params,
+                SparseFields.bind(Notification.class, fields)));
+    }
+
+    /**
+     * 流式导出通知
+     * @param userId 用户ID
+     * @param isRead 是否已读
+     * @param relatedModule 关联模块
+     * @param relatedId 关联ID
+     * @param format 导出格式：ndjson（默认）或csv
+     * @param response HTTP响应
+     */
+    @GetMapping("/exportNotifications")
+    @Operation(summary = "流式导出通知", description = "按NDJSON或CSV格式逐条写出查询结果，筛选条件与分页查询相同")
+    public void exportNotifications(
+            @Parameter(description = "导出格式：ndjson或csv", example = "ndjson")
+            @RequestParam(defaultValue = "ndjson") String format,
+            
+            @Parameter(description = "用户ID")
+            @RequestParam(value = "userId", required = false) Long userId,
+            
+            @Parameter(description = "是否已读：0-未读，1-已读")
+            @RequestParam(value = "isRead", required = false) Integer isRead,
+            
+            @Parameter(description = "关联模块")
+            @RequestParam(value = "relatedModule", required = false) String relatedModule,
+            
+            @Parameter(description = "关联ID")
+            @RequestParam(value = "relatedId", required = false) Long relatedId,
+            HttpServletResponse response) {
+        log.info("流式导出通知，格式：{}", format);
+
+        // 构建查询参数
+        Map<String, Object> params = buildPageParams(userId, isRead, relatedModule, relatedId);
+        streamingExporter.<Notification>export(response, "notification", ExportFormat.of(format),
+                consumer -> notificationService.streamNotifications(params, consumer));
+    }
     
     /**
      * 根据用户ID获取通知提醒列表
@@ -173,4 +296,18 @@ public class NotificationController {
         notificationService.markNotificationAsRead(id);
         return ApiResponse.success(true);
     }
+
+    /**
+     * 构建分页查询参数，分页查询和游标分页查询共用
+     * @return 查询参数
+     */
+    private Map<String, Object> buildPageParams(Long userId, Integer isRead, String relatedModule,
+            Long relatedId) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("userId", userId);
+        params.put("isRead", isRead);
+        params.put("relatedModule", relatedModule);
+        params.put("relatedId", relatedId);
+        return params;
+    }
 }
\ No newline at end of file
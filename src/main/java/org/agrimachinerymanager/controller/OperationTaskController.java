@@ -4,7 +4,13 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.agrimachinerymanager.common.result.ApiResponse;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.result.ExportFormat;
+import org.agrimachinerymanager.common.util.SparseFields;
+import org.agrimachinerymanager.common.util.StreamingExporter;
 import org.agrimachinerymanager.entity.OperationTask;
 import org.agrimachinerymanager.service.OperationTaskService;
 import org.slf4j.Logger;
@@ -28,15 +34,22 @@ public class OperationTaskController {
     @Autowired
     private OperationTaskService operationTaskService;
 
+    @Autowired
+    private StreamingExporter streamingExporter;
+
     /**
      * 获取所有作业调度任务
+     * @param fields 返回的字段
      * @return 作业调度任务列表
      */
     @GetMapping("/getAllOperationTasks")
     @Operation(summary = "获取所有作业调度任务", description = "查询系统中所有的作业调度任务信息")
-    public ApiResponse<List<OperationTask>> getAllOperationTasks() {
+    public ApiResponse<List<OperationTask>> getAllOperationTasks(
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("获取所有作业调度任务");
-        List<OperationTask> operationTasks = operationTaskService.getAllOperationTasks();
+        List<OperationTask> operationTasks = operationTaskService.getAllOperationTasks(
+                SparseFields.bind(OperationTask.class, fields));
         return ApiResponse.success(operationTasks);
     }
 
@@ -112,6 +125,8 @@ public class OperationTaskController {
      * @param responsibleUserId 负责人ID
      * @param startDate 开始日期
      * @param endDate 结束日期
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段
      * @return 分页结果
      */
     @GetMapping("/getOperationTaskPage")
@@ -136,40 +151,115 @@ public class OperationTaskController {
             @Parameter(description = "开始日期")
             @RequestParam(required = false) String startDate,
             @Parameter(description = "结束日期")
-            @RequestParam(required = false) String endDate) {
+            @RequestParam(required = false) String endDate,
+            @Parameter(description = "总数统计方式：exact-精确，cached-缓存，estimated-估算，none-不统计，默认exact")
+            @RequestParam(value = "countMode", required = false) String countMode,
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("分页查询作业调度任务，页码：{}，每页条数：{}", pageNum, pageSize);
         
         // 构建查询参数
-        Map<String, Object> params = new HashMap<>();
-        if (taskCode != null && !taskCode.isEmpty()) {
-            params.put("taskCode", taskCode);
-        }
-        if (machineryId != null) {
-            params.put("machineryId", machineryId);
-        }
-        if (farmlandId != null) {
-            params.put("farmlandId", farmlandId);
-        }
-        if (operationType != null && !operationType.isEmpty()) {
-            params.put("operationType", operationType);
-        }
-        if (status != null) {
-            params.put("status", status);
-        }
-        if (responsibleUserId != null) {
-            params.put("responsibleUserId", responsibleUserId);
-        }
-        if (startDate != null && !startDate.isEmpty()) {
-            params.put("startDate", startDate);
-        }
-        if (endDate != null && !endDate.isEmpty()) {
-            params.put("endDate", endDate);
-        }
+        Map<String, Object> params = buildPageParams(taskCode, machineryId, farmlandId, operationType,
+                status, responsibleUserId, startDate, endDate);
         
-        Page<OperationTask> page = operationTaskService.getOperationTaskPage(pageNum, pageSize, params);
+        Page<OperationTask> page = operationTaskService.getOperationTaskPage(pageNum, pageSize, params,
+                CountMode.of(countMode), SparseFields.bind(OperationTask.class, fields));
         return ApiResponse.success(page);
     }
 
+    /**
+     * 游标分页查询作业调度任务
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param taskCode 任务编码
+     * @param machineryId 农机ID
+     * @param farmlandId 地块ID
+     * @param operationType 作业类型
+     * @param status 状态
+     * @param responsibleUserId 负责人ID
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param fields 返回的字段
+     * @return 游标分页结果
+     */
+    @GetMapping("/getOperationTaskCursorPage")
+    @Operation(summary = "游标分页查询作业调度任务", description = "按游标分页查询，翻页深度不影响查询耗时，筛选条件与分页查询相同")
+    public ApiResponse<CursorPage<OperationTask>> getOperationTaskCursorPage(
+            @Parameter(description = "上一页返回的游标，查询第一页时不传")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "每页条数", required = true, example = "10")
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @Parameter(description = "任务编码")
+            @RequestParam(required = false) String taskCode,
+            @Parameter(description = "农机ID")
+            @RequestParam(required = false) Long machineryId,
+            @Parameter(description = "地块ID")
+            @RequestParam(required = false) Long farmlandId,
+            @Parameter(description = "作业类型")
+            @RequestParam(required = false) String operationType,
+            @Parameter(description = "状态")
+            @RequestParam(required = false) Integer status,
+            @Parameter(description = "负责人ID")
+            @RequestParam(required = false) Long responsibleUserId,
+            @Parameter(description = "开始日期")
+            @RequestParam(required = false) String startDate,
+            @Parameter(description = "结束日期")
+            @RequestParam(required = false) String endDate,
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
+        log.info("游标分页查询作业调度任务，游标：{}，每页条数：{}", cursor, pageSize);
+        
+        // 构建查询参数
+        Map<String, Object> params = buildPageParams(taskCode, machineryId, farmlandId, operationType,
+                status, responsibleUserId, startDate, endDate);
+        return ApiResponse.success(operationTaskService.getOperationTaskCursorPage(cursor, pageSize, params,
+                SparseFields.bind(OperationTask.class, fields)));
+    }
+
+    /**
+     * 流式导出作业调度任务
+     * @param taskCode 任务编码
+     * @param machineryId 农机ID
+     * @param farmlandId 地块ID
+     * @param operationType 作业类型
+     * @param status 状态
+     * @param responsibleUserId 负责人ID
+     * @param startDate 开始日期
+     * @param endDate 结束日期
+     * @param format 导出格式：ndjson（默认）或csv
+     * @param response HTTP响应
+     */
+    @GetMapping("/exportOperationTasks")
+    @Operation(summary = "流式导出作业调度任务", description = "按NDJSON或CSV格式逐条写出查询结果，筛选条件与分页查询相同")
+    public void exportOperationTasks(
+            @Parameter(description = "导出格式：ndjson或csv", example = "ndjson")
+            @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "任务编码")
+            @RequestParam(required = false) String taskCode,
+            @Parameter(description = "农机ID")
+            @RequestParam(required = false) Long machineryId,
+            @Parameter(description = "地块ID")
+            @RequestParam(required = false) Long farmlandId,
+            @Parameter(description = "作业类型")
+            @RequestParam(required = false) String operationType,
+            @Parameter(description = "状态")
+            @RequestParam(required = false) Integer status,
+            @Parameter(description = "负责人ID")
+            @RequestParam(required = false) Long responsibleUserId,
+            @Parameter(description = "开始日期")
+            @RequestParam(required = false) String startDate,
+            @Parameter(description = "结束日期")
+            @RequestParam(required = false) String endDate,
+            HttpServletResponse response) {
+        log.info("流式导出作业调度任务，格式：{}", format);
+
+        // 构建查询参数
+        Map<String, Object> params = buildPageParams(taskCode, machineryId, farmlandId, operationType,
+                status, responsibleUserId, startDate, endDate);
+        streamingExporter.<OperationTask>export(response, "operation-task", ExportFormat.of(format),
+                consumer -> operationTaskService.streamOperationTasks(params, consumer));
+    }
+
     /**
      * 根据农机ID查询作业调度任务
      * @param machineryId 农机ID
@@ -214,4 +304,38 @@ public class OperationTaskController {
         List<OperationTask> operationTasks = operationTaskService.getOperationTasksByStatus(status);
         return ApiResponse.success(operationTasks);
     }
+
+    /**
+     * 构建分页查询参数，分页查询和游标分页查询共用
+     * @return 查询参数
+     */
+    private Map<String, Object> buildPageParams(String taskCode, Long machineryId, Long farmlandId,
+            String operationType, Integer status, Long responsibleUserId, String startDate, String endDate) {
+        Map<String, Object> params = new HashMap<>();
+        if (taskCode != null && !taskCode.isEmpty()) {
+            params.put("taskCode", taskCode);
+        }
+        if (machineryId != null) {
+            params.put("machineryId", machineryId);
+        }
+        if (farmlandId != null) {
+            params.put("farmlandId", farmlandId);
+        }
+        if (operationType != null && !operationType.isEmpty()) {
+            params.put("operationType", operationType);
+        }
+        if (status != null) {
+            params.put("status", status);
+        }
+        if (responsibleUserId != null) {
+            params.put("responsibleUserId", responsibleUserId);
+        }
+        if (startDate != null && !startDate.isEmpty()) {
+            params.put("startDate", startDate);
+        }
+        if (endDate != null && !endDate.isEmpty()) {
+            params.put("endDate", endDate);
+        }
+        return params;
+    }
 }
\ No newline at end of file
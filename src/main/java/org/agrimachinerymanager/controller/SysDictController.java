@@ -5,6 +5,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.agrimachinerymanager.common.result.ApiResponse;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.SysDict;
 import org.agrimachinerymanager.service.SysDictService;
 import org.slf4j.Logger;
@@ -30,13 +31,16 @@ public class SysDictController {
 
     /**
      * 获取所有数据字典
+     * @param fields 返回的字段
      * @return 数据字典列表
      */
     @GetMapping("/getAllSysDicts")
     @Operation(summary = "获取所有数据字典", description = "查询系统中所有的数据字典信息")
-    public ApiResponse<List<SysDict>> getAllSysDicts() {
+    public ApiResponse<List<SysDict>> getAllSysDicts(
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("获取所有数据字典");
-        List<SysDict> dictList = sysDictService.getAllSysDicts();
+        List<SysDict> dictList = sysDictService.getAllSysDicts(SparseFields.bind(SysDict.class, fields));
         return ApiResponse.success(dictList);
     }
 
@@ -107,6 +111,7 @@ public class SysDictController {
      * @param type 字典类型（可选）
      * @param code 字典编码（可选）
      * @param name 字典名称（可选）
+     * @param fields 返回的字段
      * @return 分页结果
      */
     @GetMapping("/getSysDictPage")
@@ -121,7 +126,9 @@ public class SysDictController {
             @Parameter(description = "字典编码")
             @RequestParam(value = "code", required = false) String code,
             @Parameter(description = "字典名称")
-            @RequestParam(value = "name", required = false) String name) {
+            @RequestParam(value = "name", required = false) String name,
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("分页查询数据字典: pageNum={}, pageSize={}, type={}, code={}, name={}",
                 pageNum, pageSize, type, code, name);
         // 构建查询参数
@@ -131,7 +138,8 @@ public class SysDictController {
         params.put("name", name);
 
         // 调用service层方法进行分页查询
-        Page<SysDict> pageResult = sysDictService.getSysDictPage(pageNum, pageSize, params);
+        Page<SysDict> pageResult = sysDictService.getSysDictPage(pageNum, pageSize, params,
+                SparseFields.bind(SysDict.class, fields));
         return ApiResponse.success(pageResult);
     }
     
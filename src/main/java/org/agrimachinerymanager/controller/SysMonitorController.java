@@ -0,0 +1,205 @@
+package org.agrimachinerymanager.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.agrimachinerymanager.common.result.ApiResponse;
+import org.agrimachinerymanager.common.util.JwtTokenBlacklist;
+import org.agrimachinerymanager.common.util.PageCountManager;
+import org.agrimachinerymanager.common.util.PasswordUtil;
+import org.agrimachinerymanager.common.util.RedisCircuitBreaker;
+import org.agrimachinerymanager.common.util.RedisClientSideCache;
+import org.agrimachinerymanager.common.util.RedisFallbackStore;
+import org.agrimachinerymanager.common.util.StreamingExporter;
+import org.agrimachinerymanager.common.util.TokenStateChecker;
+import org.agrimachinerymanager.common.util.VerifiedTokenCache;
+import org.agrimachinerymanager.security.AccessLogRecorder;
+import org.agrimachinerymanager.security.RateLimiter;
+import org.agrimachinerymanager.security.UserDetailsCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 系统监控控制器
+ * 提供缓存命中率等运行指标，便于容量规划
+ */
+@RestController
+@RequestMapping("/sys-monitor")
+@Tag(name = "系统监控", description = "系统运行指标查询")
+public class SysMonitorController {
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private JwtTokenBlacklist jwtTokenBlacklist;
+
+    @Autowired
+    private AccessLogRecorder accessLogRecorder;
+
+    @Autowired
+    private PasswordUtil passwordUtil;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private TokenStateChecker tokenStateChecker;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private RedisClientSideCache redisClientSideCache;
+
+    @Autowired
+    private RedisFallbackStore redisFallbackStore;
+
+    @Autowired
+    private PageCountManager pageCountManager;
+
+    @Autowired
+    private StreamingExporter streamingExporter;
+
+    /**
+     * 获取用户认证缓存统计
+     * @return 缓存统计信息
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getUserCacheStats")
+    @Operation(summary = "获取用户认证缓存统计", description = "查询用户认证两级缓存的命中、未命中和淘汰次数")
+    public ApiResponse<Map<String, Object>> getUserCacheStats() {
+        return ApiResponse.success(userDetailsCache.getStats());
+    }
+
+    /**
+     * 获取令牌黑名单布隆过滤器统计
+     * @return 布隆过滤器统计信息
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getBlacklistStats")
+    @Operation(summary = "获取令牌黑名单统计", description = "查询黑名单布隆过滤器避免的Redis查询次数及误判次数")
+    public ApiResponse<Map<String, Object>> getBlacklistStats() {
+        return ApiResponse.success(jwtTokenBlacklist.getStats());
+    }
+
+    /**
+     * 获取访问日志统计
+     * @return 访问日志统计信息
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getAccessLogStats")
+    @Operation(summary = "获取访问日志统计", description = "查询访问日志当前级别、采样率、缓冲区占用及丢弃次数")
+    public ApiResponse<Map<String, Object>> getAccessLogStats() {
+        return ApiResponse.success(accessLogRecorder.getStats());
+    }
+
+    /**
+     * 运行时调整访问日志级别
+     * @param level 日志级别
+     * @param sampleRate 采样率
+     * @return 调整后的访问日志统计信息
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PutMapping("/updateAccessLogLevel")
+    @Operation(summary = "调整访问日志级别", description = "运行时调整访问日志级别和认证成功请求的采样率，无需重启")
+    public ApiResponse<Map<String, Object>> updateAccessLogLevel(
+            @Parameter(description = "日志级别：OFF、FAILURE、SAMPLED、ALL")
+            @RequestParam(value = "level", required = false) AccessLogRecorder.Level level,
+            @Parameter(description = "采样率（0~1）")
+            @RequestParam(value = "sampleRate", required = false) Double sampleRate) {
+        accessLogRecorder.configure(level, sampleRate);
+        return ApiResponse.success(accessLogRecorder.getStats());
+    }
+
+    /**
+     * 获取密码校验线程池统计
+     * @return 密码校验线程池统计信息
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getPasswordHashStats")
+    @Operation(summary = "获取密码校验统计", description = "查询登录密码校验线程池的队列深度、拒绝次数及哈希耗时")
+    public ApiResponse<Map<String, Object>> getPasswordHashStats() {
+        return ApiResponse.success(passwordUtil.getStats());
+    }
+
+    /**
+     * 获取限流统计
+     * @return 限流统计信息
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getRateLimitStats")
+    @Operation(summary = "获取限流统计", description = "查询限流放行、拒绝次数及本地预取命中、Redis降级次数")
+    public ApiResponse<Map<String, Object>> getRateLimitStats() {
+        return ApiResponse.success(rateLimiter.getStats());
+    }
+
+    /**
+     * 获取令牌状态检查统计
+     * @return 令牌状态检查统计信息
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getTokenCheckStats")
+    @Operation(summary = "获取令牌状态检查统计", description = "查询认证过滤器仅本地判定、访问Redis、超时及按策略放行的次数")
+    public ApiResponse<Map<String, Object>> getTokenCheckStats() {
+        return ApiResponse.success(tokenStateChecker.getStats());
+    }
+
+    /**
+     * 获取已校验令牌缓存统计
+     * @return 已校验令牌缓存统计信息
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getClaimsCacheStats")
+    @Operation(summary = "获取已校验令牌缓存统计", description = "查询跳过签名校验的命中次数、未命中次数及因拉黑移除的次数")
+    public ApiResponse<Map<String, Object>> getClaimsCacheStats() {
+        return ApiResponse.success(verifiedTokenCache.getStats());
+    }
+
+    /**
+     * 获取Redis熔断器状态
+     * @return 熔断器状态及本地降级存储中待写回Redis的记录数
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getRedisGuardStats")
+    @Operation(summary = "获取Redis熔断器状态", description = "查询熔断器状态、失败和降级次数、本地降级存储中待写回Redis的记录数及客户端缓存命中率")
+    public ApiResponse<Map<String, Object>> getRedisGuardStats() {
+        Map<String, Object> result = new LinkedHashMap<>(redisCircuitBreaker.getStats());
+        result.put("fallback", redisFallbackStore.getStats());
+        result.put("clientSideCache", redisClientSideCache.getStats());
+        return ApiResponse.success(result);
+    }
+
+    /**
+     * 获取分页总数缓存统计
+     * @return 分页总数缓存统计信息
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getPageCountStats")
+    @Operation(summary = "获取分页总数缓存统计", description = "查询缓存的分页总数条数、命中与未命中次数及估算失败次数")
+    public ApiResponse<Map<String, Object>> getPageCountStats() {
+        return ApiResponse.success(pageCountManager.getStats());
+    }
+
+    /**
+     * 获取流式导出统计
+     * @return 流式导出统计信息
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getExportStats")
+    @Operation(summary = "获取流式导出统计", description = "查询进行中的导出数、完成数、导出行数及拒绝和失败次数")
+    public ApiResponse<Map<String, Object>> getExportStats() {
+        return ApiResponse.success(streamingExporter.getStats());
+    }
+}
\ No newline at end of file
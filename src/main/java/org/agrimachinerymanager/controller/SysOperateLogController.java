@@ -4,7 +4,13 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.agrimachinerymanager.common.result.ApiResponse;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.result.ExportFormat;
+import org.agrimachinerymanager.common.util.SparseFields;
+import org.agrimachinerymanager.common.util.StreamingExporter;
 import org.agrimachinerymanager.entity.SysOperateLog;
 import org.agrimachinerymanager.service.SysOperateLogService;
 import org.slf4j.Logger;
@@ -28,15 +34,22 @@ public class SysOperateLogController {
     @Autowired
     private SysOperateLogService sysOperateLogService;
 
+    @Autowired
+    private StreamingExporter streamingExporter;
+
     /**
      * 获取所有系统操作日志
+     * @param fields 返回的字段
      * @return 系统操作日志列表
      */
     @GetMapping("/getAllSysOperateLogs")
     @Operation(summary = "获取所有系统操作日志", description = "查询系统中所有的操作日志信息")
-    public ApiResponse<List<SysOperateLog>> getAllSysOperateLogs() {
+    public ApiResponse<List<SysOperateLog>> getAllSysOperateLogs(
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("获取所有系统操作日志");
-        List<SysOperateLog> sysOperateLogs = sysOperateLogService.getAllSysOperateLogs();
+        List<SysOperateLog> sysOperateLogs = sysOperateLogService.getAllSysOperateLogs(
+                SparseFields.bind(SysOperateLog.class, fields));
         return ApiResponse.success(sysOperateLogs);
     }
 
@@ -111,6 +124,8 @@ public class SysOperateLogController {
      * @param operateIp 操作IP
      * @param startTime 开始时间
      * @param endTime 结束时间
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段
      * @return 分页结果
      */
     @GetMapping("/getSysOperateLogPage")
@@ -133,37 +148,109 @@ public class SysOperateLogController {
             @Parameter(description = "开始时间")
             @RequestParam(required = false) String startTime,
             @Parameter(description = "结束时间")
-            @RequestParam(required = false) String endTime) {
+            @RequestParam(required = false) String endTime,
+            @Parameter(description = "总数统计方式：exact-精确，cached-缓存，estimated-估算，none-不统计，默认exact")
+            @RequestParam(value = "countMode", required = false) String countMode,
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("分页查询系统操作日志，页码：{}，每页条数：{}", pageNum, pageSize);
         
         // 构建查询参数
-        Map<String, Object> params = new HashMap<>();
-        if (userId != null) {
-            params.put("userId", userId);
-        }
-        if (operateType != null && !operateType.isEmpty()) {
-            params.put("operateType", operateType);
-        }
-        if (operateModule != null && !operateModule.isEmpty()) {
-            params.put("operateModule", operateModule);
-        }
-        if (operateContent != null && !operateContent.isEmpty()) {
-            params.put("operateContent", operateContent);
-        }
-        if (operateIp != null && !operateIp.isEmpty()) {
-            params.put("operateIp", operateIp);
-        }
-        if (startTime != null && !startTime.isEmpty()) {
-            params.put("startTime", startTime);
-        }
-        if (endTime != null && !endTime.isEmpty()) {
-            params.put("endTime", endTime);
-        }
+        Map<String, Object> params = buildPageParams(userId, operateType, operateModule, operateContent,
+                operateIp, startTime, endTime);
         
-        Page<SysOperateLog> page = sysOperateLogService.getSysOperateLogPage(pageNum, pageSize, params);
+        Page<SysOperateLog> page = sysOperateLogService.getSysOperateLogPage(pageNum, pageSize, params,
+                CountMode.of(countMode), SparseFields.bind(SysOperateLog.class, fields));
         return ApiResponse.success(page);
     }
 
+    /**
+     * 游标分页查询系统操作日志
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param userId 用户ID
+     * @param operateType 操作类型
+     * @param operateModule 操作模块
+     * @param operateContent 操作内容
+     * @param operateIp 操作IP
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @param fields 返回的字段
+     * @return 游标分页结果
+     */
+    @GetMapping("/getSysOperateLogCursorPage")
+    @Operation(summary = "游标分页查询系统操作日志", description = "按游标分页查询，翻页深度不影响查询耗时，筛选条件与分页查询相同")
+    public ApiResponse<CursorPage<SysOperateLog>> getSysOperateLogCursorPage(
+            @Parameter(description = "上一页返回的游标，查询第一页时不传")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "每页条数", required = true, example = "10")
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @Parameter(description = "用户ID")
+            @RequestParam(required = false) Long userId,
+            @Parameter(description = "操作类型")
+            @RequestParam(required = false) String operateType,
+            @Parameter(description = "操作模块")
+            @RequestParam(required = false) String operateModule,
+            @Parameter(description = "操作内容")
+            @RequestParam(required = false) String operateContent,
+            @Parameter(description = "操作IP")
+            @RequestParam(required = false) String operateIp,
+            @Parameter(description = "开始时间")
+            @RequestParam(required = false) String startTime,
+            @Parameter(description = "结束时间")
+            @RequestParam(required = false) String endTime,
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
+        log.info("游标分页查询系统操作日志，游标：{}，每页条数：{}", cursor, pageSize);
+        
+        // 构建查询参数
+        Map<String, Object> params = buildPageParams(userId, operateType, operateModule, operateContent,
+                operateIp, startTime, endTime);
+        return ApiResponse.success(sysOperateLogService.getSysOperateLogCursorPage(cursor, pageSize, params,
+                SparseFields.bind(SysOperateLog.class, fields)));
+    }
+
+    /**
+     * 流式导出操作日志
+     * @param userId 用户ID
+     * @param operateType 操作类型
+     * @param operateModule 操作模块
+     * @param operateContent 操作内容
+     * @param operateIp 操作IP
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @param format 导出格式：ndjson（默认）或csv
+     * @param response HTTP响应
+     */
+    @GetMapping("/exportSysOperateLogs")
+    @Operation(summary = "流式导出操作日志", description = "按NDJSON或CSV格式逐条写出查询结果，筛选条件与分页查询相同")
+    public void exportSysOperateLogs(
+            @Parameter(description = "导出格式：ndjson或csv", example = "ndjson")
+            @RequestParam(defaultValue = "ndjson") String format,
+            @Parameter(description = "用户ID")
+            @RequestParam(required = false) Long userId,
+            @Parameter(description = "操作类型")
+            @RequestParam(required = false) String operateType,
+            @Parameter(description = "操作模块")
+            @RequestParam(required = false) String operateModule,
+            @Parameter(description = "操作内容")
+            @RequestParam(required = false) String operateContent,
+            @Parameter(description = "操作IP")
+            @RequestParam(required = false) String operateIp,
+            @Parameter(description = "开始时间")
+            @RequestParam(required = false) String startTime,
+            @Parameter(description = "结束时间")
+            @RequestParam(required = false) String endTime,
+            HttpServletResponse response) {
+        log.info("流式导出操作日志，格式：{}", format);
+
+        // 构建查询参数
+        Map<String, Object> params = buildPageParams(userId, operateType, operateModule, operateContent,
+                operateIp, startTime, endTime);
+        streamingExporter.<SysOperateLog>export(response, "sys-operate-log", ExportFormat.of(format),
+                consumer -> sysOperateLogService.streamSysOperateLogs(params, consumer));
+    }
+
     /**
      * 根据用户ID查询系统操作日志
      * @param userId 用户ID
@@ -208,4 +295,35 @@ public class SysOperateLogController {
         List<SysOperateLog> sysOperateLogs = sysOperateLogService.getSysOperateLogsByModule(operateModule);
         return ApiResponse.success(sysOperateLogs);
     }
+
+    /**
+     * 构建分页查询参数，分页查询和游标分页查询共用
+     * @return 查询参数
+     */
+    private Map<String, Object> buildPageParams(Long userId, String operateType, String operateModule,
+            String operateContent, String operateIp, String startTime, String endTime) {
+        Map<String, Object> params = new HashMap<>();
+        if (userId != null) {
+            params.put("userId", userId);
+        }
+        if (operateType != null && !operateType.isEmpty()) {
+            params.put("operateType", operateType);
+        }
+        if (operateModule != null && !operateModule.isEmpty()) {
+            params.put("operateModule", operateModule);
+        }
+        if (operateContent != null && !operateContent.isEmpty()) {
+            params.put("operateContent", operateContent);
+        }
+        if (operateIp != null && !operateIp.isEmpty()) {
+            params.put("operateIp", operateIp);
+        }
+        if (startTime != null && !startTime.isEmpty()) {
+            params.put("startTime", startTime);
+        }
+        if (endTime != null && !endTime.isEmpty()) {
+            params.put("endTime", endTime);
+        }
+        return params;
+    }
 }
\ No newline at end of file
@@ -5,6 +5,10 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.agrimachinerymanager.common.result.ApiResponse;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.RedisLoginManager;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.SysUser;
 import org.agrimachinerymanager.service.SysUserService;
 import org.slf4j.Logger;
@@ -30,14 +34,17 @@ public class SysUserController {
 
     /**
      * 获取所有系统用户
+     * @param fields 返回的字段
      * @return 用户列表
      */
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/getAllSysUsers")
     @Operation(summary = "获取所有系统用户", description = "查询系统中所有的用户信息")
-    public ApiResponse<List<SysUser>> getAllSysUsers() {
+    public ApiResponse<List<SysUser>> getAllSysUsers(
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("获取所有系统用户");
-        List<SysUser> users = sysUserService.getAllSysUsers();
+        List<SysUser> users = sysUserService.getAllSysUsers(SparseFields.bind(SysUser.class, fields, "password"));
         return ApiResponse.success(users);
     }
 
@@ -114,6 +121,8 @@ public class SysUserController {
      * @param phone 联系电话（可选）
      * @param role 角色（可选）
      * @param status 状态（可选）
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段
      * @return 分页结果
      */
     @PreAuthorize("hasRole('ADMIN')")
@@ -133,19 +142,136 @@ public class SysUserController {
             @Parameter(description = "角色")
             @RequestParam(value = "role", required = false) Integer role,
             @Parameter(description = "状态")
-            @RequestParam(value = "status", required = false) Integer status) {
+            @RequestParam(value = "status", required = false) Integer status,
+            @Parameter(description = "总数统计方式：exact-精确，cached-缓存，estimated-估算，none-不统计，默认exact")
+            @RequestParam(value = "countMode", required = false) String countMode,
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
         log.info("分页查询用户: pageNum={}, pageSize={}, username={}, realName={}, phone={}, role={}, status={}",
                 pageNum, pageSize, username, realName, phone, role, status);
         // 构建查询参数
+        Map<String, Object> params = buildPageParams(username, realName, phone, role, status);
+
+        // 调用service层方法进行分页查询
+        Page<SysUser> pageResult = sysUserService.getSysUserPage(pageNum, pageSize, params,
+                CountMode.of(countMode), SparseFields.bind(SysUser.class, fields, "password"));
+        return ApiResponse.success(pageResult);
+    }
+
+    /**
+     * 游标分页查询用户
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param username 用户名（可选）
+     * @param realName 真实姓名（可选）
+     * @param phone 联系电话（可选）
+     * @param role 角色（可选）
+     * @param status 状态（可选）
+     * @param fields 返回的字段
+     * @return 游标分页结果
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getSysUserCursorPage")
+    @Operation(summary = "游标分页查询用户", description = "按游标分页查询，翻页深度不影响查询耗时，筛选条件与分页查询相同")
+    public ApiResponse<CursorPage<SysUser>> getSysUserCursorPage(
+            @Parameter(description = "上一页返回的游标，查询第一页时不传")
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(description = "每页条数", required = true, example = "10")
+            @RequestParam("pageSize") int pageSize,
+            @Parameter(description = "用户名")
+            @RequestParam(value = "username", required = false) String username,
+            @Parameter(description = "真实姓名")
+            @RequestParam(value = "realName", required = false) String realName,
+            @Parameter(description = "联系电话")
+            @RequestParam(value = "phone", required = false) String phone,
+            @Parameter(description = "角色")
+            @RequestParam(value = "role", required = false) Integer role,
+            @Parameter(description = "状态")
+            @RequestParam(value = "status", required = false) Integer status,
+            @Parameter(description = "返回的字段，逗号分隔的属性名，不传时返回全部字段")
+            @RequestParam(value = "fields", required = false) String fields) {
+        log.info("游标分页查询用户: cursor={}, pageSize={}, username={}, realName={}, phone={}, role={}, status={}",
+                cursor, pageSize, username, realName, phone, role, status);
+        Map<String, Object> params = buildPageParams(username, realName, phone, role, status);
+        return ApiResponse.success(sysUserService.getSysUserCursorPage(cursor, pageSize, params,
+                SparseFields.bind(SysUser.class, fields, "password")));
+    }
+
+    /**
+     * 批量强制用户下线
+     * @param userIds 用户ID列表
+     * @return 下线的用户数
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/forceLogoutUsers")
+    @Operation(summary = "批量强制用户下线", description = "使指定用户已签发的所有令牌失效并删除登录信息")
+    public ApiResponse<Integer> forceLogoutUsers(
+            @Parameter(description = "用户ID列表", required = true)
+            @RequestBody List<Long> userIds) {
+        log.info("批量强制用户下线，用户数: {}", userIds == null ? 0 : userIds.size());
+        return ApiResponse.success(sysUserService.forceLogoutUsers(userIds));
+    }
+
+    /**
+     * 按角色批量强制用户下线
+     * @param role 角色
+     * @return 下线的用户数
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/forceLogoutByRole/{role}")
+    @Operation(summary = "按角色批量强制用户下线", description = "使指定角色的所有用户下线")
+    public ApiResponse<Integer> forceLogoutByRole(
+            @Parameter(description = "角色：1-管理员，2-操作员", required = true, example = "2")
+            @PathVariable("role") Integer role) {
+        log.info("按角色批量强制用户下线: {}", role);
+        return ApiResponse.success(sysUserService.forceLogoutByRole(role));
+    }
+
+    /**
+     * 分页查询在线会话
+     * @param pageNum 页码
+     * @param pageSize 每页条数
+     * @return 分页结果
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getOnlineSessionPage")
+    @Operation(summary = "分页查询在线会话", description = "按最近活跃时间倒序分页查询在线会话")
+    public ApiResponse<Page<RedisLoginManager.UserLoginInfo>> getOnlineSessionPage(
+            @Parameter(description = "页码", required = true, example = "1")
+            @RequestParam("pageNum") int pageNum,
+            @Parameter(description = "每页条数", required = true, example = "10")
+            @RequestParam("pageSize") int pageSize) {
+        log.info("分页查询在线会话: pageNum={}, pageSize={}", pageNum, pageSize);
+        return ApiResponse.success(sysUserService.getOnlineSessionPage(pageNum, pageSize));
+    }
+
+    /**
+     * 查询用户的全部登录会话
+     * @param userId 用户ID
+     * @return 会话列表
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/getUserSessions/{userId}")
+    @Operation(summary = "查询用户登录会话", description = "查询指定用户在各设备上的登录会话")
+    public ApiResponse<List<RedisLoginManager.UserLoginInfo>> getUserSessions(
+            @Parameter(description = "用户ID", required = true, example = "1")
+            @PathVariable("userId") Long userId) {
+        log.info("查询用户登录会话: {}", userId);
+        return ApiResponse.success(sysUserService.getUserSessions(userId));
+    }
+
+    /**
+     * 构建分页查询参数，分页查询和游标分页查询共用
+     * @return 查询参数
+     */
+    private Map<String, Object> buildPageParams(String username, String realName, String phone,
+                                                Integer role, Integer status) {
         Map<String, Object> params = new HashMap<>();
         params.put("username", username);
         params.put("realName", realName);
         params.put("phone", phone);
         params.put("role", role);
         params.put("status", status);
-
-        // 调用service层方法进行分页查询
-        Page<SysUser> pageResult = sysUserService.getSysUserPage(pageNum, pageSize, params);
-        return ApiResponse.success(pageResult);
+        return params;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+package org.agrimachinerymanager.dto;
+
+import lombok.Data;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * 刷新令牌请求DTO类
+ */
+@Data
+public class RefreshTokenDTO {
+    
+    /**
+     * 刷新令牌
+     */
+    @NotBlank(message = "刷新令牌不能为空")
+    private String refreshToken;
+}
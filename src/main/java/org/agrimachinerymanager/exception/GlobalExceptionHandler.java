@@ -2,6 +2,8 @@ package org.agrimachinerymanager.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.agrimachinerymanager.common.result.ApiResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.validation.BindException;
@@ -18,6 +20,17 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    /**
+     * 处理服务过载异常，返回429/503状态码并携带Retry-After头
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ApiResponse<?>> handleServiceOverloadedException(ServiceOverloadedException e) {
+        log.warn("请求被拒绝: {}", e.getMessage());
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(ApiResponse.fail(e.getStatus(), e.getMessage()));
+    }
+
     /**
      * 处理自定义BaseException异常
      */
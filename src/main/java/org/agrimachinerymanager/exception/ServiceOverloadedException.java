@@ -0,0 +1,28 @@
+package org.agrimachinerymanager.exception;
+
+/**
+ * 服务过载异常
+ * 用于限流或资源饱和时快速拒绝请求，响应使用对应的HTTP状态码并携带Retry-After头
+ */
+public class ServiceOverloadedException extends BaseException {
+
+    // HTTP状态码：429-请求过多，503-服务暂不可用
+    private final int status;
+
+    // 建议客户端重试的等待时间（秒）
+    private final long retryAfterSeconds;
+
+    public ServiceOverloadedException(int status, String message, long retryAfterSeconds) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
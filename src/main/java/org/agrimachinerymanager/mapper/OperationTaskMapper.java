@@ -1,11 +1,29 @@
 package org.agrimachinerymanager.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import org.agrimachinerymanager.entity.OperationTask;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 作业调度任务数据访问接口
  */
 public interface OperationTaskMapper extends BaseMapper<OperationTask> {
-    // 可以添加自定义的SQL方法
-}
\ No newline at end of file
+
+    /**
+     * 流式查询作业任务，每读取一行回调一次，不在内存中保留整个结果集
+     * fetchSize为Integer.MIN_VALUE时MySQL驱动逐行读取结果，查询结束前占用当前连接
+     * @param queryWrapper 查询条件
+     * @param handler 每行记录的处理函数
+     */
+    @Select("SELECT * FROM operation_task ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(OperationTask.class)
+    void streamList(@Param(Constants.WRAPPER) Wrapper<OperationTask> queryWrapper, ResultHandler<OperationTask> handler);
+}
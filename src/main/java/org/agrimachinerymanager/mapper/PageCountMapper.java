@@ -0,0 +1,46 @@
+package org.agrimachinerymanager.mapper;
+
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分页总数统计和估算数据访问接口
+ * 表名只能由代码中的常量传入，不能来自请求参数
+ */
+public interface PageCountMapper {
+
+    /**
+     * 获取查询的执行计划，用于根据预估扫描行数估算总数
+     * @param table 表名
+     * @param queryWrapper 查询条件
+     * @return 执行计划，每个访问的表一行
+     */
+    @Select("EXPLAIN SELECT * FROM ${table} ${ew.customSqlSegment}")
+    List<Map<String, Object>> explain(@Param("table") String table,
+                                      @Param(Constants.WRAPPER) Wrapper<?> queryWrapper);
+
+    /**
+     * 按查询条件精确统计总数
+     * 只使用条件构造器中的筛选条件：select指定的返回字段会使BaseMapper.selectCount生成COUNT(字段列表)，
+     * 排序会使聚合查询在ONLY_FULL_GROUP_BY模式下报错
+     * @param table 表名
+     * @param queryWrapper 查询条件
+     * @return 总数
+     */
+    @Select("<script>SELECT COUNT(*) FROM ${table}"
+            + "<if test=\"ew.nonEmptyOfNormal\"> WHERE ${ew.expression.normal.sqlSegment}</if></script>")
+    long count(@Param("table") String table, @Param(Constants.WRAPPER) Wrapper<?> queryWrapper);
+
+    /**
+     * 获取表统计信息中的行数，不带筛选条件时使用
+     * @param table 表名
+     * @return 统计的行数，表不存在时返回null
+     */
+    @Select("SELECT TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = #{table}")
+    Long tableRows(@Param("table") String table);
+}
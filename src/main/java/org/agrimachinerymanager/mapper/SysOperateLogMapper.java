@@ -1,14 +1,31 @@
 package org.agrimachinerymanager.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import org.agrimachinerymanager.entity.SysOperateLog;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 /**
  * 系统操作日志Mapper接口
  */
 @Mapper
 public interface SysOperateLogMapper extends BaseMapper<SysOperateLog> {
-    
-    // 可以在这里添加自定义的SQL查询方法
-}
\ No newline at end of file
+
+    /**
+     * 流式查询操作日志，每读取一行回调一次，不在内存中保留整个结果集
+     * fetchSize为Integer.MIN_VALUE时MySQL驱动逐行读取结果，查询结束前占用当前连接
+     * @param queryWrapper 查询条件
+     * @param handler 每行记录的处理函数
+     */
+    @Select("SELECT * FROM sys_operate_log ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(SysOperateLog.class)
+    void streamList(@Param(Constants.WRAPPER) Wrapper<SysOperateLog> queryWrapper, ResultHandler<SysOperateLog> handler);
+}
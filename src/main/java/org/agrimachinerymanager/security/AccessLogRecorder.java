@@ -0,0 +1,269 @@
+package org.agrimachinerymanager.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.agrimachinerymanager.common.util.RingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 认证访问日志记录器
+ * 每个请求只生成一条结构化记录（路径、用户、认证结果、耗时），不包含任何令牌内容
+ * 请求线程只把记录写入无锁环形缓冲区，格式化和输出由后台线程完成，缓冲区满时丢弃并计数
+ * 输出到名为ACCESS_LOG的日志记录器，日志级别和采样率可在运行时调整
+ */
+@Component
+public class AccessLogRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLogRecorder.class);
+
+    private static final Logger accessLog = LoggerFactory.getLogger("ACCESS_LOG");
+
+    /**
+     * 访问日志级别
+     */
+    public enum Level {
+        // 不记录
+        OFF,
+        // 只记录认证失败的请求
+        FAILURE,
+        // 记录认证失败的请求，成功的请求按采样率记录
+        SAMPLED,
+        // 记录所有请求
+        ALL
+    }
+
+    /**
+     * 认证结果
+     */
+    public enum Outcome {
+        // 免认证路径
+        PERMIT_ALL(false),
+        // 认证成功
+        AUTHENTICATED(false),
+        // 已在SecurityContext中认证
+        ALREADY_AUTHENTICATED(false),
+        // 未携带令牌
+        NO_TOKEN(true),
+        // Authorization头格式不正确
+        MALFORMED_HEADER(true),
+        // 令牌解析或签名校验失败
+        INVALID_TOKEN(true),
+        // 令牌已被拉黑
+        BLACKLISTED(true),
+        // 令牌版本已失效
+        REVOKED(true),
+        // 用户不存在或已禁用
+        USER_NOT_FOUND(true),
+        // Redis不可用，无法确认令牌状态
+        UNAVAILABLE(true),
+        // 认证过程中发生错误
+        ERROR(true);
+
+        private final boolean failure;
+
+        Outcome(boolean failure) {
+            this.failure = failure;
+        }
+
+        public boolean isFailure() {
+            return failure;
+        }
+    }
+
+    @Value("${access-log.level:SAMPLED}")
+    private volatile Level level;
+
+    // 认证成功请求的采样率（0~1），仅SAMPLED级别使用
+    @Value("${access-log.sample-rate:0.01}")
+    private volatile double sampleRate;
+
+    @Value("${access-log.buffer-size:8192}")
+    private int bufferSize;
+
+    // 缓冲区为空时后台线程的等待时间（毫秒）
+    @Value("${access-log.drain-interval:10}")
+    private long drainInterval;
+
+    private RingBuffer<Entry> buffer;
+
+    private Thread writer;
+
+    private volatile boolean running;
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        buffer = new RingBuffer<>(bufferSize);
+        running = true;
+        writer = new Thread(this::drainLoop, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 记录一次请求，由请求线程调用，只做采样判断和入队
+     * @param method 请求方法
+     * @param path 请求路径
+     * @param username 用户名，未解析出时为null
+     * @param outcome 认证结果
+     * @param status 响应状态码
+     * @param startNanos 请求开始时间
+     * @param authNanos 认证阶段耗时（纳秒）
+     * @param remoteAddr 客户端地址
+     */
+    public void record(String method, String path, String username, Outcome outcome, int status,
+                       long startNanos, long authNanos, String remoteAddr) {
+        if (!shouldRecord(outcome)) {
+            sampledOut.incrementAndGet();
+            return;
+        }
+        long totalNanos = System.nanoTime() - startNanos;
+        Entry entry = new Entry(System.currentTimeMillis(), method, path, username, outcome, status,
+                authNanos, totalNanos, remoteAddr);
+        if (buffer.offer(entry)) {
+            recorded.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * 运行时调整日志级别和采样率
+     * @param level 日志级别，为null时不修改
+     * @param sampleRate 采样率，为null时不修改
+     */
+    public void configure(Level level, Double sampleRate) {
+        if (level != null) {
+            this.level = level;
+        }
+        if (sampleRate != null) {
+            this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        }
+        log.info("访问日志级别已调整为 {}，采样率 {}", this.level, this.sampleRate);
+    }
+
+    /**
+     * 获取访问日志统计
+     * @return 当前级别、采样率、缓冲区占用以及写入、丢弃次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("level", level);
+        result.put("sampleRate", sampleRate);
+        result.put("bufferCapacity", buffer.capacity());
+        result.put("bufferSize", buffer.size());
+        result.put("recorded", recorded.get());
+        result.put("sampledOut", sampledOut.get());
+        result.put("dropped", dropped.get());
+        result.put("written", written.get());
+        return result;
+    }
+
+    private boolean shouldRecord(Outcome outcome) {
+        Level current = level;
+        switch (current) {
+            case OFF:
+                return false;
+            case FAILURE:
+                return outcome.isFailure();
+            case SAMPLED:
+                return outcome.isFailure() || ThreadLocalRandom.current().nextDouble() < sampleRate;
+            default:
+                return true;
+        }
+    }
+
+    private void drainLoop() {
+        long parkNanos = TimeUnit.MILLISECONDS.toNanos(drainInterval);
+        while (running) {
+            if (!drain()) {
+                LockSupport.parkNanos(parkNanos);
+            }
+        }
+        drain();
+    }
+
+    /**
+     * 输出缓冲区中的所有记录
+     * @return 是否输出了记录
+     */
+    private boolean drain() {
+        boolean any = false;
+        Entry entry;
+        while ((entry = buffer.poll()) != null) {
+            any = true;
+            try {
+                write(entry);
+                written.incrementAndGet();
+            } catch (Exception e) {
+                log.warn("输出访问日志失败: {}", e.getMessage());
+            }
+        }
+        return any;
+    }
+
+    private void write(Entry entry) {
+        if (entry.outcome.isFailure()) {
+            accessLog.warn("ts={} method={} path={} user={} outcome={} status={} authUs={} totalMs={} ip={}",
+                    entry.timestamp, entry.method, entry.path, entry.username, entry.outcome, entry.status,
+                    entry.authNanos / 1000, entry.totalNanos / 1_000_000, entry.remoteAddr);
+        } else {
+            accessLog.info("ts={} method={} path={} user={} outcome={} status={} authUs={} totalMs={} ip={}",
+                    entry.timestamp, entry.method, entry.path, entry.username, entry.outcome, entry.status,
+                    entry.authNanos / 1000, entry.totalNanos / 1_000_000, entry.remoteAddr);
+        }
+    }
+
+    /**
+     * 访问日志记录，不包含令牌或Authorization头
+     */
+    private static final class Entry {
+        private final long timestamp;
+        private final String method;
+        private final String path;
+        private final String username;
+        private final Outcome outcome;
+        private final int status;
+        private final long authNanos;
+        private final long totalNanos;
+        private final String remoteAddr;
+
+        private Entry(long timestamp, String method, String path, String username, Outcome outcome, int status,
+                      long authNanos, long totalNanos, String remoteAddr) {
+            this.timestamp = timestamp;
+            this.method = method;
+            this.path = path;
+            this.username = username;
+            this.outcome = outcome;
+            this.status = status;
+            this.authNanos = authNanos;
+            this.totalNanos = totalNanos;
+            this.remoteAddr = remoteAddr;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.agrimachinerymanager.security;
+
+import org.agrimachinerymanager.common.util.VersionedBinarySerializer;
+
+/**
+ * 用户认证缓存的二进制序列化器
+ * 版本1：userId、username、role，不包含密码哈希
+ */
+public class CachedUserSerializer extends VersionedBinarySerializer<UserDetailsCache.CachedUser> {
+
+    // 当前格式版本，新增字段时加一并在read中保留旧版本的读取逻辑
+    static final int VERSION = 1;
+
+    public CachedUserSerializer() {
+        super(UserDetailsCache.CachedUser.class, VERSION);
+    }
+
+    @Override
+    protected void write(UserDetailsCache.CachedUser value, Writer out) {
+        out.writeNullableLong(value.getUserId());
+        out.writeString(value.getUsername());
+        out.writeNullableLong(value.getRole() == null ? null : value.getRole().longValue());
+    }
+
+    @Override
+    protected UserDetailsCache.CachedUser read(int version, Reader in) {
+        UserDetailsCache.CachedUser user = new UserDetailsCache.CachedUser();
+        user.setUserId(in.readNullableLong());
+        user.setUsername(in.readString());
+        Long role = in.readNullableLong();
+        user.setRole(role == null ? null : role.intValue());
+        return user;
+    }
+}
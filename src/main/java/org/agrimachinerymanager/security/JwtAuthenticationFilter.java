@@ -5,149 +5,206 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.agrimachinerymanager.common.util.JwtUtil;
-import org.agrimachinerymanager.common.util.JwtTokenBlacklist;
+import org.agrimachinerymanager.common.util.RedisLoginManager;
+import org.agrimachinerymanager.common.util.TokenStateChecker;
+import org.agrimachinerymanager.common.util.VerifiedTokenCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.List;
 
 /**
- * JWT认证过滤器（完整版带日志）
+ * JWT认证过滤器
+ * 每个请求只通过AccessLogRecorder记录一条访问日志，不输出令牌内容
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private static final Logger log = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
-    private static final AntPathMatcher pathMatcher = new AntPathMatcher();
+    // 令牌声明认证模式
+    private static final String AUTH_MODE_CLAIMS = "claims";
     
-    // 不需要认证的路径列表，考虑前缀/agri-machinery
-    private static final List<String> PERMIT_ALL_PATHS = Arrays.asList(
-            // 登录相关路径
-            "/api/auth/login",
-            "/api/auth/login",
-            "/auth/login",
-            "/api/auth/logout",
-            "/api/auth/logout",
-            "/auth/logout",
-            // 接口文档相关路径
-            "/doc.html",
-            "/doc.html",
-            "/swagger-ui.html",
-            "/swagger-ui.html",
-            "/swagger-ui/**",
-            "/swagger-ui/**",
-            "/v3/api-docs/**",
-            "/v3/api-docs/**",
-            "/swagger-resources/**",
-            "/swagger-resources/**",
-            "/webjars/**",
-            "/webjars/**"
-    );
-
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private PermitAllPathMatcher permitAllPathMatcher;
+
     @Autowired
     private UserDetailsService userDetailsService;
 
     @Autowired
-    private JwtTokenBlacklist jwtTokenBlacklist;
+    private TokenStateChecker tokenStateChecker;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private RoleAuthorityMapper roleAuthorityMapper;
+
+    @Autowired
+    private AccessLogRecorder accessLogRecorder;
+
+    @Autowired
+    private RedisLoginManager redisLoginManager;
+
+    // 认证模式：database-每次请求从数据库加载用户，claims-直接使用令牌声明构建权限
+    @Value("${jwt.auth-mode:database}")
+    private String authMode;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
 
-        String requestURI = request.getRequestURI();
-        log.info("➡️ 请求路径: {}", requestURI);
-        
+        long startNanos = System.nanoTime();
+
         // 检查是否是不需要认证的路径
-        if (isPermitAllPath(requestURI)) {
-            log.info("✅ 该路径无需认证，直接放行");
-            chain.doFilter(request, response);
+        if (permitAllPathMatcher.matches(request)) {
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                recordAccess(request, response, null, AccessLogRecorder.Outcome.PERMIT_ALL, startNanos, 0);
+            }
             return;
         }
 
         String header = request.getHeader("Authorization");
-        log.info("➡️ Authorization头: {}", header);
 
         String username = null;
-        String jwt = null;
+        JwtUtil.TokenClaims claims = null;
+        AccessLogRecorder.Outcome outcome;
 
         // 提取 Bearer token
         if (header != null && header.startsWith("Bearer ")) {
-            jwt = header.substring(7);
-            log.info("✅ 提取到JWT: {}", jwt);
-
-            // 检查令牌是否在黑名单中
-            if (jwtTokenBlacklist.isBlacklisted(jwt)) {
-                log.warn("❌ 令牌已被加入黑名单，拒绝访问");
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                response.getWriter().write("Token has been invalidated");
-                return;
-            }
+            String jwt = header.substring(7);
 
             try {
-                username = jwtUtil.getUsernameFromToken(jwt);
-                log.info("✅ 解析出的用户名: {}", username);
+                // 只做一次签名校验，后续直接使用解析出的声明；已校验过的令牌直接使用缓存的声明
+                claims = verifiedTokenCache.parse(jwt);
+                username = claims.getUsername();
             } catch (Exception e) {
-                log.error("❌ JWT解析失败: {}", e.getMessage());
+                log.debug("JWT解析失败: {}", e.getMessage());
             }
+
+            // 黑名单、令牌版本号及会话检查互不依赖，需要访问Redis的检查一次往返同时完成
+            if (claims != null) {
+                TokenStateChecker.Result state = tokenStateChecker.check(claims, jwt);
+                if (state != TokenStateChecker.Result.VALID) {
+                    AccessLogRecorder.Outcome rejected;
+                    if (state == TokenStateChecker.Result.UNAVAILABLE) {
+                        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                        response.getWriter().write("Authentication service unavailable");
+                        rejected = AccessLogRecorder.Outcome.UNAVAILABLE;
+                    } else {
+                        reject(response);
+                        rejected = state == TokenStateChecker.Result.BLACKLISTED
+                                ? AccessLogRecorder.Outcome.BLACKLISTED : AccessLogRecorder.Outcome.REVOKED;
+                    }
+                    recordAccess(request, response, username, rejected, startNanos, System.nanoTime() - startNanos);
+                    return;
+                }
+            }
+            outcome = AccessLogRecorder.Outcome.INVALID_TOKEN;
         } else if (header != null) {
-            log.warn("⚠️ Authorization头格式不正确，应以 'Bearer ' 开头");
+            outcome = AccessLogRecorder.Outcome.MALFORMED_HEADER;
         } else {
-            log.warn("⚠️ 请求未携带Authorization头");
+            outcome = AccessLogRecorder.Outcome.NO_TOKEN;
         }
 
         // 校验token并注入SecurityContext
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            log.info("🔍 从UserDetailsService加载用户: {}", username);
-            try {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                if (jwtUtil.validateToken(jwt, userDetails.getUsername())) {
-                    UsernamePasswordAuthenticationToken authentication = 
-                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                    log.info("✅ JWT验证成功，用户 [{}] 已通过认证", username);
-                } else {
-                    log.warn("❌ JWT验证失败，用户名: {}", username);
-                }
-            } catch (UsernameNotFoundException e) {
-                log.error("❌ 用户不存在: {}", username);
-                // 继续执行过滤器链，让全局异常处理器处理这个异常
-            } catch (Exception e) {
-                log.error("❌ 用户认证过程中发生错误: {}", e.getMessage());
+            if (AUTH_MODE_CLAIMS.equalsIgnoreCase(authMode)) {
+                outcome = authenticateFromClaims(request, claims);
+            } else {
+                outcome = authenticateFromDatabase(request, claims);
             }
-        } else if (username == null) {
-            log.warn("⚠️ 未能从JWT中解析出用户名");
-        } else {
-            log.debug("🟡 用户 [{}] 已经在SecurityContext中，无需重复认证", username);
+        } else if (username != null) {
+            outcome = AccessLogRecorder.Outcome.ALREADY_AUTHENTICATED;
+        }
+
+        // 记录会话活跃时间，同一会话在续期间隔内只续期一次
+        if (outcome == AccessLogRecorder.Outcome.AUTHENTICATED) {
+            redisLoginManager.touch(claims);
         }
 
-        chain.doFilter(request, response);
+        long authNanos = System.nanoTime() - startNanos;
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            recordAccess(request, response, username, outcome, startNanos, authNanos);
+        }
     }
-    
+
     /**
-     * 检查请求路径是否是不需要认证的路径
+     * 数据库认证：从UserDetailsService（两级缓存）加载用户并校验令牌
      */
-    private boolean isPermitAllPath(String requestURI) {
-        for (String path : PERMIT_ALL_PATHS) {
-            if (pathMatcher.match(path, requestURI)) {
-                return true;
+    private AccessLogRecorder.Outcome authenticateFromDatabase(HttpServletRequest request, JwtUtil.TokenClaims claims) {
+        try {
+            UserDetails userDetails = userDetailsService.loadUserByUsername(claims.getUsername());
+
+            if (!jwtUtil.validateClaims(claims, userDetails.getUsername())) {
+                return AccessLogRecorder.Outcome.INVALID_TOKEN;
             }
+            UsernamePasswordAuthenticationToken authentication =
+                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            return AccessLogRecorder.Outcome.AUTHENTICATED;
+        } catch (UsernameNotFoundException e) {
+            // 继续执行过滤器链，让全局异常处理器处理这个异常
+            return AccessLogRecorder.Outcome.USER_NOT_FOUND;
+        } catch (Exception e) {
+            log.error("用户认证过程中发生错误: {}", e.getMessage());
+            return AccessLogRecorder.Outcome.ERROR;
+        }
+    }
+
+    /**
+     * 令牌声明认证：直接使用令牌中的userId和role构建权限，不查询数据库
+     * 用户禁用、删除或角色变更已通过令牌版本号校验拦截
+     */
+    private AccessLogRecorder.Outcome authenticateFromClaims(HttpServletRequest request, JwtUtil.TokenClaims claims) {
+        String username = claims.getUsername();
+        try {
+            List<SimpleGrantedAuthority> authorities = roleAuthorityMapper.buildAuthorities(claims.getRole(), username);
+            UserDetails userDetails = new User(username, "", authorities);
+            UsernamePasswordAuthenticationToken authentication =
+                    new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            return AccessLogRecorder.Outcome.AUTHENTICATED;
+        } catch (Exception e) {
+            log.error("用户认证过程中发生错误: {}", e.getMessage());
+            return AccessLogRecorder.Outcome.ERROR;
         }
-        return false;
+    }
+
+    /**
+     * 拒绝已失效的令牌
+     */
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.getWriter().write("Token has been invalidated");
+    }
+
+    /**
+     * 写入一条访问日志，不记录令牌内容
+     */
+    private void recordAccess(HttpServletRequest request, HttpServletResponse response, String username,
+                              AccessLogRecorder.Outcome outcome, long startNanos, long authNanos) {
+        accessLogRecorder.record(request.getMethod(), request.getRequestURI(), username, outcome,
+                response.getStatus(), startNanos, authNanos, request.getRemoteAddr());
     }
 }
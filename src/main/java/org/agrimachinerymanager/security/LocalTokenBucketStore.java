@@ -0,0 +1,51 @@
+package org.agrimachinerymanager.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 本地内存令牌桶存储
+ * 与Redis脚本使用相同的补充和扣减规则，Redis不可用时作为单节点降级限流，也用作测试中的Redis替身
+ */
+public class LocalTokenBucketStore implements TokenBucketStore {
+
+    private final Cache<String, double[]> buckets;
+
+    private final LongSupplier clock;
+
+    public LocalTokenBucketStore(long maxSize) {
+        this(maxSize, System::currentTimeMillis);
+    }
+
+    public LocalTokenBucketStore(long maxSize, LongSupplier clock) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build();
+        this.clock = clock;
+    }
+
+    @Override
+    public Grant acquire(String key, int capacity, double refillPerSecond, int lease) {
+        // 桶状态：[0]剩余令牌 [1]上次更新时间
+        double[] bucket = buckets.get(key, k -> new double[]{capacity, clock.getAsLong()});
+        synchronized (bucket) {
+            long now = clock.getAsLong();
+            double tokens = Math.min(capacity, bucket[0] + Math.max(0, now - bucket[1]) * refillPerSecond / 1000);
+            int granted = 0;
+            if (tokens >= lease * 2.0) {
+                granted = lease;
+            } else if (tokens >= 1) {
+                granted = 1;
+            }
+            tokens -= granted;
+            bucket[0] = tokens;
+            bucket[1] = now;
+            long retryAfter = granted == 0 ? (long) Math.ceil((1 - tokens) * 1000 / refillPerSecond) : 0;
+            return new Grant(granted, (long) Math.floor(tokens), retryAfter);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.agrimachinerymanager.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 免认证路径匹配器
+ * 免认证路径的唯一定义处，JWT过滤器和Spring Security过滤链共用
+ * 启动时将路径模式预编译为：精确路径哈希集合 + "/**"前缀列表 + 其余通配模式的PathPattern
+ */
+@Component
+public class PermitAllPathMatcher implements RequestMatcher {
+
+    /**
+     * 不需要认证的路径列表
+     */
+    public static final List<String> PERMIT_ALL_PATHS = Collections.unmodifiableList(Arrays.asList(
+            // 登录相关路径
+            "/auth/login",
+            "/auth/logout",
+            "/auth/refresh",
+            "/api/auth/login",
+            "/api/auth/logout",
+            "/api/auth/refresh",
+            // 接口文档相关路径
+            "/doc.html",
+            "/swagger-ui.html",
+            "/swagger-ui/**",
+            "/v3/api-docs/**",
+            "/swagger-resources/**",
+            "/webjars/**"
+    ));
+
+    // 精确匹配的路径
+    private final Set<String> exactPaths = new HashSet<>();
+
+    // "/**"结尾的模式去掉"/**"后的前缀
+    private final List<String> prefixes = new ArrayList<>();
+
+    // 其余含通配符的模式
+    private final List<PathPattern> patterns = new ArrayList<>();
+
+    public PermitAllPathMatcher() {
+        PathPatternParser parser = new PathPatternParser();
+        for (String path : PERMIT_ALL_PATHS) {
+            if (path.endsWith("/**") && !hasWildcard(path.substring(0, path.length() - 3))) {
+                prefixes.add(path.substring(0, path.length() - 3));
+            } else if (hasWildcard(path)) {
+                patterns.add(parser.parse(path));
+            } else {
+                exactPaths.add(path);
+            }
+        }
+    }
+
+    /**
+     * 检查路径是否不需要认证
+     * @param path 去掉上下文路径后的请求路径
+     * @return 如果不需要认证返回true，否则返回false
+     */
+    public boolean matches(String path) {
+        if (exactPaths.contains(path)) {
+            return true;
+        }
+        for (String prefix : prefixes) {
+            // "/swagger-ui/**" 同时匹配 "/swagger-ui" 和 "/swagger-ui/xxx"
+            if (path.startsWith(prefix)
+                    && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/')) {
+                return true;
+            }
+        }
+        if (!patterns.isEmpty()) {
+            PathContainer container = PathContainer.parsePath(path);
+            for (PathPattern pattern : patterns) {
+                if (pattern.matches(container)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (contextPath != null && !contextPath.isEmpty() && path.startsWith(contextPath)) {
+            path = path.substring(contextPath.length());
+        }
+        return matches(path);
+    }
+
+    private static boolean hasWildcard(String path) {
+        return path.indexOf('*') >= 0 || path.indexOf('?') >= 0 || path.indexOf('{') >= 0;
+    }
+}
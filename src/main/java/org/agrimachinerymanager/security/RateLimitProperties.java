@@ -0,0 +1,84 @@
+package org.agrimachinerymanager.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 限流配置
+ * 按路由分组配置按IP和按用户的令牌桶，分组按配置顺序匹配，命中第一个即停止
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * 是否启用限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地预取令牌的有效期（毫秒），过期未用完的令牌直接丢弃
+     */
+    private long leaseTtl = 1000;
+
+    /**
+     * 路由分组，键为分组名称
+     */
+    private Map<String, Group> groups = new LinkedHashMap<>();
+
+    /**
+     * 路由分组
+     */
+    @Data
+    public static class Group {
+
+        /**
+         * 路径模式（PathPattern语法），如 /auth/login
+         */
+        private List<String> patterns = new ArrayList<>();
+
+        /**
+         * 请求方法，为空时匹配所有方法
+         */
+        private List<String> methods = new ArrayList<>();
+
+        /**
+         * 按客户端IP限流，为空时不限制
+         */
+        private Bucket perIp;
+
+        /**
+         * 按登录用户限流，为空时不限制
+         */
+        private Bucket perUser;
+    }
+
+    /**
+     * 令牌桶参数
+     */
+    @Data
+    public static class Bucket {
+
+        /**
+         * 桶容量，即允许的突发请求数
+         */
+        private int capacity = 10;
+
+        /**
+         * 每秒补充的令牌数
+         */
+        private double refillPerSecond = 1;
+
+        /**
+         * 桶内令牌充足时一次从Redis预取到本地的令牌数，1表示每个请求都访问Redis
+         */
+        private int lease = 1;
+    }
+}
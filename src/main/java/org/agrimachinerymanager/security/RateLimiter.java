@@ -0,0 +1,249 @@
+package org.agrimachinerymanager.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.agrimachinerymanager.exception.ServiceOverloadedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌桶限流器
+ * 桶状态保存在Redis中，由Lua脚本原子扣减，多节点共享同一个限额
+ * 桶内令牌充足时一次预取多个令牌到本地，明显未达上限的客户端大部分请求无需访问Redis
+ * Redis不可用时降级为本地内存令牌桶，只按单节点限流
+ */
+@Component
+public class RateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimiter.class);
+
+    // Redis中的限流键前缀
+    static final String RATE_LIMIT_PREFIX = "rate:";
+
+    public static final String DIMENSION_IP = "ip";
+
+    public static final String DIMENSION_USER = "user";
+
+    private final RateLimitProperties properties;
+
+    private final TokenBucketStore store;
+
+    // Redis不可用时的降级存储
+    private final LocalTokenBucketStore fallbackStore = new LocalTokenBucketStore(100000);
+
+    // 本地预取的令牌，键为桶键
+    private final Cache<String, AtomicInteger> leases;
+
+    private final List<CompiledGroup> groups = new ArrayList<>();
+
+    // 统计计数
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong denied = new AtomicLong();
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong storeCalls = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    public RateLimiter(RateLimitProperties properties, TokenBucketStore store) {
+        this.properties = properties;
+        this.store = store;
+        this.leases = Caffeine.newBuilder()
+                .maximumSize(100000)
+                .expireAfterWrite(properties.getLeaseTtl(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * 预编译路由分组的路径模式
+     */
+    @PostConstruct
+    public void init() {
+        PathPatternParser parser = new PathPatternParser();
+        for (Map.Entry<String, RateLimitProperties.Group> entry : properties.getGroups().entrySet()) {
+            RateLimitProperties.Group group = entry.getValue();
+            List<PathPattern> patterns = new ArrayList<>();
+            for (String pattern : group.getPatterns()) {
+                patterns.add(parser.parse(pattern));
+            }
+            Set<String> methods = new HashSet<>();
+            for (String method : group.getMethods()) {
+                methods.add(method.toUpperCase(Locale.ROOT));
+            }
+            groups.add(new CompiledGroup(entry.getKey(), patterns, methods));
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 查找请求所属的路由分组
+     * @param method 请求方法
+     * @param path 去掉上下文路径后的请求路径
+     * @return 路由分组名称，未命中时返回null
+     */
+    public String matchGroup(String method, String path) {
+        if (groups.isEmpty()) {
+            return null;
+        }
+        PathContainer container = PathContainer.parsePath(path);
+        for (CompiledGroup group : groups) {
+            if (!group.methods.isEmpty() && !group.methods.contains(method)) {
+                continue;
+            }
+            for (PathPattern pattern : group.patterns) {
+                if (pattern.matches(container)) {
+                    return group.name;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按指定维度尝试获取一个令牌
+     * @param groupName 路由分组名称
+     * @param dimension 限流维度：ip或user
+     * @param id 客户端IP或用户名
+     * @return 限流结果，分组或维度未配置时直接放行
+     */
+    public Decision tryAcquire(String groupName, String dimension, String id) {
+        RateLimitProperties.Bucket bucket = getBucket(groupName, dimension);
+        if (!properties.isEnabled() || bucket == null || id == null) {
+            return Decision.ALLOWED;
+        }
+        String key = RATE_LIMIT_PREFIX + groupName + ":" + dimension + ":" + id;
+
+        // 先消耗本地预取的令牌
+        AtomicInteger lease = leases.getIfPresent(key);
+        if (lease != null && lease.getAndDecrement() > 0) {
+            localHits.incrementAndGet();
+            allowed.incrementAndGet();
+            return Decision.ALLOWED;
+        }
+
+        int leaseSize = Math.max(1, bucket.getLease());
+        TokenBucketStore.Grant grant;
+        try {
+            storeCalls.incrementAndGet();
+            grant = store.acquire(key, bucket.getCapacity(), bucket.getRefillPerSecond(), leaseSize);
+        } catch (Exception e) {
+            fallbacks.incrementAndGet();
+            log.debug("限流存储不可用，降级为本地限流: {}", e.getMessage());
+            grant = fallbackStore.acquire(key, bucket.getCapacity(), bucket.getRefillPerSecond(), leaseSize);
+        }
+
+        if (grant.getGranted() <= 0) {
+            denied.incrementAndGet();
+            long retryAfterSeconds = Math.max(1, (grant.getRetryAfterMillis() + 999) / 1000);
+            return new Decision(false, bucket.getCapacity(), 0, retryAfterSeconds);
+        }
+        if (grant.getGranted() > 1) {
+            leases.put(key, new AtomicInteger(grant.getGranted() - 1));
+        }
+        allowed.incrementAndGet();
+        return new Decision(true, bucket.getCapacity(), grant.getRemaining(), 0);
+    }
+
+    /**
+     * 按指定维度检查限流，供业务代码调用（如按登录用户名限流）
+     * @throws ServiceOverloadedException 超出限额时抛出429
+     */
+    public void check(String groupName, String dimension, String id) {
+        Decision decision = tryAcquire(groupName, dimension, id);
+        if (!decision.isAllowed()) {
+            throw new ServiceOverloadedException(429, "请求过于频繁，请稍后重试", decision.getRetryAfterSeconds());
+        }
+    }
+
+    /**
+     * 获取限流统计
+     * @return 放行、拒绝、本地命中、存储访问及降级次数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", properties.isEnabled());
+        result.put("groups", properties.getGroups().keySet());
+        result.put("allowed", allowed.get());
+        result.put("denied", denied.get());
+        result.put("localHits", localHits.get());
+        result.put("storeCalls", storeCalls.get());
+        result.put("fallbacks", fallbacks.get());
+        return result;
+    }
+
+    private RateLimitProperties.Bucket getBucket(String groupName, String dimension) {
+        RateLimitProperties.Group group = properties.getGroups().get(groupName);
+        if (group == null) {
+            return null;
+        }
+        return DIMENSION_USER.equals(dimension) ? group.getPerUser() : group.getPerIp();
+    }
+
+    /**
+     * 限流结果
+     */
+    public static final class Decision {
+
+        static final Decision ALLOWED = new Decision(true, 0, 0, 0);
+
+        private final boolean allowed;
+        private final int limit;
+        private final long remaining;
+        private final long retryAfterSeconds;
+
+        Decision(boolean allowed, int limit, long remaining, long retryAfterSeconds) {
+            this.allowed = allowed;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public long getRemaining() {
+            return remaining;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    /**
+     * 预编译的路由分组
+     */
+    private static final class CompiledGroup {
+        private final String name;
+        private final List<PathPattern> patterns;
+        private final Set<String> methods;
+
+        private CompiledGroup(String name, List<PathPattern> patterns, Set<String> methods) {
+            this.name = name;
+            this.patterns = patterns;
+            this.methods = methods;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.agrimachinerymanager.security;
+
+import org.agrimachinerymanager.common.util.RedisCircuitBreaker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 基于Redis的令牌桶存储
+ * 通过Lua脚本一次往返原子完成补充和扣减，时间取Redis服务器时间，避免各节点时钟不一致
+ * Redis熔断期间直接抛出异常，由RateLimiter降级为本地限流
+ */
+@Component
+public class RedisTokenBucketStore implements TokenBucketStore {
+
+    // 令牌桶脚本：KEYS[1]桶键（哈希，tokens为剩余令牌，ts为上次更新时间）
+    // ARGV[1]桶容量 ARGV[2]每秒补充令牌数 ARGV[3]期望获取的令牌数
+    // 返回 {获取数, 剩余令牌数, 重试等待毫秒数}
+    private static final String TOKEN_BUCKET_SCRIPT =
+            "local capacity = tonumber(ARGV[1]) "
+                    + "local rate = tonumber(ARGV[2]) "
+                    + "local lease = tonumber(ARGV[3]) "
+                    + "local time = redis.call('TIME') "
+                    + "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) "
+                    + "local data = redis.call('HMGET', KEYS[1], 'tokens', 'ts') "
+                    + "local tokens = tonumber(data[1]) "
+                    + "local ts = tonumber(data[2]) "
+                    + "if tokens == nil or ts == nil then tokens = capacity ts = now end "
+                    + "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000) "
+                    + "local granted = 0 "
+                    + "if tokens >= lease * 2 then granted = lease elseif tokens >= 1 then granted = 1 end "
+                    + "tokens = tokens - granted "
+                    + "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now) "
+                    + "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate * 1000) + 1000) "
+                    + "local retry = 0 "
+                    + "if granted == 0 then retry = math.ceil((1 - tokens) * 1000 / rate) end "
+                    + "return {granted, math.floor(tokens), retry}";
+
+    // 脚本返回数组，结果解析为列表
+    @SuppressWarnings("unchecked")
+    private static final RedisScript<List<Object>> TOKEN_BUCKET =
+            (RedisScript<List<Object>>) (RedisScript<?>) RedisScript.of(TOKEN_BUCKET_SCRIPT, List.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Override
+    public Grant acquire(String key, int capacity, double refillPerSecond, int lease) {
+        List<?> result = redisCircuitBreaker.execute(() -> stringRedisTemplate.execute(TOKEN_BUCKET,
+                Collections.singletonList(key),
+                String.valueOf(capacity), String.valueOf(refillPerSecond), String.valueOf(lease)), () -> {
+                    throw new IllegalStateException("Redis不可用");
+                });
+        if (result == null || result.size() < 3) {
+            throw new IllegalStateException("令牌桶脚本返回结果无效");
+        }
+        return new Grant(((Number) result.get(0)).intValue(), ((Number) result.get(1)).longValue(),
+                ((Number) result.get(2)).longValue());
+    }
+}
@@ -0,0 +1,74 @@
+package org.agrimachinerymanager.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 角色与权限的映射
+ * 数据库认证和令牌声明认证共用同一套角色权限规则
+ */
+@Component
+public class RoleAuthorityMapper {
+
+    private static final Logger log = LoggerFactory.getLogger(RoleAuthorityMapper.class);
+
+    /**
+     * 根据角色代码构建权限列表
+     * @param roleCode 角色代码（1-管理员，2-操作员）
+     * @param username 用户名
+     * @return 权限列表
+     */
+    public List<SimpleGrantedAuthority> buildAuthorities(Integer roleCode, String username) {
+        List<SimpleGrantedAuthority> authorities = new ArrayList<>();
+        if (roleCode == null) {
+            return authorities;
+        }
+
+        // 根据role字段的值（1-管理员，2-操作员）设置对应的角色名称
+        String roleName;
+        if (roleCode == 1) {
+            roleName = "ADMIN";
+        } else if (roleCode == 2) {
+            roleName = "OPERATOR";
+        } else {
+            roleName = "USER";
+        }
+
+        // 添加角色权限，前缀"ROLE_"是Spring Security的约定
+        authorities.add(new SimpleGrantedAuthority("ROLE_" + roleName));
+        log.debug("🔑 为用户 {} 添加角色权限: ROLE_{}", username, roleName);
+
+        // 根据角色添加具体的操作权限
+        addPermissionsByRole(authorities, roleCode, username);
+        return authorities;
+    }
+
+    /**
+     * 根据角色添加具体的操作权限
+     * @param authorities 权限列表
+     * @param roleCode 角色代码
+     * @param username 用户名
+     */
+    private void addPermissionsByRole(List<SimpleGrantedAuthority> authorities, Integer roleCode, String username) {
+        // 管理员角色拥有所有权限
+        if (roleCode == 1) {
+            authorities.add(new SimpleGrantedAuthority("ALL_ACCESS"));
+            authorities.add(new SimpleGrantedAuthority("MANAGE_USERS"));
+            authorities.add(new SimpleGrantedAuthority("MANAGE_MACHINES"));
+            authorities.add(new SimpleGrantedAuthority("VIEW_REPORTS"));
+            log.debug("👑 为管理员用户 {} 添加所有操作权限", username);
+        }
+        // 操作员角色拥有基本操作权限
+        else if (roleCode == 2) {
+            authorities.add(new SimpleGrantedAuthority("OPERATE_MACHINES"));
+            authorities.add(new SimpleGrantedAuthority("VIEW_MACHINES"));
+            authorities.add(new SimpleGrantedAuthority("VIEW_REPORTS"));
+            log.debug("🔧 为操作员用户 {} 添加操作权限", username);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.agrimachinerymanager.security;
+
+/**
+ * 令牌桶存储
+ * 桶状态的读取、补充和扣减必须原子完成
+ */
+public interface TokenBucketStore {
+
+    /**
+     * 从令牌桶中获取令牌
+     * 桶内令牌不少于两倍预取数时一次取走预取数，否则最多取一个，避免接近上限时本地预取放大突发
+     * @param key 桶的键
+     * @param capacity 桶容量
+     * @param refillPerSecond 每秒补充的令牌数
+     * @param lease 期望获取的令牌数
+     * @return 获取结果
+     */
+    Grant acquire(String key, int capacity, double refillPerSecond, int lease);
+
+    /**
+     * 令牌获取结果
+     */
+    final class Grant {
+
+        // 获取到的令牌数，0表示被限流
+        private final int granted;
+
+        // 扣减后桶内剩余令牌数
+        private final long remaining;
+
+        // 被限流时距离下一个令牌可用的时间（毫秒）
+        private final long retryAfterMillis;
+
+        public Grant(int granted, long remaining, long retryAfterMillis) {
+            this.granted = granted;
+            this.remaining = remaining;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public int getGranted() {
+            return granted;
+        }
+
+        public long getRemaining() {
+            return remaining;
+        }
+
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+    }
+}
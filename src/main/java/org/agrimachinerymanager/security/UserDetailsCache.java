@@ -0,0 +1,261 @@
+package org.agrimachinerymanager.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.agrimachinerymanager.common.util.RedisCircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 用户认证信息两级缓存
+ * 一级缓存为本地Caffeine缓存（容量+过期时间淘汰），二级缓存为Redis（紧凑二进制格式，见CachedUserSerializer）
+ * 用户信息变更时通过Redis发布订阅通知所有节点立即失效本地缓存
+ * Redis不可用时失效通知记入待重试队列，恢复后重新删除二级缓存并通知；在此之前其他节点可能继续使用旧数据，
+ * 最长为二级缓存过期时间加本地缓存过期时间，禁用、删除用户或修改角色时同时吊销的令牌不受此影响
+ * 只缓存JWT认证需要的用户ID、用户名和角色，不缓存密码哈希，生成的UserDetails密码为空，不能用于密码认证
+ */
+@Component
+public class UserDetailsCache implements MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDetailsCache.class);
+
+    // Redis中的用户认证信息键前缀
+    private static final String USER_DETAILS_PREFIX = "jwt:user:details:";
+
+    // 缓存失效通知频道
+    private static final String INVALIDATE_CHANNEL = "jwt:user:details:invalidate";
+
+    @Value("${jwt.user-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${jwt.user-cache.max-size:10000}")
+    private long maxSize;
+
+    // 本地缓存过期时间（秒）
+    @Value("${jwt.user-cache.local-ttl:60}")
+    private long localTtl;
+
+    // Redis缓存过期时间（秒）
+    @Value("${jwt.user-cache.redis-ttl:600}")
+    private long redisTtl;
+
+    @Autowired
+    private RedisTemplate<String, CachedUser> userDetailsRedisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Autowired
+    private RoleAuthorityMapper roleAuthorityMapper;
+
+    private Cache<String, CachedUser> localCache;
+
+    // 二级缓存命中与未命中计数
+    private final AtomicLong redisHits = new AtomicLong();
+    private final AtomicLong redisMisses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // 删除二级缓存或发布通知失败、等待Redis恢复后重试的用户名，条数不超过用户数
+    private final Set<String> pendingInvalidations = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 初始化本地缓存并订阅失效通知
+     */
+    @PostConstruct
+    public void init() {
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtl))
+                .recordStats()
+                .build();
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 获取用户认证信息，依次查询本地缓存、Redis缓存，最后回源加载
+     * @param username 用户名
+     * @param loader 回源加载函数，用户不存在时应抛出异常，异常结果不会被缓存
+     * @return 用户认证信息
+     */
+    public UserDetails get(String username, Function<String, CachedUser> loader) {
+        if (!enabled) {
+            return toUserDetails(loader.apply(username));
+        }
+        CachedUser cachedUser = localCache.get(username, key -> loadFromRedis(key, loader));
+        return toUserDetails(cachedUser);
+    }
+
+    /**
+     * 失效指定用户的缓存，并通知集群内其他节点
+     * Redis不可用时记入待重试队列，由reconcileInvalidations在恢复后重新删除和通知
+     * @param username 用户名
+     */
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        localCache.invalidate(username);
+        if (!redisCircuitBreaker.run(() -> publishInvalidation(username))) {
+            pendingInvalidations.add(username);
+            log.warn("Redis不可用，用户 [{}] 的缓存失效通知等待重试", username);
+        }
+    }
+
+    /**
+     * Redis恢复后重试失败的缓存失效，遇到失败时停止，等待下次重试
+     */
+    @Scheduled(fixedDelayString = "${redis-guard.reconcile-interval:1000}")
+    public void reconcileInvalidations() {
+        if (pendingInvalidations.isEmpty() || !redisCircuitBreaker.isClosed()) {
+            return;
+        }
+        int count = 0;
+        for (String username : pendingInvalidations) {
+            if (!redisCircuitBreaker.run(() -> publishInvalidation(username))) {
+                return;
+            }
+            pendingInvalidations.remove(username);
+            count++;
+        }
+        log.info("已重试{}个用户的缓存失效通知", count);
+    }
+
+    /**
+     * 删除二级缓存并通知其他节点失效本地缓存
+     */
+    private void publishInvalidation(String username) {
+        userDetailsRedisTemplate.delete(USER_DETAILS_PREFIX + username);
+        stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, username);
+    }
+
+    /**
+     * 接收其他节点发布的缓存失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String username = new String(message.getBody(), StandardCharsets.UTF_8);
+        localCache.invalidate(username);
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * 获取缓存统计信息
+     * @return 命中、未命中、淘汰等计数
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = localCache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("localSize", localCache.estimatedSize());
+        result.put("localHits", stats.hitCount());
+        result.put("localMisses", stats.missCount());
+        result.put("localEvictions", stats.evictionCount());
+        result.put("redisHits", redisHits.get());
+        result.put("redisMisses", redisMisses.get());
+        result.put("invalidations", invalidations.get());
+        result.put("pendingInvalidations", pendingInvalidations.size());
+        return result;
+    }
+
+    /**
+     * 本地缓存未命中时查询Redis，Redis未命中或不可用时回源加载并回填
+     */
+    private CachedUser loadFromRedis(String username, Function<String, CachedUser> loader) {
+        String key = USER_DETAILS_PREFIX + username;
+        // Redis熔断或访问失败时直接查询数据库
+        CachedUser value = redisCircuitBreaker.execute(() -> userDetailsRedisTemplate.opsForValue().get(key),
+                () -> null);
+        if (value != null) {
+            redisHits.incrementAndGet();
+            return value;
+        }
+        redisMisses.incrementAndGet();
+
+        CachedUser cachedUser = loader.apply(username);
+        redisCircuitBreaker.run(() ->
+                userDetailsRedisTemplate.opsForValue().set(key, cachedUser, redisTtl, TimeUnit.SECONDS));
+        return cachedUser;
+    }
+
+    /**
+     * 转换为Spring Security的UserDetails，权限由角色映射生成
+     * 令牌已完成认证，不需要密码，凭证为空字符串
+     */
+    private UserDetails toUserDetails(CachedUser cachedUser) {
+        return new User(cachedUser.getUsername(), "",
+                roleAuthorityMapper.buildAuthorities(cachedUser.getRole(), cachedUser.getUsername()));
+    }
+
+    /**
+     * 内部类：缓存的用户认证信息
+     */
+    public static class CachedUser {
+        private Long userId;
+        private String username;
+        private Integer role;
+
+        public CachedUser() {
+        }
+
+        public CachedUser(Long userId, String username, Integer role) {
+            this.userId = userId;
+            this.username = username;
+            this.role = role;
+        }
+
+        // Getters and Setters
+        public Long getUserId() {
+            return userId;
+        }
+
+        public void setUserId(Long userId) {
+            this.userId = userId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public Integer getRole() {
+            return role;
+        }
+
+        public void setRole(Integer role) {
+            this.role = role;
+        }
+    }
+}
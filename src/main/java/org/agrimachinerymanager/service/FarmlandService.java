@@ -1,6 +1,10 @@
 package org.agrimachinerymanager.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.Farmland;
 import java.util.List;
 import java.util.Map;
@@ -12,9 +16,10 @@ public interface FarmlandService {
     
     /**
      * 获取所有地块信息
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 地块信息列表
      */
-    List<Farmland> getAllFarmlands();
+    List<Farmland> getAllFarmlands(SparseFields fields);
     
     /**
      * 根据ID获取地块信息
@@ -36,6 +41,20 @@ public interface FarmlandService {
      * @return 是否更新成功
      */
     boolean updateFarmland(Farmland farmland);
+
+    /**
+     * 批量新增地块信息
+     * @param farmlandList 地块信息列表
+     * @return 批量结果，校验或写入失败的记录逐条列出原因
+     */
+    BatchResult addFarmlandBatch(List<Farmland> farmlandList);
+
+    /**
+     * 批量更新地块信息
+     * @param farmlandList 地块信息列表，每条需包含ID
+     * @return 批量结果，校验或写入失败的记录逐条列出原因
+     */
+    BatchResult updateFarmlandBatch(List<Farmland> farmlandList);
     
     /**
      * 删除地块信息
@@ -49,7 +68,21 @@ public interface FarmlandService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
-    Page<Farmland> getFarmlandPage(int pageNum, int pageSize, Map<String, Object> params);
+    Page<Farmland> getFarmlandPage(int pageNum, int pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields);
+
+    /**
+     * 游标分页查询地块
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    CursorPage<Farmland> getFarmlandCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields);
 }
\ No newline at end of file
@@ -1,6 +1,10 @@
 package org.agrimachinerymanager.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.Machinery;
 import java.util.List;
 import java.util.Map;
@@ -12,9 +16,10 @@ public interface MachineryService {
     
     /**
      * 获取所有农机档案
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 农机档案列表
      */
-    List<Machinery> getAllMachinery();
+    List<Machinery> getAllMachinery(SparseFields fields);
     
     /**
      * 根据ID获取农机档案
@@ -36,6 +41,20 @@ public interface MachineryService {
      * @return 是否更新成功
      */
     boolean updateMachinery(Machinery machinery);
+
+    /**
+     * 批量新增农机档案
+     * @param machineryList 农机档案列表
+     * @return 批量结果，校验或写入失败的记录逐条列出原因
+     */
+    BatchResult addMachineryBatch(List<Machinery> machineryList);
+
+    /**
+     * 批量更新农机档案
+     * @param machineryList 农机档案列表，每条需包含ID
+     * @return 批量结果，校验或写入失败的记录逐条列出原因
+     */
+    BatchResult updateMachineryBatch(List<Machinery> machineryList);
     
     /**
      * 删除农机档案
@@ -49,7 +68,21 @@ public interface MachineryService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
-    Page<Machinery> getMachineryPage(int pageNum, int pageSize, Map<String, Object> params);
+    Page<Machinery> getMachineryPage(int pageNum, int pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields);
+
+    /**
+     * 游标分页查询农机
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    CursorPage<Machinery> getMachineryCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields);
 }
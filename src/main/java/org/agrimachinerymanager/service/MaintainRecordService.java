@@ -1,10 +1,15 @@
 package org.agrimachinerymanager.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.MaintainRecord;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 农机维护记录服务接口
@@ -13,9 +18,10 @@ public interface MaintainRecordService {
 
     /**
      * 获取所有农机维护记录
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 农机维护记录列表
      */
-    List<MaintainRecord> getAllMaintainRecords();
+    List<MaintainRecord> getAllMaintainRecords(SparseFields fields);
 
     /**
      * 根据ID获取农机维护记录
@@ -38,6 +44,20 @@ public interface MaintainRecordService {
      */
     boolean updateMaintainRecord(MaintainRecord maintainRecord);
 
+    /**
+     * 批量新增农机维护记录
+     * @param maintainRecordList 农机维护记录列表
+     * @return 批量结果，校验或写入失败的记录逐条列出原因
+     */
+    BatchResult addMaintainRecordBatch(List<MaintainRecord> maintainRecordList);
+
+    /**
+     * 批量更新农机维护记录
+     * @param maintainRecordList 农机维护记录列表，每条需包含ID
+     * @return 批量结果，校验或写入失败的记录逐条列出原因
+     */
+    BatchResult updateMaintainRecordBatch(List<MaintainRecord> maintainRecordList);
+
     /**
      * 删除农机维护记录
      * @param id 记录ID
@@ -50,9 +70,30 @@ public interface MaintainRecordService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
-    Page<MaintainRecord> getMaintainRecordPage(int pageNum, int pageSize, Map<String, Object> params);
+    Page<MaintainRecord> getMaintainRecordPage(int pageNum, int pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields);
+
+    /**
+     * 游标分页查询维护记录
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    CursorPage<MaintainRecord> getMaintainRecordCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields);
+
+    /**
+     * 流式导出维护记录，按维护时间倒序逐条回调，不在内存中保留整个结果集
+     * @param params 查询参数，与分页查询相同
+     * @param consumer 每条记录的处理函数
+     */
+    void streamMaintainRecords(Map<String, Object> params, Consumer<MaintainRecord> consumer);
 
     /**
      * 根据农机ID查询维护记录
@@ -1,9 +1,14 @@
 package org.agrimachinerymanager.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.Notification;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 通知提醒服务接口
@@ -12,9 +17,10 @@ public interface NotificationService {
     
     /**
      * 获取所有通知提醒
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 通知提醒列表
      */
-    List<Notification> getAllNotifications();
+    List<Notification> getAllNotifications(SparseFields fields);
     
     /**
      * 根据ID获取通知提醒
@@ -36,6 +42,20 @@ public interface NotificationService {
      * @return 是否更新成功
      */
     boolean updateNotification(Notification notification);
+
+    /**
+     * 批量新增通知提醒
+     * @param notificationList 通知提醒列表
+     * @return 批量结果，校验或写入失败的记录逐条列出原因
+     */
+    BatchResult addNotificationBatch(List<Notification> notificationList);
+
+    /**
+     * 批量更新通知提醒
+     * @param notificationList 通知提醒列表，每条需包含ID
+     * @return 批量结果，校验或写入失败的记录逐条列出原因
+     */
+    BatchResult updateNotificationBatch(List<Notification> notificationList);
     
     /**
      * 删除通知提醒
@@ -49,9 +69,30 @@ public interface NotificationService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
-    Page<Notification> getNotificationPage(int pageNum, int pageSize, Map<String, Object> params);
+    Page<Notification> getNotificationPage(int pageNum, int pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields);
+
+    /**
+     * 游标分页查询通知
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    CursorPage<Notification> getNotificationCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields);
+
+    /**
+     * 流式导出通知，按创建时间倒序逐条回调，不在内存中保留整个结果集
+     * @param params 查询参数，与分页查询相同
+     * @param consumer 每条记录的处理函数
+     */
+    void streamNotifications(Map<String, Object> params, Consumer<Notification> consumer);
     
     /**
      * 根据用户ID获取通知提醒列表
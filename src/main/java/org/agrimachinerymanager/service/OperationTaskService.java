@@ -1,10 +1,14 @@
 package org.agrimachinerymanager.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.OperationTask;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 作业调度任务服务接口
@@ -13,9 +17,10 @@ public interface OperationTaskService {
 
     /**
      * 获取所有作业调度任务
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 作业调度任务列表
      */
-    List<OperationTask> getAllOperationTasks();
+    List<OperationTask> getAllOperationTasks(SparseFields fields);
 
     /**
      * 根据ID获取作业调度任务
@@ -50,9 +55,30 @@ public interface OperationTaskService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
-    Page<OperationTask> getOperationTaskPage(int pageNum, int pageSize, Map<String, Object> params);
+    Page<OperationTask> getOperationTaskPage(int pageNum, int pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields);
+
+    /**
+     * 游标分页查询作业调度任务
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    CursorPage<OperationTask> getOperationTaskCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields);
+
+    /**
+     * 流式导出作业调度任务，按创建时间倒序逐条回调，不在内存中保留整个结果集
+     * @param params 查询参数，与分页查询相同
+     * @param consumer 每条记录的处理函数
+     */
+    void streamOperationTasks(Map<String, Object> params, Consumer<OperationTask> consumer);
     
     /**
      * 根据农机ID查询作业调度任务
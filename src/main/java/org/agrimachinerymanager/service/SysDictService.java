@@ -1,6 +1,7 @@
 package org.agrimachinerymanager.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.SysDict;
 
 import java.util.List;
@@ -13,9 +14,10 @@ public interface SysDictService {
 
     /**
      * 获取所有数据字典
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 数据字典列表
      */
-    List<SysDict> getAllSysDicts();
+    List<SysDict> getAllSysDicts(SparseFields fields);
 
     /**
      * 根据ID获取数据字典
@@ -50,9 +52,10 @@ public interface SysDictService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
-    Page<SysDict> getSysDictPage(int pageNum, int pageSize, Map<String, Object> params);
+    Page<SysDict> getSysDictPage(int pageNum, int pageSize, Map<String, Object> params, SparseFields fields);
     
     /**
      * 根据字典类型获取字典数据
@@ -1,10 +1,14 @@
 package org.agrimachinerymanager.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.SysOperateLog;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 系统操作日志服务接口
@@ -13,9 +17,10 @@ public interface SysOperateLogService {
 
     /**
      * 获取所有系统操作日志
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 系统操作日志列表
      */
-    List<SysOperateLog> getAllSysOperateLogs();
+    List<SysOperateLog> getAllSysOperateLogs(SparseFields fields);
 
     /**
      * 根据ID获取系统操作日志
@@ -49,9 +54,30 @@ public interface SysOperateLogService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
-    Page<SysOperateLog> getSysOperateLogPage(Integer pageNum, Integer pageSize, Map<String, Object> params);
+    Page<SysOperateLog> getSysOperateLogPage(Integer pageNum, Integer pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields);
+
+    /**
+     * 游标分页查询操作日志
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    CursorPage<SysOperateLog> getSysOperateLogCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields);
+
+    /**
+     * 流式导出操作日志，按操作时间倒序逐条回调，不在内存中保留整个结果集
+     * @param params 查询参数，与分页查询相同
+     * @param consumer 每条记录的处理函数
+     */
+    void streamSysOperateLogs(Map<String, Object> params, Consumer<SysOperateLog> consumer);
 
     /**
      * 根据用户ID查询系统操作日志
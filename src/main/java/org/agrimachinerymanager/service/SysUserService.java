@@ -1,6 +1,10 @@
 package org.agrimachinerymanager.service;
 
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.RedisLoginManager;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.dto.LoginDTO;
 import org.agrimachinerymanager.entity.SysUser;
 import org.agrimachinerymanager.vo.LoginVo;
@@ -15,9 +19,10 @@ public interface SysUserService {
 
     /**
      * 获取所有系统用户
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 用户列表
      */
-    List<SysUser> getAllSysUsers();
+    List<SysUser> getAllSysUsers(SparseFields fields);
 
     /**
      * 根据ID获取用户信息
@@ -52,16 +57,39 @@ public interface SysUserService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
-    Page<SysUser> getSysUserPage(int pageNum, int pageSize, Map<String, Object> params);
+    Page<SysUser> getSysUserPage(int pageNum, int pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields);
+
+    /**
+     * 游标分页查询用户
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    CursorPage<SysUser> getSysUserCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields);
     
     /**
      * 用户登录
      * @param loginDTO 登录信息
+     * @param clientIp 客户端IP
+     * @param device 客户端设备（User-Agent）
      * @return 登录结果
      */
-    LoginVo login(LoginDTO loginDTO);
+    LoginVo login(LoginDTO loginDTO, String clientIp, String device);
+    
+    /**
+     * 使用刷新令牌换发新的访问令牌和刷新令牌
+     * @param refreshToken 刷新令牌
+     * @return 新的令牌对
+     */
+    LoginVo refreshToken(String refreshToken);
     
     /**
      * 根据用户名获取用户信息
@@ -69,4 +97,39 @@ public interface SysUserService {
      * @return 用户信息
      */
     SysUser getSysUserByUsername(String username);
-}
\ No newline at end of file
+    
+    /**
+     * 退出所有设备，使用户已签发的所有令牌失效
+     * @param userId 用户ID
+     */
+    void logoutAllDevices(Long userId);
+    
+    /**
+     * 批量强制用户下线
+     * @param userIds 用户ID列表
+     * @return 下线的用户数
+     */
+    int forceLogoutUsers(List<Long> userIds);
+    
+    /**
+     * 按角色批量强制用户下线
+     * @param role 角色：1-管理员，2-操作员
+     * @return 下线的用户数
+     */
+    int forceLogoutByRole(Integer role);
+    
+    /**
+     * 分页查询在线会话
+     * @param pageNum 页码
+     * @param pageSize 每页条数
+     * @return 分页结果
+     */
+    Page<RedisLoginManager.UserLoginInfo> getOnlineSessionPage(int pageNum, int pageSize);
+    
+    /**
+     * 查询用户的全部登录会话
+     * @param userId 用户ID
+     * @return 会话列表
+     */
+    List<RedisLoginManager.UserLoginInfo> getUserSessions(Long userId);
+}
@@ -2,6 +2,13 @@ package org.agrimachinerymanager.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.BatchWriter;
+import org.agrimachinerymanager.common.util.CursorPagination;
+import org.agrimachinerymanager.common.util.PageCountManager;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.Farmland;
 import org.agrimachinerymanager.exception.BaseException;
 import org.agrimachinerymanager.mapper.FarmlandMapper;
@@ -9,6 +16,9 @@ import org.agrimachinerymanager.service.FarmlandService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,18 +28,29 @@ import java.util.Map;
 @Service
 public class FarmlandServiceImpl implements FarmlandService {
     
+    // 表名，用于分页总数缓存的失效和估算
+    private static final String TABLE_NAME = "farmland";
+
     @Autowired
     private FarmlandMapper farmlandMapper;
+
+    @Autowired
+    private PageCountManager pageCountManager;
+
+    @Autowired
+    private BatchWriter batchWriter;
     
     /**
      * 获取所有地块信息
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 地块信息列表
      */
     @Override
-    public List<Farmland> getAllFarmlands() {
+    public List<Farmland> getAllFarmlands(SparseFields fields) {
         // 使用MyBatis-Plus的QueryWrapper构建查询条件
         // 这里不添加条件，表示查询所有记录
         QueryWrapper<Farmland> queryWrapper = new QueryWrapper<>();
+        SparseFields.apply(queryWrapper, fields);
         // 添加按创建时间倒序排序
         queryWrapper.orderByDesc("create_time");
         
@@ -59,17 +80,7 @@ public class FarmlandServiceImpl implements FarmlandService {
     @Override
     public boolean addFarmland(Farmland farmland) {
         // 进行业务验证
-        if (farmland == null) {
-            throw new BaseException("地块信息不能为空");
-        }
-        
-        if (farmland.getLandCode() == null || farmland.getLandCode().trim().isEmpty()) {
-            throw new BaseException("地块编码不能为空");
-        }
-        
-        if (farmland.getName() == null || farmland.getName().trim().isEmpty()) {
-            throw new BaseException("地块名称不能为空");
-        }
+        validateFarmland(farmland);
         
         // 检查地块编码是否已存在
         QueryWrapper<Farmland> queryWrapper = new QueryWrapper<>();
@@ -84,7 +95,9 @@ public class FarmlandServiceImpl implements FarmlandService {
         farmland.setUpdateTime(LocalDateTime.now());
         
         // 调用mapper的insert方法插入数据
-        return farmlandMapper.insert(farmland) > 0;
+        boolean result = farmlandMapper.insert(farmland) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
     
     /**
@@ -123,7 +136,163 @@ public class FarmlandServiceImpl implements FarmlandService {
         // 设置更新时间
         farmland.setUpdateTime(LocalDateTime.now());
         // 调用mapper的updateById方法更新数据
-        return farmlandMapper.updateById(farmland) > 0;
+        boolean result = farmlandMapper.updateById(farmland) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
+    }
+
+    /**
+     * 批量新增地块信息
+     * 先逐条校验必填项，再用一次查询检查地块编码是否已存在，校验通过的记录分批写入
+     * @param farmlandList 地块信息列表
+     * @return 批量结果，包含每条失败记录的原因
+     */
+    @Override
+    public BatchResult addFarmlandBatch(List<Farmland> farmlandList) {
+        batchWriter.checkSize(farmlandList);
+        Map<Integer, String> errors = new HashMap<>();
+
+        // 校验必填项，并检查本批数据中的地块编码是否重复
+        Map<String, Integer> codeIndexes = new HashMap<>();
+        for (int i = 0; i < farmlandList.size(); i++) {
+            Farmland farmland = farmlandList.get(i);
+            try {
+                validateFarmland(farmland);
+            } catch (BaseException e) {
+                errors.put(i, e.getMessage());
+                continue;
+            }
+            if (codeIndexes.putIfAbsent(farmland.getLandCode(), i) != null) {
+                errors.put(i, "地块编码在本批数据中重复：" + farmland.getLandCode());
+            }
+        }
+
+        // 一次查询已存在的地块编码
+        for (Farmland existing : selectByCodes(codeIndexes.keySet())) {
+            Integer index = codeIndexes.get(existing.getLandCode());
+            if (index != null) {
+                errors.put(index, "地块编码已存在：" + existing.getLandCode());
+            }
+        }
+
+        // 设置创建时间和更新时间
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < farmlandList.size(); i++) {
+            if (!errors.containsKey(i)) {
+                farmlandList.get(i).setCreateTime(now);
+                farmlandList.get(i).setUpdateTime(now);
+            }
+        }
+
+        BatchResult result = batchWriter.insert(farmlandList, errors);
+        if (result.getSucceeded() > 0) {
+            pageCountManager.invalidate(TABLE_NAME);
+        }
+        return result;
+    }
+
+    /**
+     * 批量更新地块信息
+     * 用一次查询检查记录是否存在，再用一次查询检查变更的地块编码是否被其他地块使用，校验通过的记录分批写入
+     * @param farmlandList 地块信息列表，每条需包含ID
+     * @return 批量结果，包含每条失败记录的原因
+     */
+    @Override
+    public BatchResult updateFarmlandBatch(List<Farmland> farmlandList) {
+        batchWriter.checkSize(farmlandList);
+        Map<Integer, String> errors = new HashMap<>();
+
+        // 校验ID，并检查本批数据中的ID是否重复
+        Map<Long, Integer> idIndexes = new HashMap<>();
+        for (int i = 0; i < farmlandList.size(); i++) {
+            Farmland farmland = farmlandList.get(i);
+            if (farmland == null) {
+                errors.put(i, "地块信息不能为空");
+            } else if (farmland.getId() == null) {
+                errors.put(i, "地块ID不能为空");
+            } else if (idIndexes.putIfAbsent(farmland.getId(), i) != null) {
+                errors.put(i, "ID在本批数据中重复：" + farmland.getId());
+            }
+        }
+
+        // 一次查询检查记录是否存在，并收集变更的地块编码
+        Map<Long, Farmland> existingById = new HashMap<>();
+        if (!idIndexes.isEmpty()) {
+            for (Farmland existing : farmlandMapper.selectBatchIds(idIndexes.keySet())) {
+                existingById.put(existing.getId(), existing);
+            }
+        }
+        Map<String, Integer> codeIndexes = new HashMap<>();
+        for (int i = 0; i < farmlandList.size(); i++) {
+            if (errors.containsKey(i)) {
+                continue;
+            }
+            Farmland farmland = farmlandList.get(i);
+            Farmland existing = existingById.get(farmland.getId());
+            if (existing == null) {
+                errors.put(i, "未找到ID为" + farmland.getId() + "的地块信息");
+                continue;
+            }
+            String code = farmland.getLandCode();
+            if (code != null && !code.equals(existing.getLandCode()) && codeIndexes.putIfAbsent(code, i) != null) {
+                errors.put(i, "地块编码在本批数据中重复：" + code);
+            }
+        }
+
+        // 一次查询检查变更的地块编码是否被其他地块使用
+        for (Farmland conflict : selectByCodes(codeIndexes.keySet())) {
+            Integer index = codeIndexes.get(conflict.getLandCode());
+            if (index != null && !conflict.getId().equals(farmlandList.get(index).getId())) {
+                errors.put(index, "地块编码已被其他地块使用：" + conflict.getLandCode());
+            }
+        }
+
+        // 设置更新时间
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < farmlandList.size(); i++) {
+            if (!errors.containsKey(i)) {
+                farmlandList.get(i).setUpdateTime(now);
+            }
+        }
+
+        BatchResult result = batchWriter.updateById(farmlandList, errors);
+        if (result.getSucceeded() > 0) {
+            pageCountManager.invalidate(TABLE_NAME);
+        }
+        return result;
+    }
+
+    /**
+     * 校验新增地块信息的必填项
+     * @param farmland 地块信息
+     * @throws BaseException 必填项为空
+     */
+    private void validateFarmland(Farmland farmland) {
+        if (farmland == null) {
+            throw new BaseException("地块信息不能为空");
+        }
+        
+        if (farmland.getLandCode() == null || farmland.getLandCode().trim().isEmpty()) {
+            throw new BaseException("地块编码不能为空");
+        }
+        
+        if (farmland.getName() == null || farmland.getName().trim().isEmpty()) {
+            throw new BaseException("地块名称不能为空");
+        }
+    }
+
+    /**
+     * 按地块编码批量查询地块信息，只查询ID和地块编码
+     * @param codes 地块编码集合
+     * @return 已存在的地块信息
+     */
+    private List<Farmland> selectByCodes(Collection<String> codes) {
+        if (codes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        QueryWrapper<Farmland> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "land_code").in("land_code", codes);
+        return farmlandMapper.selectList(queryWrapper);
     }
     
     /**
@@ -149,7 +318,9 @@ public class FarmlandServiceImpl implements FarmlandService {
         // 如果有关联数据，可以抛出异常阻止删除
         
         // 调用mapper的deleteById方法删除数据
-        return farmlandMapper.deleteById(id) > 0;
+        boolean result = farmlandMapper.deleteById(id) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
     
     /**
@@ -157,15 +328,52 @@ public class FarmlandServiceImpl implements FarmlandService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
     @Override
-    public Page<Farmland> getFarmlandPage(int pageNum, int pageSize, Map<String, Object> params) {
-        // 创建分页对象
-        Page<Farmland> page = new Page<>(pageNum, pageSize);
+    public Page<Farmland> getFarmlandPage(int pageNum, int pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields) {
         // 创建查询条件
-        QueryWrapper<Farmland> queryWrapper = new QueryWrapper<>();
+        QueryWrapper<Farmland> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields);
+        
+        // 添加按创建时间倒序排序
+        queryWrapper.orderByDesc("create_time");
         
+        // 按统计方式执行分页查询
+        return pageCountManager.selectPage(farmlandMapper, TABLE_NAME, pageNum, pageSize, queryWrapper, params,
+                countMode);
+    }
+
+    /**
+     * 游标分页查询地块
+     * 按(创建时间, ID)倒序，从游标位置之后开始查找，翻页深度不影响查询代价
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数，与分页查询相同
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    @Override
+    public CursorPage<Farmland> getFarmlandCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields) {
+        QueryWrapper<Farmland> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields, "create_time");
+        CursorPagination.seek(queryWrapper, "create_time", cursor, pageSize);
+        List<Farmland> rows = farmlandMapper.selectList(queryWrapper);
+        return CursorPagination.page(rows, pageSize, Farmland::getCreateTime, Farmland::getId);
+    }
+
+    /**
+     * 根据查询参数构建分页查询条件，普通分页和游标分页共用
+     * @param params 查询参数
+     * @return 查询条件
+     */
+    private QueryWrapper<Farmland> buildPageQueryWrapper(Map<String, Object> params) {
+        QueryWrapper<Farmland> queryWrapper = new QueryWrapper<>();
+
         // 根据参数构建查询条件
         if (params != null) {
             // 地块编码
@@ -181,11 +389,7 @@ public class FarmlandServiceImpl implements FarmlandService {
                 queryWrapper.like("location", params.get("location"));
             }
         }
-        
-        // 添加按创建时间倒序排序
-        queryWrapper.orderByDesc("create_time");
-        
-        // 调用mapper的selectPage方法进行分页查询
-        return farmlandMapper.selectPage(page, queryWrapper);
+
+        return queryWrapper;
     }
 }
\ No newline at end of file
@@ -2,6 +2,13 @@ package org.agrimachinerymanager.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.BatchWriter;
+import org.agrimachinerymanager.common.util.CursorPagination;
+import org.agrimachinerymanager.common.util.PageCountManager;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.Machinery;
 import org.agrimachinerymanager.exception.BaseException;
 import org.agrimachinerymanager.mapper.MachineryMapper;
@@ -9,6 +16,9 @@ import org.agrimachinerymanager.service.MachineryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,18 +28,29 @@ import java.util.Map;
 @Service
 public class MachineryServiceImpl implements MachineryService {
     
+    // 表名，用于分页总数缓存的失效和估算
+    private static final String TABLE_NAME = "machinery";
+
     @Autowired
     private MachineryMapper machineryMapper;
+
+    @Autowired
+    private PageCountManager pageCountManager;
+
+    @Autowired
+    private BatchWriter batchWriter;
     
     /**
      * 获取所有农机档案
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 农机档案列表
      */
     @Override
-    public List<Machinery> getAllMachinery() {
+    public List<Machinery> getAllMachinery(SparseFields fields) {
         // 使用MyBatis-Plus的QueryWrapper构建查询条件
         // 这里不添加条件，表示查询所有记录
         QueryWrapper<Machinery> queryWrapper = new QueryWrapper<>();
+        SparseFields.apply(queryWrapper, fields);
         // 添加按创建时间倒序排序
         queryWrapper.orderByDesc("create_time");
         
@@ -59,17 +80,7 @@ public class MachineryServiceImpl implements MachineryService {
     @Override
     public boolean addMachinery(Machinery machinery) {
         // 进行业务验证
-        if (machinery == null) {
-            throw new BaseException("农机档案信息不能为空");
-        }
-        
-        if (machinery.getMachineryCode() == null || machinery.getMachineryCode().trim().isEmpty()) {
-            throw new BaseException("农机编号不能为空");
-        }
-        
-        if (machinery.getBrand() == null || machinery.getBrand().trim().isEmpty()) {
-            throw new BaseException("农机品牌不能为空");
-        }
+        validateMachinery(machinery);
         
         // 检查农机编号是否已存在
         QueryWrapper<Machinery> queryWrapper = new QueryWrapper<>();
@@ -83,7 +94,9 @@ public class MachineryServiceImpl implements MachineryService {
         machinery.setCreateTime(LocalDateTime.now());
         machinery.setUpdateTime(LocalDateTime.now());
         // 调用mapper的insert方法插入数据
-        return machineryMapper.insert(machinery) > 0;
+        boolean result = machineryMapper.insert(machinery) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
     
     /**
@@ -122,7 +135,163 @@ public class MachineryServiceImpl implements MachineryService {
         // 设置更新时间
         machinery.setUpdateTime(LocalDateTime.now());
         // 调用mapper的updateById方法更新数据
-        return machineryMapper.updateById(machinery) > 0;
+        boolean result = machineryMapper.updateById(machinery) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
+    }
+
+    /**
+     * 批量新增农机档案
+     * 先逐条校验必填项，再用一次查询检查农机编号是否已存在，校验通过的记录分批写入
+     * @param machineryList 农机档案列表
+     * @return 批量结果，包含每条失败记录的原因
+     */
+    @Override
+    public BatchResult addMachineryBatch(List<Machinery> machineryList) {
+        batchWriter.checkSize(machineryList);
+        Map<Integer, String> errors = new HashMap<>();
+
+        // 校验必填项，并检查本批数据中的农机编号是否重复
+        Map<String, Integer> codeIndexes = new HashMap<>();
+        for (int i = 0; i < machineryList.size(); i++) {
+            Machinery machinery = machineryList.get(i);
+            try {
+                validateMachinery(machinery);
+            } catch (BaseException e) {
+                errors.put(i, e.getMessage());
+                continue;
+            }
+            if (codeIndexes.putIfAbsent(machinery.getMachineryCode(), i) != null) {
+                errors.put(i, "农机编号在本批数据中重复：" + machinery.getMachineryCode());
+            }
+        }
+
+        // 一次查询已存在的农机编号
+        for (Machinery existing : selectByCodes(codeIndexes.keySet())) {
+            Integer index = codeIndexes.get(existing.getMachineryCode());
+            if (index != null) {
+                errors.put(index, "农机编号已存在：" + existing.getMachineryCode());
+            }
+        }
+
+        // 设置创建时间和更新时间
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < machineryList.size(); i++) {
+            if (!errors.containsKey(i)) {
+                machineryList.get(i).setCreateTime(now);
+                machineryList.get(i).setUpdateTime(now);
+            }
+        }
+
+        BatchResult result = batchWriter.insert(machineryList, errors);
+        if (result.getSucceeded() > 0) {
+            pageCountManager.invalidate(TABLE_NAME);
+        }
+        return result;
+    }
+
+    /**
+     * 批量更新农机档案
+     * 用一次查询检查记录是否存在，再用一次查询检查变更的农机编号是否被其他农机使用，校验通过的记录分批写入
+     * @param machineryList 农机档案列表，每条需包含ID
+     * @return 批量结果，包含每条失败记录的原因
+     */
+    @Override
+    public BatchResult updateMachineryBatch(List<Machinery> machineryList) {
+        batchWriter.checkSize(machineryList);
+        Map<Integer, String> errors = new HashMap<>();
+
+        // 校验ID，并检查本批数据中的ID是否重复
+        Map<Long, Integer> idIndexes = new HashMap<>();
+        for (int i = 0; i < machineryList.size(); i++) {
+            Machinery machinery = machineryList.get(i);
+            if (machinery == null) {
+                errors.put(i, "农机档案信息不能为空");
+            } else if (machinery.getId() == null) {
+                errors.put(i, "农机ID不能为空");
+            } else if (idIndexes.putIfAbsent(machinery.getId(), i) != null) {
+                errors.put(i, "ID在本批数据中重复：" + machinery.getId());
+            }
+        }
+
+        // 一次查询检查记录是否存在，并收集变更的农机编号
+        Map<Long, Machinery> existingById = new HashMap<>();
+        if (!idIndexes.isEmpty()) {
+            for (Machinery existing : machineryMapper.selectBatchIds(idIndexes.keySet())) {
+                existingById.put(existing.getId(), existing);
+            }
+        }
+        Map<String, Integer> codeIndexes = new HashMap<>();
+        for (int i = 0; i < machineryList.size(); i++) {
+            if (errors.containsKey(i)) {
+                continue;
+            }
+            Machinery machinery = machineryList.get(i);
+            Machinery existing = existingById.get(machinery.getId());
+            if (existing == null) {
+                errors.put(i, "未找到ID为" + machinery.getId() + "的农机档案");
+                continue;
+            }
+            String code = machinery.getMachineryCode();
+            if (code != null && !code.equals(existing.getMachineryCode()) && codeIndexes.putIfAbsent(code, i) != null) {
+                errors.put(i, "农机编号在本批数据中重复：" + code);
+            }
+        }
+
+        // 一次查询检查变更的农机编号是否被其他农机使用
+        for (Machinery conflict : selectByCodes(codeIndexes.keySet())) {
+            Integer index = codeIndexes.get(conflict.getMachineryCode());
+            if (index != null && !conflict.getId().equals(machineryList.get(index).getId())) {
+                errors.put(index, "农机编号已被其他农机使用：" + conflict.getMachineryCode());
+            }
+        }
+
+        // 设置更新时间
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < machineryList.size(); i++) {
+            if (!errors.containsKey(i)) {
+                machineryList.get(i).setUpdateTime(now);
+            }
+        }
+
+        BatchResult result = batchWriter.updateById(machineryList, errors);
+        if (result.getSucceeded() > 0) {
+            pageCountManager.invalidate(TABLE_NAME);
+        }
+        return result;
+    }
+
+    /**
+     * 校验新增农机档案的必填项
+     * @param machinery 农机档案
+     * @throws BaseException 必填项为空
+     */
+    private void validateMachinery(Machinery machinery) {
+        if (machinery == null) {
+            throw new BaseException("农机档案信息不能为空");
+        }
+        
+        if (machinery.getMachineryCode() == null || machinery.getMachineryCode().trim().isEmpty()) {
+            throw new BaseException("农机编号不能为空");
+        }
+        
+        if (machinery.getBrand() == null || machinery.getBrand().trim().isEmpty()) {
+            throw new BaseException("农机品牌不能为空");
+        }
+    }
+
+    /**
+     * 按农机编号批量查询农机档案，只查询ID和农机编号
+     * @param codes 农机编号集合
+     * @return 已存在的农机档案
+     */
+    private List<Machinery> selectByCodes(Collection<String> codes) {
+        if (codes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        QueryWrapper<Machinery> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "machinery_code").in("machinery_code", codes);
+        return machineryMapper.selectList(queryWrapper);
     }
     
     /**
@@ -148,7 +317,9 @@ public class MachineryServiceImpl implements MachineryService {
         // 如果有关联数据，可以抛出异常阻止删除
         
         // 调用mapper的deleteById方法删除数据
-        return machineryMapper.deleteById(id) > 0;
+        boolean result = machineryMapper.deleteById(id) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
     
     /**
@@ -156,15 +327,52 @@ public class MachineryServiceImpl implements MachineryService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
     @Override
-    public Page<Machinery> getMachineryPage(int pageNum, int pageSize, Map<String, Object> params) {
-        // 创建分页对象
-        Page<Machinery> page = new Page<>(pageNum, pageSize);
+    public Page<Machinery> getMachineryPage(int pageNum, int pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields) {
         // 创建查询条件
-        QueryWrapper<Machinery> queryWrapper = new QueryWrapper<>();
+        QueryWrapper<Machinery> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields);
+        
+        // 添加按创建时间倒序排序
+        queryWrapper.orderByDesc("create_time");
         
+        // 按统计方式执行分页查询
+        return pageCountManager.selectPage(machineryMapper, TABLE_NAME, pageNum, pageSize, queryWrapper, params,
+                countMode);
+    }
+
+    /**
+     * 游标分页查询农机
+     * 按(创建时间, ID)倒序，从游标位置之后开始查找，翻页深度不影响查询代价
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数，与分页查询相同
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    @Override
+    public CursorPage<Machinery> getMachineryCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields) {
+        QueryWrapper<Machinery> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields, "create_time");
+        CursorPagination.seek(queryWrapper, "create_time", cursor, pageSize);
+        List<Machinery> rows = machineryMapper.selectList(queryWrapper);
+        return CursorPagination.page(rows, pageSize, Machinery::getCreateTime, Machinery::getId);
+    }
+
+    /**
+     * 根据查询参数构建分页查询条件，普通分页和游标分页共用
+     * @param params 查询参数
+     * @return 查询条件
+     */
+    private QueryWrapper<Machinery> buildPageQueryWrapper(Map<String, Object> params) {
+        QueryWrapper<Machinery> queryWrapper = new QueryWrapper<>();
+
         // 根据参数构建查询条件
         if (params != null) {
             // 农机编号
@@ -188,11 +396,7 @@ public class MachineryServiceImpl implements MachineryService {
                 queryWrapper.like("department", params.get("department"));
             }
         }
-        
-        // 添加按创建时间倒序排序
-        queryWrapper.orderByDesc("create_time");
-        
-        // 调用mapper的selectPage方法进行分页查询
-        return machineryMapper.selectPage(page, queryWrapper);
+
+        return queryWrapper;
     }
 }
@@ -2,6 +2,13 @@ package org.agrimachinerymanager.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.BatchWriter;
+import org.agrimachinerymanager.common.util.CursorPagination;
+import org.agrimachinerymanager.common.util.PageCountManager;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.MaintainRecord;
 import org.agrimachinerymanager.exception.BaseException;
 import org.agrimachinerymanager.mapper.MaintainRecordMapper;
@@ -10,8 +17,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 农机维护记录服务实现类
@@ -19,17 +28,28 @@ import java.util.Map;
 @Service
 public class MaintainRecordServiceImpl implements MaintainRecordService {
 
+    // 表名，用于分页总数缓存的失效和估算
+    private static final String TABLE_NAME = "maintain_record";
+
     @Autowired
     private MaintainRecordMapper maintainRecordMapper;
 
+    @Autowired
+    private PageCountManager pageCountManager;
+
+    @Autowired
+    private BatchWriter batchWriter;
+
     /**
      * 获取所有农机维护记录
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 农机维护记录列表
      */
     @Override
-    public List<MaintainRecord> getAllMaintainRecords() {
+    public List<MaintainRecord> getAllMaintainRecords(SparseFields fields) {
         // 使用MyBatis-Plus的QueryWrapper构建查询条件
         QueryWrapper<MaintainRecord> queryWrapper = new QueryWrapper<>();
+        SparseFields.apply(queryWrapper, fields);
         // 添加按维护时间倒序排序
         queryWrapper.orderByDesc("maintain_time");
 
@@ -59,34 +79,16 @@ public class MaintainRecordServiceImpl implements MaintainRecordService {
     @Override
     public boolean addMaintainRecord(MaintainRecord maintainRecord) {
         // 验证必要参数
-        if (maintainRecord == null) {
-            throw new BaseException("农机维护记录信息不能为空");
-        }
-        if (maintainRecord.getMachineryId() == null) {
-            throw new BaseException("农机ID不能为空");
-        }
-        if (maintainRecord.getMaintainType() == null || maintainRecord.getMaintainType().isEmpty()) {
-            throw new BaseException("维护类型不能为空");
-        }
-        if (maintainRecord.getMaintainTime() == null) {
-            throw new BaseException("维护时间不能为空");
-        }
-        if (maintainRecord.getMaintainer() == null || maintainRecord.getMaintainer().isEmpty()) {
-            throw new BaseException("维护人员不能为空");
-        }
-        if (maintainRecord.getCreateUserId() == null) {
-            throw new BaseException("创建人ID不能为空");
-        }
-        if (maintainRecord.getDescription() == null || maintainRecord.getDescription().isEmpty()) {
-            throw new BaseException("维护描述不能为空");
-        }
+        validateMaintainRecord(maintainRecord);
 
         // 设置时间戳
         maintainRecord.setCreateTime(LocalDateTime.now());
         maintainRecord.setUpdateTime(LocalDateTime.now());
 
         // 调用mapper的insert方法添加农机维护记录
-        return maintainRecordMapper.insert(maintainRecord) > 0;
+        boolean result = maintainRecordMapper.insert(maintainRecord) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
 
     /**
@@ -115,7 +117,126 @@ public class MaintainRecordServiceImpl implements MaintainRecordService {
         maintainRecord.setUpdateTime(LocalDateTime.now());
 
         // 调用mapper的updateById方法更新农机维护记录
-        return maintainRecordMapper.updateById(maintainRecord) > 0;
+        boolean result = maintainRecordMapper.updateById(maintainRecord) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
+    }
+
+    /**
+     * 批量新增农机维护记录
+     * 逐条校验必填项，校验通过的记录分批写入
+     * @param maintainRecordList 农机维护记录列表
+     * @return 批量结果，包含每条失败记录的原因
+     */
+    @Override
+    public BatchResult addMaintainRecordBatch(List<MaintainRecord> maintainRecordList) {
+        batchWriter.checkSize(maintainRecordList);
+        Map<Integer, String> errors = new HashMap<>();
+
+        // 校验必填项
+        for (int i = 0; i < maintainRecordList.size(); i++) {
+            try {
+                validateMaintainRecord(maintainRecordList.get(i));
+            } catch (BaseException e) {
+                errors.put(i, e.getMessage());
+            }
+        }
+
+        // 设置时间戳
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < maintainRecordList.size(); i++) {
+            if (!errors.containsKey(i)) {
+                maintainRecordList.get(i).setCreateTime(now);
+                maintainRecordList.get(i).setUpdateTime(now);
+            }
+        }
+
+        BatchResult result = batchWriter.insert(maintainRecordList, errors);
+        if (result.getSucceeded() > 0) {
+            pageCountManager.invalidate(TABLE_NAME);
+        }
+        return result;
+    }
+
+    /**
+     * 批量更新农机维护记录
+     * 用一次查询检查记录是否存在，校验通过的记录分批写入
+     * @param maintainRecordList 农机维护记录列表，每条需包含ID
+     * @return 批量结果，包含每条失败记录的原因
+     */
+    @Override
+    public BatchResult updateMaintainRecordBatch(List<MaintainRecord> maintainRecordList) {
+        batchWriter.checkSize(maintainRecordList);
+        Map<Integer, String> errors = new HashMap<>();
+
+        // 校验ID，并检查本批数据中的ID是否重复
+        Map<Long, Integer> idIndexes = new HashMap<>();
+        for (int i = 0; i < maintainRecordList.size(); i++) {
+            MaintainRecord maintainRecord = maintainRecordList.get(i);
+            if (maintainRecord == null) {
+                errors.put(i, "农机维护记录信息不能为空");
+            } else if (maintainRecord.getId() == null) {
+                errors.put(i, "记录ID不能为空");
+            } else if (idIndexes.putIfAbsent(maintainRecord.getId(), i) != null) {
+                errors.put(i, "ID在本批数据中重复：" + maintainRecord.getId());
+            }
+        }
+
+        // 一次查询检查记录是否存在
+        Map<Long, MaintainRecord> existingById = new HashMap<>();
+        if (!idIndexes.isEmpty()) {
+            for (MaintainRecord existing : maintainRecordMapper.selectBatchIds(idIndexes.keySet())) {
+                existingById.put(existing.getId(), existing);
+            }
+        }
+
+        // 更新时间戳
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < maintainRecordList.size(); i++) {
+            if (errors.containsKey(i)) {
+                continue;
+            }
+            if (!existingById.containsKey(maintainRecordList.get(i).getId())) {
+                errors.put(i, "农机维护记录不存在");
+                continue;
+            }
+            maintainRecordList.get(i).setUpdateTime(now);
+        }
+
+        BatchResult result = batchWriter.updateById(maintainRecordList, errors);
+        if (result.getSucceeded() > 0) {
+            pageCountManager.invalidate(TABLE_NAME);
+        }
+        return result;
+    }
+
+    /**
+     * 校验新增农机维护记录的必填项
+     * @param maintainRecord 农机维护记录
+     * @throws BaseException 必填项为空
+     */
+    private void validateMaintainRecord(MaintainRecord maintainRecord) {
+        if (maintainRecord == null) {
+            throw new BaseException("农机维护记录信息不能为空");
+        }
+        if (maintainRecord.getMachineryId() == null) {
+            throw new BaseException("农机ID不能为空");
+        }
+        if (maintainRecord.getMaintainType() == null || maintainRecord.getMaintainType().isEmpty()) {
+            throw new BaseException("维护类型不能为空");
+        }
+        if (maintainRecord.getMaintainTime() == null) {
+            throw new BaseException("维护时间不能为空");
+        }
+        if (maintainRecord.getMaintainer() == null || maintainRecord.getMaintainer().isEmpty()) {
+            throw new BaseException("维护人员不能为空");
+        }
+        if (maintainRecord.getCreateUserId() == null) {
+            throw new BaseException("创建人ID不能为空");
+        }
+        if (maintainRecord.getDescription() == null || maintainRecord.getDescription().isEmpty()) {
+            throw new BaseException("维护描述不能为空");
+        }
     }
 
     /**
@@ -137,7 +258,9 @@ public class MaintainRecordServiceImpl implements MaintainRecordService {
         }
 
         // 调用mapper的deleteById方法删除农机维护记录
-        return maintainRecordMapper.deleteById(id) > 0;
+        boolean result = maintainRecordMapper.deleteById(id) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
 
     /**
@@ -145,13 +268,63 @@ public class MaintainRecordServiceImpl implements MaintainRecordService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
     @Override
-    public Page<MaintainRecord> getMaintainRecordPage(int pageNum, int pageSize, Map<String, Object> params) {
-        // 创建分页对象
-        Page<MaintainRecord> page = new Page<>(pageNum, pageSize);
+    public Page<MaintainRecord> getMaintainRecordPage(int pageNum, int pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields) {
         // 创建查询条件
+        QueryWrapper<MaintainRecord> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields);
+
+        // 添加按维护时间倒序排序
+        queryWrapper.orderByDesc("maintain_time");
+
+        // 按统计方式执行分页查询
+        return pageCountManager.selectPage(maintainRecordMapper, TABLE_NAME, pageNum, pageSize, queryWrapper, params,
+                countMode);
+    }
+
+    /**
+     * 游标分页查询维护记录
+     * 按(维护时间, ID)倒序，从游标位置之后开始查找，翻页深度不影响查询代价
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数，与分页查询相同
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    @Override
+    public CursorPage<MaintainRecord> getMaintainRecordCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields) {
+        QueryWrapper<MaintainRecord> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields, "maintain_time");
+        CursorPagination.seek(queryWrapper, "maintain_time", cursor, pageSize);
+        List<MaintainRecord> rows = maintainRecordMapper.selectList(queryWrapper);
+        return CursorPagination.page(rows, pageSize, MaintainRecord::getMaintainTime, MaintainRecord::getId);
+    }
+
+    /**
+     * 流式导出维护记录
+     * 通过ResultHandler逐行读取，读取一行写出一行，导出期间占用一个数据库连接
+     * @param params 查询参数，与分页查询相同
+     * @param consumer 每条记录的处理函数
+     */
+    @Override
+    public void streamMaintainRecords(Map<String, Object> params, Consumer<MaintainRecord> consumer) {
+        QueryWrapper<MaintainRecord> queryWrapper = buildPageQueryWrapper(params);
+        queryWrapper.orderByDesc("maintain_time");
+        maintainRecordMapper.streamList(queryWrapper, context -> consumer.accept(context.getResultObject()));
+    }
+
+    /**
+     * 根据查询参数构建分页查询条件，普通分页和游标分页共用
+     * @param params 查询参数
+     * @return 查询条件
+     */
+    private QueryWrapper<MaintainRecord> buildPageQueryWrapper(Map<String, Object> params) {
         QueryWrapper<MaintainRecord> queryWrapper = new QueryWrapper<>();
 
         // 根据参数构建查询条件
@@ -192,11 +365,7 @@ public class MaintainRecordServiceImpl implements MaintainRecordService {
             }
         }
 
-        // 添加按维护时间倒序排序
-        queryWrapper.orderByDesc("maintain_time");
-
-        // 调用mapper的selectPage方法进行分页查询
-        return maintainRecordMapper.selectPage(page, queryWrapper);
+        return queryWrapper;
     }
 
     /**
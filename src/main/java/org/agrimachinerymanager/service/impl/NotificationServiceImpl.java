@@ -2,6 +2,13 @@ package org.agrimachinerymanager.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.BatchWriter;
+import org.agrimachinerymanager.common.util.CursorPagination;
+import org.agrimachinerymanager.common.util.PageCountManager;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.Notification;
 import org.agrimachinerymanager.exception.BaseException;
 import org.agrimachinerymanager.mapper.NotificationMapper;
@@ -9,8 +16,10 @@ import org.agrimachinerymanager.service.NotificationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 通知提醒服务实现类
@@ -18,18 +27,29 @@ import java.util.Map;
 @Service
 public class NotificationServiceImpl implements NotificationService {
     
+    // 表名，用于分页总数缓存的失效和估算
+    private static final String TABLE_NAME = "notification";
+
     @Autowired
     private NotificationMapper notificationMapper;
+
+    @Autowired
+    private PageCountManager pageCountManager;
+
+    @Autowired
+    private BatchWriter batchWriter;
     
     /**
      * 获取所有通知提醒
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 通知提醒列表
      */
     @Override
-    public List<Notification> getAllNotifications() {
+    public List<Notification> getAllNotifications(SparseFields fields) {
         // 使用MyBatis-Plus的QueryWrapper构建查询条件
         // 这里不添加条件，表示查询所有记录
         QueryWrapper<Notification> queryWrapper = new QueryWrapper<>();
+        SparseFields.apply(queryWrapper, fields);
         // 添加按创建时间倒序排序
         queryWrapper.orderByDesc("create_time");
         
@@ -59,28 +79,16 @@ public class NotificationServiceImpl implements NotificationService {
     @Override
     public boolean addNotification(Notification notification) {
         // 进行业务验证
-        if (notification == null) {
-            throw new BaseException("通知提醒信息不能为空");
-        }
-        
-        if (notification.getTitle() == null || notification.getTitle().trim().isEmpty()) {
-            throw new BaseException("通知标题不能为空");
-        }
-        
-        if (notification.getContent() == null || notification.getContent().trim().isEmpty()) {
-            throw new BaseException("通知内容不能为空");
-        }
-        
-        if (notification.getUserId() == null) {
-            throw new BaseException("接收人ID不能为空");
-        }
-        
+        validateNotification(notification);
+
         // 设置创建时间和默认状态
         notification.setCreateTime(LocalDateTime.now());
         notification.setIsRead(0); // 默认为未读
         
         // 调用mapper的insert方法插入数据
-        return notificationMapper.insert(notification) > 0;
+        boolean result = notificationMapper.insert(notification) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
     
     /**
@@ -109,7 +117,119 @@ public class NotificationServiceImpl implements NotificationService {
         notification.setCreateTime(existingNotification.getCreateTime()); // 保持创建时间不变
         
         // 调用mapper的updateById方法更新数据
-        return notificationMapper.updateById(notification) > 0;
+        boolean result = notificationMapper.updateById(notification) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
+    }
+
+    /**
+     * 批量新增通知提醒
+     * 逐条校验必填项，校验通过的记录分批写入
+     * @param notificationList 通知提醒列表
+     * @return 批量结果，包含每条失败记录的原因
+     */
+    @Override
+    public BatchResult addNotificationBatch(List<Notification> notificationList) {
+        batchWriter.checkSize(notificationList);
+        Map<Integer, String> errors = new HashMap<>();
+
+        // 校验必填项
+        for (int i = 0; i < notificationList.size(); i++) {
+            try {
+                validateNotification(notificationList.get(i));
+            } catch (BaseException e) {
+                errors.put(i, e.getMessage());
+            }
+        }
+
+        // 设置创建时间和默认状态
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < notificationList.size(); i++) {
+            if (!errors.containsKey(i)) {
+                notificationList.get(i).setCreateTime(now);
+                notificationList.get(i).setIsRead(0); // 默认为未读
+            }
+        }
+
+        BatchResult result = batchWriter.insert(notificationList, errors);
+        if (result.getSucceeded() > 0) {
+            pageCountManager.invalidate(TABLE_NAME);
+        }
+        return result;
+    }
+
+    /**
+     * 批量更新通知提醒
+     * 用一次查询检查记录是否存在，校验通过的记录分批写入
+     * @param notificationList 通知提醒列表，每条需包含ID
+     * @return 批量结果，包含每条失败记录的原因
+     */
+    @Override
+    public BatchResult updateNotificationBatch(List<Notification> notificationList) {
+        batchWriter.checkSize(notificationList);
+        Map<Integer, String> errors = new HashMap<>();
+
+        // 校验ID，并检查本批数据中的ID是否重复
+        Map<Long, Integer> idIndexes = new HashMap<>();
+        for (int i = 0; i < notificationList.size(); i++) {
+            Notification notification = notificationList.get(i);
+            if (notification == null) {
+                errors.put(i, "通知提醒信息不能为空");
+            } else if (notification.getId() == null) {
+                errors.put(i, "通知ID不能为空");
+            } else if (idIndexes.putIfAbsent(notification.getId(), i) != null) {
+                errors.put(i, "ID在本批数据中重复：" + notification.getId());
+            }
+        }
+
+        // 一次查询检查记录是否存在
+        Map<Long, Notification> existingById = new HashMap<>();
+        if (!idIndexes.isEmpty()) {
+            for (Notification existing : notificationMapper.selectBatchIds(idIndexes.keySet())) {
+                existingById.put(existing.getId(), existing);
+            }
+        }
+
+        for (int i = 0; i < notificationList.size(); i++) {
+            if (errors.containsKey(i)) {
+                continue;
+            }
+            Notification existing = existingById.get(notificationList.get(i).getId());
+            if (existing == null) {
+                errors.put(i, "未找到ID为" + notificationList.get(i).getId() + "的通知提醒");
+                continue;
+            }
+            notificationList.get(i).setCreateTime(existing.getCreateTime()); // 保持创建时间不变
+        }
+
+        BatchResult result = batchWriter.updateById(notificationList, errors);
+        if (result.getSucceeded() > 0) {
+            pageCountManager.invalidate(TABLE_NAME);
+        }
+        return result;
+    }
+
+    /**
+     * 校验新增通知提醒的必填项
+     * @param notification 通知提醒
+     * @throws BaseException 必填项为空
+     */
+    private void validateNotification(Notification notification) {
+        if (notification == null) {
+            throw new BaseException("通知提醒信息不能为空");
+        }
+        
+        if (notification.getTitle() == null || notification.getTitle().trim().isEmpty()) {
+            throw new BaseException("通知标题不能为空");
+        }
+        
+        if (notification.getContent() == null || notification.getContent().trim().isEmpty()) {
+            throw new BaseException("通知内容不能为空");
+        }
+        
+        if (notification.getUserId() == null) {
+            throw new BaseException("接收人ID不能为空");
+        }
     }
     
     /**
@@ -131,7 +251,9 @@ public class NotificationServiceImpl implements NotificationService {
         }
         
         // 调用mapper的deleteById方法删除数据
-        return notificationMapper.deleteById(id) > 0;
+        boolean result = notificationMapper.deleteById(id) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
     
     /**
@@ -139,15 +261,65 @@ public class NotificationServiceImpl implements NotificationService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
     @Override
-    public Page<Notification> getNotificationPage(int pageNum, int pageSize, Map<String, Object> params) {
-        // 创建分页对象
-        Page<Notification> page = new Page<>(pageNum, pageSize);
+    public Page<Notification> getNotificationPage(int pageNum, int pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields) {
         // 创建查询条件
-        QueryWrapper<Notification> queryWrapper = new QueryWrapper<>();
+        QueryWrapper<Notification> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields);
+        
+        // 添加按创建时间倒序排序
+        queryWrapper.orderByDesc("create_time");
         
+        // 按统计方式执行分页查询
+        return pageCountManager.selectPage(notificationMapper, TABLE_NAME, pageNum, pageSize, queryWrapper, params,
+                countMode);
+    }
+
+    /**
+     * 游标分页查询通知
+     * 按(创建时间, ID)倒序，从游标位置之后开始查找，翻页深度不影响查询代价
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数，与分页查询相同
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    @Override
+    public CursorPage<Notification> getNotificationCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields) {
+        QueryWrapper<Notification> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields, "create_time");
+        CursorPagination.seek(queryWrapper, "create_time", cursor, pageSize);
+        List<Notification> rows = notificationMapper.selectList(queryWrapper);
+        return CursorPagination.page(rows, pageSize, Notification::getCreateTime, Notification::getId);
+    }
+
+    /**
+     * 流式导出通知
+     * 通过ResultHandler逐行读取，读取一行写出一行，导出期间占用一个数据库连接
+     * @param params 查询参数，与分页查询相同
+     * @param consumer 每条记录的处理函数
+     */
+    @Override
+    public void streamNotifications(Map<String, Object> params, Consumer<Notification> consumer) {
+        QueryWrapper<Notification> queryWrapper = buildPageQueryWrapper(params);
+        queryWrapper.orderByDesc("create_time");
+        notificationMapper.streamList(queryWrapper, context -> consumer.accept(context.getResultObject()));
+    }
+
+    /**
+     * 根据查询参数构建分页查询条件，普通分页和游标分页共用
+     * @param params 查询参数
+     * @return 查询条件
+     */
+    private QueryWrapper<Notification> buildPageQueryWrapper(Map<String, Object> params) {
+        QueryWrapper<Notification> queryWrapper = new QueryWrapper<>();
+
         // 根据参数构建查询条件
         if (params != null) {
             // 用户ID
@@ -167,12 +339,8 @@ public class NotificationServiceImpl implements NotificationService {
                 queryWrapper.eq("related_id", params.get("relatedId"));
             }
         }
-        
-        // 添加按创建时间倒序排序
-        queryWrapper.orderByDesc("create_time");
-        
-        // 调用mapper的selectPage方法进行分页查询
-        return notificationMapper.selectPage(page, queryWrapper);
+
+        return queryWrapper;
     }
     
     /**
@@ -213,6 +381,8 @@ public class NotificationServiceImpl implements NotificationService {
         // 更新已读状态
         existingNotification.setIsRead(1);
         
-        return notificationMapper.updateById(existingNotification) > 0;
+        boolean result = notificationMapper.updateById(existingNotification) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
 }
\ No newline at end of file
@@ -2,6 +2,11 @@ package org.agrimachinerymanager.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.CursorPagination;
+import org.agrimachinerymanager.common.util.PageCountManager;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.OperationTask;
 import org.agrimachinerymanager.exception.BaseException;
 import org.agrimachinerymanager.mapper.OperationTaskMapper;
@@ -13,6 +18,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.UUID;
 
 /**
@@ -21,17 +27,25 @@ import java.util.UUID;
 @Service
 public class OperationTaskServiceImpl implements OperationTaskService {
 
+    // 表名，用于分页总数缓存的失效和估算
+    private static final String TABLE_NAME = "operation_task";
+
     @Autowired
     private OperationTaskMapper operationTaskMapper;
 
+    @Autowired
+    private PageCountManager pageCountManager;
+
     /**
      * 获取所有作业调度任务
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 作业调度任务列表
      */
     @Override
-    public List<OperationTask> getAllOperationTasks() {
+    public List<OperationTask> getAllOperationTasks(SparseFields fields) {
         // 使用MyBatis-Plus的QueryWrapper构建查询条件
         QueryWrapper<OperationTask> queryWrapper = new QueryWrapper<>();
+        SparseFields.apply(queryWrapper, fields);
         // 添加按创建时间倒序排序
         queryWrapper.orderByDesc("create_time");
 
@@ -111,7 +125,9 @@ public class OperationTaskServiceImpl implements OperationTaskService {
         operationTask.setUpdateTime(LocalDateTime.now());
         
         // 调用mapper的insert方法插入数据
-        return operationTaskMapper.insert(operationTask) > 0;
+        boolean result = operationTaskMapper.insert(operationTask) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
 
     /**
@@ -145,7 +161,9 @@ public class OperationTaskServiceImpl implements OperationTaskService {
         operationTask.setUpdateTime(LocalDateTime.now());
         
         // 调用mapper的updateById方法更新数据
-        return operationTaskMapper.updateById(operationTask) > 0;
+        boolean result = operationTaskMapper.updateById(operationTask) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
 
     /**
@@ -172,7 +190,9 @@ public class OperationTaskServiceImpl implements OperationTaskService {
         }
         
         // 调用mapper的deleteById方法删除数据
-        return operationTaskMapper.deleteById(id) > 0;
+        boolean result = operationTaskMapper.deleteById(id) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
 
     /**
@@ -180,13 +200,63 @@ public class OperationTaskServiceImpl implements OperationTaskService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
     @Override
-    public Page<OperationTask> getOperationTaskPage(int pageNum, int pageSize, Map<String, Object> params) {
-        // 创建分页对象
-        Page<OperationTask> page = new Page<>(pageNum, pageSize);
+    public Page<OperationTask> getOperationTaskPage(int pageNum, int pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields) {
         // 创建查询条件
+        QueryWrapper<OperationTask> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields);
+
+        // 添加按创建时间倒序排序
+        queryWrapper.orderByDesc("create_time");
+
+        // 按统计方式执行分页查询
+        return pageCountManager.selectPage(operationTaskMapper, TABLE_NAME, pageNum, pageSize, queryWrapper, params,
+                countMode);
+    }
+
+    /**
+     * 游标分页查询作业调度任务
+     * 按(创建时间, ID)倒序，从游标位置之后开始查找，翻页深度不影响查询代价
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数，与分页查询相同
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    @Override
+    public CursorPage<OperationTask> getOperationTaskCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields) {
+        QueryWrapper<OperationTask> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields, "create_time");
+        CursorPagination.seek(queryWrapper, "create_time", cursor, pageSize);
+        List<OperationTask> rows = operationTaskMapper.selectList(queryWrapper);
+        return CursorPagination.page(rows, pageSize, OperationTask::getCreateTime, OperationTask::getId);
+    }
+
+    /**
+     * 流式导出作业调度任务
+     * 通过ResultHandler逐行读取，读取一行写出一行，导出期间占用一个数据库连接
+     * @param params 查询参数，与分页查询相同
+     * @param consumer 每条记录的处理函数
+     */
+    @Override
+    public void streamOperationTasks(Map<String, Object> params, Consumer<OperationTask> consumer) {
+        QueryWrapper<OperationTask> queryWrapper = buildPageQueryWrapper(params);
+        queryWrapper.orderByDesc("create_time");
+        operationTaskMapper.streamList(queryWrapper, context -> consumer.accept(context.getResultObject()));
+    }
+
+    /**
+     * 根据查询参数构建分页查询条件，普通分页和游标分页共用
+     * @param params 查询参数
+     * @return 查询条件
+     */
+    private QueryWrapper<OperationTask> buildPageQueryWrapper(Map<String, Object> params) {
         QueryWrapper<OperationTask> queryWrapper = new QueryWrapper<>();
 
         // 根据参数构建查询条件
@@ -224,11 +294,7 @@ public class OperationTaskServiceImpl implements OperationTaskService {
             }
         }
 
-        // 添加按创建时间倒序排序
-        queryWrapper.orderByDesc("create_time");
-
-        // 调用mapper的selectPage方法进行分页查询
-        return operationTaskMapper.selectPage(page, queryWrapper);
+        return queryWrapper;
     }
 
     /**
@@ -2,6 +2,7 @@ package org.agrimachinerymanager.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.SysDict;
 import org.agrimachinerymanager.exception.BaseException;
 import org.agrimachinerymanager.mapper.SysDictMapper;
@@ -24,12 +25,14 @@ public class SysDictServiceImpl implements SysDictService {
 
     /**
      * 获取所有数据字典
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 数据字典列表
      */
     @Override
-    public List<SysDict> getAllSysDicts() {
+    public List<SysDict> getAllSysDicts(SparseFields fields) {
         // 使用MyBatis-Plus的QueryWrapper构建查询条件
         QueryWrapper<SysDict> queryWrapper = new QueryWrapper<>();
+        SparseFields.apply(queryWrapper, fields);
         // 添加按类型和排序字段排序
         queryWrapper.orderByAsc("type", "sort");
 
@@ -181,14 +184,16 @@ public class SysDictServiceImpl implements SysDictService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
     @Override
-    public Page<SysDict> getSysDictPage(int pageNum, int pageSize, Map<String, Object> params) {
+    public Page<SysDict> getSysDictPage(int pageNum, int pageSize, Map<String, Object> params, SparseFields fields) {
         // 创建分页对象
         Page<SysDict> page = new Page<>(pageNum, pageSize);
         // 创建查询条件
         QueryWrapper<SysDict> queryWrapper = new QueryWrapper<>();
+        SparseFields.apply(queryWrapper, fields);
 
         // 根据参数构建查询条件
         if (params != null) {
@@ -2,6 +2,11 @@ package org.agrimachinerymanager.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.CursorPagination;
+import org.agrimachinerymanager.common.util.PageCountManager;
+import org.agrimachinerymanager.common.util.SparseFields;
 import org.agrimachinerymanager.entity.SysOperateLog;
 import org.agrimachinerymanager.exception.BaseException;
 import org.agrimachinerymanager.mapper.SysOperateLogMapper;
@@ -12,6 +17,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * 系统操作日志服务实现类
@@ -19,17 +25,25 @@ import java.util.Map;
 @Service
 public class SysOperateLogServiceImpl implements SysOperateLogService {
 
+    // 表名，用于分页总数缓存的失效和估算
+    private static final String TABLE_NAME = "sys_operate_log";
+
     @Autowired
     private SysOperateLogMapper sysOperateLogMapper;
 
+    @Autowired
+    private PageCountManager pageCountManager;
+
     /**
      * 获取所有系统操作日志
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 系统操作日志列表
      */
     @Override
-    public List<SysOperateLog> getAllSysOperateLogs() {
+    public List<SysOperateLog> getAllSysOperateLogs(SparseFields fields) {
         // 使用MyBatis-Plus的QueryWrapper构建查询条件
         QueryWrapper<SysOperateLog> queryWrapper = new QueryWrapper<>();
+        SparseFields.apply(queryWrapper, fields);
         // 添加按操作时间倒序排序
         queryWrapper.orderByDesc("operate_time");
 
@@ -81,6 +95,7 @@ public class SysOperateLogServiceImpl implements SysOperateLogService {
 
         // 调用mapper的insert方法添加系统操作日志
         sysOperateLogMapper.insert(sysOperateLog);
+        pageCountManager.invalidate(TABLE_NAME);
     }
 
     /**
@@ -103,6 +118,7 @@ public class SysOperateLogServiceImpl implements SysOperateLogService {
 
         // 调用mapper的updateById方法更新系统操作日志
         int result = sysOperateLogMapper.updateById(sysOperateLog);
+        pageCountManager.invalidate(TABLE_NAME);
         return result > 0;
     }
 
@@ -126,6 +142,7 @@ public class SysOperateLogServiceImpl implements SysOperateLogService {
 
         // 调用mapper的deleteById方法删除系统操作日志
         int result = sysOperateLogMapper.deleteById(id);
+        pageCountManager.invalidate(TABLE_NAME);
         return result > 0;
     }
 
@@ -134,13 +151,63 @@ public class SysOperateLogServiceImpl implements SysOperateLogService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
     @Override
-    public Page<SysOperateLog> getSysOperateLogPage(Integer pageNum, Integer pageSize, Map<String, Object> params) {
-        // 创建分页对象
-        Page<SysOperateLog> page = new Page<>(pageNum, pageSize);
+    public Page<SysOperateLog> getSysOperateLogPage(Integer pageNum, Integer pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields) {
         // 创建查询条件
+        QueryWrapper<SysOperateLog> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields);
+
+        // 添加按操作时间倒序排序
+        queryWrapper.orderByDesc("operate_time");
+
+        // 按统计方式执行分页查询
+        return pageCountManager.selectPage(sysOperateLogMapper, TABLE_NAME, pageNum, pageSize, queryWrapper, params,
+                countMode);
+    }
+
+    /**
+     * 游标分页查询操作日志
+     * 按(操作时间, ID)倒序，从游标位置之后开始查找，翻页深度不影响查询代价
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数，与分页查询相同
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    @Override
+    public CursorPage<SysOperateLog> getSysOperateLogCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields) {
+        QueryWrapper<SysOperateLog> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields, "operate_time");
+        CursorPagination.seek(queryWrapper, "operate_time", cursor, pageSize);
+        List<SysOperateLog> rows = sysOperateLogMapper.selectList(queryWrapper);
+        return CursorPagination.page(rows, pageSize, SysOperateLog::getOperateTime, SysOperateLog::getId);
+    }
+
+    /**
+     * 流式导出操作日志
+     * 通过ResultHandler逐行读取，读取一行写出一行，导出期间占用一个数据库连接
+     * @param params 查询参数，与分页查询相同
+     * @param consumer 每条记录的处理函数
+     */
+    @Override
+    public void streamSysOperateLogs(Map<String, Object> params, Consumer<SysOperateLog> consumer) {
+        QueryWrapper<SysOperateLog> queryWrapper = buildPageQueryWrapper(params);
+        queryWrapper.orderByDesc("operate_time");
+        sysOperateLogMapper.streamList(queryWrapper, context -> consumer.accept(context.getResultObject()));
+    }
+
+    /**
+     * 根据查询参数构建分页查询条件，普通分页和游标分页共用
+     * @param params 查询参数
+     * @return 查询条件
+     */
+    private QueryWrapper<SysOperateLog> buildPageQueryWrapper(Map<String, Object> params) {
         QueryWrapper<SysOperateLog> queryWrapper = new QueryWrapper<>();
 
         // 根据参数构建查询条件
@@ -174,11 +241,7 @@ public class SysOperateLogServiceImpl implements SysOperateLogService {
             }
         }
 
-        // 添加按操作时间倒序排序
-        queryWrapper.orderByDesc("operate_time");
-
-        // 调用mapper的selectPage方法进行分页查询
-        return sysOperateLogMapper.selectPage(page, queryWrapper);
+        return queryWrapper;
     }
 
     /**
@@ -1,15 +1,26 @@
 package org.agrimachinerymanager.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.common.util.CursorPagination;
+import org.agrimachinerymanager.common.util.PageCountManager;
+import org.agrimachinerymanager.common.util.SparseFields;
+import org.agrimachinerymanager.common.constant.SystemConstant;
 import org.agrimachinerymanager.dto.LoginDTO;
 import org.agrimachinerymanager.entity.SysUser;
 import org.agrimachinerymanager.vo.LoginVo;
 import org.agrimachinerymanager.common.util.JwtUtil;
+import org.agrimachinerymanager.common.util.LogoutManager;
 import org.agrimachinerymanager.common.util.PasswordUtil;
 import org.agrimachinerymanager.common.util.RedisLoginManager;
+import org.agrimachinerymanager.common.util.TokenEpochManager;
 import org.agrimachinerymanager.exception.BaseException;
 import org.agrimachinerymanager.mapper.SysUserMapper;
+import org.agrimachinerymanager.security.RateLimiter;
+import org.agrimachinerymanager.security.UserDetailsCache;
 import org.agrimachinerymanager.service.SysUserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +30,8 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * 系统用户服务实现类
@@ -28,21 +41,44 @@ public class SysUserServiceImpl implements SysUserService {
 
     private static final Logger log = LoggerFactory.getLogger(SysUserServiceImpl.class);
 
+    // 登录接口的限流分组名称，对应rate-limit.groups配置
+    private static final String LOGIN_RATE_LIMIT_GROUP = "login";
+
+    // 表名，用于分页总数缓存的失效和估算
+    private static final String TABLE_NAME = "sys_user";
+
     @Autowired
     private SysUserMapper sysUserMapper;
+
+    @Autowired
+    private PageCountManager pageCountManager;
     
     @Autowired
     private PasswordUtil passwordUtil;
+    
+    @Autowired
+    private TokenEpochManager tokenEpochManager;
+    
+    @Autowired
+    private LogoutManager logoutManager;
+    
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+    
+    @Autowired
+    private RateLimiter rateLimiter;
 
     /**
      * 获取所有系统用户
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 用户列表
      */
     @Override
-    public List<SysUser> getAllSysUsers() {
+    public List<SysUser> getAllSysUsers(SparseFields fields) {
         // 使用MyBatis-Plus的QueryWrapper构建查询条件
         // 这里不添加条件，表示查询所有记录
         QueryWrapper<SysUser> queryWrapper = new QueryWrapper<>();
+        SparseFields.apply(queryWrapper, fields);
         // 添加按创建时间倒序排序
         queryWrapper.orderByDesc("create_time");
 
@@ -101,7 +137,9 @@ public class SysUserServiceImpl implements SysUserService {
         sysUser.setPassword(encodedPassword);
         
         // 调用mapper的insert方法插入数据
-        return sysUserMapper.insert(sysUser) > 0;
+        boolean result = sysUserMapper.insert(sysUser) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        return result;
     }
     
     /**
@@ -138,7 +176,8 @@ public class SysUserServiceImpl implements SysUserService {
         }
         
         // 处理密码更新：如果提供了新密码，则进行加密
-        if (sysUser.getPassword() != null && !sysUser.getPassword().trim().isEmpty()) {
+        boolean passwordChanged = sysUser.getPassword() != null && !sysUser.getPassword().trim().isEmpty();
+        if (passwordChanged) {
             // 新密码需要加密
             String encodedPassword = passwordUtil.encode(sysUser.getPassword());
             sysUser.setPassword(encodedPassword);
@@ -151,7 +190,24 @@ public class SysUserServiceImpl implements SysUserService {
         // 设置更新时间
         sysUser.setUpdateTime(LocalDateTime.now());
         // 调用mapper的updateById方法更新数据
-        return sysUserMapper.updateById(sysUser) > 0;
+        boolean updated = sysUserMapper.updateById(sysUser) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        
+        // 用户信息变更后失效认证缓存（包括集群内其他节点）
+        if (updated) {
+            userDetailsCache.invalidate(existingUser.getUsername());
+            if (sysUser.getUsername() != null && !sysUser.getUsername().equals(existingUser.getUsername())) {
+                userDetailsCache.invalidate(sysUser.getUsername());
+            }
+        }
+        
+        // 用户被禁用、角色变更或修改密码时，吊销其已签发的所有令牌
+        boolean disabled = SystemConstant.UserStatus.DISABLED.equals(sysUser.getStatus());
+        boolean roleChanged = sysUser.getRole() != null && !sysUser.getRole().equals(existingUser.getRole());
+        if (updated && (disabled || roleChanged || passwordChanged)) {
+            revokeUserTokens(sysUser.getId());
+        }
+        return updated;
     }
     
     /**
@@ -177,7 +233,79 @@ public class SysUserServiceImpl implements SysUserService {
         // 如果有关联数据，可以抛出异常阻止删除
         
         // 调用mapper的deleteById方法删除数据
-        return sysUserMapper.deleteById(id) > 0;
+        boolean deleted = sysUserMapper.deleteById(id) > 0;
+        pageCountManager.invalidate(TABLE_NAME);
+        
+        // 失效认证缓存并吊销被删除用户已签发的令牌
+        if (deleted) {
+            userDetailsCache.invalidate(existingUser.getUsername());
+            revokeUserTokens(id);
+        }
+        return deleted;
+    }
+    
+    /**
+     * 退出所有设备：吊销用户已签发的所有令牌并清除登录信息
+     * Redis不可用时记入降级存储，本节点立即生效，恢复后写回Redis
+     * @param userId 用户ID
+     */
+    @Override
+    public void logoutAllDevices(Long userId) {
+        if (userId == null) {
+            throw new BaseException("用户ID不能为空");
+        }
+        tokenEpochManager.revokeAll(userId);
+        redisLoginManager.removeLoginInfo(userId);
+        log.info("用户 [{}] 已退出所有设备", userId);
+    }
+    
+    /**
+     * 批量强制用户下线
+     * @param userIds 用户ID列表
+     * @return 下线的用户数
+     */
+    @Override
+    public int forceLogoutUsers(List<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) {
+            throw new BaseException("用户ID列表不能为空");
+        }
+        List<Long> distinctIds = userIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        int count = logoutManager.logoutUsers(distinctIds);
+        log.info("已批量强制 {} 个用户下线", count);
+        return count;
+    }
+    
+    /**
+     * 按角色批量强制用户下线
+     * @param role 角色：1-管理员，2-操作员
+     * @return 下线的用户数
+     */
+    @Override
+    public int forceLogoutByRole(Integer role) {
+        if (role == null) {
+            throw new BaseException("角色不能为空");
+        }
+        // 只查询ID列，避免加载整行数据
+        QueryWrapper<SysUser> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id").eq("role", role);
+        List<Long> userIds = sysUserMapper.selectObjs(queryWrapper).stream()
+                .map(id -> ((Number) id).longValue())
+                .collect(Collectors.toList());
+        if (userIds.isEmpty()) {
+            return 0;
+        }
+        int count = logoutManager.logoutUsers(userIds);
+        log.info("已强制角色为 [{}] 的 {} 个用户下线", role, count);
+        return count;
+    }
+    
+    /**
+     * 吊销用户已签发的令牌（令牌版本号加一），Redis不可用时记入降级存储，不影响用户数据的修改结果
+     * @param userId 用户ID
+     */
+    private void revokeUserTokens(Long userId) {
+        tokenEpochManager.revokeAll(userId);
+        log.info("用户 [{}] 已签发的令牌已吊销", userId);
     }
 
     /**
@@ -185,13 +313,50 @@ public class SysUserServiceImpl implements SysUserService {
      * @param pageNum 页码
      * @param pageSize 每页条数
      * @param params 查询参数
+     * @param countMode 总数统计方式
+     * @param fields 返回的字段，为null时返回全部字段
      * @return 分页结果
      */
     @Override
-    public Page<SysUser> getSysUserPage(int pageNum, int pageSize, Map<String, Object> params) {
-        // 创建分页对象
-        Page<SysUser> page = new Page<>(pageNum, pageSize);
+    public Page<SysUser> getSysUserPage(int pageNum, int pageSize,
+            Map<String, Object> params, CountMode countMode, SparseFields fields) {
         // 创建查询条件
+        QueryWrapper<SysUser> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields);
+
+        // 添加按创建时间倒序排序
+        queryWrapper.orderByDesc("create_time");
+
+        // 按统计方式执行分页查询
+        return pageCountManager.selectPage(sysUserMapper, TABLE_NAME, pageNum, pageSize, queryWrapper, params,
+                countMode);
+    }
+
+    /**
+     * 游标分页查询用户
+     * 按(创建时间, ID)倒序，从游标位置之后开始查找，翻页深度不影响查询代价
+     * @param cursor 上一页返回的游标，查询第一页时为空
+     * @param pageSize 每页条数
+     * @param params 查询参数，与分页查询相同
+     * @param fields 返回的字段，为null时返回全部字段
+     * @return 游标分页结果
+     */
+    @Override
+    public CursorPage<SysUser> getSysUserCursorPage(String cursor, int pageSize,
+            Map<String, Object> params, SparseFields fields) {
+        QueryWrapper<SysUser> queryWrapper = buildPageQueryWrapper(params);
+        SparseFields.apply(queryWrapper, fields, "create_time");
+        CursorPagination.seek(queryWrapper, "create_time", cursor, pageSize);
+        List<SysUser> rows = sysUserMapper.selectList(queryWrapper);
+        return CursorPagination.page(rows, pageSize, SysUser::getCreateTime, SysUser::getId);
+    }
+
+    /**
+     * 根据查询参数构建分页查询条件，普通分页和游标分页共用
+     * @param params 查询参数
+     * @return 查询条件
+     */
+    private QueryWrapper<SysUser> buildPageQueryWrapper(Map<String, Object> params) {
         QueryWrapper<SysUser> queryWrapper = new QueryWrapper<>();
 
         // 根据参数构建查询条件
@@ -218,11 +383,7 @@ public class SysUserServiceImpl implements SysUserService {
             }
         }
 
-        // 添加按创建时间倒序排序
-        queryWrapper.orderByDesc("create_time");
-
-        // 调用mapper的selectPage方法进行分页查询
-        return sysUserMapper.selectPage(page, queryWrapper);
+        return queryWrapper;
     }
     
     @Autowired
@@ -250,7 +411,7 @@ public class SysUserServiceImpl implements SysUserService {
     }
     
     @Override
-    public LoginVo login(LoginDTO loginDTO) {
+    public LoginVo login(LoginDTO loginDTO, String clientIp, String device) {
         // 验证登录信息
         if (loginDTO == null) {
             throw new BaseException("登录信息不能为空");
@@ -267,6 +428,11 @@ public class SysUserServiceImpl implements SysUserService {
             throw new BaseException("密码不能为空");
         }
         
+        // 按用户名加客户端IP限流，防止同一来源针对单个账号暴力破解（按IP限流由RateLimitFilter完成）
+        // 不单按用户名限流，否则任何人都能用错误密码耗尽该账号的限额，使用户本人无法登录
+        rateLimiter.check(LOGIN_RATE_LIMIT_GROUP, RateLimiter.DIMENSION_USER,
+                loginRateLimitKey(username, clientIp));
+        
         // 根据用户名查询用户
         QueryWrapper<SysUser> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("username", username);
@@ -277,24 +443,30 @@ public class SysUserServiceImpl implements SysUserService {
             throw new BaseException("用户名或密码错误");
         }
         
-        // 验证密码是否正确
-        if (!passwordUtil.matches(password, sysUser.getPassword())) {
+        // 验证密码是否正确（在密码校验线程池中执行，繁忙时快速拒绝）
+        if (!passwordUtil.verify(password, sysUser.getPassword())) {
             throw new BaseException("用户名或密码错误");
         }
         
+        // BCrypt成本因子调整后，按新成本重新加密已有密码
+        if (passwordUtil.needsRehash(sysUser.getPassword())) {
+            rehashPassword(sysUser, password);
+        }
+        
         // 验证用户状态是否正常
         if (sysUser.getStatus() == 0) {
             throw new BaseException("用户已被禁用，请联系管理员");
         }
         
-        // 生成JWT令牌
-        String token = jwtUtil.generateToken(sysUser.getId(), sysUser.getUsername(), sysUser.getRole());
+        // 生成JWT令牌，写入用户当前的令牌版本号
+        long epoch = tokenEpochManager.getEpochForLogin(sysUser.getId());
+        String token = jwtUtil.generateToken(sysUser.getId(), sysUser.getUsername(), sysUser.getRole(), epoch);
         
-        // 将用户登录信息保存到Redis
-        redisLoginManager.saveLoginInfo(sysUser.getId(), sysUser.getUsername(), token);
+        // 登记登录会话并签发刷新令牌，超出最大会话数时淘汰最早登录的会话
+        String refreshToken = redisLoginManager.saveLoginInfo(jwtUtil.parseToken(token), clientIp, device);
         
-        // 输出token到日志
-        log.info("🔑 用户 [{}] 登录成功，生成的Token: {}", username, token);
+        // 令牌属于凭证，不写入日志
+        log.debug("用户 [{}] 登录成功", username);
         
         // 构建登录响应对象
         LoginVo loginVo = new LoginVo();
@@ -304,7 +476,109 @@ public class SysUserServiceImpl implements SysUserService {
         loginVo.setRole(sysUser.getRole());
         loginVo.setStatus(sysUser.getStatus());
         loginVo.setToken(token);
+        loginVo.setExpiresIn(jwtUtil.getExpiration());
+        loginVo.setRefreshToken(refreshToken);
         
         return loginVo;
     }
-}
\ No newline at end of file
+    
+    /**
+     * 登录限流的键：用户名@客户端IP，无法获取IP时只按用户名
+     */
+    private static String loginRateLimitKey(String username, String clientIp) {
+        return clientIp == null || clientIp.isEmpty() ? username : username + "@" + clientIp;
+    }
+    
+    /**
+     * 使用刷新令牌换发令牌对
+     * 重新检查用户状态和令牌版本号，用户被禁用、修改密码或退出所有设备后刷新令牌失效
+     * @param refreshToken 刷新令牌
+     * @return 新的令牌对
+     */
+    @Override
+    public LoginVo refreshToken(String refreshToken) {
+        RedisLoginManager.RefreshSession session = redisLoginManager.findRefreshSession(refreshToken);
+        if (session == null) {
+            throw new BaseException("刷新令牌无效或已过期，请重新登录");
+        }
+        
+        SysUser sysUser = sysUserMapper.selectById(session.getUserId());
+        long epoch = tokenEpochManager.getEpochForLogin(session.getUserId());
+        if (sysUser == null || sysUser.getStatus() == 0 || epoch > session.getEpoch()) {
+            redisLoginManager.revokeSession(session.getSessionId(), session.getUserId());
+            throw new BaseException("刷新令牌无效或已过期，请重新登录");
+        }
+        
+        // 新访问令牌沿用原会话，会话信息和在线状态保持不变
+        String token = jwtUtil.generateToken(sysUser.getId(), sysUser.getUsername(), sysUser.getRole(), epoch,
+                session.getSessionId());
+        String newRefreshToken = redisLoginManager.rotateRefreshToken(refreshToken, session, jwtUtil.parseToken(token));
+        if (newRefreshToken == null) {
+            throw new BaseException("刷新令牌无效或已过期，请重新登录");
+        }
+        
+        LoginVo loginVo = new LoginVo();
+        loginVo.setId(sysUser.getId());
+        loginVo.setUsername(sysUser.getUsername());
+        loginVo.setRealName(sysUser.getRealName());
+        loginVo.setRole(sysUser.getRole());
+        loginVo.setStatus(sysUser.getStatus());
+        loginVo.setToken(token);
+        loginVo.setExpiresIn(jwtUtil.getExpiration());
+        loginVo.setRefreshToken(newRefreshToken);
+        return loginVo;
+    }
+    
+    /**
+     * 分页查询在线会话
+     * @param pageNum 页码
+     * @param pageSize 每页条数
+     * @return 分页结果
+     */
+    @Override
+    public Page<RedisLoginManager.UserLoginInfo> getOnlineSessionPage(int pageNum, int pageSize) {
+        if (pageNum < 1 || pageSize < 1) {
+            throw new BaseException("分页参数不正确");
+        }
+        return redisLoginManager.getOnlineSessionPage(pageNum, Math.min(pageSize, 500));
+    }
+    
+    /**
+     * 查询用户的全部登录会话
+     * @param userId 用户ID
+     * @return 会话列表
+     */
+    @Override
+    public List<RedisLoginManager.UserLoginInfo> getUserSessions(Long userId) {
+        if (userId == null) {
+            throw new BaseException("用户ID不能为空");
+        }
+        return redisLoginManager.getUserSessions(userId);
+    }
+    
+    /**
+     * 异步按当前成本因子重新加密密码
+     * 只在密文未被修改时更新，密码本身未变化，因此不吊销已签发的令牌
+     * @param sysUser 登录用户
+     * @param rawPassword 原始密码
+     */
+    private void rehashPassword(SysUser sysUser, String rawPassword) {
+        String oldPassword = sysUser.getPassword();
+        passwordUtil.rehashAsync(rawPassword).thenAccept(newPassword -> {
+            if (newPassword == null) {
+                return;
+            }
+            UpdateWrapper<SysUser> updateWrapper = new UpdateWrapper<>();
+            updateWrapper.eq("id", sysUser.getId())
+                    .eq("password", oldPassword)
+                    .set("password", newPassword);
+            if (sysUserMapper.update(null, updateWrapper) > 0) {
+                userDetailsCache.invalidate(sysUser.getUsername());
+                log.debug("用户 [{}] 的密码已按新成本因子重新加密", sysUser.getId());
+            }
+        }).exceptionally(e -> {
+            log.warn("用户 [{}] 的密码重新加密失败: {}", sysUser.getId(), e.getMessage());
+            return null;
+        });
+    }
+}
@@ -34,10 +34,20 @@ public class LoginVo {
     private Integer status;
     
     /**
-     * JWT令牌
+     * JWT访问令牌
      */
     private String token;
     
+    /**
+     * 访问令牌有效期（秒）
+     */
+    private Long expiresIn;
+    
+    /**
+     * 刷新令牌，访问令牌过期前通过/auth/refresh换发新的令牌对，每个刷新令牌只能使用一次
+     */
+    private String refreshToken;
+    
     /**
      * 令牌类型
      */
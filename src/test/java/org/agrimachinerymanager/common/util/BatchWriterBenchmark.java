@@ -0,0 +1,93 @@
+package org.agrimachinerymanager.common.util;
+
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.entity.Machinery;
+import org.agrimachinerymanager.service.impl.MachineryServiceImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量写入的JMH微基准：在H2内存库上逐条新增与批量新增2000条农机档案的耗时对比
+ * 每轮迭代前清空表，农机编号按序号递增保证唯一；批量写入的正确性由BatchWriterTest验证
+ * 标记为基准测试，默认不执行，使用 -Pbenchmark 运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchWriterBenchmark {
+
+    private static final int ROWS = 2000;
+
+    private MachineryTable table;
+
+    private MachineryServiceImpl service;
+
+    private long sequence;
+
+    @Setup
+    public void setUp() {
+        table = new MachineryTable("batch_writer_benchmark");
+        service = table.service();
+    }
+
+    @Setup(Level.Iteration)
+    public void clearTable() {
+        table.truncate();
+    }
+
+    @TearDown
+    public void tearDown() {
+        table.close();
+    }
+
+    @Benchmark
+    public int singleInsert() {
+        for (Machinery machinery : rows("SINGLE-")) {
+            service.addMachinery(machinery);
+        }
+        return ROWS;
+    }
+
+    @Benchmark
+    public BatchResult batchInsert() {
+        return service.addMachineryBatch(rows("BATCH-"));
+    }
+
+    private List<Machinery> rows(String prefix) {
+        List<Machinery> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(MachineryTable.machinery(prefix + sequence++));
+        }
+        return rows;
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BatchWriterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,184 @@
+package org.agrimachinerymanager.common.util;
+
+import org.agrimachinerymanager.common.result.BatchResult;
+import org.agrimachinerymanager.entity.Machinery;
+import org.agrimachinerymanager.exception.BaseException;
+import org.agrimachinerymanager.mapper.MachineryMapper;
+import org.agrimachinerymanager.service.impl.MachineryServiceImpl;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量写入测试
+ * 在H2内存库上使用真实的MyBatis-Plus批处理执行器和Spring事务，验证分批写入、失败批次拆分重试；
+ * 逐条新增与批量新增农机档案的耗时对比见BatchWriterBenchmark
+ */
+class BatchWriterTest {
+
+    private static MachineryTable table;
+
+    private static JdbcTemplate jdbcTemplate;
+
+    private static MachineryMapper machineryMapper;
+
+    @BeforeAll
+    static void createTable() {
+        table = new MachineryTable("batch_writer");
+        jdbcTemplate = table.jdbcTemplate();
+        machineryMapper = table.mapper();
+    }
+
+    @AfterAll
+    static void dropTable() {
+        table.close();
+    }
+
+    @BeforeEach
+    void clearTable() {
+        table.truncate();
+    }
+
+    @Test
+    void rejectsEmptyOrOversizedBatch() {
+        BatchWriter batchWriter = batchWriter(500, 3);
+
+        assertThrows(BaseException.class, () -> batchWriter.checkSize(null));
+        assertThrows(BaseException.class, () -> batchWriter.checkSize(List.of()));
+        assertThrows(BaseException.class, () -> batchWriter.checkSize(List.of(1, 2, 3, 4)));
+        batchWriter.checkSize(List.of(1, 2, 3));
+    }
+
+    @Test
+    void writesValidRowsInChunksAndSkipsInvalidRows() {
+        List<Integer> rows = List.of(0, 1, 2, 3, 4, 5, 6);
+        List<List<Integer>> chunks = new ArrayList<>();
+
+        BatchResult result = batchWriter(3, 100).write(rows, Map.of(1, "校验失败"),
+                chunk -> chunks.add(new ArrayList<>(chunk)));
+
+        assertEquals(List.of(List.of(0, 2, 3), List.of(4, 5, 6)), chunks);
+        assertEquals(7, result.getTotal());
+        assertEquals(6, result.getSucceeded());
+        assertEquals(1, result.getFailed());
+        assertEquals(List.of(new BatchResult.RowError(1, "校验失败")), result.getErrors());
+    }
+
+    @Test
+    void insertsAllChunksAndBackfillsIds() {
+        List<Machinery> rows = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            rows.add(machinery("NJ-" + i));
+        }
+
+        BatchResult result = batchWriter(500, 5000).insert(rows, new HashMap<>());
+
+        assertEquals(1200, result.getSucceeded());
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(1200, count());
+        assertTrue(rows.stream().allMatch(row -> row.getId() != null));
+    }
+
+    @Test
+    void reportsOnlyTheOffendingRowOfAFailedChunk() {
+        jdbcTemplate.update("INSERT INTO machinery (machinery_code) VALUES ('NJ-EXISTING')");
+        List<Machinery> rows = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            rows.add(machinery(i == 4 ? "NJ-EXISTING" : "NJ-" + i));
+        }
+
+        BatchResult result = batchWriter(3, 100).insert(rows, new HashMap<>());
+
+        // 下标3至5在同一批，其中下标4与已有数据重复，该批回滚后拆分重试，下标3和5照常写入
+        assertEquals(6, result.getSucceeded());
+        assertEquals(List.of(new BatchResult.RowError(4, "与已有数据重复")), result.getErrors());
+        assertEquals(7, count());
+        for (int i : new int[]{3, 5}) {
+            assertEquals("NJ-" + i, jdbcTemplate.queryForObject(
+                    "SELECT machinery_code FROM machinery WHERE id = ?", String.class, rows.get(i).getId()));
+        }
+    }
+
+    @Test
+    void bisectsFailedChunkDownToEachOffendingRow() {
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            rows.add(i);
+        }
+        List<Integer> written = new ArrayList<>();
+        List<Integer> attempts = new ArrayList<>();
+
+        BatchResult result = batchWriter(8, 100).write(rows, new HashMap<>(), chunk -> {
+            attempts.add(chunk.size());
+            if (chunk.contains(2) || chunk.contains(11)) {
+                throw new IllegalStateException("写入失败");
+            }
+            written.addAll(chunk);
+        });
+
+        assertEquals(14, result.getSucceeded());
+        assertEquals(List.of(new BatchResult.RowError(2, "写入失败"), new BatchResult.RowError(11, "写入失败")),
+                result.getErrors());
+        assertEquals(14, written.size());
+        assertFalse(written.contains(2) || written.contains(11));
+        // 每批8条，坏记录所在的批按8、4、2、1逐级拆分，共 2 × (1 + 2 + 2 + 2) 次写入
+        assertEquals(14, attempts.size());
+    }
+
+    @Test
+    void batchServiceReportsPerRowErrorsAndUpdatesInBulk() {
+        MachineryServiceImpl service = machineryService();
+        jdbcTemplate.update("INSERT INTO machinery (machinery_code) VALUES ('NJ-EXISTING')");
+        List<Machinery> rows = List.of(machinery("NJ-1"), machinery("NJ-EXISTING"), machinery("NJ-1"),
+                machinery(""), machinery("NJ-2"));
+
+        BatchResult added = service.addMachineryBatch(rows);
+
+        assertEquals(2, added.getSucceeded());
+        assertEquals(List.of(1, 2, 3), added.getErrors().stream().map(BatchResult.RowError::getIndex).toList());
+        assertEquals("农机编号已存在：NJ-EXISTING", added.getErrors().get(0).getMessage());
+        assertEquals("农机编号在本批数据中重复：NJ-1", added.getErrors().get(1).getMessage());
+
+        Machinery renamed = new Machinery();
+        renamed.setId(rows.get(0).getId());
+        renamed.setMachineryCode("NJ-1-NEW");
+        Machinery conflict = new Machinery();
+        conflict.setId(rows.get(4).getId());
+        conflict.setMachineryCode("NJ-EXISTING");
+        Machinery missing = new Machinery();
+        missing.setId(-1L);
+
+        BatchResult updated = service.updateMachineryBatch(List.of(renamed, conflict, missing));
+
+        assertEquals(1, updated.getSucceeded());
+        assertEquals("农机编号已被其他农机使用：NJ-EXISTING", updated.getErrors().get(0).getMessage());
+        assertEquals("未找到ID为-1的农机档案", updated.getErrors().get(1).getMessage());
+        assertEquals("NJ-1-NEW", machineryMapper.selectById(renamed.getId()).getMachineryCode());
+        assertEquals("NJ-2", machineryMapper.selectById(conflict.getId()).getMachineryCode());
+    }
+
+    private static BatchWriter batchWriter(int chunkSize, int maxRows) {
+        return table.batchWriter(chunkSize, maxRows);
+    }
+
+    private static MachineryServiceImpl machineryService() {
+        return table.service();
+    }
+
+    private static int count() {
+        return table.count();
+    }
+
+    private static Machinery machinery(String code) {
+        return MachineryTable.machinery(code);
+    }
+}
@@ -0,0 +1,75 @@
+package org.agrimachinerymanager.common.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 游标分页的JMH微基准：在H2内存库的12万行表上对比OFFSET分页与游标分页在第1、1000、10000页的耗时
+ * OFFSET需要扫描并丢弃前面的行，游标直接从索引位置开始读取；两者结果一致由CursorPaginationTest验证
+ * 标记为基准测试，默认不执行，使用 -Pbenchmark 运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CursorPaginationBenchmark {
+
+    private static final int ROWS = 120_000;
+
+    @Param({"1", "1000", "10000"})
+    private int page;
+
+    private OperationTaskTable table;
+
+    private String cursor;
+
+    @Setup
+    public void setUp() throws SQLException {
+        table = new OperationTaskTable("cursor_page_benchmark", ROWS);
+        cursor = table.cursorBefore(page);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        table.close();
+    }
+
+    @Benchmark
+    public List<Long> offset() throws SQLException {
+        return table.offsetPage("", page);
+    }
+
+    @Benchmark
+    public List<Long> seek() throws SQLException {
+        return table.seekPage(cursor);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CursorPaginationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,87 @@
+package org.agrimachinerymanager.common.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import org.agrimachinerymanager.common.result.CursorPage;
+import org.agrimachinerymanager.exception.BaseException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.agrimachinerymanager.common.util.OperationTaskTable.BASE_TIME;
+import static org.agrimachinerymanager.common.util.OperationTaskTable.PAGE_SIZE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 游标分页测试
+ * 在H2内存库中生成大表，对比OFFSET分页与游标分页在第1、1000、10000页的结果，耗时对比见CursorPaginationBenchmark
+ * 查询条件由CursorPagination生成，与服务层实际执行的SQL片段一致
+ */
+class CursorPaginationTest {
+
+    private static final int ROWS = 120_000;
+
+    private static OperationTaskTable table;
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        table = new OperationTaskTable("cursor_page", ROWS);
+    }
+
+    @AfterAll
+    static void dropTable() throws SQLException {
+        table.close();
+    }
+
+    @Test
+    void cursorRoundTrip() {
+        LocalDateTime time = LocalDateTime.of(2024, 5, 1, 8, 30, 15, 123_000_000);
+        CursorPagination.Position position = CursorPagination.decode(CursorPagination.encode(time, 42L));
+        assertEquals(time, position.time);
+        assertEquals(42L, position.id);
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThrows(BaseException.class, () -> CursorPagination.decode("not-a-cursor"));
+        assertThrows(BaseException.class, () -> CursorPagination.decode("%%%"));
+    }
+
+    @Test
+    void pageTrimsExtraRowAndBuildsNextCursor() {
+        List<Long> rows = List.of(5L, 4L, 3L);
+        CursorPage<Long> page = CursorPagination.page(rows, 2, id -> BASE_TIME.plusSeconds(id), id -> id);
+        assertEquals(List.of(5L, 4L), page.getRecords());
+        assertTrue(page.isHasMore());
+        CursorPagination.Position next = CursorPagination.decode(page.getNextCursor());
+        assertEquals(4L, next.id);
+
+        CursorPage<Long> last = CursorPagination.page(List.of(1L), 2, id -> BASE_TIME, id -> id);
+        assertFalse(last.isHasMore());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void walkingWithCursorMatchesOffsetPaging() throws SQLException {
+        String cursor = null;
+        for (int page = 1; page <= 50; page++) {
+            QueryWrapper<Object> wrapper = new QueryWrapper<>();
+            wrapper.eq("status", 1);
+            CursorPagination.seek(wrapper, "create_time", cursor, PAGE_SIZE);
+            List<OperationTaskTable.Row> rows = table.query(wrapper);
+            assertEquals(table.offsetPage("WHERE status = 1", page),
+                    OperationTaskTable.ids(rows.subList(0, PAGE_SIZE)));
+            cursor = CursorPagination.encode(rows.get(PAGE_SIZE - 1).time, rows.get(PAGE_SIZE - 1).id);
+        }
+    }
+
+    @Test
+    void seekMatchesOffsetAtDeepPages() throws SQLException {
+        for (int page : new int[]{1, 1_000, 10_000}) {
+            assertEquals(table.offsetPage("", page), table.seekPage(table.cursorBefore(page)), "第" + page + "页");
+        }
+    }
+}
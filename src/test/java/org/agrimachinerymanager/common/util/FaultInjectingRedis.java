@@ -0,0 +1,109 @@
+package org.agrimachinerymanager.common.util;
+
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 测试用的本地Redis替身，可注入故障
+ * 只实现黑名单和熔断器用到的命令，数据保存在内存中
+ * UP-正常，DOWN-立即抛出连接失败，SLOW-等待指定时间后抛出命令超时（模拟Redis变慢时客户端超时）
+ */
+class FaultInjectingRedis {
+
+    enum Mode {
+        UP,
+        DOWN,
+        SLOW
+    }
+
+    private volatile Mode mode = Mode.UP;
+
+    private volatile long latencyMillis = 50;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    final Map<String, String> strings = new ConcurrentHashMap<>();
+
+    final Map<String, Map<String, Double>> zsets = new ConcurrentHashMap<>();
+
+    final List<String> published = new CopyOnWriteArrayList<>();
+
+    private final StringRedisTemplate template;
+
+    @SuppressWarnings("unchecked")
+    FaultInjectingRedis() {
+        template = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+        ZSetOperations<String, String> zSetOps = mock(ZSetOperations.class);
+        when(template.opsForValue()).thenReturn(valueOps);
+        when(template.opsForZSet()).thenReturn(zSetOps);
+
+        doAnswer(invocation -> call(() -> {
+            strings.put(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        })).when(valueOps).set(anyString(), anyString(), anyLong(), any(TimeUnit.class));
+        when(valueOps.get(anyString())).thenAnswer(invocation -> call(() -> strings.get(invocation.getArgument(0))));
+        when(template.hasKey(anyString())).thenAnswer(invocation ->
+                call(() -> strings.containsKey(invocation.<String>getArgument(0))));
+        when(zSetOps.add(anyString(), anyString(), anyDouble())).thenAnswer(invocation -> call(() ->
+                zsets.computeIfAbsent(invocation.getArgument(0), k -> new ConcurrentHashMap<>())
+                        .put(invocation.getArgument(1), invocation.getArgument(2)) == null));
+        when(template.convertAndSend(anyString(), any())).thenAnswer(invocation -> call(() -> {
+            published.add(invocation.getArgument(1));
+            return 1L;
+        }));
+        when(template.execute(any(RedisCallback.class))).thenAnswer(invocation -> call(() -> "PONG"));
+    }
+
+    StringRedisTemplate template() {
+        return template;
+    }
+
+    void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * 实际到达Redis替身的命令数
+     */
+    int calls() {
+        return calls.get();
+    }
+
+    private <T> T call(Supplier<T> command) throws InterruptedException {
+        calls.incrementAndGet();
+        switch (mode) {
+            case DOWN:
+                throw new RedisConnectionFailureException("Unable to connect to Redis");
+            case SLOW:
+                Thread.sleep(latencyMillis);
+                throw new QueryTimeoutException("Redis command timed out after " + latencyMillis + "ms");
+            default:
+                return command.get();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.agrimachinerymanager.common.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * JwtTokenBlacklist测试
+ * 心跳通过模拟的订阅投递回黑名单，验证订阅未确认、断开或尚未重建时布隆过滤器不参与判定
+ */
+class JwtTokenBlacklistTest {
+
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> zSetOperations = mock(ZSetOperations.class);
+
+    private final RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+
+    // 黑名单索引中的令牌，重建时读取
+    private final Set<ZSetOperations.TypedTuple<String>> index = new LinkedHashSet<>();
+
+    // 模拟的订阅是否投递消息
+    private final AtomicBoolean delivering = new AtomicBoolean(true);
+
+    private JwtTokenBlacklist blacklist;
+
+    @BeforeEach
+    void setUp() {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(breaker, "openDuration", 60_000L);
+        ReflectionTestUtils.setField(breaker, "maxConcurrent", 4);
+        breaker.init();
+
+        blacklist = new JwtTokenBlacklist();
+        ReflectionTestUtils.setField(blacklist, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(blacklist, "redisMessageListenerContainer", container);
+        ReflectionTestUtils.setField(blacklist, "verifiedTokenCache", mock(VerifiedTokenCache.class));
+        ReflectionTestUtils.setField(blacklist, "redisCircuitBreaker", breaker);
+        ReflectionTestUtils.setField(blacklist, "redisFallbackStore", mock(RedisFallbackStore.class));
+        ReflectionTestUtils.setField(blacklist, "bloomEnabled", true);
+        ReflectionTestUtils.setField(blacklist, "expectedInsertions", 1000L);
+        ReflectionTestUtils.setField(blacklist, "falsePositiveRate", 0.001);
+        ReflectionTestUtils.setField(blacklist, "windowSeconds", 3600L);
+        ReflectionTestUtils.setField(blacklist, "heartbeatInterval", 2000L);
+
+        when(container.isListening()).thenReturn(true);
+        when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(zSetOperations.rangeByScoreWithScores(anyString(), anyDouble(), anyDouble()))
+                .thenAnswer(invocation -> new LinkedHashSet<>(index));
+        doAnswer(invocation -> {
+            if (delivering.get()) {
+                String channel = invocation.getArgument(0);
+                String body = invocation.getArgument(1);
+                blacklist.onMessage(new DefaultMessage(channel.getBytes(StandardCharsets.UTF_8),
+                        body.getBytes(StandardCharsets.UTF_8)), null);
+            }
+            return 1L;
+        }).when(stringRedisTemplate).convertAndSend(eq(JwtTokenBlacklist.HEARTBEAT_CHANNEL), anyString());
+    }
+
+    @Test
+    void bloomIsUsedOnlyAfterSubscriptionIsConfirmedAndRebuilt() {
+        // 启动时的定期重建早于订阅，不能据此判定
+        blacklist.rebuildBloomFilter();
+        assertTrue(blacklist.needsLookup("token-1"));
+
+        // 收到第一个心跳，订阅已确认，但重建发生在订阅之前
+        blacklist.heartbeat();
+        assertTrue(blacklist.needsLookup("token-1"));
+
+        // 下一次心跳先重建
+        blacklist.heartbeat();
+        assertFalse(blacklist.needsLookup("token-1"));
+        assertEquals(Boolean.TRUE, blacklist.getStats().get("bloomReady"));
+    }
+
+    @Test
+    void fallsBackToRedisAfterMissedHeartbeatUntilRebuilt() {
+        becomeReady();
+
+        // 订阅断开期间其他节点拉黑的令牌，通知丢失，只写入了索引
+        delivering.set(false);
+        blacklist.heartbeat();
+        index.add(new DefaultTypedTuple<>("logged-out-elsewhere", (double) (System.currentTimeMillis() + 60_000)));
+        delivering.set(true);
+
+        // 订阅恢复后收到的心跳序号不连续
+        blacklist.heartbeat();
+        assertTrue(blacklist.needsLookup("logged-out-elsewhere"));
+        assertTrue(blacklist.needsLookup("token-1"));
+        assertEquals(1L, blacklist.getStats().get("subscriptionLosses"));
+
+        // 重建后过滤器包含断开期间拉黑的令牌
+        blacklist.heartbeat();
+        assertTrue(blacklist.needsLookup("logged-out-elsewhere"));
+        assertFalse(blacklist.needsLookup("token-1"));
+    }
+
+    @Test
+    void fallsBackToRedisWhenHeartbeatIsStale() {
+        becomeReady();
+
+        ReflectionTestUtils.setField(blacklist, "heartbeatReceivedAt", System.currentTimeMillis() - 10_000);
+
+        assertTrue(blacklist.needsLookup("token-1"));
+    }
+
+    @Test
+    void fallsBackToRedisWhenContainerIsNotListening() {
+        becomeReady();
+
+        when(container.isListening()).thenReturn(false);
+
+        assertTrue(blacklist.needsLookup("token-1"));
+    }
+
+    @Test
+    void expiredWindowsAreSkippedByLookupsAndPrunedByHeartbeat() {
+        becomeReady();
+        long now = System.currentTimeMillis();
+        blacklist.putToBloom("expired-token", now - 7_200_000);
+        blacklist.putToBloom("live-token", now + 60_000);
+
+        // 查询跳过已过期的窗口，但不修改过滤器集合
+        assertFalse(blacklist.needsLookup("expired-token"));
+        assertTrue(blacklist.needsLookup("live-token"));
+        assertEquals(2, blacklist.getStats().get("windows"));
+
+        blacklist.heartbeat();
+        assertEquals(1, blacklist.getStats().get("windows"));
+        assertTrue(blacklist.needsLookup("live-token"));
+    }
+
+    private void becomeReady() {
+        blacklist.heartbeat();
+        blacklist.heartbeat();
+        assertFalse(blacklist.needsLookup("token-1"));
+    }
+}
@@ -0,0 +1,90 @@
+package org.agrimachinerymanager.common.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtUtil的JMH微基准：单次解析与旧实现（三次解析、每次新建解析器）的校验耗时对比
+ * 标记为基准测试，默认不执行，使用 -Pbenchmark 运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET =
+            "agrimachinery-manager-2024-secure-key-long-enough-for-hs512-algorithm-complex-password-12345678";
+
+    private JwtUtil jwtUtil;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3600L);
+        jwtUtil.init();
+
+        token = jwtUtil.generateToken(7L, "bench", 2, 0L);
+    }
+
+    @Benchmark
+    public boolean legacyTripleParse() {
+        return legacyVerify(token);
+    }
+
+    @Benchmark
+    public boolean singleParse() {
+        JwtUtil.TokenClaims claims = jwtUtil.parseToken(token);
+        return jwtUtil.validateClaims(claims, claims.getUsername());
+    }
+
+    /**
+     * 旧实现：过滤器解析一次用户名，validateToken再解析两次，每次都新建解析器
+     */
+    static boolean legacyVerify(String token) {
+        String username = legacyClaims(token).getSubject();
+        String tokenUsername = legacyClaims(token).getSubject();
+        Date expiration = legacyClaims(token).getExpiration();
+        return tokenUsername.equals(username) && !expiration.before(new Date());
+    }
+
+    private static Claims legacyClaims(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(SECRET.getBytes())
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtUtilBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,98 @@
+package org.agrimachinerymanager.common.util;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JwtUtil单元测试，单次解析与旧实现（三次解析）的耗时对比见JwtUtilBenchmark
+ */
+class JwtUtilTest {
+
+    private static final String SECRET =
+            "agrimachinery-manager-2024-secure-key-long-enough-for-hs512-algorithm-complex-password-12345678";
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3600L);
+        jwtUtil.init();
+    }
+
+    @Test
+    void parseTokenReturnsAllClaims() {
+        String token = jwtUtil.generateToken(42L, "operator", 2, 5L);
+
+        JwtUtil.TokenClaims claims = jwtUtil.parseToken(token);
+
+        assertEquals("operator", claims.getUsername());
+        assertEquals(42L, claims.getUserId());
+        assertEquals(2, claims.getRole());
+        assertEquals(5L, claims.getEpoch());
+        assertFalse(claims.isExpired());
+        assertTrue(jwtUtil.validateClaims(claims, "operator"));
+        assertFalse(jwtUtil.validateClaims(claims, "admin"));
+        assertFalse(claims.isLegacy());
+        assertEquals(36, claims.getTokenId().length());
+    }
+
+    @Test
+    void refreshedTokenKeepsLoginSession() {
+        JwtUtil.TokenClaims login = jwtUtil.parseToken(jwtUtil.generateToken(42L, "operator", 2, 0L));
+        JwtUtil.TokenClaims refreshed = jwtUtil.parseToken(
+                jwtUtil.generateToken(42L, "operator", 2, 0L, login.getSessionId()));
+
+        assertEquals(login.getTokenId(), login.getSessionId());
+        assertEquals(login.getSessionId(), refreshed.getSessionId());
+        assertNotEquals(login.getTokenId(), refreshed.getTokenId());
+    }
+
+    @Test
+    void legacyTokenWithoutJtiUsesFixedSizeDigest() {
+        String token = Jwts.builder()
+                .setSubject("legacy")
+                .claim("userId", 3L)
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes()), SignatureAlgorithm.HS512)
+                .compact();
+
+        JwtUtil.TokenClaims claims = jwtUtil.parseToken(token);
+
+        assertTrue(claims.isLegacy());
+        assertEquals(JwtUtil.digest(token), claims.getTokenId());
+        assertEquals(43, claims.getTokenId().length());
+        assertEquals(0L, claims.getEpoch());
+        assertEquals(claims.getTokenId(), claims.getSessionId());
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = jwtUtil.generateToken(1L, "admin", 1, 0L);
+        String tampered = token.substring(0, token.length() - 2) + "xx";
+
+        assertFalse(jwtUtil.validateToken(tampered, "admin"));
+    }
+
+    @Test
+    void singleParseAgreesWithLegacyTripleParse() {
+        String token = jwtUtil.generateToken(7L, "bench", 2, 0L);
+
+        assertTrue(JwtUtilBenchmark.legacyVerify(token));
+        assertTrue(singleVerify(token));
+    }
+
+    private boolean singleVerify(String token) {
+        JwtUtil.TokenClaims claims = jwtUtil.parseToken(token);
+        return jwtUtil.validateClaims(claims, claims.getUsername());
+    }
+}
@@ -0,0 +1,188 @@
+package org.agrimachinerymanager.common.util;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * LogoutManager测试
+ * 登出脚本和批量强制下线的流水线在内嵌Redis上执行，会话由实际的RedisLoginManager登记，
+ * 令牌版本号由实际的TokenEpochManager维护，黑名单和降级存储使用Mockito模拟
+ */
+class LogoutManagerTest {
+
+    private static final String SECRET =
+            "agrimachinery-manager-2024-secure-key-long-enough-for-hs512-algorithm-complex-password-12345678";
+
+    private static EmbeddedRedis redis;
+
+    // 包装真实连接，用于确认版本号变更通知的条数
+    private final StringRedisTemplate template = spy(redis.template());
+
+    private final JwtTokenBlacklist jwtTokenBlacklist = mock(JwtTokenBlacklist.class);
+
+    private final RedisFallbackStore redisFallbackStore = mock(RedisFallbackStore.class);
+
+    private JwtUtil jwtUtil;
+
+    private RedisLoginManager redisLoginManager;
+
+    private TokenEpochManager tokenEpochManager;
+
+    private LogoutManager logoutManager;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3600L);
+        jwtUtil.init();
+
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(breaker, "openDuration", 60_000L);
+        ReflectionTestUtils.setField(breaker, "maxConcurrent", 4);
+        breaker.init();
+
+        redisLoginManager = new RedisLoginManager(604800, 60, true, 500);
+        ReflectionTestUtils.setField(redisLoginManager, "stringRedisTemplate", template);
+        ReflectionTestUtils.setField(redisLoginManager, "jwtTokenBlacklist", jwtTokenBlacklist);
+        ReflectionTestUtils.setField(redisLoginManager, "redisCircuitBreaker", breaker);
+        ReflectionTestUtils.setField(redisLoginManager, "redisFallbackStore", redisFallbackStore);
+        ReflectionTestUtils.setField(redisLoginManager, "maxSessions", 5);
+        ReflectionTestUtils.setField(redisLoginManager, "onlineWindow", 900L);
+
+        RedisClientSideCache clientSideCache = mock(RedisClientSideCache.class);
+        when(clientSideCache.get(anyString()))
+                .thenAnswer(invocation -> template.opsForValue().get(invocation.<String>getArgument(0)));
+        tokenEpochManager = new TokenEpochManager();
+        ReflectionTestUtils.setField(tokenEpochManager, "stringRedisTemplate", template);
+        ReflectionTestUtils.setField(tokenEpochManager, "redisMessageListenerContainer",
+                mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(tokenEpochManager, "redisCircuitBreaker", breaker);
+        ReflectionTestUtils.setField(tokenEpochManager, "redisClientSideCache", clientSideCache);
+        ReflectionTestUtils.setField(tokenEpochManager, "refreshInterval", 30L);
+        ReflectionTestUtils.setField(tokenEpochManager, "maxSize", 1000L);
+        ReflectionTestUtils.setField(tokenEpochManager, "legacyKeyCheck", true);
+        tokenEpochManager.init();
+
+        logoutManager = new LogoutManager();
+        ReflectionTestUtils.setField(logoutManager, "batchSize", 2);
+        ReflectionTestUtils.setField(logoutManager, "stringRedisTemplate", template);
+        ReflectionTestUtils.setField(logoutManager, "jwtTokenBlacklist", jwtTokenBlacklist);
+        ReflectionTestUtils.setField(logoutManager, "tokenEpochManager", tokenEpochManager);
+        ReflectionTestUtils.setField(logoutManager, "redisLoginManager", redisLoginManager);
+        ReflectionTestUtils.setField(logoutManager, "redisCircuitBreaker", breaker);
+        ReflectionTestUtils.setField(logoutManager, "redisFallbackStore", redisFallbackStore);
+    }
+
+    @Test
+    void logoutBlacklistsTokenAndRemovesOnlyItsSession() {
+        JwtUtil.TokenClaims phone = login(7L);
+        JwtUtil.TokenClaims pc = login(7L);
+        String phoneRefresh = redisLoginManager.saveLoginInfo(phone, null, "phone");
+        redisLoginManager.saveLoginInfo(pc, null, "pc");
+
+        logoutManager.logout(phone);
+
+        long expirationTime = phone.getExpiration().getTime();
+        String blacklistKey = RedisKeys.blacklist(7L, phone.getTokenId());
+        assertEquals(String.valueOf(expirationTime), template.opsForValue().get(blacklistKey));
+        long ttl = template.getExpire(blacklistKey, TimeUnit.SECONDS);
+        assertTrue(ttl > 3500 && ttl <= 3600, "黑名单保留时间: " + ttl);
+        assertEquals((double) expirationTime,
+                template.opsForZSet().score(RedisKeys.BLACKLIST_INDEX, phone.getTokenId()));
+        // 只删除令牌所属的会话，刷新令牌随之失效
+        assertFalse(template.hasKey(RedisKeys.session(7L, phone.getSessionId())));
+        assertNull(template.opsForZSet().score(RedisKeys.userSessions(7L), phone.getSessionId()));
+        assertNull(template.opsForZSet().score(RedisKeys.ONLINE_SESSIONS,
+                RedisKeys.onlineMember(7L, phone.getSessionId())));
+        assertNull(redisLoginManager.findRefreshSession(phoneRefresh));
+        assertEquals(List.of(pc.getSessionId()), redisLoginManager.getUserSessions(7L).stream()
+                .map(RedisLoginManager.UserLoginInfo::getTokenId).toList());
+        verify(jwtTokenBlacklist).putToBloom(phone.getTokenId(), expirationTime);
+        verify(redisFallbackStore, never()).blacklist(anyLong(), anyString(), anyLong());
+        verify(redisFallbackStore, never()).removeSession(anyString(), anyLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void logoutIsKeptLocallyWhenRedisIsDown() {
+        JwtUtil.TokenClaims claims = login(7L);
+        doThrow(new RedisConnectionFailureException("Unable to connect to Redis"))
+                .when(template).execute(any(RedisScript.class), anyList(), any(Object[].class));
+
+        logoutManager.logout(claims);
+
+        verify(redisFallbackStore).blacklist(7L, claims.getTokenId(), claims.getExpiration().getTime());
+        verify(redisFallbackStore).removeSession(claims.getSessionId(), 7L);
+        verify(jwtTokenBlacklist).putToBloom(claims.getTokenId(), claims.getExpiration().getTime());
+    }
+
+    @Test
+    void logoutUsersBumpsEpochsAndRemovesSessionsInBatches() {
+        JwtUtil.TokenClaims first = login(7L);
+        JwtUtil.TokenClaims second = login(8L);
+        JwtUtil.TokenClaims third = login(9L);
+        JwtUtil.TokenClaims bystander = login(10L);
+        for (JwtUtil.TokenClaims claims : List.of(first, second, third, bystander)) {
+            redisLoginManager.saveLoginInfo(claims, null, null);
+        }
+        // 用户8在升级前已有版本号，新键以旧值为初始值
+        template.opsForHash().put(RedisKeys.LEGACY_EPOCH_KEY, "8", "4");
+
+        int processed = logoutManager.logoutUsers(List.of(7L, 8L, 9L));
+
+        assertEquals(3, processed);
+        assertEquals("1", template.opsForValue().get(RedisKeys.epoch(7L)));
+        assertEquals("5", template.opsForValue().get(RedisKeys.epoch(8L)));
+        assertEquals("1", template.opsForValue().get(RedisKeys.epoch(9L)));
+        assertTrue(tokenEpochManager.isRevoked(7L, first.getEpoch()));
+        assertTrue(tokenEpochManager.isRevoked(9L, third.getEpoch()));
+        for (Long userId : List.of(7L, 8L, 9L)) {
+            assertFalse(redisLoginManager.isLoggedIn(userId));
+        }
+        // 每批只发布一条通知
+        verify(template).convertAndSend(TokenEpochManager.EPOCH_CHANNEL, "7:1,8:5");
+        verify(template).convertAndSend(TokenEpochManager.EPOCH_CHANNEL, "9:1");
+        verify(template, times(2)).convertAndSend(eq(TokenEpochManager.EPOCH_CHANNEL), anyString());
+        // 其他用户不受影响
+        assertTrue(redisLoginManager.isLoggedIn(10L));
+        assertFalse(tokenEpochManager.isRevoked(10L, bystander.getEpoch()));
+        assertEquals(List.of(RedisKeys.onlineMember(10L, bystander.getSessionId())),
+                List.copyOf(template.opsForZSet().range(RedisKeys.ONLINE_SESSIONS, 0, -1)));
+    }
+
+    private JwtUtil.TokenClaims login(Long userId) {
+        return jwtUtil.parseToken(jwtUtil.generateToken(userId, "operator", 2, 0L));
+    }
+}
@@ -0,0 +1,104 @@
+package org.agrimachinerymanager.common.util;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import org.agrimachinerymanager.entity.Machinery;
+import org.agrimachinerymanager.mapper.MachineryMapper;
+import org.agrimachinerymanager.service.impl.MachineryServiceImpl;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * H2内存库中的machinery表，供批量写入的测试和基准测试使用
+ * 使用真实的MyBatis-Plus映射语句、批处理执行器和Spring事务
+ */
+class MachineryTable implements AutoCloseable {
+
+    private final SingleConnectionDataSource dataSource;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final MachineryMapper machineryMapper;
+
+    /**
+     * 创建表
+     * @param database 内存库名称
+     */
+    MachineryTable(String database) {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:" + database + ";MODE=MySQL", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE machinery (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "machinery_code VARCHAR(50) NOT NULL UNIQUE, type_code VARCHAR(50), brand VARCHAR(50), "
+                + "model VARCHAR(50), factory_number VARCHAR(50), buy_date DATE, power DECIMAL(10, 2), "
+                + "department VARCHAR(50), responsible_user_id BIGINT, status VARCHAR(20), photo_url VARCHAR(255), "
+                + "remark VARCHAR(500), create_time TIMESTAMP, update_time TIMESTAMP)");
+
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.setEnvironment(new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.addMapper(MachineryMapper.class);
+        SqlSessionFactory sqlSessionFactory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        machineryMapper = new SqlSessionTemplate(sqlSessionFactory).getMapper(MachineryMapper.class);
+    }
+
+    JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    MachineryMapper mapper() {
+        return machineryMapper;
+    }
+
+    void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE machinery RESTART IDENTITY");
+    }
+
+    int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM machinery", Integer.class);
+    }
+
+    BatchWriter batchWriter(int chunkSize, int maxRows) {
+        BatchWriter batchWriter = new BatchWriter();
+        ReflectionTestUtils.setField(batchWriter, "chunkSize", chunkSize);
+        ReflectionTestUtils.setField(batchWriter, "maxRows", maxRows);
+        ReflectionTestUtils.setField(batchWriter, "transactionTemplate", transactionTemplate);
+        return batchWriter;
+    }
+
+    MachineryServiceImpl service() {
+        MachineryServiceImpl service = new MachineryServiceImpl();
+        ReflectionTestUtils.setField(service, "machineryMapper", machineryMapper);
+        ReflectionTestUtils.setField(service, "pageCountManager", mock(PageCountManager.class));
+        ReflectionTestUtils.setField(service, "batchWriter", batchWriter(500, 5000));
+        return service;
+    }
+
+    static Machinery machinery(String code) {
+        Machinery machinery = new Machinery();
+        machinery.setMachineryCode(code);
+        machinery.setTypeCode("TRACTOR");
+        machinery.setBrand("东方红");
+        machinery.setModel("LX904");
+        machinery.setStatus("正常");
+        return machinery;
+    }
+
+    @Override
+    public void close() {
+        jdbcTemplate.execute("DROP TABLE machinery");
+        dataSource.destroy();
+    }
+}
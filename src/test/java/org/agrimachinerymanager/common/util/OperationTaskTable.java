@@ -0,0 +1,161 @@
+package org.agrimachinerymanager.common.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * H2内存库中的operation_task大表，供游标分页的测试和基准测试使用
+ * 游标分页的查询条件由CursorPagination生成，与服务层实际执行的SQL片段一致
+ */
+class OperationTaskTable implements AutoCloseable {
+
+    static final int PAGE_SIZE = 10;
+
+    static final LocalDateTime BASE_TIME = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final Pattern PARAM = Pattern.compile("#\\{ew\\.paramNameValuePairs\\.(\\w+)}");
+
+    private final Connection connection;
+
+    /**
+     * 创建并填充表
+     * @param database 内存库名称
+     * @param rows 行数
+     */
+    OperationTaskTable(String database, int rows) throws SQLException {
+        // 关闭结果复用，否则重复执行相同的查询时H2直接返回上次的结果，测不出实际耗时
+        connection = DriverManager.getConnection("jdbc:h2:mem:" + database + ";OPTIMIZE_REUSE_RESULTS=FALSE");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE operation_task (id BIGINT PRIMARY KEY, "
+                    + "create_time TIMESTAMP NOT NULL, status INT NOT NULL)");
+            // H2不会反向扫描升序索引，这里建降序索引；MySQL(InnoDB)可直接反向扫描(create_time, id)升序索引
+            statement.execute("CREATE INDEX idx_create_time_id ON operation_task (create_time DESC, id DESC)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO operation_task (id, create_time, status) VALUES (?, ?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                insert.setLong(1, i);
+                // 每3条记录共用一个创建时间，验证时间相同时按ID继续定位
+                insert.setTimestamp(2, Timestamp.valueOf(BASE_TIME.plusSeconds(i / 3)));
+                insert.setInt(3, i % 4);
+                insert.addBatch();
+                if (i % 5000 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    /**
+     * 取上一页最后一条记录作为游标，第1页不带游标
+     */
+    String cursorBefore(int page) throws SQLException {
+        if (page == 1) {
+            return null;
+        }
+        Row last = lastRowOfPage(page - 1);
+        return CursorPagination.encode(last.time, last.id);
+    }
+
+    List<Long> seekPage(String cursor) throws SQLException {
+        QueryWrapper<Object> wrapper = new QueryWrapper<>();
+        CursorPagination.seek(wrapper, "create_time", cursor, PAGE_SIZE);
+        return ids(query(wrapper).subList(0, PAGE_SIZE));
+    }
+
+    /**
+     * 执行CursorPagination生成的查询条件，将MyBatis参数占位符替换为JDBC参数
+     */
+    List<Row> query(QueryWrapper<Object> wrapper) throws SQLException {
+        String segment = wrapper.getCustomSqlSegment();
+        Map<String, Object> values = wrapper.getParamNameValuePairs();
+        List<Object> params = new ArrayList<>();
+        Matcher matcher = PARAM.matcher(segment);
+        StringBuilder sql = new StringBuilder("SELECT id, create_time FROM operation_task ");
+        int end = 0;
+        while (matcher.find()) {
+            sql.append(segment, end, matcher.start()).append('?');
+            params.add(values.get(matcher.group(1)));
+            end = matcher.end();
+        }
+        sql.append(segment.substring(end));
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                statement.setObject(i + 1, params.get(i));
+            }
+            List<Row> rows = new ArrayList<>();
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Row(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime()));
+                }
+            }
+            return rows;
+        }
+    }
+
+    List<Long> offsetPage(String where, int page) throws SQLException {
+        String sql = "SELECT id FROM operation_task " + where
+                + " ORDER BY create_time DESC, id DESC LIMIT " + PAGE_SIZE + " OFFSET " + (long) (page - 1) * PAGE_SIZE;
+        List<Long> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids;
+    }
+
+    private Row lastRowOfPage(int page) throws SQLException {
+        String sql = "SELECT id, create_time FROM operation_task ORDER BY create_time DESC, id DESC LIMIT 1 OFFSET "
+                + ((long) page * PAGE_SIZE - 1);
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            if (!rs.next()) {
+                throw new IllegalArgumentException("第" + page + "页不存在");
+            }
+            return new Row(rs.getLong(1), rs.getTimestamp(2).toLocalDateTime());
+        }
+    }
+
+    static List<Long> ids(List<Row> rows) {
+        List<Long> ids = new ArrayList<>();
+        for (Row row : rows) {
+            ids.add(row.id);
+        }
+        return ids;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE operation_task");
+        }
+        connection.close();
+    }
+
+    static class Row {
+        final long id;
+        final LocalDateTime time;
+
+        Row(long id, LocalDateTime time) {
+            this.id = id;
+            this.time = time;
+        }
+    }
+}
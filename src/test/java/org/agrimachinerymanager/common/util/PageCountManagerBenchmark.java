@@ -0,0 +1,122 @@
+package org.agrimachinerymanager.common.util;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CountedPage;
+import org.agrimachinerymanager.mapper.PageCountMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * PageCountManager的JMH微基准，数据在H2内存库的12万行表上
+ * countMode：各统计方式查询status=1的第100页；sequentialCount/parallelCount：精确统计第2500页时顺序与并行COUNT的对比，
+ * 较深的页码使数据查询与COUNT代价相近，并行收益最明显；结果一致由PageCountManagerTest验证
+ * 标记为基准测试，默认不执行，使用 -Pbenchmark 运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageCountManagerBenchmark {
+
+    private PageCountTable table;
+
+    private BaseMapper<Object> mapper;
+
+    private PageCountManager sequential;
+
+    private PageCountManager parallel;
+
+    /**
+     * 统计方式只作用于countMode，避免顺序与并行的对比按统计方式重复执行
+     */
+    @State(Scope.Benchmark)
+    public static class Modes {
+
+        @Param({"EXACT", "CACHED", "ESTIMATED", "NONE"})
+        private CountMode mode;
+    }
+
+    @Setup
+    public void setUp() throws SQLException {
+        table = new PageCountTable("page_count_benchmark");
+        PageCountMapper pageCountMapper = mock(PageCountMapper.class);
+        mapper = table.mapper(pageCountMapper);
+        table.stubExplain(pageCountMapper);
+        sequential = manager(pageCountMapper, false);
+        parallel = manager(pageCountMapper, true);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        parallel.shutdown();
+        table.close();
+    }
+
+    @Benchmark
+    public CountedPage<Object> countMode(Modes modes) {
+        return sequential.selectPage(mapper, PageCountTable.TABLE, 100, 10, PageCountTable.deepPageQuery(),
+                Map.of("status", 1), modes.mode);
+    }
+
+    @Benchmark
+    public CountedPage<Object> sequentialCount() {
+        return sequential.selectPage(mapper, PageCountTable.TABLE, 2500, 10, PageCountTable.deepPageQuery(),
+                null, CountMode.EXACT);
+    }
+
+    @Benchmark
+    public CountedPage<Object> parallelCount() {
+        return parallel.selectPage(mapper, PageCountTable.TABLE, 2500, 10, PageCountTable.deepPageQuery(),
+                null, CountMode.EXACT);
+    }
+
+    private static PageCountManager manager(PageCountMapper pageCountMapper, boolean parallelEnabled) {
+        PageCountManager manager = new PageCountManager();
+        ReflectionTestUtils.setField(manager, "pageCountMapper", pageCountMapper);
+        ReflectionTestUtils.setField(manager, "stringRedisTemplate", mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(manager, "redisCircuitBreaker", mock(RedisCircuitBreaker.class));
+        ReflectionTestUtils.setField(manager, "redisMessageListenerContainer",
+                mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(manager, "cacheTtl", 60L);
+        ReflectionTestUtils.setField(manager, "maxSize", 1000L);
+        ReflectionTestUtils.setField(manager, "parallelEnabled", parallelEnabled);
+        ReflectionTestUtils.setField(manager, "parallelMaxConcurrent", 2);
+        manager.init();
+        return manager;
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PageCountManagerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
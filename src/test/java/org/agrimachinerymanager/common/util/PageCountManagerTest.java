@@ -0,0 +1,319 @@
+package org.agrimachinerymanager.common.util;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.common.result.CountMode;
+import org.agrimachinerymanager.common.result.CountedPage;
+import org.agrimachinerymanager.config.MyBatisPlusConfig;
+import org.agrimachinerymanager.entity.OperationTask;
+import org.agrimachinerymanager.exception.BaseException;
+import org.agrimachinerymanager.mapper.OperationTaskMapper;
+import org.agrimachinerymanager.mapper.PageCountMapper;
+import org.apache.ibatis.mapping.Environment;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * PageCountManager测试
+ * 各统计方式的行为使用Mockito模拟数据访问或在H2内存库的12万行数据上执行；耗时对比见PageCountManagerBenchmark
+ */
+class PageCountManagerTest {
+
+    private static final String TABLE = PageCountTable.TABLE;
+
+    private static final int ROWS = PageCountTable.ROWS;
+
+    private static PageCountTable table;
+
+    private final PageCountMapper pageCountMapper = mock(PageCountMapper.class);
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+
+    private PageCountManager manager;
+
+    @BeforeAll
+    static void createTable() throws SQLException {
+        table = new PageCountTable("page_count");
+    }
+
+    @AfterAll
+    static void dropTable() throws SQLException {
+        table.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 2);
+        ReflectionTestUtils.setField(breaker, "openDuration", 60_000L);
+        ReflectionTestUtils.setField(breaker, "maxConcurrent", 4);
+        breaker.init();
+
+        manager = new PageCountManager();
+        ReflectionTestUtils.setField(manager, "pageCountMapper", pageCountMapper);
+        ReflectionTestUtils.setField(manager, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(manager, "redisCircuitBreaker", breaker);
+        ReflectionTestUtils.setField(manager, "redisMessageListenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(manager, "cacheTtl", 60L);
+        ReflectionTestUtils.setField(manager, "maxSize", 1000L);
+        manager.init();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cachedCountIsReusedUntilTableIsWritten() {
+        BaseMapper<Object> mapper = mock(BaseMapper.class);
+        AtomicInteger counts = new AtomicInteger();
+        when(mapper.selectPage(any(), any())).thenAnswer(invocation -> {
+            Page<Object> page = invocation.getArgument(0);
+            if (page.searchCount()) {
+                counts.incrementAndGet();
+                page.setTotal(42L);
+            }
+            return page;
+        });
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("status", 1);
+        params.put("taskCode", null);
+        manager.selectPage(mapper, TABLE, 1, 10, new QueryWrapper<>(), params, CountMode.CACHED);
+        // 空值条件不影响缓存键
+        CountedPage<Object> page = manager.selectPage(mapper, TABLE, 2, 10, new QueryWrapper<>(),
+                Map.of("status", 1), CountMode.CACHED);
+        assertEquals(42L, page.getTotal());
+        assertEquals(5L, page.getPages());
+        assertFalse(page.searchCount());
+        assertEquals(1, counts.get());
+
+        manager.invalidate(TABLE);
+        manager.selectPage(mapper, TABLE, 1, 10, new QueryWrapper<>(), params, CountMode.CACHED);
+        assertEquals(2, counts.get());
+        verify(stringRedisTemplate).convertAndSend(anyString(), eq(TABLE));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void noneModeLooksAheadOneRowInsteadOfCounting() {
+        BaseMapper<Object> mapper = mock(BaseMapper.class);
+        List<Object> rows = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            rows.add(i);
+        }
+        when(mapper.selectList(any())).thenReturn(rows);
+
+        QueryWrapper<Object> queryWrapper = new QueryWrapper<>();
+        CountedPage<Object> page = manager.selectPage(mapper, TABLE, 3, 10, queryWrapper, null, CountMode.NONE);
+
+        assertEquals(" LIMIT 20, 11", queryWrapper.getSqlSegment());
+        assertEquals(10, page.getRecords().size());
+        assertTrue(page.hasNext());
+        assertEquals(CountedPage.UNKNOWN_TOTAL, page.getTotal());
+        assertEquals(CountedPage.UNKNOWN_TOTAL, page.getPages());
+        verify(pageCountMapper, never()).count(anyString(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void estimateFallsBackToExactCountWhenPlanIsUnavailable() {
+        BaseMapper<Object> mapper = mock(BaseMapper.class);
+        when(mapper.selectList(any())).thenReturn(new ArrayList<>(List.of(1, 2)));
+        when(pageCountMapper.count(eq(TABLE), any())).thenReturn(2L);
+        when(pageCountMapper.explain(anyString(), any())).thenThrow(new IllegalStateException("EXPLAIN not supported"));
+
+        QueryWrapper<Object> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("status", 1);
+        CountedPage<Object> page = manager.selectPage(mapper, TABLE, 1, 10, queryWrapper, null, CountMode.ESTIMATED);
+
+        assertEquals(2L, page.getTotal());
+        assertFalse(page.hasNext());
+        assertEquals(1L, manager.getStats().get("estimateFailures"));
+    }
+
+    @Test
+    void rejectsUnknownCountMode() {
+        assertEquals(CountMode.EXACT, CountMode.of(null));
+        assertEquals(CountMode.CACHED, CountMode.of("cached"));
+        assertThrows(BaseException.class, () -> CountMode.of("approximate"));
+    }
+
+    @Test
+    void servesEveryModeFromRealData() {
+        BaseMapper<Object> mapper = h2Mapper();
+        stubH2Explain();
+
+        for (CountMode mode : CountMode.values()) {
+            QueryWrapper<Object> queryWrapper = deepPageQuery();
+            CountedPage<Object> page = manager.selectPage(mapper, TABLE, 100, 10, queryWrapper,
+                    Map.of("status", 1), mode);
+
+            assertEquals(10, page.getRecords().size(), mode.name());
+            assertTrue(page.hasNext(), mode.name());
+            // 模拟的执行计划按25%的过滤比例预估，与精确统计的结果相同
+            long expected = mode == CountMode.NONE ? CountedPage.UNKNOWN_TOTAL : ROWS / 4;
+            assertEquals(expected, page.getTotal(), mode.name());
+        }
+        assertEquals(0L, manager.getStats().get("estimateFailures"));
+    }
+
+    @Test
+    void parallelCountMatchesSequential() {
+        BaseMapper<Object> mapper = h2Mapper();
+        PageCountManager parallel = parallelManager(2);
+        try {
+            CountedPage<Object> expected = manager.selectPage(mapper, TABLE, 2500, 10, deepPageQuery(),
+                    null, CountMode.EXACT);
+            CountedPage<Object> actual = parallel.selectPage(mapper, TABLE, 2500, 10, deepPageQuery(),
+                    null, CountMode.EXACT);
+
+            assertEquals(ROWS / 4, actual.getTotal());
+            assertEquals(expected.getTotal(), actual.getTotal());
+            assertEquals(expected.getRecords(), actual.getRecords());
+            assertEquals(1L, parallel.getStats().get("parallelQueries"));
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fallsBackToSequentialWhenParallelSlotsAreBusy() throws Exception {
+        BaseMapper<Object> mapper = mock(BaseMapper.class);
+        CountDownLatch countStarted = new CountDownLatch(1);
+        CountDownLatch releaseCount = new CountDownLatch(1);
+        when(pageCountMapper.count(anyString(), any())).thenAnswer(invocation -> {
+            countStarted.countDown();
+            releaseCount.await(5, TimeUnit.SECONDS);
+            return 7L;
+        });
+        when(mapper.selectPage(any(), any())).thenAnswer(invocation -> {
+            Page<Object> page = invocation.getArgument(0);
+            if (page.searchCount()) {
+                page.setTotal(7L);
+            }
+            return page;
+        });
+        PageCountManager parallel = parallelManager(1);
+        try {
+            CompletableFuture<CountedPage<Object>> first = CompletableFuture.supplyAsync(() ->
+                    parallel.selectPage(mapper, TABLE, 1, 10, new QueryWrapper<>(), null, CountMode.EXACT));
+            assertTrue(countStarted.await(5, TimeUnit.SECONDS));
+
+            // 唯一的并行名额被占用，第二个请求在当前连接上顺序执行
+            CountedPage<Object> second = parallel.selectPage(mapper, TABLE, 1, 10, new QueryWrapper<>(), null,
+                    CountMode.EXACT);
+            assertEquals(7L, second.getTotal());
+            assertEquals(1L, parallel.getStats().get("parallelRejected"));
+
+            releaseCount.countDown();
+            assertEquals(7L, first.get(5, TimeUnit.SECONDS).getTotal());
+            assertEquals(1L, parallel.getStats().get("parallelQueries"));
+        } finally {
+            releaseCount.countDown();
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void countsProjectedQueriesThroughRealMapper() {
+        SqlSessionTemplate sqlSession = sqlSession();
+        OperationTaskMapper mapper = sqlSession.getMapper(OperationTaskMapper.class);
+        PageCountMapper realPageCountMapper = sqlSession.getMapper(PageCountMapper.class);
+        ReflectionTestUtils.setField(manager, "pageCountMapper", realPageCountMapper);
+        PageCountManager parallel = parallelManager(2);
+        ReflectionTestUtils.setField(parallel, "pageCountMapper", realPageCountMapper);
+        try {
+            // 指定返回字段后，并行COUNT和估算失败后的精确统计都不能带上查询的字段列表
+            for (PageCountManager countManager : List.of(manager, parallel)) {
+                for (CountMode mode : CountMode.values()) {
+                    QueryWrapper<OperationTask> queryWrapper = new QueryWrapper<>();
+                    queryWrapper.eq("status", 1);
+                    SparseFields.apply(queryWrapper, SparseFields.parse(OperationTask.class, "status"), "create_time");
+                    queryWrapper.orderByDesc("create_time", "id");
+
+                    CountedPage<OperationTask> page = countManager.selectPage(mapper, TABLE, 2, 10, queryWrapper,
+                            Map.of("status", 1), mode);
+
+                    assertEquals(10, page.getRecords().size());
+                    assertEquals(1, page.getRecords().get(0).getStatus());
+                    assertNull(page.getRecords().get(0).getResponsibleUserId());
+                    if (mode != CountMode.NONE) {
+                        assertEquals(ROWS / 4, page.getTotal(), mode.name());
+                    }
+                }
+            }
+            // exact和首次cached在另一个连接上并行COUNT，H2的执行计划没有预估行数，estimated退回精确统计
+            assertEquals(2L, parallel.getStats().get("parallelQueries"));
+            assertEquals(1L, parallel.getStats().get("estimateFailures"));
+            assertEquals(1L, manager.getStats().get("estimateFailures"));
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    private PageCountManager parallelManager(int maxConcurrent) {
+        PageCountManager parallel = new PageCountManager();
+        ReflectionTestUtils.setField(parallel, "pageCountMapper", pageCountMapper);
+        ReflectionTestUtils.setField(parallel, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(parallel, "redisCircuitBreaker", mock(RedisCircuitBreaker.class));
+        ReflectionTestUtils.setField(parallel, "redisMessageListenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(parallel, "cacheTtl", 60L);
+        ReflectionTestUtils.setField(parallel, "maxSize", 1000L);
+        ReflectionTestUtils.setField(parallel, "parallelEnabled", true);
+        ReflectionTestUtils.setField(parallel, "parallelMaxConcurrent", maxConcurrent);
+        parallel.init();
+        return parallel;
+    }
+
+    private void stubH2Explain() {
+        table.stubExplain(pageCountMapper);
+    }
+
+    private static QueryWrapper<Object> deepPageQuery() {
+        return PageCountTable.deepPageQuery();
+    }
+
+    /**
+     * 使用应用的分页插件配置，在H2上执行真实的MyBatis-Plus映射语句
+     */
+    private static SqlSessionTemplate sqlSession() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(table.url());
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.setEnvironment(new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.addInterceptor(new MyBatisPlusConfig().mybatisPlusInterceptor());
+        configuration.addMapper(OperationTaskMapper.class);
+        configuration.addMapper(PageCountMapper.class);
+        return new SqlSessionTemplate(new MybatisSqlSessionFactoryBuilder().build(configuration));
+    }
+
+    private BaseMapper<Object> h2Mapper() {
+        return table.mapper(pageCountMapper);
+    }
+}
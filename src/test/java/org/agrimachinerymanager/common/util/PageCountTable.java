@@ -0,0 +1,179 @@
+package org.agrimachinerymanager.common.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.mapper.PageCountMapper;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * H2内存库中的operation_task大表，供PageCountManager的测试和基准测试使用
+ * 数据访问使用Mockito模拟，查询和COUNT由H2实际执行
+ */
+class PageCountTable implements AutoCloseable {
+
+    static final String TABLE = "operation_task";
+
+    static final int ROWS = 120_000;
+
+    private static final Pattern PARAM = Pattern.compile("#\\{ew\\.paramNameValuePairs\\.(\\w+)}");
+
+    private final String url;
+
+    // 保持内存库在使用期间存在
+    private final Connection connection;
+
+    /**
+     * 创建并填充表
+     * @param database 内存库名称
+     */
+    PageCountTable(String database) throws SQLException {
+        // 关闭结果复用，否则重复执行相同的查询时H2直接返回上次的结果，测不出实际耗时
+        url = "jdbc:h2:mem:" + database + ";MODE=MySQL;OPTIMIZE_REUSE_RESULTS=FALSE";
+        connection = DriverManager.getConnection(url);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE operation_task (id BIGINT PRIMARY KEY, "
+                    + "create_time TIMESTAMP NOT NULL, status INT NOT NULL, responsible_user_id BIGINT NOT NULL)");
+            statement.execute("CREATE INDEX idx_create_time_id ON operation_task (create_time DESC, id DESC)");
+            statement.execute("INSERT INTO operation_task SELECT X, "
+                    + "DATEADD('SECOND', X, TIMESTAMP '2024-01-01 00:00:00'), MOD(X, 4), MOD(X, 50) "
+                    + "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+    }
+
+    String url() {
+        return url;
+    }
+
+    /**
+     * 由H2执行查询的数据访问模拟，按分页插件的方式处理COUNT和LIMIT，精确统计同样由H2执行
+     * @param pageCountMapper 模拟的统计Mapper，COUNT查询转到H2执行
+     */
+    @SuppressWarnings("unchecked")
+    BaseMapper<Object> mapper(PageCountMapper pageCountMapper) {
+        BaseMapper<Object> mapper = mock(BaseMapper.class);
+        when(pageCountMapper.count(eq(TABLE), any())).thenAnswer(invocation -> count(invocation.getArgument(1)));
+        when(mapper.selectList(any())).thenAnswer(invocation -> {
+            QueryWrapper<Object> queryWrapper = invocation.getArgument(0);
+            return ids("SELECT id FROM operation_task " + queryWrapper.getCustomSqlSegment(), queryWrapper);
+        });
+        when(mapper.selectPage(any(), any())).thenAnswer(invocation -> {
+            Page<Object> page = invocation.getArgument(0);
+            QueryWrapper<Object> queryWrapper = invocation.getArgument(1);
+            if (page.searchCount()) {
+                page.setTotal(count(queryWrapper));
+            }
+            page.setRecords(ids("SELECT id FROM operation_task " + queryWrapper.getCustomSqlSegment()
+                    + " LIMIT " + page.offset() + ", " + page.getSize(), queryWrapper));
+            return page;
+        });
+        return mapper;
+    }
+
+    /**
+     * H2没有MySQL格式的预估行数，这里执行H2的EXPLAIN（只生成执行计划、不扫描数据）并按表行数和25%过滤比例返回
+     */
+    void stubExplain(PageCountMapper pageCountMapper) {
+        when(pageCountMapper.explain(anyString(), any())).thenAnswer(invocation -> {
+            QueryWrapper<Object> queryWrapper = invocation.getArgument(1);
+            Sql sql = toSql("EXPLAIN SELECT * FROM operation_task " + queryWrapper.getCustomSqlSegment(), queryWrapper);
+            sql.query(rs -> null);
+            return List.of(Map.<String, Object>of("rows", ROWS, "filtered", 25.0));
+        });
+    }
+
+    static QueryWrapper<Object> deepPageQuery() {
+        QueryWrapper<Object> queryWrapper = new QueryWrapper<>();
+        queryWrapper.eq("status", 1).orderByDesc("create_time", "id");
+        return queryWrapper;
+    }
+
+    private long count(QueryWrapper<Object> queryWrapper) throws SQLException {
+        // 与分页插件一致，COUNT时去掉排序
+        String where = queryWrapper.getCustomSqlSegment().replaceAll("ORDER BY.*$", "");
+        return toSql("SELECT COUNT(*) FROM operation_task " + where, queryWrapper).query(rs -> {
+            rs.next();
+            return rs.getLong(1);
+        });
+    }
+
+    private List<Object> ids(String sql, QueryWrapper<Object> queryWrapper) throws SQLException {
+        return toSql(sql, queryWrapper).query(rs -> {
+            List<Object> ids = new ArrayList<>();
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+            return ids;
+        });
+    }
+
+    /**
+     * 将MyBatis参数占位符替换为JDBC参数
+     */
+    private Sql toSql(String sql, QueryWrapper<Object> queryWrapper) {
+        Map<String, Object> values = queryWrapper.getParamNameValuePairs();
+        List<Object> params = new ArrayList<>();
+        Matcher matcher = PARAM.matcher(sql);
+        StringBuilder result = new StringBuilder();
+        int end = 0;
+        while (matcher.find()) {
+            result.append(sql, end, matcher.start()).append('?');
+            params.add(values.get(matcher.group(1)));
+            end = matcher.end();
+        }
+        result.append(sql.substring(end));
+        return new Sql(result.toString(), params);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE operation_task");
+        }
+        connection.close();
+    }
+
+    private interface ResultReader<R> {
+        R read(ResultSet rs) throws SQLException;
+    }
+
+    private class Sql {
+        final String text;
+        final List<Object> params;
+
+        Sql(String text, List<Object> params) {
+            this.text = text;
+            this.params = params;
+        }
+
+        <R> R query(ResultReader<R> reader) throws SQLException {
+            // 每次查询使用单独的连接，与连接池中取连接一致，并行的两条语句不会在同一会话上排队
+            try (Connection session = DriverManager.getConnection(url);
+                 PreparedStatement statement = session.prepareStatement(text)) {
+                for (int i = 0; i < params.size(); i++) {
+                    statement.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    return reader.read(rs);
+                }
+            }
+        }
+    }
+}
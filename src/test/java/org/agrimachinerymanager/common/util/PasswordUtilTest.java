@@ -0,0 +1,96 @@
+package org.agrimachinerymanager.common.util;
+
+import org.agrimachinerymanager.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PasswordUtil单元测试
+ */
+class PasswordUtilTest {
+
+    private PasswordUtil passwordUtil;
+
+    @AfterEach
+    void tearDown() {
+        if (passwordUtil != null) {
+            passwordUtil.shutdown();
+        }
+    }
+
+    @Test
+    void verifyAndRehashWhenCostChanges() throws Exception {
+        passwordUtil = create(new BCryptPasswordEncoder(5), 5, 2, 4, 3000);
+        String oldHash = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(passwordUtil.verify("secret", oldHash));
+        assertFalse(passwordUtil.verify("wrong", oldHash));
+        assertTrue(passwordUtil.needsRehash(oldHash));
+
+        String newHash = passwordUtil.rehashAsync("secret").get(5, TimeUnit.SECONDS);
+        assertTrue(newHash.startsWith("$2a$05$"));
+        assertFalse(passwordUtil.needsRehash(newHash));
+        assertTrue(passwordUtil.verify("secret", newHash));
+        assertEquals(1L, passwordUtil.getStats().get("rehashes"));
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        BCryptPasswordEncoder blockingEncoder = new BCryptPasswordEncoder(4) {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+        passwordUtil = create(blockingEncoder, 4, 1, 1, 200);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            // 第一个请求占用唯一的线程，第二个请求进入队列
+            callers.submit(() -> passwordUtil.verify("a", "x"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            callers.submit(() -> passwordUtil.verify("b", "x"));
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((int) passwordUtil.getStats().get("queueDepth") < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+
+            ServiceOverloadedException rejected =
+                    assertThrows(ServiceOverloadedException.class, () -> passwordUtil.verify("c", "x"));
+            assertEquals(429, rejected.getStatus());
+            assertEquals(1L, passwordUtil.getStats().get("rejected"));
+        } finally {
+            release.countDown();
+            callers.shutdown();
+            assertTrue(callers.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static PasswordUtil create(BCryptPasswordEncoder encoder, int strength, int threads,
+                                       int queueCapacity, long waitTimeout) {
+        PasswordUtil util = new PasswordUtil(encoder);
+        ReflectionTestUtils.setField(util, "bcryptStrength", strength);
+        ReflectionTestUtils.setField(util, "threads", threads);
+        ReflectionTestUtils.setField(util, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(util, "waitTimeout", waitTimeout);
+        util.init();
+        return util;
+    }
+}
@@ -0,0 +1,131 @@
+package org.agrimachinerymanager.common.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Redis熔断与降级测试，使用可注入故障的本地Redis替身
+ */
+class RedisCircuitBreakerTest {
+
+    private static final Long USER_ID = 42L;
+
+    private FaultInjectingRedis redis;
+    private RedisCircuitBreaker breaker;
+    private RedisFallbackStore fallbackStore;
+    private JwtTokenBlacklist blacklist;
+
+    @BeforeEach
+    void setUp() {
+        redis = new FaultInjectingRedis();
+
+        breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "stringRedisTemplate", redis.template());
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(breaker, "openDuration", 50L);
+        ReflectionTestUtils.setField(breaker, "maxConcurrent", 4);
+        breaker.init();
+
+        fallbackStore = new RedisFallbackStore();
+        ReflectionTestUtils.setField(fallbackStore, "maxSize", 100L);
+        fallbackStore.init();
+
+        blacklist = new JwtTokenBlacklist();
+        ReflectionTestUtils.setField(blacklist, "stringRedisTemplate", redis.template());
+        ReflectionTestUtils.setField(blacklist, "verifiedTokenCache", mock(VerifiedTokenCache.class));
+        ReflectionTestUtils.setField(blacklist, "redisCircuitBreaker", breaker);
+        ReflectionTestUtils.setField(blacklist, "redisFallbackStore", fallbackStore);
+        ReflectionTestUtils.setField(blacklist, "bloomEnabled", false);
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresAndStopsCallingRedis() {
+        redis.setMode(FaultInjectingRedis.Mode.DOWN);
+        long expiration = System.currentTimeMillis() + 60_000;
+
+        for (int i = 0; i < 5; i++) {
+            blacklist.addToBlacklist(USER_ID, "token-" + i, expiration);
+        }
+
+        assertEquals(3, redis.calls(), "熔断后不应再访问Redis");
+        assertEquals("OPEN", breaker.getStats().get("state"));
+        assertEquals(5L, fallbackStore.getStats().get("pendingBlacklist"));
+        assertTrue(fallbackStore.isBlacklisted("token-4"));
+    }
+
+    @Test
+    void reconcilesFallbackBlacklistAfterRecovery() throws InterruptedException {
+        redis.setMode(FaultInjectingRedis.Mode.DOWN);
+        long expiration = System.currentTimeMillis() + 60_000;
+        for (int i = 0; i < 3; i++) {
+            blacklist.addToBlacklist(USER_ID, "token-" + i, expiration);
+        }
+        blacklist.reconcileFallback();
+        assertTrue(redis.strings.isEmpty());
+
+        redis.setMode(FaultInjectingRedis.Mode.UP);
+        Thread.sleep(60);
+        breaker.probe();
+        assertTrue(breaker.isClosed());
+
+        blacklist.reconcileFallback();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(expiration), redis.strings.get(RedisKeys.blacklist(USER_ID, "token-" + i)));
+        }
+        assertEquals(3, redis.zsets.get(RedisKeys.BLACKLIST_INDEX).size());
+        assertEquals(3, redis.published.size());
+        assertEquals(0L, fallbackStore.getStats().get("pendingBlacklist"));
+    }
+
+    @Test
+    void failedTrialReopensCircuit() throws InterruptedException {
+        redis.setMode(FaultInjectingRedis.Mode.SLOW);
+        redis.setLatencyMillis(20);
+        for (int i = 0; i < 3; i++) {
+            blacklist.addToBlacklist(USER_ID, "token-" + i, System.currentTimeMillis() + 60_000);
+        }
+        assertEquals(1L, breaker.getStats().get("opened"));
+
+        Thread.sleep(60);
+        breaker.probe();
+
+        assertFalse(breaker.isClosed());
+        assertEquals(2L, breaker.getStats().get("opened"));
+        assertEquals(4, redis.calls());
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondConcurrencyLimit() throws InterruptedException {
+        ReflectionTestUtils.setField(breaker, "maxConcurrent", 1);
+        breaker.init();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread slowCall = new Thread(() -> breaker.run(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        slowCall.start();
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        assertEquals("fallback", breaker.execute(() -> "redis", () -> "fallback"));
+        assertEquals(1L, breaker.getStats().get("bulkheadRejected"));
+        // 舱壁拒绝不计为失败，不会触发熔断
+        assertTrue(breaker.isClosed());
+
+        release.countDown();
+        slowCall.join();
+        assertEquals("redis", breaker.execute(() -> "redis", () -> "fallback"));
+    }
+}
@@ -0,0 +1,27 @@
+package org.agrimachinerymanager.common.util;
+
+import io.lettuce.core.cluster.SlotHash;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 认证相关Redis键的槽位测试
+ */
+class RedisKeysTest {
+
+    @Test
+    void userKeysShareOneClusterSlot() {
+        int slot = SlotHash.getSlot(RedisKeys.epoch(42L));
+
+        assertEquals(slot, SlotHash.getSlot(RedisKeys.session(42L, "session-a")));
+        assertEquals(slot, SlotHash.getSlot(RedisKeys.session(42L, "session-b")));
+        assertEquals(slot, SlotHash.getSlot(RedisKeys.userSessions(42L)));
+        assertEquals(slot, SlotHash.getSlot(RedisKeys.blacklist(42L, "token-id")));
+    }
+
+    @Test
+    void differentUsersSpreadAcrossSlots() {
+        assertNotEquals(SlotHash.getSlot(RedisKeys.epoch(42L)), SlotHash.getSlot(RedisKeys.epoch(43L)));
+    }
+}
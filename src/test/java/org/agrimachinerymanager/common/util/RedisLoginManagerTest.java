@@ -0,0 +1,437 @@
+package org.agrimachinerymanager.common.util;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.agrimachinerymanager.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * RedisLoginManager测试
+ * 会话的登记、淘汰、续期（含异步批量续期）、刷新令牌轮换和删除脚本在内嵌Redis上执行，黑名单和降级存储使用Mockito模拟
+ */
+class RedisLoginManagerTest {
+
+    private static final String SECRET =
+            "agrimachinery-manager-2024-secure-key-long-enough-for-hs512-algorithm-complex-password-12345678";
+
+    // 会话过期时间（秒）
+    private static final long SESSION_EXPIRATION = 604800;
+
+    private static EmbeddedRedis redis;
+
+    private final StringRedisTemplate template = redis.template();
+
+    private final JwtTokenBlacklist jwtTokenBlacklist = mock(JwtTokenBlacklist.class);
+
+    private final RedisFallbackStore redisFallbackStore = mock(RedisFallbackStore.class);
+
+    private JwtUtil jwtUtil;
+
+    private RedisLoginManager manager;
+
+    @BeforeAll
+    static void startRedis() {
+        redis = new EmbeddedRedis();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        redis.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redis.flush();
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3600L);
+        jwtUtil.init();
+        manager = manager(false);
+    }
+
+    @Test
+    void evictsOldestSessionBeyondMaxSessions() throws InterruptedException {
+        JwtUtil.TokenClaims first = login(7L);
+        String firstRefresh = manager.saveLoginInfo(first, "10.0.0.1", "phone");
+        // 登录时间是会话索引的分数，间隔一毫秒以上保证先后顺序
+        Thread.sleep(2);
+        JwtUtil.TokenClaims second = login(7L);
+        manager.saveLoginInfo(second, "10.0.0.2", "tablet");
+        Thread.sleep(2);
+        JwtUtil.TokenClaims third = login(7L);
+        manager.saveLoginInfo(third, "10.0.0.3", "pc");
+
+        assertFalse(template.hasKey(RedisKeys.session(7L, first.getSessionId())));
+        assertEquals(List.of(second.getSessionId(), third.getSessionId()),
+                manager.getUserSessions(7L).stream().map(RedisLoginManager.UserLoginInfo::getTokenId).toList());
+        assertNull(template.opsForZSet().score(RedisKeys.ONLINE_SESSIONS,
+                RedisKeys.onlineMember(7L, first.getSessionId())));
+        assertNotNull(template.opsForZSet().score(RedisKeys.ONLINE_SESSIONS,
+                RedisKeys.onlineMember(7L, third.getSessionId())));
+        // 被淘汰会话的访问令牌加入黑名单，刷新令牌随会话失效
+        verify(jwtTokenBlacklist).addToBlacklist(7L, first.getTokenId(), first.getExpiration().getTime());
+        verify(jwtTokenBlacklist, times(1)).addToBlacklist(anyLong(), anyString(), anyLong());
+        assertNull(manager.findRefreshSession(firstRefresh));
+    }
+
+    @Test
+    void registerStoresSessionAndDropsStaleIndexMembers() {
+        template.opsForZSet().add(RedisKeys.userSessions(7L), "expired-session", 1);
+        JwtUtil.TokenClaims claims = login(7L);
+
+        manager.saveLoginInfo(claims, "10.0.0.1", "phone");
+
+        Map<Object, Object> hash = template.opsForHash().entries(RedisKeys.session(7L, claims.getSessionId()));
+        assertEquals("7", hash.get("userId"));
+        assertEquals("operator", hash.get("username"));
+        assertEquals(claims.getTokenId(), hash.get("tokenId"));
+        assertEquals("10.0.0.1", hash.get("ip"));
+        assertEquals("phone", hash.get("device"));
+        assertNull(template.opsForZSet().score(RedisKeys.userSessions(7L), "expired-session"));
+        assertTrue(template.getExpire(RedisKeys.session(7L, claims.getSessionId()), TimeUnit.SECONDS) > 0);
+        verify(jwtTokenBlacklist, never()).addToBlacklist(anyLong(), anyString(), anyLong());
+    }
+
+    @Test
+    void touchRenewsExistingSessionOnly() {
+        JwtUtil.TokenClaims claims = login(7L);
+        manager.saveLoginInfo(claims, null, null);
+        String key = RedisKeys.session(7L, claims.getSessionId());
+        template.expire(key, 60, TimeUnit.SECONDS);
+        manager.forgetRenewal(claims.getSessionId());
+
+        manager.touch(claims);
+
+        assertTrue(template.getExpire(key, TimeUnit.SECONDS) > 60);
+        long lastActiveTime = Long.parseLong((String) template.opsForHash().get(key, "lastActiveTime"));
+        assertTrue(lastActiveTime >= claims.getIssuedAt().getTime());
+
+        // 会话已删除时续期不会重新创建会话
+        template.delete(key);
+        manager.forgetRenewal(claims.getSessionId());
+        manager.touch(claims);
+        assertFalse(template.hasKey(key));
+    }
+
+    @Test
+    void renewalRestoresSessionMissingFromOnlineIndex() {
+        JwtUtil.TokenClaims claims = login(7L);
+        manager.saveLoginInfo(claims, null, null);
+        String member = RedisKeys.onlineMember(7L, claims.getSessionId());
+        // 模拟登录时加入在线会话索引失败
+        template.opsForZSet().remove(RedisKeys.ONLINE_SESSIONS, member);
+        manager.forgetRenewal(claims.getSessionId());
+
+        manager.touch(claims);
+
+        assertNotNull(template.opsForZSet().score(RedisKeys.ONLINE_SESSIONS, member));
+        assertEquals(1, manager.countOnlineSessions());
+
+        RedisLoginManager async = manager(true);
+        template.opsForZSet().remove(RedisKeys.ONLINE_SESSIONS, member);
+        async.touch(claims);
+        async.flushRenewals();
+        assertNotNull(template.opsForZSet().score(RedisKeys.ONLINE_SESSIONS, member));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void asyncRenewalsAreCoalescedAndFlushedInBatches() {
+        RedisLoginManager async = manager(true);
+        ReflectionTestUtils.setField(async, "renewBatchSize", 2);
+        List<JwtUtil.TokenClaims> sessions = List.of(login(7L), login(8L), login(9L));
+        for (JwtUtil.TokenClaims claims : sessions) {
+            async.saveLoginInfo(claims, null, null);
+            template.expire(RedisKeys.session(claims.getUserId(), claims.getSessionId()), 60, TimeUnit.SECONDS);
+            template.opsForZSet().add(RedisKeys.ONLINE_SESSIONS,
+                    RedisKeys.onlineMember(claims.getUserId(), claims.getSessionId()), 1);
+            async.forgetRenewal(claims.getSessionId());
+        }
+        // 续期间隔内同一会话的多次请求只排队一次
+        for (int i = 0; i < 3; i++) {
+            sessions.forEach(async::touch);
+        }
+        Map<String, Long> pending = (Map<String, Long>) ReflectionTestUtils.getField(async, "pendingRenewals");
+        assertEquals(3, pending.size());
+        // 排队期间被删除的会话不会被续期重新创建，也不会回到在线列表
+        JwtUtil.TokenClaims removed = sessions.get(2);
+        template.delete(RedisKeys.session(9L, removed.getSessionId()));
+        template.opsForZSet().remove(RedisKeys.ONLINE_SESSIONS, RedisKeys.onlineMember(9L, removed.getSessionId()));
+
+        async.flushRenewals();
+
+        assertTrue(pending.isEmpty());
+        for (JwtUtil.TokenClaims claims : sessions.subList(0, 2)) {
+            String key = RedisKeys.session(claims.getUserId(), claims.getSessionId());
+            assertTrue(template.getExpire(key, TimeUnit.SECONDS) > 60);
+            assertTrue(template.opsForZSet().score(RedisKeys.ONLINE_SESSIONS,
+                    RedisKeys.onlineMember(claims.getUserId(), claims.getSessionId())) > 1);
+        }
+        assertFalse(template.hasKey(RedisKeys.session(9L, removed.getSessionId())));
+        assertNull(template.opsForZSet().score(RedisKeys.ONLINE_SESSIONS,
+                RedisKeys.onlineMember(9L, removed.getSessionId())));
+
+        // 已续期的会话在续期间隔内不再排队
+        sessions.forEach(async::touch);
+        assertTrue(pending.isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedBatchIsRequeued() {
+        RedisLoginManager async = manager(true);
+        JwtUtil.TokenClaims claims = login(7L);
+        async.touch(claims);
+        StringRedisTemplate broken = mock(StringRedisTemplate.class);
+        when(broken.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("Unable to connect to Redis"));
+        ReflectionTestUtils.setField(async, "stringRedisTemplate", broken);
+
+        async.flushRenewals();
+
+        Map<String, Long> pending = (Map<String, Long>) ReflectionTestUtils.getField(async, "pendingRenewals");
+        assertEquals(Map.of(claims.getSessionId(), 7L), pending);
+    }
+
+    @Test
+    void rotationReplacesRefreshTokenWithinTheSameSession() {
+        JwtUtil.TokenClaims claims = login(7L);
+        String refreshToken = manager.saveLoginInfo(claims, null, "phone");
+        RedisLoginManager.RefreshSession session = manager.findRefreshSession(refreshToken);
+        assertEquals(claims.getSessionId(), session.getSessionId());
+        assertEquals(7L, session.getUserId());
+        assertEquals(0L, session.getEpoch());
+
+        JwtUtil.TokenClaims renewed = renew(session);
+        String rotated = manager.rotateRefreshToken(refreshToken, session, renewed);
+
+        assertNotNull(rotated);
+        assertNotEquals(refreshToken, rotated);
+        Map<Object, Object> hash = template.opsForHash().entries(RedisKeys.session(7L, claims.getSessionId()));
+        assertEquals(renewed.getTokenId(), hash.get("tokenId"));
+        assertEquals(String.valueOf(renewed.getExpiration().getTime()), hash.get("expiration"));
+        assertEquals(JwtUtil.digest(rotated), hash.get("refresh"));
+        assertEquals(JwtUtil.digest(refreshToken), hash.get("previousRefresh"));
+        assertEquals(claims.getSessionId(), manager.findRefreshSession(rotated).getSessionId());
+        verify(jwtTokenBlacklist, never()).addToBlacklist(anyLong(), anyString(), anyLong());
+    }
+
+    @Test
+    void reusingRotatedRefreshTokenRevokesTheSession() {
+        JwtUtil.TokenClaims claims = login(7L);
+        JwtUtil.TokenClaims other = login(7L);
+        String refreshToken = manager.saveLoginInfo(claims, null, "phone");
+        manager.saveLoginInfo(other, null, "pc");
+        RedisLoginManager.RefreshSession session = manager.findRefreshSession(refreshToken);
+        JwtUtil.TokenClaims renewed = renew(session);
+        String rotated = manager.rotateRefreshToken(refreshToken, session, renewed);
+
+        // 已轮换的旧刷新令牌再次出示，视为泄露
+        assertNull(manager.rotateRefreshToken(refreshToken, session, renew(session)));
+
+        assertFalse(template.hasKey(RedisKeys.session(7L, claims.getSessionId())));
+        assertNull(manager.findRefreshSession(rotated));
+        assertNull(template.opsForZSet().score(RedisKeys.ONLINE_SESSIONS,
+                RedisKeys.onlineMember(7L, claims.getSessionId())));
+        // 会话当前的访问令牌加入黑名单，同一用户的其他会话不受影响
+        verify(jwtTokenBlacklist).addToBlacklist(7L, renewed.getTokenId(), renewed.getExpiration().getTime());
+        assertEquals(List.of(other.getSessionId()), manager.getUserSessions(7L).stream()
+                .map(RedisLoginManager.UserLoginInfo::getTokenId).toList());
+    }
+
+    @Test
+    void rotationFailsForUnknownRefreshToken() {
+        JwtUtil.TokenClaims claims = login(7L);
+        String refreshToken = manager.saveLoginInfo(claims, null, "phone");
+        RedisLoginManager.RefreshSession session = manager.findRefreshSession(refreshToken);
+        String forged = RedisKeys.onlineMember(7L, claims.getSessionId()) + ".forged";
+
+        assertNull(manager.rotateRefreshToken(forged, session, renew(session)));
+
+        // 不匹配的刷新令牌不吊销会话
+        assertTrue(template.hasKey(RedisKeys.session(7L, claims.getSessionId())));
+        assertNotNull(manager.findRefreshSession(refreshToken));
+    }
+
+    @Test
+    void findRefreshSessionRejectsMalformedForgedAndForeignTokens() {
+        JwtUtil.TokenClaims claims = login(7L);
+        String refreshToken = manager.saveLoginInfo(claims, null, "phone");
+        String secret = refreshToken.substring(refreshToken.lastIndexOf('.') + 1);
+
+        assertNull(manager.findRefreshSession(null));
+        assertNull(manager.findRefreshSession("not-a-refresh-token"));
+        assertNull(manager.findRefreshSession(RedisKeys.onlineMember(7L, claims.getSessionId()) + ".forged"));
+        // 将他人会话的随机部分挂到自己的用户ID下
+        assertNull(manager.findRefreshSession(RedisKeys.onlineMember(8L, claims.getSessionId()) + "." + secret));
+        assertNull(manager.findRefreshSession(RedisKeys.onlineMember(7L, "other-session") + "." + secret));
+    }
+
+    @Test
+    void refreshIsRefusedWhileUserHasEvictedFallbackRecords() {
+        JwtUtil.TokenClaims claims = login(7L);
+        String refreshToken = manager.saveLoginInfo(claims, null, "phone");
+        assertNotNull(manager.findRefreshSession(refreshToken));
+
+        // 降级存储溢出后可能有未写回的会话删除，版本号加一前不允许刷新
+        when(redisFallbackStore.hasPendingRevocation(7L)).thenReturn(true);
+
+        assertNull(manager.findRefreshSession(refreshToken));
+    }
+
+    @Test
+    void removeLoginInfoDeletesEverySessionOfUser() {
+        JwtUtil.TokenClaims phone = login(7L);
+        JwtUtil.TokenClaims pc = login(7L);
+        JwtUtil.TokenClaims other = login(8L);
+        manager.saveLoginInfo(phone, null, "phone");
+        manager.saveLoginInfo(pc, null, "pc");
+        manager.saveLoginInfo(other, null, "pc");
+
+        manager.removeLoginInfo(7L);
+
+        assertFalse(manager.isLoggedIn(7L));
+        assertFalse(template.hasKey(RedisKeys.session(7L, phone.getSessionId())));
+        assertFalse(template.hasKey(RedisKeys.session(7L, pc.getSessionId())));
+        assertFalse(template.hasKey(RedisKeys.userSessions(7L)));
+        assertEquals(Long.valueOf(1), template.opsForZSet().zCard(RedisKeys.ONLINE_SESSIONS));
+        assertTrue(manager.isLoggedIn(8L));
+    }
+
+    @Test
+    void removeScriptRefusesSessionsItDidNotDeclare() {
+        JwtUtil.TokenClaims phone = login(7L);
+        JwtUtil.TokenClaims pc = login(7L);
+        manager.saveLoginInfo(phone, null, "phone");
+        // 模拟读取索引之后用户又登录了一个会话：只声明读取时已有的会话
+        List<String> declared = List.of(phone.getSessionId());
+        manager.saveLoginInfo(pc, null, "pc");
+
+        List<?> result = template.execute(RedisScript.of(RedisLoginManager.REMOVE_USER_SCRIPT, List.class),
+                RedisLoginManager.removeUserKeys(7L, declared), declared.toArray());
+
+        assertNull(RedisLoginManager.declared(result));
+        assertTrue(template.hasKey(RedisKeys.session(7L, phone.getSessionId())));
+        assertTrue(template.hasKey(RedisKeys.session(7L, pc.getSessionId())));
+        // 重新读取索引后删除成功
+        manager.removeLoginInfo(7L);
+        assertFalse(template.hasKey(RedisKeys.session(7L, pc.getSessionId())));
+        assertFalse(manager.isLoggedIn(7L));
+    }
+
+    @Test
+    void removalDuringOutageIsReplayedOnceRedisRecovers() {
+        JwtUtil.TokenClaims phone = login(7L);
+        manager.saveLoginInfo(phone, null, "phone");
+        ReflectionTestUtils.setField(manager, "stringRedisTemplate", unreachable());
+
+        manager.removeLoginInfo(7L);
+
+        verify(redisFallbackStore).removeUserSessions(7L);
+        assertTrue(template.hasKey(RedisKeys.session(7L, phone.getSessionId())));
+
+        ReflectionTestUtils.setField(manager, "stringRedisTemplate", template);
+        when(redisFallbackStore.pendingRemovedUsers()).thenReturn(Map.of(7L, 1L));
+        manager.reconcileFallback();
+
+        verify(redisFallbackStore).userSessionsRemoved(7L, 1L);
+        assertFalse(template.hasKey(RedisKeys.session(7L, phone.getSessionId())));
+        assertFalse(template.hasKey(RedisKeys.userSessions(7L)));
+        assertEquals(0, manager.countOnlineSessions());
+    }
+
+    @Test
+    void sessionQueriesFailFastWhileRedisIsDown() {
+        StringRedisTemplate broken = unreachable();
+        ReflectionTestUtils.setField(manager, "stringRedisTemplate", broken);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(503, assertThrows(ServiceOverloadedException.class,
+                    () -> manager.getUserSessions(7L)).getStatus());
+        }
+        int calls = mockingDetails(broken).getInvocations().size();
+        // 熔断后不再访问Redis
+        assertThrows(ServiceOverloadedException.class, () -> manager.getOnlineSessionPage(1, 10));
+        assertThrows(ServiceOverloadedException.class, () -> manager.countOnlineSessions());
+        assertEquals(calls, mockingDetails(broken).getInvocations().size());
+    }
+
+    @Test
+    void onlinePageIsTakenByRankWithinOnlineWindow() {
+        long now = System.currentTimeMillis();
+        for (long userId = 1; userId <= 5; userId++) {
+            JwtUtil.TokenClaims claims = login(userId);
+            manager.saveLoginInfo(claims, null, null);
+            // 用户ID越大越近活跃
+            template.opsForZSet().add(RedisKeys.ONLINE_SESSIONS,
+                    RedisKeys.onlineMember(userId, claims.getSessionId()), now - (10 - userId) * 1000);
+        }
+        // 超出在线窗口的会话不计入
+        JwtUtil.TokenClaims idle = login(6L);
+        manager.saveLoginInfo(idle, null, null);
+        template.opsForZSet().add(RedisKeys.ONLINE_SESSIONS, RedisKeys.onlineMember(6L, idle.getSessionId()),
+                now - 3_600_000);
+
+        Page<RedisLoginManager.UserLoginInfo> second = manager.getOnlineSessionPage(2, 2);
+        Page<RedisLoginManager.UserLoginInfo> last = manager.getOnlineSessionPage(3, 2);
+        Page<RedisLoginManager.UserLoginInfo> beyond = manager.getOnlineSessionPage(4, 2);
+
+        assertEquals(5, second.getTotal());
+        assertEquals(List.of(3L, 2L), second.getRecords().stream().map(RedisLoginManager.UserLoginInfo::getUserId)
+                .toList());
+        assertEquals(List.of(1L), last.getRecords().stream().map(RedisLoginManager.UserLoginInfo::getUserId)
+                .toList());
+        assertTrue(beyond.getRecords().isEmpty());
+        assertEquals(5, manager.countOnlineSessions());
+    }
+
+    private RedisLoginManager manager(boolean renewAsync) {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(breaker, "openDuration", 60_000L);
+        ReflectionTestUtils.setField(breaker, "maxConcurrent", 4);
+        breaker.init();
+
+        RedisLoginManager loginManager = new RedisLoginManager(SESSION_EXPIRATION, 60, renewAsync, 500);
+        ReflectionTestUtils.setField(loginManager, "stringRedisTemplate", template);
+        ReflectionTestUtils.setField(loginManager, "jwtTokenBlacklist", jwtTokenBlacklist);
+        ReflectionTestUtils.setField(loginManager, "redisCircuitBreaker", breaker);
+        ReflectionTestUtils.setField(loginManager, "redisFallbackStore", redisFallbackStore);
+        ReflectionTestUtils.setField(loginManager, "maxSessions", 2);
+        ReflectionTestUtils.setField(loginManager, "onlineWindow", 900L);
+        return loginManager;
+    }
+
+    private static StringRedisTemplate unreachable() {
+        return mock(StringRedisTemplate.class, invocation -> {
+            throw new RedisConnectionFailureException("Unable to connect to Redis");
+        });
+    }
+
+    private JwtUtil.TokenClaims login(Long userId) {
+        return jwtUtil.parseToken(jwtUtil.generateToken(userId, "operator", 2, 0L));
+    }
+
+    private JwtUtil.TokenClaims renew(RedisLoginManager.RefreshSession session) {
+        return jwtUtil.parseToken(jwtUtil.generateToken(session.getUserId(), "operator", 2, session.getEpoch(),
+                session.getSessionId()));
+    }
+}
@@ -0,0 +1,158 @@
+package org.agrimachinerymanager.common.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.agrimachinerymanager.common.result.ApiResponse;
+import org.agrimachinerymanager.config.JacksonConfig;
+import org.agrimachinerymanager.config.SparseFieldsResponseBodyAdvice;
+import org.agrimachinerymanager.entity.Machinery;
+import org.agrimachinerymanager.entity.SysUser;
+import org.agrimachinerymanager.exception.BaseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SparseFields测试
+ * 序列化部分使用与应用相同的ObjectMapper配置和响应处理，验证未指定字段时输出不变、指定字段时只输出这些字段
+ */
+class SparseFieldsTest {
+
+    @AfterEach
+    void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void returnsNullWhenFieldsNotSpecified() {
+        assertNull(SparseFields.parse(Machinery.class, null));
+        assertNull(SparseFields.parse(Machinery.class, " "));
+    }
+
+    @Test
+    void mapsPropertiesToColumnsInDeclarationOrderWithId() {
+        SparseFields fields = SparseFields.parse(Machinery.class, "status, machineryCode,photoUrl");
+
+        assertEquals(Set.of("id", "machineryCode", "status", "photoUrl"), fields.getProperties());
+        assertEquals(List.of("id", "machinery_code", "status", "photo_url"), fields.getColumns());
+    }
+
+    @Test
+    void rejectsUnknownAndHiddenFields() {
+        assertThrows(BaseException.class, () -> SparseFields.parse(Machinery.class, "machineryCode,photo_url"));
+        assertThrows(BaseException.class, () -> SparseFields.parse(Machinery.class, "class"));
+        assertThrows(BaseException.class, () -> SparseFields.parse(SysUser.class, "username,password", "password"));
+        assertNotNull(SparseFields.parse(SysUser.class, "username,realName", "password"));
+    }
+
+    @Test
+    void appliesColumnsToQueryWrapper() {
+        QueryWrapper<Machinery> queryWrapper = new QueryWrapper<>();
+        SparseFields.apply(queryWrapper, SparseFields.parse(Machinery.class, "machineryCode,status"), "create_time");
+        assertEquals("id,machinery_code,status,create_time", queryWrapper.getSqlSelect());
+
+        QueryWrapper<Machinery> selectAll = new QueryWrapper<>();
+        SparseFields.apply(selectAll, null, "create_time");
+        assertNull(selectAll.getSqlSelect());
+    }
+
+    @Test
+    void bindsToCurrentRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        SparseFields fields = SparseFields.bind(Machinery.class, "status");
+
+        assertSame(fields, request.getAttribute(SparseFields.REQUEST_ATTRIBUTE));
+        assertNull(SparseFields.bind(Machinery.class, null));
+    }
+
+    @Test
+    void serializesAllFieldsWithoutBinding() throws Exception {
+        String json = write(new MockHttpServletRequest(), ApiResponse.success(List.of(machinery())));
+
+        assertTrue(json.contains("\"photoUrl\":\"https://example.com/photo/1.jpg\""));
+        assertTrue(json.contains("\"remark\":"));
+        assertTrue(json.contains("\"code\":"));
+    }
+
+    @Test
+    void serializesOnlyBoundFields() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        SparseFields.bind(Machinery.class, "machineryCode,brand,model,status");
+
+        List<Machinery> records = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            records.add(machinery());
+        }
+        Page<Machinery> page = new Page<>(1, 20, 100);
+        page.setRecords(records);
+        String projected = write(request, ApiResponse.success(page));
+        String full = write(new MockHttpServletRequest(), ApiResponse.success(page));
+
+        assertTrue(projected.contains("{\"id\":1,\"machineryCode\":\"NJ-0001\",\"brand\":\"东方红\","
+                + "\"model\":\"LX904\",\"status\":\"正常\"}"));
+        assertFalse(projected.contains("photoUrl"));
+        assertFalse(projected.contains("remark"));
+        // 分页信息不受影响
+        assertTrue(projected.contains("\"total\":100"));
+        assertTrue(projected.length() < full.length() / 2);
+    }
+
+    /**
+     * 按应用的配置和响应处理流程序列化响应体
+     */
+    private static String write(MockHttpServletRequest request, Object body) throws Exception {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        new JacksonConfig().sparseFieldsCustomizer().customize(builder);
+        ObjectMapper objectMapper = builder.build();
+
+        Object container = new SparseFieldsResponseBodyAdvice().beforeBodyWrite(body, null,
+                MediaType.APPLICATION_JSON, MappingJackson2HttpMessageConverter.class,
+                new ServletServerHttpRequest(request), new ServletServerHttpResponse(new MockHttpServletResponse()));
+        MappingJacksonValue value = (MappingJacksonValue) container;
+        return value.getFilters() == null
+                ? objectMapper.writeValueAsString(value.getValue())
+                : objectMapper.writer(value.getFilters()).writeValueAsString(value.getValue());
+    }
+
+    private static Machinery machinery() {
+        Machinery machinery = new Machinery();
+        machinery.setId(1L);
+        machinery.setMachineryCode("NJ-0001");
+        machinery.setTypeCode("TRACTOR");
+        machinery.setBrand("东方红");
+        machinery.setModel("LX904");
+        machinery.setFactoryNumber("F2023000123");
+        machinery.setBuyDate(LocalDate.of(2023, 3, 15));
+        machinery.setPower(new BigDecimal("66.20"));
+        machinery.setDepartment("第一作业队");
+        machinery.setResponsibleUserId(12L);
+        machinery.setStatus("正常");
+        machinery.setPhotoUrl("https://example.com/photo/1.jpg");
+        machinery.setRemark("2024年春季完成发动机大修，更换液压泵和前桥轴承，下次保养时检查传动系统");
+        machinery.setCreateTime(LocalDateTime.of(2023, 3, 15, 9, 30));
+        machinery.setUpdateTime(LocalDateTime.of(2024, 4, 2, 16, 45));
+        return machinery;
+    }
+}
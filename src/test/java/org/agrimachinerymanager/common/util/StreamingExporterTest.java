@@ -0,0 +1,293 @@
+package org.agrimachinerymanager.common.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.agrimachinerymanager.common.result.ExportFormat;
+import org.agrimachinerymanager.entity.SysOperateLog;
+import org.agrimachinerymanager.exception.BaseException;
+import org.agrimachinerymanager.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StreamingExporter测试
+ * 使用逐条生成记录的数据源代替数据库游标，写入只计数不保存的输出流，验证记录按批写出而不在内存中累积；
+ * 导出期间定期GC后采样堆内存，断言增长不超过固定上限而写出的字节数远超该上限；默认导出50万条，
+ * 500万条的同一断言标记为基准测试，使用 -Pbenchmark 执行
+ */
+class StreamingExporterTest {
+
+    // 默认执行的堆内存测试导出条数
+    private static final int ROWS = 500_000;
+
+    private static final int BENCHMARK_ROWS = 5_000_000;
+
+    // 采样间隔（条）
+    private static final int SAMPLE_ROWS = 50_000;
+
+    // 导出期间允许的堆内存增长上限（字节）
+    private static final long HEAP_BOUND = 4L * 1024 * 1024;
+
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private StreamingExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        exporter = new StreamingExporter();
+        ReflectionTestUtils.setField(exporter, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(exporter, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(exporter, "flushRows", 1000);
+        exporter.init();
+    }
+
+    @Test
+    void flushesWhileSourceIsStillProducing() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        long[] unflushed = {0};
+
+        long rows = exporter.<SysOperateLog>write(out, ExportFormat.NDJSON, consumer -> {
+            for (long i = 1; i <= 10_000; i++) {
+                consumer.accept(operateLog(i, "用户登录"));
+                // 每写满flushRows条，之前的记录都已写到输出流，没有在内存中累积（换行符在下一条记录之前写入）
+                if (i % 1000 == 0) {
+                    unflushed[0] = Math.max(unflushed[0], i - 1 - out.lines);
+                }
+            }
+        });
+
+        assertEquals(10_000, rows);
+        assertEquals(10_000, out.lines);
+        assertEquals(0, unflushed[0]);
+    }
+
+    @Test
+    void heapStaysBoundedWhileExporting() throws IOException {
+        assertConstantHeap(ExportFormat.NDJSON, ROWS);
+        assertConstantHeap(ExportFormat.CSV, ROWS);
+    }
+
+    /**
+     * 导出500万条记录，写出约1GB，使用 -Pbenchmark 执行
+     */
+    @Test
+    @Tag("benchmark")
+    void heapStaysBoundedWhileExportingFiveMillionRows() throws IOException {
+        assertConstantHeap(ExportFormat.NDJSON, BENCHMARK_ROWS);
+    }
+
+    @Test
+    void writesNdjsonOneObjectPerLine() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exporter.<SysOperateLog>write(out, ExportFormat.NDJSON, consumer -> {
+            consumer.accept(operateLog(1, "新增农机"));
+            consumer.accept(operateLog(2, "删除农机"));
+        });
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(2, rows);
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[0].contains("\"operateTime\":\"2024-01-01T00:00:01\""));
+        assertTrue(lines[1].contains("\"operateContent\":\"删除农机\""));
+        assertEquals("", lines[2]);
+    }
+
+    @Test
+    void writesEmptyNdjsonForNoRows() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = exporter.<SysOperateLog>write(out, ExportFormat.NDJSON, consumer -> { });
+
+        assertEquals(0, rows);
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    void writesCsvWithHeaderAndEscapedValues() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exporter.<SysOperateLog>write(out, ExportFormat.CSV, consumer -> {
+            consumer.accept(operateLog(1, "修改\"地块\",面积"));
+            consumer.accept(operateLog(2, "=HYPERLINK(\"http://example.com\")"));
+        });
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.startsWith("\uFEFF"));
+        List<String> lines = List.of(csv.substring(1).split("\r\n"));
+        assertEquals(3, lines.size());
+        assertEquals("id,userId,operateType,operateModule,operateContent,operateIp,operateTime", lines.get(0));
+        assertEquals("1,1,UPDATE,系统,\"修改\"\"地块\"\",面积\",127.0.0.1,2024-01-01T00:00:01", lines.get(1));
+        assertEquals("2,2,UPDATE,系统,\"'=HYPERLINK(\"\"http://example.com\"\")\",127.0.0.1,2024-01-01T00:00:02",
+                lines.get(2));
+    }
+
+    @Test
+    void escapeLeavesPlainValuesAndNumbersUnchanged() {
+        assertEquals("农机", StreamingExporter.escape("农机"));
+        assertEquals("-1.5", StreamingExporter.escape("-1.5"));
+        assertEquals("'-1.5", StreamingExporter.escapeText("-1.5"));
+        assertEquals("\"a\nb\"", StreamingExporter.escape("a\nb"));
+    }
+
+    @Test
+    void exportSetsDownloadHeaders() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        exporter.<SysOperateLog>export(response, "sys-operate-log", ExportFormat.CSV,
+                consumer -> consumer.accept(operateLog(1, "用户登录")));
+
+        assertEquals("text/csv;charset=UTF-8", response.getContentType());
+        assertEquals("attachment; filename=sys-operate-log.csv", response.getHeader("Content-Disposition"));
+        assertEquals(1L, exporter.getStats().get("exports"));
+    }
+
+    @Test
+    void rejectsExportWhenAllSlotsBusy() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> running = CompletableFuture.runAsync(() ->
+                exporter.<SysOperateLog>export(new MockHttpServletResponse(), "sys-operate-log", ExportFormat.NDJSON,
+                        consumer -> {
+                            started.countDown();
+                            await(release);
+                        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class, () ->
+                exporter.<SysOperateLog>export(new MockHttpServletResponse(), "sys-operate-log",
+                        ExportFormat.NDJSON, consumer -> { }));
+        assertEquals(429, e.getStatus());
+        assertEquals(1L, exporter.getStats().get("rejected"));
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        assertEquals(0, exporter.getStats().get("active"));
+    }
+
+    @Test
+    void releasesSlotWhenSourceFails() {
+        Consumer<Consumer<SysOperateLog>> failing = consumer -> {
+            consumer.accept(operateLog(1, "用户登录"));
+            throw new IllegalStateException("连接中断");
+        };
+
+        assertThrows(IllegalStateException.class, () ->
+                exporter.export(new MockHttpServletResponse(), "sys-operate-log", ExportFormat.NDJSON, failing));
+
+        assertEquals(0, exporter.getStats().get("active"));
+        assertEquals(1L, exporter.getStats().get("failures"));
+    }
+
+    @Test
+    void parsesFormat() {
+        assertEquals(ExportFormat.NDJSON, ExportFormat.of(null));
+        assertEquals(ExportFormat.CSV, ExportFormat.of("csv"));
+        assertThrows(BaseException.class, () -> ExportFormat.of("xlsx"));
+    }
+
+    private static SysOperateLog operateLog(long id, String content) {
+        SysOperateLog log = new SysOperateLog();
+        log.setId(id);
+        log.setUserId(id);
+        log.setOperateType("UPDATE");
+        log.setOperateModule("系统");
+        log.setOperateContent(content);
+        log.setOperateIp("127.0.0.1");
+        log.setOperateTime(BASE_TIME.plusSeconds(id));
+        return log;
+    }
+
+    /**
+     * 导出期间GC后的堆内存增长不超过HEAP_BOUND，写出的字节数超过该上限的8倍
+     * 记录在内存中累积时，存活对象随写出的字节数增长，必然超过上限
+     */
+    private void assertConstantHeap(ExportFormat format, int total) throws IOException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long baseline = usedHeapAfterGc(memory);
+        long[] peak = {baseline};
+        CountingOutputStream out = new CountingOutputStream();
+
+        long rows = exporter.<SysOperateLog>write(out, format, consumer -> {
+            for (long i = 1; i <= total; i++) {
+                consumer.accept(operateLog(i, "用户登录"));
+                if (i % SAMPLE_ROWS == 0) {
+                    peak[0] = Math.max(peak[0], usedHeapAfterGc(memory));
+                }
+            }
+        });
+
+        long growth = peak[0] - baseline;
+        System.out.printf("%s导出%d条，写出%dMB，堆内存峰值增长%dKB%n",
+                format, rows, out.bytes / (1024 * 1024), growth / 1024);
+        assertEquals(total, rows);
+        assertTrue(out.bytes > 8 * HEAP_BOUND, "写出" + out.bytes + "字节");
+        assertTrue(growth < HEAP_BOUND, "堆内存增长" + growth + "字节");
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 只统计字节数和行数、不保存内容的输出流
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        private long bytes;
+
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
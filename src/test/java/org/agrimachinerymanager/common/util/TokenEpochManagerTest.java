@@ -0,0 +1,112 @@
+package org.agrimachinerymanager.common.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * TokenEpochManager单元测试，Redis访问使用Mockito模拟
+ */
+class TokenEpochManagerTest {
+
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+
+    private RedisFallbackStore fallbackStore;
+
+    private TokenEpochManager manager;
+
+    @BeforeEach
+    void setUp() {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 1);
+        ReflectionTestUtils.setField(breaker, "openDuration", 60_000L);
+        ReflectionTestUtils.setField(breaker, "maxConcurrent", 4);
+        breaker.init();
+
+        fallbackStore = new RedisFallbackStore();
+        ReflectionTestUtils.setField(fallbackStore, "maxSize", 2L);
+        fallbackStore.init();
+
+        manager = new TokenEpochManager();
+        ReflectionTestUtils.setField(manager, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(manager, "redisMessageListenerContainer",
+                mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(manager, "redisCircuitBreaker", breaker);
+        ReflectionTestUtils.setField(manager, "redisClientSideCache", mock(RedisClientSideCache.class));
+        ReflectionTestUtils.setField(manager, "redisFallbackStore", fallbackStore);
+        ReflectionTestUtils.setField(manager, "refreshInterval", 30L);
+        ReflectionTestUtils.setField(manager, "maxSize", 1000L);
+        ReflectionTestUtils.setField(manager, "legacyKeyCheck", false);
+        manager.init();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void bumpsEpochOfUsersWhoseFallbackRecordsWereEvicted() {
+        Date issuedAt = new Date();
+        long expiration = System.currentTimeMillis() + 60_000;
+        for (int i = 0; i < 3; i++) {
+            fallbackStore.blacklist(7L, "token-" + i, expiration);
+        }
+        assertEquals(1L, fallbackStore.getStats().get("evictedBlacklist"));
+        assertTrue(fallbackStore.isUserRevoked(7L, issuedAt));
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(Collections.singletonList(RedisKeys.epoch(7L))),
+                anyString())).thenReturn(1L);
+
+        manager.reconcileFallback();
+
+        assertTrue(manager.isRevoked(7L, 0L));
+        verify(stringRedisTemplate).convertAndSend(TokenEpochManager.EPOCH_CHANNEL, "7:1");
+        assertFalse(fallbackStore.hasPendingRevocation(7L));
+        assertEquals(0, fallbackStore.getStats().get("pendingRevokedUsers"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void keepsOverflowedUsersUntilEpochIsBumped() {
+        long expiration = System.currentTimeMillis() + 60_000;
+        for (int i = 0; i < 3; i++) {
+            fallbackStore.blacklist(7L, "token-" + i, expiration);
+        }
+        fallbackStore.getStats();
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), anyString()))
+                .thenThrow(new RedisConnectionFailureException("connection refused"));
+
+        manager.reconcileFallback();
+        // 熔断后不再尝试
+        manager.reconcileFallback();
+
+        assertTrue(fallbackStore.hasPendingRevocation(7L));
+        verify(stringRedisTemplate, times(1)).execute(any(RedisScript.class), anyList(), anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void revokeAllFallsBackToLocalRevocationWhileRedisIsDown() {
+        Date issuedAt = new Date(System.currentTimeMillis() - 1000);
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), anyString()))
+                .thenThrow(new RedisConnectionFailureException("connection refused"));
+
+        manager.revokeAll(7L);
+
+        assertTrue(fallbackStore.isUserRevoked(7L, issuedAt));
+        assertFalse(fallbackStore.isUserRevoked(7L, new Date(System.currentTimeMillis() + 1000)));
+        assertFalse(fallbackStore.isUserRevoked(8L, issuedAt));
+        assertEquals(1, fallbackStore.getStats().get("pendingRevokedUsers"));
+    }
+}
@@ -0,0 +1,128 @@
+package org.agrimachinerymanager.common.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * TokenStateChecker单元测试，Redis访问使用Mockito模拟
+ */
+class TokenStateCheckerTest {
+
+    private static final String SECRET =
+            "agrimachinery-manager-2024-secure-key-long-enough-for-hs512-algorithm-complex-password-12345678";
+
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+    private final JwtTokenBlacklist jwtTokenBlacklist = mock(JwtTokenBlacklist.class);
+    private final TokenEpochManager tokenEpochManager = mock(TokenEpochManager.class);
+
+    private RedisCircuitBreaker breaker;
+    private RedisFallbackStore fallbackStore;
+    private TokenStateChecker checker;
+    private JwtUtil jwtUtil;
+    private JwtUtil.TokenClaims claims;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3600L);
+        jwtUtil.init();
+        claims = jwtUtil.parseToken(jwtUtil.generateToken(42L, "operator", 2, 3L));
+
+        breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 2);
+        ReflectionTestUtils.setField(breaker, "openDuration", 60_000L);
+        ReflectionTestUtils.setField(breaker, "maxConcurrent", 4);
+        breaker.init();
+        fallbackStore = new RedisFallbackStore();
+        ReflectionTestUtils.setField(fallbackStore, "maxSize", 100L);
+        fallbackStore.init();
+
+        checker = new TokenStateChecker();
+        ReflectionTestUtils.setField(checker, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(checker, "jwtTokenBlacklist", jwtTokenBlacklist);
+        ReflectionTestUtils.setField(checker, "tokenEpochManager", tokenEpochManager);
+        ReflectionTestUtils.setField(checker, "timeout", 100L);
+        ReflectionTestUtils.setField(checker, "failurePolicy", "closed");
+        ReflectionTestUtils.setField(checker, "redisCircuitBreaker", breaker);
+        ReflectionTestUtils.setField(checker, "redisFallbackStore", fallbackStore);
+    }
+
+    @Test
+    void answersLocallyWithoutRedis() {
+        when(jwtTokenBlacklist.needsLookup(claims.getTokenId())).thenReturn(false);
+        when(tokenEpochManager.getCachedEpoch(42L)).thenReturn(3L);
+        assertEquals(TokenStateChecker.Result.VALID, checker.check(claims, "token"));
+
+        when(tokenEpochManager.getCachedEpoch(42L)).thenReturn(4L);
+        assertEquals(TokenStateChecker.Result.REVOKED, checker.check(claims, "token"));
+
+        verify(stringRedisTemplate, never()).execute(any(RedisCallback.class));
+        assertEquals(1L, checker.getStats().get("localOnly"));
+    }
+
+    @Test
+    void appliesFailurePolicyWhenRedisIsUnavailable() {
+        when(jwtTokenBlacklist.needsLookup(claims.getTokenId())).thenReturn(true);
+        when(stringRedisTemplate.execute(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("connection refused"));
+
+        assertEquals(TokenStateChecker.Result.UNAVAILABLE, checker.check(claims, "token"));
+
+        ReflectionTestUtils.setField(checker, "failurePolicy", "open");
+        assertEquals(TokenStateChecker.Result.VALID, checker.check(claims, "token"));
+        assertEquals(1L, checker.getStats().get("failOpen"));
+        assertEquals(2L, checker.getStats().get("errors"));
+    }
+
+    @Test
+    void skipsRedisWhileCircuitIsOpen() {
+        when(jwtTokenBlacklist.needsLookup(claims.getTokenId())).thenReturn(true);
+        when(stringRedisTemplate.execute(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("connection refused"));
+        checker.check(claims, "token");
+        checker.check(claims, "token");
+
+        assertEquals(TokenStateChecker.Result.UNAVAILABLE, checker.check(claims, "token"));
+        verify(stringRedisTemplate, times(2)).execute(any(RedisCallback.class));
+        assertEquals(1L, checker.getStats().get("shortCircuited"));
+
+        // 熔断期间本节点拉黑的令牌仍能识别
+        fallbackStore.blacklist(claims.getUserId(), claims.getTokenId(), claims.getExpiration().getTime());
+        assertEquals(TokenStateChecker.Result.BLACKLISTED, checker.check(claims, "token"));
+    }
+
+    @Test
+    void rejectsTokensOfUserWhoseFallbackRecordsWereEvicted() {
+        when(jwtTokenBlacklist.needsLookup(anyString())).thenReturn(false);
+        when(tokenEpochManager.getCachedEpoch(anyLong())).thenReturn(3L);
+        ReflectionTestUtils.setField(fallbackStore, "maxSize", 2L);
+        fallbackStore.init();
+        long expiration = claims.getExpiration().getTime();
+        for (int i = 0; i < 3; i++) {
+            fallbackStore.blacklist(42L, "other-token-" + i, expiration);
+        }
+
+        assertEquals(1L, fallbackStore.getStats().get("evictedBlacklist"));
+        assertEquals(TokenStateChecker.Result.REVOKED, checker.check(claims, "token"));
+        verify(stringRedisTemplate, never()).execute(any(RedisCallback.class));
+        // 其他用户不受影响
+        JwtUtil.TokenClaims other = jwtUtil.parseToken(jwtUtil.generateToken(43L, "driver", 2, 3L));
+        assertEquals(TokenStateChecker.Result.VALID, checker.check(other, "token"));
+
+        // 版本号加一后由版本号判定，不再依赖溢出记录
+        fallbackStore.userRevocationReconciled(42L, fallbackStore.pendingRevokedUsers().get(42L));
+        assertEquals(TokenStateChecker.Result.VALID, checker.check(claims, "token"));
+    }
+}
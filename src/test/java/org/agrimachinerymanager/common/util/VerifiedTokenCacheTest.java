@@ -0,0 +1,72 @@
+package org.agrimachinerymanager.common.util;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * VerifiedTokenCache单元测试，缓存命中与每次签名校验的耗时对比见VerifiedTokenCacheBenchmark
+ */
+class VerifiedTokenCacheTest {
+
+    private static final String SECRET =
+            "agrimachinery-manager-2024-secure-key-long-enough-for-hs512-algorithm-complex-password-12345678";
+
+    private JwtUtil jwtUtil;
+    private VerifiedTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3600L);
+        jwtUtil.init();
+
+        cache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 1000L);
+        ReflectionTestUtils.setField(cache, "maxTtl", 3600L);
+        cache.init();
+    }
+
+    @Test
+    void repeatedTokenIsServedFromCache() {
+        String token = jwtUtil.generateToken(42L, "operator", 2, 0L);
+
+        JwtUtil.TokenClaims first = cache.parse(token);
+        JwtUtil.TokenClaims second = cache.parse(token);
+
+        assertSame(first, second);
+        assertEquals("operator", second.getUsername());
+        Map<String, Object> stats = cache.getStats();
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+    }
+
+    @Test
+    void blacklistedTokenIsRemoved() {
+        String token = jwtUtil.generateToken(42L, "operator", 2, 0L);
+        JwtUtil.TokenClaims first = cache.parse(token);
+
+        cache.invalidate(first.getTokenId());
+
+        assertNotSame(first, cache.parse(token));
+        assertEquals(1L, cache.getStats().get("blacklistRemovals"));
+    }
+
+    @Test
+    void tamperedTokenIsNeverCached() {
+        String token = jwtUtil.generateToken(1L, "admin", 1, 0L);
+        cache.parse(token);
+        String tampered = token.substring(0, token.length() - 2) + "xx";
+
+        assertThrows(JwtException.class, () -> cache.parse(tampered));
+        assertThrows(JwtException.class, () -> cache.parse(tampered));
+    }
+}
@@ -0,0 +1,79 @@
+package org.agrimachinerymanager.security;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CachedUserSerializer的JMH微基准：与GenericJackson2JsonRedisSerializer的读写耗时对比
+ * 序列化后的大小对比由CachedUserSerializerTest断言
+ * 标记为基准测试，默认不执行，使用 -Pbenchmark 运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachedUserSerializerBenchmark {
+
+    private final CachedUserSerializer serializer = new CachedUserSerializer();
+
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+
+    private UserDetailsCache.CachedUser user;
+
+    private byte[] binary;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        user = new UserDetailsCache.CachedUser(1024L, "operator_zhang", 2);
+        binary = serializer.serialize(user);
+        json = jsonSerializer.serialize(user);
+    }
+
+    @Benchmark
+    public byte[] jsonWrite() {
+        return jsonSerializer.serialize(user);
+    }
+
+    @Benchmark
+    public Object jsonRead() {
+        return jsonSerializer.deserialize(json);
+    }
+
+    @Benchmark
+    public byte[] binaryWrite() {
+        return serializer.serialize(user);
+    }
+
+    @Benchmark
+    public UserDetailsCache.CachedUser binaryRead() {
+        return serializer.deserialize(binary);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CachedUserSerializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
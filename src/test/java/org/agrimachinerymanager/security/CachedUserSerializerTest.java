@@ -0,0 +1,52 @@
+package org.agrimachinerymanager.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CachedUserSerializer单元测试，与GenericJackson2JsonRedisSerializer的耗时对比见CachedUserSerializerBenchmark
+ */
+class CachedUserSerializerTest {
+
+    private final CachedUserSerializer serializer = new CachedUserSerializer();
+
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = new GenericJackson2JsonRedisSerializer();
+
+    @Test
+    void roundTripsAllFieldsIncludingNulls() {
+        UserDetailsCache.CachedUser user = new UserDetailsCache.CachedUser(123456L, "操作员01", 2);
+        UserDetailsCache.CachedUser copy = serializer.deserialize(serializer.serialize(user));
+        assertEquals(123456L, copy.getUserId());
+        assertEquals("操作员01", copy.getUsername());
+        assertEquals(2, copy.getRole());
+
+        UserDetailsCache.CachedUser empty = serializer.deserialize(
+                serializer.serialize(new UserDetailsCache.CachedUser(null, "admin", null)));
+        assertNull(empty.getUserId());
+        assertNull(empty.getRole());
+    }
+
+    @Test
+    void rejectsUnknownFormatsAndNewerVersions() {
+        String json = "{\"@class\":\"org.agrimachinerymanager.security.UserDetailsCache$CachedUser\","
+                + "\"userId\":7,\"username\":\"admin\",\"role\":1}";
+        assertThrows(SerializationException.class, () -> serializer.deserialize(json.getBytes(StandardCharsets.UTF_8)));
+
+        UserDetailsCache.CachedUser user = new UserDetailsCache.CachedUser(7L, "admin", 1);
+        byte[] bytes = serializer.serialize(user);
+        bytes[1] = (byte) (CachedUserSerializer.VERSION + 1);
+        assertThrows(SerializationException.class, () -> serializer.deserialize(bytes));
+    }
+
+    @Test
+    void binaryIsSmallerThanJson() {
+        UserDetailsCache.CachedUser user = new UserDetailsCache.CachedUser(1024L, "operator_zhang", 2);
+
+        assertTrue(serializer.serialize(user).length < jsonSerializer.serialize(user).length);
+    }
+}
@@ -0,0 +1,77 @@
+package org.agrimachinerymanager.security;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PermitAllPathMatcher的JMH微基准：预编译匹配与旧实现（逐个AntPathMatcher匹配）的耗时对比
+ * 绝大多数请求是需要认证的业务接口，旧实现必须遍历完整列表
+ * 标记为基准测试，默认不执行，使用 -Pbenchmark 运行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermitAllPathMatcherBenchmark {
+
+    // 旧过滤器中的路径列表（含重复项）
+    private static final List<String> LEGACY_PATHS = Arrays.asList(
+            "/api/auth/login", "/api/auth/login", "/auth/login",
+            "/api/auth/logout", "/api/auth/logout", "/auth/logout",
+            "/doc.html", "/doc.html", "/swagger-ui.html", "/swagger-ui.html",
+            "/swagger-ui/**", "/swagger-ui/**", "/v3/api-docs/**", "/v3/api-docs/**",
+            "/swagger-resources/**", "/swagger-resources/**", "/webjars/**", "/webjars/**"
+    );
+
+    private static final AntPathMatcher ANT_PATH_MATCHER = new AntPathMatcher();
+
+    private final PermitAllPathMatcher matcher = new PermitAllPathMatcher();
+
+    @Param({"/sys-user/getSysUserPage", "/machinery-info/getMachineryInfoPage", "/auth/login"})
+    private String path;
+
+    @Benchmark
+    public boolean antPathLoop() {
+        return legacyMatches(path);
+    }
+
+    @Benchmark
+    public boolean compiledMatcher() {
+        return matcher.matches(path);
+    }
+
+    /**
+     * 旧实现：逐个路径模式用AntPathMatcher匹配
+     */
+    static boolean legacyMatches(String path) {
+        return LEGACY_PATHS.stream().anyMatch(pattern -> ANT_PATH_MATCHER.match(pattern, path));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PermitAllPathMatcherBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,39 @@
+package org.agrimachinerymanager.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PermitAllPathMatcher单元测试，匹配结果与旧实现（逐个AntPathMatcher匹配）一致，耗时对比见PermitAllPathMatcherBenchmark
+ */
+class PermitAllPathMatcherTest {
+
+    private final PermitAllPathMatcher matcher = new PermitAllPathMatcher();
+
+    @Test
+    void matchesSameAsAntPathMatcher() {
+        String[] paths = {
+                "/auth/login", "/auth/logout", "/api/auth/login", "/doc.html", "/swagger-ui.html",
+                "/swagger-ui", "/swagger-ui/index.html", "/v3/api-docs", "/v3/api-docs/swagger-config",
+                "/webjars/js/app.js", "/swagger-resources/configuration/ui",
+                "/auth/logoutAll", "/auth/login/x", "/swagger-uix/index.html", "/webjarsx",
+                "/sys-user/getSysUserPage", "/", ""
+        };
+        for (String path : paths) {
+            assertEquals(PermitAllPathMatcherBenchmark.legacyMatches(path), matcher.matches(path), path);
+        }
+    }
+
+    @Test
+    void requestMatchingStripsContextPath() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/app/auth/login");
+        request.setContextPath("/app");
+        assertTrue(matcher.matches(request));
+
+        MockHttpServletRequest protectedRequest = new MockHttpServletRequest("GET", "/app/sys-user/getSysUserPage");
+        protectedRequest.setContextPath("/app");
+        assertFalse(matcher.matches(protectedRequest));
+    }
+}
@@ -0,0 +1,89 @@
+package org.agrimachinerymanager.security;
+
+import org.agrimachinerymanager.exception.ServiceOverloadedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RateLimiter单元测试，使用本地令牌桶存储代替Redis
+ */
+class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    @Test
+    void matchesGroupsByPathAndMethod() {
+        RateLimiter limiter = create(bucket(5, 1, 1), 1000);
+
+        assertEquals("write", limiter.matchGroup("POST", "/machinery/addMachinery"));
+        assertEquals("write", limiter.matchGroup("PUT", "/sys-user/updateSysUser"));
+        assertNull(limiter.matchGroup("GET", "/machinery/addMachinery"));
+        assertNull(limiter.matchGroup("GET", "/machinery/getMachineryPage"));
+    }
+
+    @Test
+    void deniesAfterBurstAndRefillsOverTime() {
+        RateLimiter limiter = create(bucket(3, 1, 1), 1000);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("write", RateLimiter.DIMENSION_IP, "10.0.0.1").isAllowed());
+        }
+        RateLimiter.Decision denied = limiter.tryAcquire("write", RateLimiter.DIMENSION_IP, "10.0.0.1");
+        assertFalse(denied.isAllowed());
+        assertEquals(1, denied.getRetryAfterSeconds());
+        // 其他客户端不受影响
+        assertTrue(limiter.tryAcquire("write", RateLimiter.DIMENSION_IP, "10.0.0.2").isAllowed());
+
+        now.addAndGet(1000);
+        assertTrue(limiter.tryAcquire("write", RateLimiter.DIMENSION_IP, "10.0.0.1").isAllowed());
+        assertFalse(limiter.tryAcquire("write", RateLimiter.DIMENSION_IP, "10.0.0.1").isAllowed());
+
+        ServiceOverloadedException e = assertThrows(ServiceOverloadedException.class,
+                () -> limiter.check("write", RateLimiter.DIMENSION_IP, "10.0.0.1"));
+        assertEquals(429, e.getStatus());
+    }
+
+    @Test
+    void leaseServesRequestsLocallyWithoutExceedingCapacity() {
+        RateLimiter limiter = create(bucket(20, 0.001, 5), 60000);
+
+        int allowedCount = 0;
+        for (int i = 0; i < 40; i++) {
+            if (limiter.tryAcquire("write", RateLimiter.DIMENSION_USER, "operator").isAllowed()) {
+                allowedCount++;
+            }
+        }
+        assertEquals(20, allowedCount);
+        // 令牌充足时每次预取5个，只有少数请求访问存储
+        assertTrue((long) limiter.getStats().get("localHits") >= 12);
+    }
+
+    private RateLimiter create(RateLimitProperties.Bucket bucket, long leaseTtl) {
+        RateLimitProperties.Group group = new RateLimitProperties.Group();
+        group.setPatterns(Arrays.asList("/*/add*", "/*/update*"));
+        group.setMethods(Arrays.asList("POST", "PUT"));
+        group.setPerIp(bucket);
+        group.setPerUser(bucket);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setLeaseTtl(leaseTtl);
+        properties.setGroups(new LinkedHashMap<>(Collections.singletonMap("write", group)));
+
+        RateLimiter limiter = new RateLimiter(properties, new LocalTokenBucketStore(1000, now::get));
+        limiter.init();
+        return limiter;
+    }
+
+    private static RateLimitProperties.Bucket bucket(int capacity, double refillPerSecond, int lease) {
+        RateLimitProperties.Bucket bucket = new RateLimitProperties.Bucket();
+        bucket.setCapacity(capacity);
+        bucket.setRefillPerSecond(refillPerSecond);
+        bucket.setLease(lease);
+        return bucket;
+    }
+}
@@ -0,0 +1,212 @@
+package org.agrimachinerymanager.security;
+
+import org.agrimachinerymanager.common.util.RedisCircuitBreaker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * UserDetailsCache测试
+ * 两个节点共用一个模拟的Redis（值按实际的序列化器保存）和发布订阅，验证两级缓存的查询顺序和跨节点失效
+ */
+class UserDetailsCacheTest {
+
+    private static final String USERNAME = "operator_zhang";
+
+    // 模拟Redis中保存的序列化后的值
+    private final Map<String, byte[]> redis = new ConcurrentHashMap<>();
+
+    private final CachedUserSerializer serializer = new CachedUserSerializer();
+
+    // 已订阅失效通知的节点
+    private final List<UserDetailsCache> nodes = new ArrayList<>();
+
+    // 数据库中的角色，回源加载时读取
+    private final AtomicReference<Integer> role = new AtomicReference<>(2);
+
+    private final AtomicInteger databaseLoads = new AtomicInteger();
+
+    // 模拟删除二级缓存时Redis不可用
+    private final AtomicBoolean redisDown = new AtomicBoolean();
+
+    private final Function<String, UserDetailsCache.CachedUser> loader = username -> {
+        databaseLoads.incrementAndGet();
+        return new UserDetailsCache.CachedUser(1024L, username, role.get());
+    };
+
+    private RedisTemplate<String, UserDetailsCache.CachedUser> userDetailsRedisTemplate;
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        userDetailsRedisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, UserDetailsCache.CachedUser> values = mock(ValueOperations.class);
+        when(userDetailsRedisTemplate.opsForValue()).thenReturn(values);
+        when(values.get(anyString())).thenAnswer(invocation -> {
+            byte[] bytes = redis.get(invocation.<String>getArgument(0));
+            return bytes == null ? null : serializer.deserialize(bytes);
+        });
+        doAnswer(invocation -> redis.put(invocation.getArgument(0), serializer.serialize(invocation.getArgument(1))))
+                .when(values).set(anyString(), any(), anyLong(), any(TimeUnit.class));
+        when(userDetailsRedisTemplate.delete(anyString())).thenAnswer(invocation -> {
+            if (redisDown.get()) {
+                throw new RedisConnectionFailureException("Unable to connect to Redis");
+            }
+            return redis.remove(invocation.<String>getArgument(0)) != null;
+        });
+
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        doAnswer(invocation -> {
+            String channel = invocation.getArgument(0);
+            String body = invocation.getArgument(1);
+            DefaultMessage message = new DefaultMessage(channel.getBytes(StandardCharsets.UTF_8),
+                    body.getBytes(StandardCharsets.UTF_8));
+            nodes.forEach(node -> node.onMessage(message, null));
+            return (long) nodes.size();
+        }).when(stringRedisTemplate).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void loadsFromDatabaseOnceThenServesFromLocalCache() {
+        UserDetailsCache node = node();
+
+        UserDetails first = node.get(USERNAME, loader);
+        UserDetails second = node.get(USERNAME, loader);
+
+        assertEquals(1, databaseLoads.get());
+        assertEquals(USERNAME, second.getUsername());
+        assertTrue(first.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_OPERATOR")));
+        assertEquals(1L, node.getStats().get("localHits"));
+        assertEquals(1L, node.getStats().get("redisMisses"));
+    }
+
+    @Test
+    void otherNodeReadsFromRedisWithoutDatabase() {
+        node().get(USERNAME, loader);
+        UserDetailsCache other = node();
+
+        UserDetails details = other.get(USERNAME, loader);
+
+        assertEquals(1, databaseLoads.get());
+        assertEquals(USERNAME, details.getUsername());
+        assertEquals(1L, other.getStats().get("redisHits"));
+    }
+
+    @Test
+    void cachesNoPasswordHash() {
+        UserDetails details = node().get(USERNAME, loader);
+
+        assertEquals("", details.getPassword());
+        byte[] stored = redis.get("jwt:user:details:" + USERNAME);
+        assertNotNull(stored);
+        assertFalse(new String(stored, StandardCharsets.ISO_8859_1).contains("$2a$"));
+    }
+
+    @Test
+    void invalidationClearsRedisAndLocalCacheOnEveryNode() {
+        UserDetailsCache node = node();
+        UserDetailsCache other = node();
+        node.get(USERNAME, loader);
+        other.get(USERNAME, loader);
+        assertEquals(1, databaseLoads.get());
+
+        // 角色变更后由写入的节点失效缓存
+        role.set(1);
+        node.invalidate(USERNAME);
+
+        assertFalse(redis.containsKey("jwt:user:details:" + USERNAME));
+        assertEquals(1L, other.getStats().get("invalidations"));
+        UserDetails details = other.get(USERNAME, loader);
+        assertEquals(2, databaseLoads.get());
+        assertTrue(details.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")));
+        // 另一个节点已回填Redis，写入的节点无需再查询数据库
+        node.get(USERNAME, loader);
+        assertEquals(2, databaseLoads.get());
+    }
+
+    @Test
+    void failedInvalidationIsRetriedOnceRedisRecovers() {
+        UserDetailsCache node = node();
+        UserDetailsCache other = node();
+        node.get(USERNAME, loader);
+        other.get(USERNAME, loader);
+
+        role.set(1);
+        redisDown.set(true);
+        node.invalidate(USERNAME);
+        node.reconcileInvalidations();
+
+        // 通知未发出，其他节点和二级缓存仍是旧数据，等待重试
+        assertEquals(1, node.getStats().get("pendingInvalidations"));
+        assertEquals(0L, other.getStats().get("invalidations"));
+        assertTrue(redis.containsKey("jwt:user:details:" + USERNAME));
+
+        redisDown.set(false);
+        node.reconcileInvalidations();
+
+        assertEquals(0, node.getStats().get("pendingInvalidations"));
+        assertFalse(redis.containsKey("jwt:user:details:" + USERNAME));
+        assertTrue(other.get(USERNAME, loader).getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")));
+    }
+
+    @Test
+    void loadsFromDatabaseWhenRedisFails() {
+        UserDetailsCache node = node();
+        when(userDetailsRedisTemplate.opsForValue()).thenThrow(new IllegalStateException("Redis不可用"));
+
+        UserDetails details = node.get(USERNAME, loader);
+
+        assertEquals(USERNAME, details.getUsername());
+        assertEquals(1, databaseLoads.get());
+    }
+
+    private UserDetailsCache node() {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(breaker, "openDuration", 60_000L);
+        ReflectionTestUtils.setField(breaker, "maxConcurrent", 4);
+        breaker.init();
+
+        UserDetailsCache node = new UserDetailsCache();
+        ReflectionTestUtils.setField(node, "enabled", true);
+        ReflectionTestUtils.setField(node, "maxSize", 100L);
+        ReflectionTestUtils.setField(node, "localTtl", 60L);
+        ReflectionTestUtils.setField(node, "redisTtl", 600L);
+        ReflectionTestUtils.setField(node, "userDetailsRedisTemplate", userDetailsRedisTemplate);
+        ReflectionTestUtils.setField(node, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(node, "redisCircuitBreaker", breaker);
+        ReflectionTestUtils.setField(node, "redisMessageListenerContainer", mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(node, "roleAuthorityMapper", new RoleAuthorityMapper());
+        node.init();
+        nodes.add(node);
+        return node;
+    }
+}
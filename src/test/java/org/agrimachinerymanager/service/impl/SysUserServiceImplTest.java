@@ -0,0 +1,192 @@
+package org.agrimachinerymanager.service.impl;
+
+import org.agrimachinerymanager.common.util.JwtUtil;
+import org.agrimachinerymanager.common.util.PasswordUtil;
+import org.agrimachinerymanager.common.util.RedisLoginManager;
+import org.agrimachinerymanager.common.util.TokenEpochManager;
+import org.agrimachinerymanager.dto.LoginDTO;
+import org.agrimachinerymanager.entity.SysUser;
+import org.agrimachinerymanager.exception.BaseException;
+import org.agrimachinerymanager.exception.ServiceOverloadedException;
+import org.agrimachinerymanager.mapper.SysUserMapper;
+import org.agrimachinerymanager.security.LocalTokenBucketStore;
+import org.agrimachinerymanager.security.RateLimitProperties;
+import org.agrimachinerymanager.security.RateLimiter;
+import org.agrimachinerymanager.vo.LoginVo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * SysUserServiceImpl登录和刷新令牌测试
+ * 限流使用本地令牌桶存储，用户查询、密码校验和会话登记使用Mockito模拟
+ */
+class SysUserServiceImplTest {
+
+    private static final String SECRET =
+            "agrimachinery-manager-2024-secure-key-long-enough-for-hs512-algorithm-complex-password-12345678";
+
+    private static final String PASSWORD = "Zhang@2024";
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+
+    private final SysUserMapper sysUserMapper = mock(SysUserMapper.class);
+
+    private final PasswordUtil passwordUtil = mock(PasswordUtil.class);
+
+    private final TokenEpochManager tokenEpochManager = mock(TokenEpochManager.class);
+
+    private final RedisLoginManager redisLoginManager = mock(RedisLoginManager.class);
+
+    private final SysUser user = new SysUser();
+
+    private JwtUtil jwtUtil;
+
+    private SysUserServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        user.setId(7L);
+        user.setUsername("operator_zhang");
+        user.setPassword("$2a$10$hash");
+        user.setRole(2);
+        user.setStatus(1);
+        when(sysUserMapper.selectOne(any())).thenReturn(user);
+        when(passwordUtil.verify(anyString(), anyString()))
+                .thenAnswer(invocation -> PASSWORD.equals(invocation.getArgument(0)));
+        when(tokenEpochManager.getEpochForLogin(anyLong())).thenReturn(0L);
+        when(redisLoginManager.saveLoginInfo(any(), any(), any())).thenReturn("refresh-token");
+
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 3600L);
+        jwtUtil.init();
+
+        service = new SysUserServiceImpl();
+        ReflectionTestUtils.setField(service, "sysUserMapper", sysUserMapper);
+        ReflectionTestUtils.setField(service, "passwordUtil", passwordUtil);
+        ReflectionTestUtils.setField(service, "tokenEpochManager", tokenEpochManager);
+        ReflectionTestUtils.setField(service, "redisLoginManager", redisLoginManager);
+        ReflectionTestUtils.setField(service, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(service, "rateLimiter", loginRateLimiter());
+    }
+
+    @Test
+    void failedAttemptsFromOneIpDoNotLockOutTheUserElsewhere() {
+        for (int i = 0; i < 5; i++) {
+            BaseException e = assertThrows(BaseException.class,
+                    () -> service.login(login("wrong"), "203.0.113.9", "pc"));
+            assertEquals("用户名或密码错误", e.getMessage());
+        }
+        // 同一IP继续尝试被限流，正确的密码也不再校验
+        ServiceOverloadedException denied = assertThrows(ServiceOverloadedException.class,
+                () -> service.login(login(PASSWORD), "203.0.113.9", "pc"));
+        assertEquals(429, denied.getStatus());
+        verify(passwordUtil, times(5)).verify(anyString(), anyString());
+
+        // 用户本人从其他IP登录不受影响
+        LoginVo loginVo = service.login(login(PASSWORD), "198.51.100.7", "phone");
+
+        assertEquals(7L, loginVo.getId());
+        assertEquals("refresh-token", loginVo.getRefreshToken());
+        assertNotNull(loginVo.getToken());
+    }
+
+    @Test
+    void refreshRotatesTokensForActiveUser() {
+        RedisLoginManager.RefreshSession session = new RedisLoginManager.RefreshSession("session-1", 7L, 0L);
+        when(redisLoginManager.findRefreshSession("old-refresh")).thenReturn(session);
+        when(sysUserMapper.selectById(7L)).thenReturn(user);
+        when(redisLoginManager.rotateRefreshToken(eq("old-refresh"), eq(session), any())).thenReturn("new-refresh");
+
+        LoginVo loginVo = service.refreshToken("old-refresh");
+
+        assertEquals("new-refresh", loginVo.getRefreshToken());
+        JwtUtil.TokenClaims claims = jwtUtil.parseToken(loginVo.getToken());
+        assertEquals("session-1", claims.getSessionId());
+        assertEquals(0L, claims.getEpoch());
+        verify(redisLoginManager, never()).revokeSession(anyString(), anyLong());
+    }
+
+    @Test
+    void refreshIsRejectedAfterEpochBump() {
+        RedisLoginManager.RefreshSession session = new RedisLoginManager.RefreshSession("session-1", 7L, 0L);
+        when(redisLoginManager.findRefreshSession("old-refresh")).thenReturn(session);
+        when(sysUserMapper.selectById(7L)).thenReturn(user);
+        // 退出所有设备或修改密码后版本号已加一
+        when(tokenEpochManager.getEpochForLogin(7L)).thenReturn(1L);
+
+        assertThrows(BaseException.class, () -> service.refreshToken("old-refresh"));
+
+        verify(redisLoginManager).revokeSession("session-1", 7L);
+        verify(redisLoginManager, never()).rotateRefreshToken(anyString(), any(), any());
+    }
+
+    @Test
+    void refreshIsRejectedForDisabledOrDeletedUser() {
+        RedisLoginManager.RefreshSession session = new RedisLoginManager.RefreshSession("session-1", 7L, 0L);
+        when(redisLoginManager.findRefreshSession("old-refresh")).thenReturn(session);
+        user.setStatus(0);
+        when(sysUserMapper.selectById(7L)).thenReturn(user);
+
+        assertThrows(BaseException.class, () -> service.refreshToken("old-refresh"));
+
+        when(sysUserMapper.selectById(7L)).thenReturn(null);
+        assertThrows(BaseException.class, () -> service.refreshToken("old-refresh"));
+
+        verify(redisLoginManager, times(2)).revokeSession("session-1", 7L);
+        verify(redisLoginManager, never()).rotateRefreshToken(anyString(), any(), any());
+    }
+
+    @Test
+    void refreshIsRejectedWhenRotationFails() {
+        RedisLoginManager.RefreshSession session = new RedisLoginManager.RefreshSession("session-1", 7L, 0L);
+        when(redisLoginManager.findRefreshSession("old-refresh")).thenReturn(session);
+        when(sysUserMapper.selectById(7L)).thenReturn(user);
+
+        assertThrows(BaseException.class, () -> service.refreshToken("old-refresh"));
+        assertThrows(BaseException.class, () -> service.refreshToken("unknown-refresh"));
+    }
+
+    private RateLimiter loginRateLimiter() {
+        RateLimitProperties.Group group = new RateLimitProperties.Group();
+        group.setPatterns(List.of("/auth/login"));
+        group.setMethods(List.of("POST"));
+        group.setPerIp(bucket(20, 0.2));
+        group.setPerUser(bucket(5, 0.05));
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setLeaseTtl(1000);
+        properties.setGroups(new LinkedHashMap<>(Collections.singletonMap("login", group)));
+
+        RateLimiter limiter = new RateLimiter(properties, new LocalTokenBucketStore(1000, now::get));
+        limiter.init();
+        return limiter;
+    }
+
+    private static RateLimitProperties.Bucket bucket(int capacity, double refillPerSecond) {
+        RateLimitProperties.Bucket bucket = new RateLimitProperties.Bucket();
+        bucket.setCapacity(capacity);
+        bucket.setRefillPerSecond(refillPerSecond);
+        bucket.setLease(1);
+        return bucket;
+    }
+
+    private static LoginDTO login(String password) {
+        LoginDTO loginDTO = new LoginDTO();
+        loginDTO.setUsername("operator_zhang");
+        loginDTO.setPassword(password);
+        return loginDTO;
+    }
+}